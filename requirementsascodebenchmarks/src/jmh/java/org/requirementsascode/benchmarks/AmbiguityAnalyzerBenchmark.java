@@ -0,0 +1,61 @@
+package org.requirementsascode.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Ambiguity;
+import org.requirementsascode.AmbiguityAnalyzer;
+import org.requirementsascode.Model;
+import org.requirementsascode.UseCasePart;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersText;
+
+/**
+ * Measures how the time to analyze a model for ambiguities grows with the
+ * number of steps in it, for a basic flow with alternative flows of a few steps
+ * each. The analysis runs in parallel, so the time also depends on the number
+ * of cores.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AmbiguityAnalyzerBenchmark {
+    @Param({ "100", "1000" })
+    private int stepsPerModel;
+
+    private static final int STEPS_PER_ALTERNATIVE_FLOW = 5;
+
+    private AmbiguityAnalyzer ambiguityAnalyzer;
+
+    @Setup
+    public void setup() {
+	UseCasePart useCasePart = Model.builder().useCase("Use case");
+	useCasePart.basicFlow()
+		.step("S1").user(EntersText.class).system(BenchmarkModels::doesNothing)
+		.step("S2").user(EntersText.class).system(BenchmarkModels::doesNothing);
+
+	int flowsPerModel = stepsPerModel / STEPS_PER_ALTERNATIVE_FLOW;
+	for (int flowNumber = 1; flowNumber <= flowsPerModel; flowNumber++) {
+	    BenchmarkModels.alternativeFlowInsteadOf("S2", useCasePart, flowNumber, STEPS_PER_ALTERNATIVE_FLOW);
+	}
+	ambiguityAnalyzer = new AmbiguityAnalyzer(useCasePart.build());
+    }
+
+    @Benchmark
+    public List<Ambiguity> analyze() {
+	return ambiguityAnalyzer.analyze();
+    }
+}
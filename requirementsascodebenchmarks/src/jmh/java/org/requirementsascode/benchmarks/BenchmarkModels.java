@@ -0,0 +1,37 @@
+package org.requirementsascode.benchmarks;
+
+import org.requirementsascode.StepPart;
+import org.requirementsascode.UseCasePart;
+
+/**
+ * Helper methods and event classes to create the models that are measured by
+ * the benchmarks.
+ *
+ * @author b_muth
+ */
+class BenchmarkModels {
+    static void alternativeFlowInsteadOf(String stepName, UseCasePart useCasePart, int flowNumber,
+	    int stepsPerFlow) {
+	String flowName = "Alternative flow " + flowNumber;
+	StepPart stepPart = useCasePart.flow(flowName).insteadOf(stepName).condition(BenchmarkModels::isFalse)
+		.step(flowName + ", step 1");
+	for (int stepNumber = 2; stepNumber <= stepsPerFlow; stepNumber++) {
+	    stepPart = stepPart.user(EntersText.class).system(BenchmarkModels::doesNothing)
+		    .step(flowName + ", step " + stepNumber);
+	}
+	stepPart.user(EntersText.class).system(BenchmarkModels::doesNothing);
+    }
+
+    static boolean isFalse() {
+	return false;
+    }
+
+    static void doesNothing(Object event) {
+    }
+
+    public static class EntersText {
+    }
+
+    public static class EntersNumber {
+    }
+}
@@ -0,0 +1,88 @@
+package org.requirementsascode.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.Step;
+import org.requirementsascode.journal.EventCodec;
+import org.requirementsascode.journal.EventJournal;
+
+/**
+ * Measures how many entries per second can be appended to an
+ * {@link EventJournal} in a temporary directory, with a codec that encodes
+ * each event to a fixed number of bytes, and with different numbers of appends
+ * per commit.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EventJournalBenchmark {
+    private static final int EVENT_SIZE = 32;
+
+    @Param({ "1024", "65536" })
+    private int appendsPerCommit;
+
+    private Path directory;
+    private EventJournal journal;
+    private Step step;
+    private Object event;
+
+    @Setup
+    public void setup() throws IOException {
+	Model model = Model.builder().on(Object.class).system(BenchmarkModels::doesNothing).build();
+	step = model.getSteps().iterator().next();
+	event = new Object();
+
+	directory = Files.createTempDirectory("journal");
+	journal = EventJournal.open(directory, new FixedSizeCodec(), EventJournal.DEFAULT_SEGMENT_SIZE,
+		appendsPerCommit);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+	journal.close();
+	try (Stream<Path> files = Files.walk(directory)) {
+	    files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+	}
+    }
+
+    @Benchmark
+    public long append() throws IOException {
+	return journal.append(step, event);
+    }
+
+    private static class FixedSizeCodec implements EventCodec {
+	@Override
+	public void encode(Object event, ByteBuffer buffer) {
+	    for (int i = 0; i < EVENT_SIZE / 8; i++) {
+		buffer.putLong(i);
+	    }
+	}
+
+	@Override
+	public Object decode(ByteBuffer buffer) {
+	    return new Object();
+	}
+    }
+}
@@ -0,0 +1,55 @@
+package org.requirementsascode.benchmarks;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.extract.freemarker.FreeMarkerEngine;
+
+/**
+ * Measures how the time to extract documentation from a model with the
+ * FreeMarker engine grows with the number of alternative flows in a use case.
+ *
+ * @see InterruptCheckBenchmark#modelWithAlternativeFlows(int, int)
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ExtractBenchmark {
+    private static final String TEMPLATE_FILE_NAME = "extract.ftl";
+
+    @Param({ "10", "100", "1000" })
+    private int flowsPerUseCase;
+
+    @Param({ "3" })
+    private int stepsPerFlow;
+
+    private Model model;
+    private FreeMarkerEngine engine;
+
+    @Setup
+    public void setup() {
+	model = InterruptCheckBenchmark.modelWithAlternativeFlows(flowsPerUseCase, stepsPerFlow);
+	engine = new FreeMarkerEngine("org/requirementsascode/benchmarks");
+    }
+
+    @Benchmark
+    public String extract() throws Exception {
+	StringWriter outputWriter = new StringWriter();
+	engine.extract(model, TEMPLATE_FILE_NAME, outputWriter);
+	return outputWriter.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package org.requirementsascode.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.Step;
+import org.requirementsascode.UseCasePart;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersText;
+
+/**
+ * Measures how the time to react to an event grows with the number of
+ * alternative flows in a use case.
+ *
+ * <p>
+ * Each alternative flow starts instead of the second step of the basic flow,
+ * with a condition that is false. So when the runner dispatches an event after
+ * the first step, each alternative flow's first step is an interrupting step
+ * that needs to be checked before the second step of the basic flow can react.
+ * The time per event should grow linearly with the number of flows.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InterruptCheckBenchmark {
+    @Param({ "10", "100", "1000" })
+    private int flowsPerUseCase;
+
+    @Param({ "3" })
+    private int stepsPerFlow;
+
+    private ModelRunner modelRunner;
+    private EntersText entersText;
+
+    @Setup
+    public void setup() {
+	Model model = modelWithAlternativeFlows(flowsPerUseCase, stepsPerFlow);
+	modelRunner = new ModelRunner().run(model);
+	entersText = new EntersText();
+    }
+
+    @Benchmark
+    public Optional<Step> reactToEvent() {
+	return modelRunner.reactTo(entersText);
+    }
+
+    static Model modelWithAlternativeFlows(int flowsPerUseCase, int stepsPerFlow) {
+	UseCasePart useCasePart = Model.builder().useCase("Use case");
+	useCasePart.basicFlow()
+		.step("S1").user(EntersText.class).system(BenchmarkModels::doesNothing)
+		.step("S2").user(EntersText.class).system(BenchmarkModels::doesNothing)
+		.step("S3").continuesAt("S1");
+
+	for (int flowNumber = 1; flowNumber <= flowsPerUseCase; flowNumber++) {
+	    BenchmarkModels.alternativeFlowInsteadOf("S2", useCasePart, flowNumber, stepsPerFlow);
+	}
+
+	return useCasePart.build();
+    }
+}
@@ -0,0 +1,63 @@
+package org.requirementsascode.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.StepPart;
+import org.requirementsascode.UseCasePart;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersText;
+
+/**
+ * Measures how the time to build a model grows with the number of steps in it.
+ *
+ * <p>
+ * The first benchmark builds a single basic flow with all the steps. The
+ * second one spreads the steps over alternative flows of a few steps each. In
+ * both cases, the build time should grow linearly with the number of steps.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ModelBuildBenchmark {
+    @Param({ "100", "1000", "10000" })
+    private int stepsPerModel;
+
+    private static final int STEPS_PER_ALTERNATIVE_FLOW = 5;
+
+    @Benchmark
+    public Model buildBasicFlow() {
+	UseCasePart useCasePart = Model.builder().useCase("Use case");
+	StepPart stepPart = useCasePart.basicFlow().step("S1");
+	for (int stepNumber = 2; stepNumber <= stepsPerModel; stepNumber++) {
+	    stepPart = stepPart.user(EntersText.class).system(BenchmarkModels::doesNothing).step("S" + stepNumber);
+	}
+	return stepPart.user(EntersText.class).system(BenchmarkModels::doesNothing).build();
+    }
+
+    @Benchmark
+    public Model buildAlternativeFlows() {
+	UseCasePart useCasePart = Model.builder().useCase("Use case");
+	useCasePart.basicFlow()
+		.step("S1").user(EntersText.class).system(BenchmarkModels::doesNothing)
+		.step("S2").user(EntersText.class).system(BenchmarkModels::doesNothing);
+
+	int flowsPerModel = stepsPerModel / STEPS_PER_ALTERNATIVE_FLOW;
+	for (int flowNumber = 1; flowNumber <= flowsPerModel; flowNumber++) {
+	    BenchmarkModels.alternativeFlowInsteadOf("S2", useCasePart, flowNumber, STEPS_PER_ALTERNATIVE_FLOW);
+	}
+	return useCasePart.build();
+    }
+}
@@ -0,0 +1,89 @@
+package org.requirementsascode.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelBuilder;
+import org.requirementsascode.UseCasePart;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersText;
+import org.requirementsascode.loader.ModelLoader;
+import org.requirementsascode.loader.ModelRegistry;
+
+/**
+ * Measures the time to load a model file with a {@link ModelLoader}, compared
+ * to building the same model with a model builder. The model has use cases of
+ * 5 steps each: a basic flow with 2 steps, and an alternative flow with a
+ * condition and 3 steps, instead of the second step. The model file is read
+ * from memory.
+ *
+ * @author b_muth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ModelLoaderBenchmark {
+    @Param({ "1000", "10000", "50000" })
+    private int stepsPerModel;
+
+    private static final int STEPS_PER_USE_CASE = 5;
+
+    private ModelLoader modelLoader;
+    private String modelFile;
+
+    @Setup
+    public void setup() {
+	ModelRegistry registry = new ModelRegistry()
+		.eventClass(EntersText.class)
+		.condition("isFalse", BenchmarkModels::isFalse)
+		.systemReaction("doesNothing", BenchmarkModels::doesNothing);
+	modelLoader = new ModelLoader(registry);
+
+	StringBuilder modelFileBuilder = new StringBuilder();
+	for (int useCaseNumber = 1; useCaseNumber <= stepsPerModel / STEPS_PER_USE_CASE; useCaseNumber++) {
+	    modelFileBuilder.append("usecase \"Use case ").append(useCaseNumber).append("\"\n")
+		    .append("  basicflow\n")
+		    .append("    step S1 user EntersText system doesNothing\n")
+		    .append("    step S2 user EntersText system doesNothing\n")
+		    .append("  flow \"Alternative flow\" insteadOf S2 condition isFalse\n")
+		    .append("    step S2a user EntersText system doesNothing\n")
+		    .append("    step S2b user EntersText system doesNothing\n")
+		    .append("    step S2c continuesAt S1\n");
+	}
+	modelFile = modelFileBuilder.toString();
+    }
+
+    @Benchmark
+    public Model loadModelFile() throws IOException {
+	return modelLoader.load(new StringReader(modelFile));
+    }
+
+    @Benchmark
+    public Model buildModel() {
+	ModelBuilder modelBuilder = Model.builder();
+	for (int useCaseNumber = 1; useCaseNumber <= stepsPerModel / STEPS_PER_USE_CASE; useCaseNumber++) {
+	    UseCasePart useCasePart = modelBuilder.useCase("Use case " + useCaseNumber);
+	    useCasePart.basicFlow()
+		    .step("S1").user(EntersText.class).system(BenchmarkModels::doesNothing)
+		    .step("S2").user(EntersText.class).system(BenchmarkModels::doesNothing);
+	    useCasePart.flow("Alternative flow").insteadOf("S2").condition(BenchmarkModels::isFalse)
+		    .step("S2a").user(EntersText.class).system(BenchmarkModels::doesNothing)
+		    .step("S2b").user(EntersText.class).system(BenchmarkModels::doesNothing)
+		    .step("S2c").continuesAt("S1");
+	}
+	return modelBuilder.build();
+    }
+}
@@ -0,0 +1,107 @@
+package org.requirementsascode.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.PartitionedRunnerPool;
+
+/**
+ * Measures the time a {@link PartitionedRunnerPool} takes to react to a million
+ * events for 100000 keys, for different numbers of worker threads. As a
+ * baseline, a single thread reacts to the same events with runners kept in a
+ * map. Run it on a machine with at least as many cores as the highest
+ * parallelism, to see how the pool scales.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PartitionedRunnerPoolBenchmark {
+    private static final int KEYS = 100000;
+    private static final int EVENTS = 1000000;
+    private static final int EVENTS_PER_BATCH = 1024;
+
+    @Param({ "1", "2", "4", "8" })
+    private int parallelism;
+
+    private Model model;
+    private ForkJoinPool forkJoinPool;
+    private PartitionedRunnerPool<Integer> pool;
+    private Map<Integer, ModelRunner> runners;
+    private List<List<Object>> batches;
+
+    @Setup
+    public void setup() {
+	model = Model.builder()
+		.on(CardEvent.class).system(BenchmarkModels::doesNothing)
+		.build();
+	forkJoinPool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	pool = new PartitionedRunnerPool<>(event -> ((CardEvent) event).cardNumber, this::newRunner, parallelism * 8,
+		forkJoinPool);
+	runners = new HashMap<>();
+
+	batches = new ArrayList<>();
+	for (int eventNumber = 0; eventNumber < EVENTS; eventNumber += EVENTS_PER_BATCH) {
+	    List<Object> batch = new ArrayList<>(EVENTS_PER_BATCH);
+	    for (int i = eventNumber; i < eventNumber + EVENTS_PER_BATCH && i < EVENTS; i++) {
+		batch.add(new CardEvent(i % KEYS));
+	    }
+	    batches.add(batch);
+	}
+    }
+
+    private ModelRunner newRunner(Integer cardNumber) {
+	return new ModelRunner().run(model);
+    }
+
+    @TearDown
+    public void tearDown() {
+	forkJoinPool.shutdownNow();
+    }
+
+    @Benchmark
+    public Object reactToAllWithPool() {
+	for (List<Object> batch : batches) {
+	    pool.reactToAll(batch);
+	}
+	return pool.flush().join();
+    }
+
+    @Benchmark
+    public Map<Integer, ModelRunner> reactToEachOnSingleThread() {
+	for (List<Object> batch : batches) {
+	    for (Object event : batch) {
+		runners.computeIfAbsent(((CardEvent) event).cardNumber, this::newRunner).reactTo(event);
+	    }
+	}
+	return runners;
+    }
+
+    static class CardEvent {
+	private final Integer cardNumber;
+
+	CardEvent(int cardNumber) {
+	    this.cardNumber = cardNumber;
+	}
+    }
+}
@@ -0,0 +1,75 @@
+package org.requirementsascode.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.BatchStatistics;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersNumber;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersText;
+
+/**
+ * Compares reacting to a large batch of events with
+ * {@link ModelRunner#reactToAll(java.util.Iterator)} to calling
+ * {@link ModelRunner#reactTo(Object)} for each event. The batch consists of
+ * runs of events of the same class, of a parameterised length. The model is
+ * flowless, like a model for an aggregate that handles commands.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReactToAllBenchmark {
+    private static final int EVENTS_PER_BATCH = 1000000;
+
+    @Param({ "1", "100" })
+    private int eventsPerRun;
+
+    private ModelRunner modelRunner;
+    private List<Object> events;
+
+    @Setup
+    public void setup() {
+	Model model = Model.builder()
+		.on(EntersText.class).system(BenchmarkModels::doesNothing)
+		.on(EntersNumber.class).system(BenchmarkModels::doesNothing)
+		.build();
+	modelRunner = new ModelRunner().run(model);
+
+	EntersText entersText = new EntersText();
+	EntersNumber entersNumber = new EntersNumber();
+	events = new ArrayList<>(EVENTS_PER_BATCH);
+	for (int eventNumber = 0; eventNumber < EVENTS_PER_BATCH; eventNumber++) {
+	    boolean isTextRun = (eventNumber / eventsPerRun) % 2 == 0;
+	    events.add(isTextRun ? entersText : entersNumber);
+	}
+    }
+
+    @Benchmark
+    public BatchStatistics reactToAll() {
+	return modelRunner.reactToAll(events.iterator());
+    }
+
+    @Benchmark
+    public ModelRunner reactToEach() {
+	for (Object event : events) {
+	    modelRunner.reactTo(event);
+	}
+	return modelRunner;
+    }
+}
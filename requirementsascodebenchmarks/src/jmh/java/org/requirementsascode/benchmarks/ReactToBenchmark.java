@@ -0,0 +1,157 @@
+package org.requirementsascode.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.HistogramRunnerMetrics;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelBuilder;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.Step;
+import org.requirementsascode.StepPart;
+import org.requirementsascode.UseCasePart;
+import org.requirementsascode.UseCasePart.FlowlessSystemPart;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersText;
+
+/**
+ * Measures the throughput of {@link ModelRunner#reactTo(Object)}, and the
+ * distribution of the time it takes, for three kinds of models:
+ *
+ * <ul>
+ * <li>a basic flow with a parameterised number of steps, that loops back to
+ * its first step, with and without measuring the runner with a
+ * {@link HistogramRunnerMetrics}</li>
+ * <li>a flowless model with a parameterised number of handlers for the same
+ * event class, where the handlers' conditions make exactly one handler react
+ * to each event, with and without first match dispatch</li>
+ * <li>a basic flow with a parameterised number of steps that each include the
+ * same use case</li>
+ * </ul>
+ *
+ * @author b_muth
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReactToBenchmark {
+    @Benchmark
+    public Optional<Step> reactToEventInFlow(FlowModel flowModel) {
+	return flowModel.modelRunner.reactTo(flowModel.entersText);
+    }
+
+    @Benchmark
+    public Optional<Step> reactToEventWithoutFlow(FlowlessModel flowlessModel) {
+	return flowlessModel.modelRunner.reactTo(flowlessModel.entersText);
+    }
+
+    @Benchmark
+    public Optional<Step> reactToEventInIncludedUseCase(IncludeModel includeModel) {
+	return includeModel.modelRunner.reactTo(includeModel.entersText);
+    }
+
+    @State(Scope.Thread)
+    public static class FlowModel {
+	@Param({ "10", "100", "1000" })
+	private int stepsInBasicFlow;
+
+	@Param({ "false", "true" })
+	private boolean isMeasuring;
+
+	private ModelRunner modelRunner;
+	private EntersText entersText;
+
+	@Setup
+	public void setup() {
+	    UseCasePart useCasePart = Model.builder().useCase("Use case");
+	    StepPart stepPart = useCasePart.basicFlow().step("S1");
+	    for (int stepNumber = 2; stepNumber <= stepsInBasicFlow; stepNumber++) {
+		stepPart = stepPart.user(EntersText.class).system(BenchmarkModels::doesNothing)
+			.step("S" + stepNumber);
+	    }
+	    Model model = stepPart.continuesAt("S1").build();
+
+	    modelRunner = new ModelRunner().run(model);
+	    if (isMeasuring) {
+		modelRunner.startMeasuring(new HistogramRunnerMetrics());
+	    }
+	    entersText = new EntersText();
+	}
+    }
+
+    @State(Scope.Thread)
+    public static class FlowlessModel {
+	@Param({ "10", "100", "1000" })
+	private int handlersPerModel;
+
+	@Param({ "false", "true" })
+	private boolean isFirstMatchDispatch;
+
+	private ModelRunner modelRunner;
+	private EntersText entersText;
+	private int eventNumber;
+
+	@Setup
+	public void setup() {
+	    FlowlessSystemPart<EntersText> systemPart = Model.builder().condition(() -> isReactingHandler(0))
+		    .on(EntersText.class).system(this::countsEvent);
+	    for (int handlerNumber = 1; handlerNumber < handlersPerModel; handlerNumber++) {
+		int reactingHandlerNumber = handlerNumber;
+		systemPart = systemPart.condition(() -> isReactingHandler(reactingHandlerNumber))
+			.on(EntersText.class).system(this::countsEvent);
+	    }
+	    Model model = systemPart.build();
+
+	    modelRunner = new ModelRunner();
+	    if (isFirstMatchDispatch) {
+		modelRunner.startFirstMatchDispatch();
+	    }
+	    modelRunner.run(model);
+	    entersText = new EntersText();
+	}
+
+	private boolean isReactingHandler(int handlerNumber) {
+	    return eventNumber % handlersPerModel == handlerNumber;
+	}
+
+	private void countsEvent(EntersText entersText) {
+	    eventNumber++;
+	}
+    }
+
+    @State(Scope.Thread)
+    public static class IncludeModel {
+	@Param({ "10", "100" })
+	private int includeStepsPerFlow;
+
+	private ModelRunner modelRunner;
+	private EntersText entersText;
+
+	@Setup
+	public void setup() {
+	    ModelBuilder modelBuilder = Model.builder();
+	    modelBuilder.useCase("Included use case")
+		.basicFlow()
+		    .step("Included step").user(EntersText.class).system(BenchmarkModels::doesNothing);
+
+	    StepPart stepPart = modelBuilder.useCase("Use case").basicFlow().step("S1");
+	    for (int stepNumber = 2; stepNumber <= includeStepsPerFlow; stepNumber++) {
+		stepPart = stepPart.includesUseCase("Included use case").step("S" + stepNumber);
+	    }
+	    Model model = stepPart.continuesAt("S1").build();
+
+	    modelRunner = new ModelRunner().run(model);
+	    entersText = new EntersText();
+	}
+    }
+}
@@ -0,0 +1,57 @@
+package org.requirementsascode.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersText;
+
+/**
+ * Measures how the time to find out which events the runner can react to grows
+ * with the number of alternative flows in a use case.
+ *
+ * @see InterruptCheckBenchmark#modelWithAlternativeFlows(int, int)
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReactToTypesBenchmark {
+    @Param({ "10", "100", "1000" })
+    private int flowsPerUseCase;
+
+    @Param({ "3" })
+    private int stepsPerFlow;
+
+    private ModelRunner modelRunner;
+
+    @Setup
+    public void setup() {
+	Model model = InterruptCheckBenchmark.modelWithAlternativeFlows(flowsPerUseCase, stepsPerFlow);
+	modelRunner = new ModelRunner().run(model);
+	modelRunner.reactTo(new EntersText());
+    }
+
+    @Benchmark
+    public boolean canReactTo() {
+	return modelRunner.canReactTo(EntersText.class);
+    }
+
+    @Benchmark
+    public Set<Class<?>> getReactToTypes() {
+	return modelRunner.getReactToTypes();
+    }
+}
@@ -0,0 +1,98 @@
+package org.requirementsascode.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.RunnerPipeline;
+import org.requirementsascode.RunnerPipeline.Stage;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersNumber;
+import org.requirementsascode.benchmarks.BenchmarkModels.EntersText;
+
+/**
+ * Measures the time a {@link RunnerPipeline} takes to react to 100000 inputs,
+ * compared to converting each input and calling
+ * {@link ModelRunner#reactTo(Object)} on a single thread. The system reaction
+ * spins for a parameterised time, to simulate a reaction that writes to
+ * storage.
+ *
+ * <p>
+ * The pipeline runs a thread per stage, so run the benchmark on a machine with
+ * at least 4 cores.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RunnerPipelineBenchmark {
+    private static final int INPUTS = 100000;
+    private static final EntersText TEXT = new EntersText();
+    private static final EntersNumber NUMBER = new EntersNumber();
+
+    @Param({ "0", "1000" })
+    private long reactionNanos;
+
+    private ModelRunner modelRunner;
+    private RunnerPipeline<Integer> pipeline;
+    private ModelRunner pipelineRunner;
+
+    @Setup
+    public void setup() {
+	Model model = Model.builder()
+		.on(EntersText.class).system(this::writesToStorage)
+		.on(EntersNumber.class).system(this::writesToStorage)
+		.build();
+	modelRunner = new ModelRunner().run(model);
+	pipelineRunner = new ModelRunner().run(model);
+	pipeline = new RunnerPipeline<>(pipelineRunner, this::convert, null, 1024).start(Thread::new);
+    }
+
+    private Object convert(Integer input) {
+	return input % 2 == 0 ? TEXT : NUMBER;
+    }
+
+    private void writesToStorage(Object event) {
+	long endNanos = System.nanoTime() + reactionNanos;
+	while (System.nanoTime() < endNanos) {
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	pipeline.close();
+    }
+
+    @Benchmark
+    public ModelRunner reactWithPipeline() {
+	long journaledSteps = pipeline.getLatencyHistogram(Stage.JOURNAL).getCount() + INPUTS;
+	for (int input = 0; input < INPUTS; input++) {
+	    pipeline.publish(input);
+	}
+	while (pipeline.getLatencyHistogram(Stage.JOURNAL).getCount() < journaledSteps) {
+	    Thread.yield();
+	}
+	return pipelineRunner;
+    }
+
+    @Benchmark
+    public ModelRunner reactOnSingleThread() {
+	for (int input = 0; input < INPUTS; input++) {
+	    modelRunner.reactTo(convert(input));
+	}
+	return modelRunner;
+    }
+}
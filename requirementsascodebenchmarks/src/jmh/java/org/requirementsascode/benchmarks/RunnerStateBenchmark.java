@@ -0,0 +1,106 @@
+package org.requirementsascode.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.RunnerStateCodec;
+import org.requirementsascode.StepPart;
+import org.requirementsascode.UseCasePart;
+
+/**
+ * Compares saving and restoring the state of a runner with a
+ * {@link RunnerStateCodec} to serializing and deserializing the runner with
+ * Java serialization, which includes the model. The README of the benchmarks
+ * lists the size of the state in both cases.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RunnerStateBenchmark {
+    @Param({ "10", "100" })
+    private int stepsInBasicFlow;
+
+    private ModelRunner modelRunner;
+    private RunnerStateCodec codec;
+    private byte[] encodedState;
+    private byte[] serializedRunner;
+
+    @Setup
+    public void setup() throws IOException {
+	UseCasePart useCasePart = Model.builder().useCase("Use case");
+	StepPart stepPart = useCasePart.basicFlow().step("S1");
+	for (int stepNumber = 2; stepNumber <= stepsInBasicFlow; stepNumber++) {
+	    stepPart = stepPart.user(EntersSerializableText.class).system(new DoesNothing<>()).step("S" + stepNumber);
+	}
+	Model model = stepPart.user(EntersSerializableText.class).system(new DoesNothing<>()).build();
+
+	modelRunner = new ModelRunner().run(model);
+	modelRunner.reactTo(new EntersSerializableText());
+	codec = new RunnerStateCodec(model);
+
+	encodedState = encodeState();
+	serializedRunner = serializeRunner();
+    }
+
+    @Benchmark
+    public byte[] encodeState() {
+	return codec.encode(modelRunner);
+    }
+
+    @Benchmark
+    public ModelRunner restoreState() {
+	ModelRunner restoredRunner = new ModelRunner();
+	codec.restore(encodedState, restoredRunner);
+	return restoredRunner;
+    }
+
+    @Benchmark
+    public byte[] serializeRunner() throws IOException {
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+	    out.writeObject(modelRunner);
+	}
+	return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object deserializeRunner() throws IOException, ClassNotFoundException {
+	try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serializedRunner))) {
+	    return in.readObject();
+	}
+    }
+
+    private static class EntersSerializableText implements Serializable {
+	private static final long serialVersionUID = 1L;
+    }
+
+    private static class DoesNothing<T> implements Consumer<T>, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public void accept(T event) {
+	}
+    }
+}
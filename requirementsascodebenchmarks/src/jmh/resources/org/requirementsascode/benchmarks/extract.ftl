@@ -0,0 +1,11 @@
+<@compress single_line=true>
+<#list model.useCases as useCase>
+	Use case: ${useCase}.
+	<#list useCase.flows as f>
+		Flow: ${f} ${flowCondition(f)}
+		<#list f.steps as s>
+			Step: ${s}. ${reactWhileOfStep(s)}${actorPartOfStep(s)}${userPartOfStep(s)}${systemPartOfStep(s)}
+		</#list>
+	</#list>
+</#list>
+</@compress>
\ No newline at end of file
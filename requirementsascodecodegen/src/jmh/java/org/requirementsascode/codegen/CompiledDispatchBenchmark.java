@@ -0,0 +1,94 @@
+package org.requirementsascode.codegen;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.Step;
+import org.requirementsascode.StepPart;
+import org.requirementsascode.UseCasePart;
+
+/**
+ * Measures the time to react to an event with a {@link CompiledDispatchEngine},
+ * compared to the runner's default IndexedDispatchEngine, for the model of the
+ * InterruptCheckBenchmark of the benchmarks module: a use case with
+ * alternative flows instead of the second step of the basic flow, with false
+ * conditions.
+ *
+ * @author b_muth
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompiledDispatchBenchmark {
+    private static final int STEPS_PER_FLOW = 3;
+
+    @Param({ "10", "100", "1000" })
+    private int flowsPerUseCase;
+
+    @Param({ "false", "true" })
+    private boolean isCompiled;
+
+    private ModelRunner modelRunner;
+    private EntersText entersText;
+
+    @Setup
+    public void setup() {
+	Model model = modelWithAlternativeFlows();
+	modelRunner = new ModelRunner();
+	if (isCompiled) {
+	    modelRunner.startDispatchEngine(CompiledDispatchEngine.compile(model));
+	}
+	modelRunner.run(model);
+	entersText = new EntersText();
+    }
+
+    @Benchmark
+    public Optional<Step> reactToEvent() {
+	return modelRunner.reactTo(entersText);
+    }
+
+    private Model modelWithAlternativeFlows() {
+	UseCasePart useCasePart = Model.builder().useCase("Use case");
+	useCasePart.basicFlow()
+		.step("S1").user(EntersText.class).system(CompiledDispatchBenchmark::doesNothing)
+		.step("S2").user(EntersText.class).system(CompiledDispatchBenchmark::doesNothing)
+		.step("S3").continuesAt("S1");
+
+	for (int flowNumber = 1; flowNumber <= flowsPerUseCase; flowNumber++) {
+	    String flowName = "Alternative flow " + flowNumber;
+	    StepPart stepPart = useCasePart.flow(flowName).insteadOf("S2").condition(CompiledDispatchBenchmark::isFalse)
+		    .step(flowName + ", step 1");
+	    for (int stepNumber = 2; stepNumber <= STEPS_PER_FLOW; stepNumber++) {
+		stepPart = stepPart.user(EntersText.class).system(CompiledDispatchBenchmark::doesNothing)
+			.step(flowName + ", step " + stepNumber);
+	    }
+	    stepPart.user(EntersText.class).system(CompiledDispatchBenchmark::doesNothing);
+	}
+
+	return useCasePart.build();
+    }
+
+    private static boolean isFalse() {
+	return false;
+    }
+
+    private static void doesNothing(Object event) {
+    }
+
+    public static class EntersText {
+    }
+}
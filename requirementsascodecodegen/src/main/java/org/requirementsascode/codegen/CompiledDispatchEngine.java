@@ -0,0 +1,220 @@
+package org.requirementsascode.codegen;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.requirementsascode.Actor;
+import org.requirementsascode.DispatchEngine;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.Step;
+import org.requirementsascode.UseCase;
+import org.requirementsascode.exception.MissingUseCaseStepPart;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+/**
+ * A dispatch engine that generates a class for a model at runtime, and uses it
+ * to select the steps that react to events.
+ *
+ * <p>
+ * A runner dispatches an event through the same call sites for all models:
+ * when it evaluates the conditions of the steps, the just-in-time compiler sees
+ * many different conditions, and can't inline them. The engine computes a
+ * transition table of the model: for each event class and latest step, the
+ * steps that are at the right position to react. The generated class has the
+ * dispatch of a single model hardwired: a switch over the lists of steps of the
+ * table, and a call site for each condition of each step. Events whose class
+ * isn't an event class of the model, but a subclass of one, are dispatched to
+ * the steps the engine has looked up for their class, with the checks of the
+ * flow position that the steps provide.
+ *
+ * <p>
+ * Set the engine for a runner like this:
+ *
+ * <pre>
+ * modelRunner.startDispatchEngine(CompiledDispatchEngine.compile(model)).run(model);
+ * </pre>
+ *
+ * <p>
+ * The engine compiles the class with the Java compiler of the JDK, so it needs
+ * a JDK at runtime. Compiling takes about a second for small models, and tens
+ * of seconds for models with ten thousands of steps, so compile the engine
+ * once per model, and share it between runners. The engine doesn't memoize
+ * conditions: it evaluates the conditions of an interrupting step for each
+ * interruptable step it checks.
+ *
+ * @see ModelRunner#startDispatchEngine(DispatchEngine)
+ * @author b_muth
+ */
+public class CompiledDispatchEngine implements DispatchEngine {
+    private static final int[] NO_STEP_NUMBERS = new int[0];
+
+    private final Model model;
+    private final DispatchTable dispatchTable;
+    private final Step[] steps;
+    private final Map<Class<?>, Integer> eventClassToNumberMap;
+    private final Map<Class<?>, int[]> eventClassToStepNumbersMap;
+    private final CompiledDispatcher compiledDispatcher;
+    private final String source;
+
+    private CompiledDispatchEngine(Model model, DispatchTable dispatchTable) {
+	this.model = model;
+	this.dispatchTable = dispatchTable;
+	this.steps = dispatchTable.getSteps();
+	this.eventClassToNumberMap = new HashMap<>();
+	List<Class<?>> eventClasses = dispatchTable.getEventClasses();
+	for (int eventClassNumber = 0; eventClassNumber < eventClasses.size(); eventClassNumber++) {
+	    eventClassToNumberMap.put(eventClasses.get(eventClassNumber), eventClassNumber);
+	}
+	this.eventClassToStepNumbersMap = new ConcurrentHashMap<>();
+
+	DispatcherSourceWriter sourceWriter = new DispatcherSourceWriter(dispatchTable, model.getSystemActor());
+	this.source = sourceWriter.write();
+	this.compiledDispatcher = new DispatcherCompiler().compile(source, sourceWriter.getConstants());
+    }
+
+    /**
+     * Generates and compiles the class for the specified model.
+     *
+     * @param model
+     *            the model
+     * @return the engine
+     * @throws MissingUseCaseStepPart
+     *             if a step of the model has no actor part
+     * @throws DispatchCompilationFailed
+     *             if the class can't be compiled
+     */
+    public static CompiledDispatchEngine compile(Model model) {
+	Objects.requireNonNull(model);
+	Step[] steps = model.getSteps().toArray(new Step[0]);
+	for (Step step : steps) {
+	    if (step.getActors() == null) {
+		throw new MissingUseCaseStepPart(step, "actor");
+	    }
+	}
+	CompiledDispatchEngine compiledDispatchEngine = new CompiledDispatchEngine(model, new DispatchTable(steps));
+	return compiledDispatchEngine;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException
+     *             if the latest step of the runner isn't a step of the model of
+     *             the engine
+     */
+    @Override
+    public Step selectStep(ModelRunner modelRunner, Class<?> eventClass) {
+	Actor actor = modelRunner.getRunActor();
+	Step latestStep = modelRunner.getLatestStep().orElse(null);
+	UseCase includedUseCase = modelRunner.getIncludedUseCase().orElse(null);
+	boolean isFirstMatch = modelRunner.isFirstMatchDispatch();
+
+	int latestStepNumber = dispatchTable.getLatestStepNumber(latestStep);
+	if (latestStepNumber < 0) {
+	    throw new IllegalStateException(
+		    "Latest step " + latestStep + " isn't a step of the model the engine has been compiled for");
+	}
+	Integer eventClassNumber = eventClassToNumberMap.get(eventClass);
+	int stepNumber = eventClassNumber != null
+		? select(eventClassNumber, latestStepNumber, actor, includedUseCase, isFirstMatch)
+		: selectAmong(stepNumbersFor(eventClass), latestStep, latestStepNumber, actor, includedUseCase,
+			isFirstMatch);
+
+	if (stepNumber == CompiledDispatcher.MORE_THAN_ONE_STEP) {
+	    Set<Step> stepsThatCanReact = stepsThatCanReact(stepNumbersFor(eventClass), latestStep, latestStepNumber,
+		    actor, includedUseCase);
+	    throw new MoreThanOneStepCanReact(stepsThatCanReact);
+	}
+	Step step = stepNumber != CompiledDispatcher.NO_STEP ? steps[stepNumber] : null;
+	return step;
+    }
+
+    private int select(int eventClassNumber, int latestStepNumber, Actor actor, UseCase includedUseCase,
+	    boolean isFirstMatch) {
+	int candidateListNumber = dispatchTable.getCandidateListNumber(eventClassNumber, latestStepNumber);
+	int stepNumber = candidateListNumber != DispatchTable.NO_LIST
+		? compiledDispatcher.select(candidateListNumber, actor, includedUseCase, isFirstMatch)
+		: CompiledDispatcher.NO_STEP;
+	return stepNumber;
+    }
+
+    private int selectAmong(int[] stepNumbers, Step latestStep, int latestStepNumber, Actor actor,
+	    UseCase includedUseCase, boolean isFirstMatch) {
+	int selectedStepNumber = CompiledDispatcher.NO_STEP;
+	for (int stepNumber : stepNumbers) {
+	    if (canReact(stepNumber, latestStep, latestStepNumber, actor, includedUseCase)) {
+		if (selectedStepNumber != CompiledDispatcher.NO_STEP) {
+		    return CompiledDispatcher.MORE_THAN_ONE_STEP;
+		}
+		if (isFirstMatch) {
+		    return stepNumber;
+		}
+		selectedStepNumber = stepNumber;
+	    }
+	}
+	return selectedStepNumber;
+    }
+
+    private Set<Step> stepsThatCanReact(int[] stepNumbers, Step latestStep, int latestStepNumber, Actor actor,
+	    UseCase includedUseCase) {
+	Set<Step> stepsThatCanReact = new HashSet<>();
+	for (int stepNumber : stepNumbers) {
+	    if (canReact(stepNumber, latestStep, latestStepNumber, actor, includedUseCase)) {
+		stepsThatCanReact.add(steps[stepNumber]);
+	    }
+	}
+	return stepsThatCanReact;
+    }
+
+    private boolean canReact(int stepNumber, Step latestStep, int latestStepNumber, Actor actor,
+	    UseCase includedUseCase) {
+	if (!steps[stepNumber].isRunnerAtRightPositionAfter(latestStep)
+		|| !compiledDispatcher.canReact(stepNumber, actor, includedUseCase)) {
+	    return false;
+	}
+	int interruptListNumber = dispatchTable.getInterruptListNumber(stepNumber, latestStepNumber);
+	boolean canReact = interruptListNumber == DispatchTable.NO_LIST
+		|| !compiledDispatcher.isInterrupted(interruptListNumber, actor, includedUseCase);
+	return canReact;
+    }
+
+    /**
+     * Returns the numbers of the steps whose event class is the same or a
+     * superclass of the specified event class, in model order.
+     */
+    private int[] stepNumbersFor(Class<?> eventClass) {
+	int[] stepNumbers = eventClassToStepNumbersMap.get(eventClass);
+	if (stepNumbers == null) {
+	    List<Integer> stepNumberList = dispatchTable.stepNumbersFor(eventClass);
+	    stepNumbers = stepNumberList.isEmpty() ? NO_STEP_NUMBERS
+		    : stepNumberList.stream().mapToInt(Integer::intValue).toArray();
+	    eventClassToStepNumbersMap.put(eventClass, stepNumbers);
+	}
+	return stepNumbers;
+    }
+
+    /**
+     * Returns the model the engine has been compiled for.
+     *
+     * @return the model
+     */
+    public Model getModel() {
+	return model;
+    }
+
+    /**
+     * Returns the Java source of the class the engine has generated, for
+     * debugging.
+     *
+     * @return the source
+     */
+    public String getSource() {
+	return source;
+    }
+}
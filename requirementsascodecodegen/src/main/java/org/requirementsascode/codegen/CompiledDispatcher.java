@@ -0,0 +1,70 @@
+package org.requirementsascode.codegen;
+
+import org.requirementsascode.Actor;
+import org.requirementsascode.UseCase;
+
+/**
+ * The interface of the class that a {@link CompiledDispatchEngine} generates
+ * for a model. Steps and lists of steps are identified by their numbers in the
+ * {@link DispatchTable} of the model.
+ *
+ * @author b_muth
+ */
+interface CompiledDispatcher {
+    /**
+     * Returned when no step can react.
+     */
+    int NO_STEP = -1;
+
+    /**
+     * Returned when more than one step can react.
+     */
+    int MORE_THAN_ONE_STEP = -2;
+
+    /**
+     * Selects the step of the specified candidate list that reacts.
+     *
+     * @param candidateListNumber
+     *            the number of the candidate list for the event class and latest
+     *            step
+     * @param actor
+     *            the actor the runner is run as
+     * @param includedUseCase
+     *            the use case the runner is in, or null
+     * @param isFirstMatch
+     *            whether to return the first step that can react, without
+     *            checking the following ones
+     * @return the number of the step, {@link #NO_STEP} or
+     *         {@link #MORE_THAN_ONE_STEP}
+     */
+    int select(int candidateListNumber, Actor actor, UseCase includedUseCase, boolean isFirstMatch);
+
+    /**
+     * Checks whether the specified step can react, apart from the position of
+     * the runner, and the steps that can interrupt it. Used for events whose
+     * class isn't one of the event classes of the model, for example subclasses
+     * of them.
+     *
+     * @param stepNumber
+     *            the number of the step
+     * @param actor
+     *            the actor the runner is run as
+     * @param includedUseCase
+     *            the use case the runner is in, or null
+     * @return true if the step can react, false otherwise
+     */
+    boolean canReact(int stepNumber, Actor actor, UseCase includedUseCase);
+
+    /**
+     * Checks whether a step of the specified interrupt list can react.
+     *
+     * @param interruptListNumber
+     *            the number of the interrupt list
+     * @param actor
+     *            the actor the runner is run as
+     * @param includedUseCase
+     *            the use case the runner is in, or null
+     * @return true if an interrupting step can react, false otherwise
+     */
+    boolean isInterrupted(int interruptListNumber, Actor actor, UseCase includedUseCase);
+}
@@ -0,0 +1,27 @@
+package org.requirementsascode.codegen;
+
+import java.io.Serializable;
+
+/**
+ * Exception that is thrown when a {@link CompiledDispatchEngine} can't compile
+ * the class for a model, for example because no Java compiler is available, or
+ * because the model has too many steps for a single class.
+ * 
+ * @author b_muth
+ *
+ */
+public class DispatchCompilationFailed extends RuntimeException implements Serializable{
+	private static final long serialVersionUID = 3419542874431107203L;
+
+	public DispatchCompilationFailed(String reason) {
+		super(exceptionMessage(reason));
+	}
+
+	public DispatchCompilationFailed(String reason, Throwable cause) {
+		super(exceptionMessage(reason), cause);
+	}
+
+	private static String exceptionMessage(String reason) {
+		return "Dispatch compilation failed: " + reason;
+	}
+}
@@ -0,0 +1,264 @@
+package org.requirementsascode.codegen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.requirementsascode.InterruptableFlowStep;
+import org.requirementsascode.InterruptingFlowStep;
+import org.requirementsascode.Step;
+
+/**
+ * Transition table of the steps of a model, by event class and latest step.
+ *
+ * <p>
+ * Steps are identified by their number: their index in the steps of the model,
+ * in model order. Event classes are numbered in the order they first appear in
+ * the steps. The latest step is identified by its number, plus one, so that
+ * the latest step number of a runner that hasn't run a step yet is 0.
+ *
+ * <p>
+ * Whether the runner is at the right flow position for a step only depends on
+ * the latest step the runner has run. So for each event class and latest step,
+ * the table contains a candidate list: the steps that can react to events of
+ * the class, and are at the right position, in model order. For each of them
+ * that is an interruptable step, the candidate list also contains the number of
+ * an interrupt list: the interrupting steps that can react to the event class
+ * of the step, and are at the right position. Equal lists are numbered once,
+ * so a {@link CompiledDispatcher} only contains a method per distinct list.
+ *
+ * @author b_muth
+ */
+class DispatchTable {
+    static final int NO_LIST = -1;
+
+    private final Step[] steps;
+    private final List<Class<?>> eventClasses;
+    private final Map<Step, Integer> stepToNumberMap;
+    private final int[] stepToEventClassNumber;
+    private final List<List<Candidate>> candidateLists;
+    private final List<List<Integer>> interruptLists;
+    private final int[][] candidateListNumbers;
+    private final int[][] interruptListNumbers;
+
+    /**
+     * Creates the table of the specified steps.
+     *
+     * @param steps
+     *            the steps of the model, in model order
+     */
+    DispatchTable(Step[] steps) {
+	this.steps = steps;
+	this.eventClasses = new ArrayList<>();
+	this.stepToNumberMap = new IdentityHashMap<>();
+	this.stepToEventClassNumber = new int[steps.length];
+	numberStepsAndEventClasses();
+
+	this.interruptLists = new ArrayList<>();
+	this.interruptListNumbers = numberInterruptLists();
+	this.candidateLists = new ArrayList<>();
+	this.candidateListNumbers = numberCandidateLists();
+    }
+
+    private void numberStepsAndEventClasses() {
+	Map<Class<?>, Integer> eventClassToNumberMap = new HashMap<>();
+	for (int stepNumber = 0; stepNumber < steps.length; stepNumber++) {
+	    Step step = steps[stepNumber];
+	    stepToNumberMap.put(step, stepNumber);
+	    Class<?> eventClass = step.getEventClass();
+	    if (eventClass == null) {
+		stepToEventClassNumber[stepNumber] = -1;
+	    } else {
+		Integer eventClassNumber = eventClassToNumberMap.get(eventClass);
+		if (eventClassNumber == null) {
+		    eventClassNumber = eventClasses.size();
+		    eventClassToNumberMap.put(eventClass, eventClassNumber);
+		    eventClasses.add(eventClass);
+		}
+		stepToEventClassNumber[stepNumber] = eventClassNumber;
+	    }
+	}
+    }
+
+    private int[][] numberInterruptLists() {
+	Map<List<Integer>, Integer> interruptListToNumberMap = new HashMap<>();
+	int[][] listNumbers = new int[eventClasses.size()][steps.length + 1];
+	for (int eventClassNumber = 0; eventClassNumber < eventClasses.size(); eventClassNumber++) {
+	    List<Integer> interruptingStepNumbers = new ArrayList<>();
+	    for (int stepNumber : stepNumbersFor(eventClasses.get(eventClassNumber))) {
+		if (steps[stepNumber] instanceof InterruptingFlowStep) {
+		    interruptingStepNumbers.add(stepNumber);
+		}
+	    }
+	    for (int latestStepNumber = 0; latestStepNumber <= steps.length; latestStepNumber++) {
+		Step latestStep = latestStepOf(latestStepNumber);
+		List<Integer> interruptList = new ArrayList<>();
+		for (int stepNumber : interruptingStepNumbers) {
+		    if (steps[stepNumber].isRunnerAtRightPositionAfter(latestStep)) {
+			interruptList.add(stepNumber);
+		    }
+		}
+		listNumbers[eventClassNumber][latestStepNumber] = numberOf(interruptList, interruptLists,
+			interruptListToNumberMap);
+	    }
+	}
+	return listNumbers;
+    }
+
+    private int[][] numberCandidateLists() {
+	Map<List<Candidate>, Integer> candidateListToNumberMap = new HashMap<>();
+	int[][] listNumbers = new int[eventClasses.size()][steps.length + 1];
+	for (int eventClassNumber = 0; eventClassNumber < eventClasses.size(); eventClassNumber++) {
+	    List<Integer> stepNumbers = stepNumbersFor(eventClasses.get(eventClassNumber));
+	    for (int latestStepNumber = 0; latestStepNumber <= steps.length; latestStepNumber++) {
+		Step latestStep = latestStepOf(latestStepNumber);
+		List<Candidate> candidateList = new ArrayList<>();
+		for (int stepNumber : stepNumbers) {
+		    if (steps[stepNumber].isRunnerAtRightPositionAfter(latestStep)) {
+			int interruptListNumber = getInterruptListNumber(stepNumber, latestStepNumber);
+			candidateList.add(new Candidate(stepNumber, interruptListNumber));
+		    }
+		}
+		listNumbers[eventClassNumber][latestStepNumber] = numberOf(candidateList, candidateLists,
+			candidateListToNumberMap);
+	    }
+	}
+	return listNumbers;
+    }
+
+    /**
+     * Returns the numbers of the steps whose event class is the same or a
+     * superclass of the specified event class, in model order.
+     *
+     * @param eventClass
+     *            the event class
+     * @return the step numbers
+     */
+    List<Integer> stepNumbersFor(Class<?> eventClass) {
+	List<Integer> stepNumbers = new ArrayList<>();
+	for (int stepNumber = 0; stepNumber < steps.length; stepNumber++) {
+	    Class<?> stepEventClass = steps[stepNumber].getEventClass();
+	    if (stepEventClass != null && stepEventClass.isAssignableFrom(eventClass)) {
+		stepNumbers.add(stepNumber);
+	    }
+	}
+	return stepNumbers;
+    }
+
+    private Step latestStepOf(int latestStepNumber) {
+	Step latestStep = latestStepNumber == 0 ? null : steps[latestStepNumber - 1];
+	return latestStep;
+    }
+
+    private <T> int numberOf(List<T> list, List<List<T>> lists, Map<List<T>, Integer> listToNumberMap) {
+	if (list.isEmpty()) {
+	    return NO_LIST;
+	}
+	Integer listNumber = listToNumberMap.get(list);
+	if (listNumber == null) {
+	    listNumber = lists.size();
+	    listToNumberMap.put(list, listNumber);
+	    lists.add(list);
+	}
+	return listNumber;
+    }
+
+    Step[] getSteps() {
+	return steps;
+    }
+
+    List<Class<?>> getEventClasses() {
+	return eventClasses;
+    }
+
+    /**
+     * Returns the latest step number of the specified latest step.
+     *
+     * @param latestStep
+     *            the latest step, or null
+     * @return the latest step number, or -1 if the step isn't a step of the
+     *         model
+     */
+    int getLatestStepNumber(Step latestStep) {
+	if (latestStep == null) {
+	    return 0;
+	}
+	Integer stepNumber = stepToNumberMap.get(latestStep);
+	int latestStepNumber = stepNumber != null ? stepNumber + 1 : -1;
+	return latestStepNumber;
+    }
+
+    /**
+     * Returns the number of the candidate list for the specified event class
+     * number and latest step number.
+     *
+     * @return the list number, or {@link #NO_LIST} if no step can react
+     */
+    int getCandidateListNumber(int eventClassNumber, int latestStepNumber) {
+	return candidateListNumbers[eventClassNumber][latestStepNumber];
+    }
+
+    /**
+     * Returns the number of the interrupt list for the specified step, if it is
+     * an interruptable step, and the specified latest step number.
+     *
+     * @return the list number, or {@link #NO_LIST} if no step can interrupt
+     */
+    int getInterruptListNumber(int stepNumber, int latestStepNumber) {
+	if (!(steps[stepNumber] instanceof InterruptableFlowStep)) {
+	    return NO_LIST;
+	}
+	int interruptListNumber = interruptListNumbers[stepToEventClassNumber[stepNumber]][latestStepNumber];
+	return interruptListNumber;
+    }
+
+    List<List<Candidate>> getCandidateLists() {
+	return candidateLists;
+    }
+
+    List<List<Integer>> getInterruptLists() {
+	return interruptLists;
+    }
+
+    /**
+     * A step of a candidate list, and the interrupt list to check before it can
+     * react.
+     */
+    static class Candidate {
+	private final int stepNumber;
+	private final int interruptListNumber;
+
+	Candidate(int stepNumber, int interruptListNumber) {
+	    this.stepNumber = stepNumber;
+	    this.interruptListNumber = interruptListNumber;
+	}
+
+	int getStepNumber() {
+	    return stepNumber;
+	}
+
+	int getInterruptListNumber() {
+	    return interruptListNumber;
+	}
+
+	@Override
+	public int hashCode() {
+	    return Objects.hash(stepNumber, interruptListNumber);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (this == obj) {
+		return true;
+	    }
+	    if (!(obj instanceof Candidate)) {
+		return false;
+	    }
+	    Candidate other = (Candidate) obj;
+	    return stepNumber == other.stepNumber && interruptListNumber == other.interruptListNumber;
+	}
+    }
+}
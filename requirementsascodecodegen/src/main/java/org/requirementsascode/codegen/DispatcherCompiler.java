@@ -0,0 +1,168 @@
+package org.requirementsascode.codegen;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.requirementsascode.Step;
+
+/**
+ * Compiles the source of a {@link CompiledDispatcher} in memory, with the Java
+ * compiler of the JDK, and defines the class as a hidden class in this
+ * package.
+ *
+ * <p>
+ * A hidden class can't be referenced by other classes, and is unloaded when
+ * its dispatcher isn't used anymore. The just-in-time compiler trusts the
+ * final fields of a hidden class to be constant, so it can inline the
+ * conditions the generated methods call.
+ *
+ * @author b_muth
+ */
+class DispatcherCompiler {
+    private static final String QUALIFIED_CLASS_NAME = DispatcherSourceWriter.PACKAGE_NAME + "."
+	    + DispatcherSourceWriter.CLASS_NAME;
+
+    /**
+     * Compiles the specified source, and creates an instance of the class.
+     *
+     * @param source
+     *            the source of the class, as written by a
+     *            {@link DispatcherSourceWriter}
+     * @param constants
+     *            the constants to pass to the constructor of the class
+     * @return the instance
+     * @throws DispatchCompilationFailed
+     *             if the source can't be compiled
+     */
+    CompiledDispatcher compile(String source, Object[] constants) {
+	byte[] classBytes = compileToBytes(source);
+	try {
+	    Lookup hiddenClassLookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+	    MethodHandle constructor = hiddenClassLookup.findConstructor(hiddenClassLookup.lookupClass(),
+		    MethodType.methodType(void.class, Object[].class));
+	    CompiledDispatcher compiledDispatcher = (CompiledDispatcher) constructor.invoke(constants);
+	    return compiledDispatcher;
+	} catch (Throwable e) {
+	    throw new DispatchCompilationFailed("Can't define the hidden class", e);
+	}
+    }
+
+    private byte[] compileToBytes(String source) {
+	JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+	if (compiler == null) {
+	    throw new DispatchCompilationFailed("No Java compiler available. Run on a JDK, not a JRE.");
+	}
+
+	DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+	try (StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null,
+		UTF_8)) {
+	    standardFileManager.setLocation(StandardLocation.CLASS_PATH,
+		    Arrays.asList(locationOf(CompiledDispatcher.class), locationOf(Step.class)));
+	    ClassFileManager classFileManager = new ClassFileManager(standardFileManager);
+	    List<String> options = Arrays.asList("-proc:none", "-g:none", "-nowarn");
+	    JavaFileObject sourceFile = new SourceFile(source);
+
+	    boolean isCompiled = compiler.getTask(null, classFileManager, diagnostics, options, null,
+		    Collections.singletonList(sourceFile)).call();
+	    if (!isCompiled || classFileManager.getClassBytes() == null) {
+		throw new DispatchCompilationFailed(errorsOf(diagnostics));
+	    }
+	    return classFileManager.getClassBytes();
+	} catch (IOException e) {
+	    throw new DispatchCompilationFailed("Can't access the class path", e);
+	}
+    }
+
+    private static File locationOf(Class<?> aClass) {
+	CodeSource codeSource = aClass.getProtectionDomain().getCodeSource();
+	if (codeSource == null) {
+	    throw new DispatchCompilationFailed("Can't find the location of " + aClass.getName());
+	}
+	try {
+	    return new File(codeSource.getLocation().toURI());
+	} catch (URISyntaxException e) {
+	    throw new DispatchCompilationFailed("Can't find the location of " + aClass.getName(), e);
+	}
+    }
+
+    private static String errorsOf(DiagnosticCollector<JavaFileObject> diagnostics) {
+	List<String> errors = new ArrayList<>();
+	for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+	    if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+		errors.add("line " + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(null));
+	    }
+	}
+	return errors.stream().collect(Collectors.joining(", "));
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+	private final String source;
+
+	SourceFile(String source) {
+	    super(URI.create("string:///" + QUALIFIED_CLASS_NAME.replace('.', '/') + Kind.SOURCE.extension),
+		    Kind.SOURCE);
+	    this.source = source;
+	}
+
+	@Override
+	public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+	    return source;
+	}
+    }
+
+    /**
+     * Keeps the compiled class in memory, instead of writing it to a file.
+     */
+    private static class ClassFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+	private ByteArrayOutputStream classBytes;
+
+	ClassFileManager(JavaFileManager fileManager) {
+	    super(fileManager);
+	}
+
+	@Override
+	public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+		FileObject sibling) {
+	    return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension),
+		    kind) {
+		@Override
+		public OutputStream openOutputStream() {
+		    classBytes = new ByteArrayOutputStream();
+		    return classBytes;
+		}
+	    };
+	}
+
+	byte[] getClassBytes() {
+	    return classBytes != null ? classBytes.toByteArray() : null;
+	}
+    }
+}
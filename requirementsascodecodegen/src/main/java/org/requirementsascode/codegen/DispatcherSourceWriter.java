@@ -0,0 +1,371 @@
+package org.requirementsascode.codegen;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.requirementsascode.Actor;
+import org.requirementsascode.Condition;
+import org.requirementsascode.FlowStep;
+import org.requirementsascode.InterruptableFlowStep;
+import org.requirementsascode.Step;
+import org.requirementsascode.UseCase;
+import org.requirementsascode.codegen.DispatchTable.Candidate;
+
+/**
+ * Writes the Java source of a {@link CompiledDispatcher} for the steps of a
+ * model.
+ *
+ * <p>
+ * For each step, the source contains a method that checks whether the step can
+ * react, with the checks of the runner hardwired: the actors of the step, the
+ * use case of the step, and direct calls to the conditions of the step. For
+ * each candidate list of the {@link DispatchTable}, the source contains a
+ * method that calls the methods of its steps, in model order, and for
+ * interruptable steps the method of their interrupt list. The position of the
+ * runner isn't checked, as the table only contains the steps at the right
+ * position. Methods with many steps are split into groups of methods, and so
+ * are the switches over step and list numbers.
+ *
+ * <p>
+ * The conditions, actors and use cases the source refers to are final fields
+ * of the generated class, passed to its constructor as an array of constants.
+ *
+ * @author b_muth
+ */
+class DispatcherSourceWriter {
+    static final String PACKAGE_NAME = "org.requirementsascode.codegen";
+    static final String CLASS_NAME = "GeneratedDispatcher";
+
+    /**
+     * The maximum number of steps or cases a generated method contains. Larger
+     * groups are split into several methods, so that no method exceeds the size
+     * limit of the class file format, or the size limit up to which the
+     * just-in-time compiler compiles methods.
+     */
+    private static final int MAX_GROUP_SIZE = 64;
+
+    private static final String PARAMETERS = "Actor actor, UseCase includedUseCase";
+    private static final String ARGUMENTS = "actor, includedUseCase";
+
+    private final DispatchTable dispatchTable;
+    private final Step[] steps;
+    private final Actor systemActor;
+    private final Map<Object, String> constantToFieldMap;
+    private final List<Object> constants;
+    private final List<String> constantTypes;
+
+    /**
+     * Creates a writer for the specified table.
+     *
+     * @param dispatchTable
+     *            the table of the steps of the model
+     * @param systemActor
+     *            the system actor of the model
+     */
+    DispatcherSourceWriter(DispatchTable dispatchTable, Actor systemActor) {
+	this.dispatchTable = dispatchTable;
+	this.steps = dispatchTable.getSteps();
+	this.systemActor = systemActor;
+	this.constantToFieldMap = new IdentityHashMap<>();
+	this.constants = new ArrayList<>();
+	this.constantTypes = new ArrayList<>();
+    }
+
+    /**
+     * Writes the source of the class. Call this method before
+     * {@link #getConstants()}.
+     *
+     * @return the source
+     */
+    String write() {
+	StringBuilder methods = new StringBuilder();
+	writeSelectMethod(methods);
+	writeCanReactMethod(methods);
+	writeIsInterruptedMethod(methods);
+	List<List<Candidate>> candidateLists = dispatchTable.getCandidateLists();
+	for (int listNumber = 0; listNumber < candidateLists.size(); listNumber++) {
+	    if (candidateLists.get(listNumber).size() > 1) {
+		writeSelectMethodOfCandidateList(listNumber, methods);
+	    }
+	}
+	List<List<Integer>> interruptLists = dispatchTable.getInterruptLists();
+	for (int listNumber = 0; listNumber < interruptLists.size(); listNumber++) {
+	    writeIsInterruptedMethodOfInterruptList(listNumber, methods);
+	}
+	for (int stepNumber = 0; stepNumber < steps.length; stepNumber++) {
+	    if (steps[stepNumber].getEventClass() != null) {
+		writeCanReactMethodOfStep(stepNumber, methods);
+	    }
+	}
+
+	StringBuilder source = new StringBuilder();
+	source.append("package ").append(PACKAGE_NAME).append(";\n\n")
+		.append("import org.requirementsascode.Actor;\n")
+		.append("import org.requirementsascode.Condition;\n")
+		.append("import org.requirementsascode.UseCase;\n\n")
+		.append("final class ").append(CLASS_NAME).append(" implements CompiledDispatcher {\n");
+	for (int i = 0; i < constants.size(); i++) {
+	    source.append("\tprivate final ").append(constantTypes.get(i)).append(' ')
+		    .append(constantToFieldMap.get(constants.get(i))).append(";\n");
+	}
+	source.append("\n\t").append(CLASS_NAME).append("(Object[] constants) {\n");
+	for (int i = 0; i < constants.size(); i++) {
+	    source.append("\t\t").append(constantToFieldMap.get(constants.get(i))).append(" = (")
+		    .append(constantTypes.get(i)).append(") constants[").append(i).append("];\n");
+	}
+	source.append("\t}\n").append(methods).append("}\n");
+	return source.toString();
+    }
+
+    /**
+     * Returns the constants to pass to the constructor of the class, in the
+     * order of the fields.
+     *
+     * @return the constants
+     */
+    Object[] getConstants() {
+	return constants.toArray();
+    }
+
+    private void writeSelectMethod(StringBuilder methods) {
+	List<String> statements = new ArrayList<>();
+	for (List<Candidate> candidateList : dispatchTable.getCandidateLists()) {
+	    int listNumber = statements.size();
+	    if (candidateList.size() == 1) {
+		Candidate candidate = candidateList.get(0);
+		statements.add("return " + canReactCall(candidate) + " ? " + candidate.getStepNumber() + " : NO_STEP;");
+	    } else {
+		statements.add("return selectList" + listNumber + "(" + ARGUMENTS + ", isFirstMatch);");
+	    }
+	}
+	writeSwitchMethod("int", "select", "candidateListNumber", ", boolean isFirstMatch", ", isFirstMatch",
+		statements, "return NO_STEP;", methods);
+    }
+
+    private void writeCanReactMethod(StringBuilder methods) {
+	List<String> statements = new ArrayList<>();
+	for (int stepNumber = 0; stepNumber < steps.length; stepNumber++) {
+	    statements.add(steps[stepNumber].getEventClass() != null
+		    ? "return canReact" + stepNumber + "(" + ARGUMENTS + ");"
+		    : null);
+	}
+	writeSwitchMethod("boolean", "canReact", "stepNumber", "", "", statements, "return false;", methods);
+    }
+
+    private void writeIsInterruptedMethod(StringBuilder methods) {
+	List<String> statements = new ArrayList<>();
+	for (int listNumber = 0; listNumber < dispatchTable.getInterruptLists().size(); listNumber++) {
+	    statements.add("return isInterrupted" + listNumber + "(" + ARGUMENTS + ");");
+	}
+	writeSwitchMethod("boolean", "isInterrupted", "interruptListNumber", "", "", statements, "return false;",
+		methods);
+    }
+
+    /**
+     * Writes a public method with a switch over the specified number, with a
+     * case for each statement that isn't null. If there are more statements
+     * than fit into a method, the method switches over groups of numbers, and
+     * calls a method with a switch for each group.
+     */
+    private void writeSwitchMethod(String returnType, String methodName, String numberName,
+	    String moreParameters, String moreArguments, List<String> statements, String defaultStatement,
+	    StringBuilder methods) {
+	String parameters = "int " + numberName + ", " + PARAMETERS + moreParameters;
+	String arguments = numberName + ", " + ARGUMENTS + moreArguments;
+	methods.append("\n\t@Override\n")
+		.append("\tpublic ").append(returnType).append(' ').append(methodName).append('(').append(parameters)
+		.append(") {\n");
+	if (statements.size() <= MAX_GROUP_SIZE) {
+	    writeSwitch(numberName, statements, 0, statements.size(), defaultStatement, methods);
+	    methods.append("\t}\n");
+	    return;
+	}
+
+	int groupCount = (statements.size() + MAX_GROUP_SIZE - 1) / MAX_GROUP_SIZE;
+	List<String> groupStatements = new ArrayList<>();
+	for (int group = 0; group < groupCount; group++) {
+	    groupStatements.add("return " + methodName + "InGroup" + group + "(" + arguments + ");");
+	}
+	methods.append("\t\tint group = ").append(numberName).append(" / ").append(MAX_GROUP_SIZE).append(";\n");
+	writeSwitch("group", groupStatements, 0, groupCount, defaultStatement, methods);
+	methods.append("\t}\n");
+	for (int group = 0; group < groupCount; group++) {
+	    methods.append("\n\tprivate ").append(returnType).append(' ').append(methodName).append("InGroup")
+		    .append(group).append('(').append(parameters).append(") {\n");
+	    writeSwitch(numberName, statements, group * MAX_GROUP_SIZE,
+		    Math.min(statements.size(), (group + 1) * MAX_GROUP_SIZE), defaultStatement, methods);
+	    methods.append("\t}\n");
+	}
+    }
+
+    private void writeSwitch(String numberName, List<String> statements, int start, int end,
+	    String defaultStatement, StringBuilder methods) {
+	methods.append("\t\tswitch (").append(numberName).append(") {\n");
+	for (int number = start; number < end; number++) {
+	    String statement = statements.get(number);
+	    if (statement != null) {
+		methods.append("\t\tcase ").append(number).append(":\n")
+			.append("\t\t\t").append(statement).append('\n');
+	    }
+	}
+	methods.append("\t\tdefault:\n")
+		.append("\t\t\t").append(defaultStatement).append('\n')
+		.append("\t\t}\n");
+    }
+
+    private void writeSelectMethodOfCandidateList(int listNumber, StringBuilder methods) {
+	List<Candidate> candidateList = dispatchTable.getCandidateLists().get(listNumber);
+	String methodName = "selectList" + listNumber;
+	if (candidateList.size() <= MAX_GROUP_SIZE) {
+	    writeSelectMethodOfCandidates(methodName, candidateList, methods);
+	    return;
+	}
+
+	List<List<Candidate>> groups = groups(candidateList);
+	methods.append("\n\tprivate int ").append(methodName).append('(').append(PARAMETERS)
+		.append(", boolean isFirstMatch) {\n")
+		.append("\t\tint stepNumber = NO_STEP;\n")
+		.append("\t\tint stepNumberInGroup;\n");
+	for (int group = 0; group < groups.size(); group++) {
+	    methods.append("\t\tstepNumberInGroup = ").append(methodName).append("InGroup").append(group).append('(')
+		    .append(ARGUMENTS).append(", isFirstMatch);\n")
+		    .append("\t\tif (stepNumberInGroup != NO_STEP) {\n")
+		    .append("\t\t\tif (stepNumber != NO_STEP) {\n")
+		    .append("\t\t\t\treturn MORE_THAN_ONE_STEP;\n")
+		    .append("\t\t\t}\n")
+		    .append("\t\t\tif (isFirstMatch || stepNumberInGroup == MORE_THAN_ONE_STEP) {\n")
+		    .append("\t\t\t\treturn stepNumberInGroup;\n")
+		    .append("\t\t\t}\n")
+		    .append("\t\t\tstepNumber = stepNumberInGroup;\n")
+		    .append("\t\t}\n");
+	}
+	methods.append("\t\treturn stepNumber;\n")
+		.append("\t}\n");
+	for (int group = 0; group < groups.size(); group++) {
+	    writeSelectMethodOfCandidates(methodName + "InGroup" + group, groups.get(group), methods);
+	}
+    }
+
+    private void writeSelectMethodOfCandidates(String methodName, List<Candidate> candidates,
+	    StringBuilder methods) {
+	methods.append("\n\tprivate int ").append(methodName).append('(').append(PARAMETERS)
+		.append(", boolean isFirstMatch) {\n")
+		.append("\t\tint stepNumber = NO_STEP;\n");
+	boolean isFirstCandidate = true;
+	for (Candidate candidate : candidates) {
+	    methods.append("\t\tif (").append(canReactCall(candidate)).append(") {\n");
+	    if (!isFirstCandidate) {
+		methods.append("\t\t\tif (stepNumber != NO_STEP) {\n")
+			.append("\t\t\t\treturn MORE_THAN_ONE_STEP;\n")
+			.append("\t\t\t}\n");
+	    }
+	    isFirstCandidate = false;
+	    methods.append("\t\t\tif (isFirstMatch) {\n")
+		    .append("\t\t\t\treturn ").append(candidate.getStepNumber()).append(";\n")
+		    .append("\t\t\t}\n")
+		    .append("\t\t\tstepNumber = ").append(candidate.getStepNumber()).append(";\n")
+		    .append("\t\t}\n");
+	}
+	methods.append("\t\treturn stepNumber;\n")
+		.append("\t}\n");
+    }
+
+    private String canReactCall(Candidate candidate) {
+	String canReactCall = "canReact" + candidate.getStepNumber() + "(" + ARGUMENTS + ")";
+	if (candidate.getInterruptListNumber() != DispatchTable.NO_LIST) {
+	    canReactCall += " && !isInterrupted" + candidate.getInterruptListNumber() + "(" + ARGUMENTS + ")";
+	}
+	return canReactCall;
+    }
+
+    private void writeIsInterruptedMethodOfInterruptList(int listNumber, StringBuilder methods) {
+	List<Integer> interruptList = dispatchTable.getInterruptLists().get(listNumber);
+	String methodName = "isInterrupted" + listNumber;
+	if (interruptList.size() <= MAX_GROUP_SIZE) {
+	    writeBooleanMethod(methodName, canReactCalls(interruptList), "||", methods);
+	    return;
+	}
+
+	List<List<Integer>> groups = groups(interruptList);
+	List<String> groupCalls = new ArrayList<>();
+	for (int group = 0; group < groups.size(); group++) {
+	    groupCalls.add(methodName + "InGroup" + group + "(" + ARGUMENTS + ")");
+	}
+	writeBooleanMethod(methodName, groupCalls, "||", methods);
+	for (int group = 0; group < groups.size(); group++) {
+	    writeBooleanMethod(methodName + "InGroup" + group, canReactCalls(groups.get(group)), "||", methods);
+	}
+    }
+
+    private List<String> canReactCalls(List<Integer> stepNumbers) {
+	List<String> canReactCalls = new ArrayList<>();
+	for (int stepNumber : stepNumbers) {
+	    canReactCalls.add("canReact" + stepNumber + "(" + ARGUMENTS + ")");
+	}
+	return canReactCalls;
+    }
+
+    private void writeCanReactMethodOfStep(int stepNumber, StringBuilder methods) {
+	Step step = steps[stepNumber];
+	List<String> checks = new ArrayList<>();
+	addActorCheck(step, checks);
+	addUseCaseCheck(step, checks);
+	if (!(step instanceof InterruptableFlowStep)) {
+	    addConditionCheck(step.getCondition().orElse(null), checks);
+	}
+	if (step instanceof FlowStep) {
+	    addConditionCheck(((FlowStep) step).getReactWhile(), checks);
+	}
+	writeBooleanMethod("canReact" + stepNumber, checks, "&&", methods);
+    }
+
+    private void writeBooleanMethod(String methodName, List<String> operands, String operator,
+	    StringBuilder methods) {
+	methods.append("\n\tprivate boolean ").append(methodName).append('(').append(PARAMETERS).append(") {\n")
+		.append("\t\treturn ").append(String.join("\n\t\t\t" + operator + " ", operands)).append(";\n")
+		.append("\t}\n");
+    }
+
+    private void addActorCheck(Step step, List<String> checks) {
+	List<String> comparisons = new ArrayList<>();
+	for (Actor stepActor : step.getActors()) {
+	    if (systemActor.equals(stepActor)) {
+		return;
+	    }
+	    comparisons.add("actor == " + field(stepActor, "a", "Actor"));
+	}
+	checks.add(comparisons.isEmpty() ? "false" : "(" + String.join(" || ", comparisons) + ")");
+    }
+
+    private void addUseCaseCheck(Step step, List<String> checks) {
+	UseCase useCase = step.getUseCase();
+	checks.add("(includedUseCase == null || includedUseCase == " + field(useCase, "u", "UseCase") + ")");
+    }
+
+    private void addConditionCheck(Condition condition, List<String> checks) {
+	if (condition != null) {
+	    checks.add(field(condition, "c", "Condition") + ".evaluate()");
+	}
+    }
+
+    private <T> List<List<T>> groups(List<T> elements) {
+	List<List<T>> groups = new ArrayList<>();
+	for (int start = 0; start < elements.size(); start += MAX_GROUP_SIZE) {
+	    groups.add(elements.subList(start, Math.min(elements.size(), start + MAX_GROUP_SIZE)));
+	}
+	return groups;
+    }
+
+    private String field(Object constant, String prefix, String type) {
+	String fieldName = constantToFieldMap.get(constant);
+	if (fieldName == null) {
+	    fieldName = prefix + constants.size();
+	    constantToFieldMap.put(constant, fieldName);
+	    constants.add(constant);
+	    constantTypes.add(type);
+	}
+	return fieldName;
+    }
+}
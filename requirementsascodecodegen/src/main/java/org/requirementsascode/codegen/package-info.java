@@ -0,0 +1,8 @@
+/**
+ * Codegen package of requirementsascode, containing a dispatch engine that
+ * generates a class for each model at runtime, to select the steps that react
+ * to events.
+ *
+ * @author b_muth
+ */
+package org.requirementsascode.codegen;
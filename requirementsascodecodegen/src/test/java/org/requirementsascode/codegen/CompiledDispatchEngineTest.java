@@ -0,0 +1,200 @@
+package org.requirementsascode.codegen;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.Actor;
+import org.requirementsascode.DispatchEngineComparison;
+import org.requirementsascode.IndexedDispatchEngine;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelBuilder;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.UseCasePart;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+public class CompiledDispatchEngineTest {
+    private ModelBuilder modelBuilder;
+    private int counter;
+
+    @Before
+    public void setup() {
+	this.modelBuilder = Model.builder();
+	this.counter = 0;
+    }
+
+    @Test
+    public void selectsSameStepsAsRunnerInFlows() {
+	Model model = modelBuilder
+		.useCase("Use case")
+			.basicFlow()
+				.step("S1").system(() -> counter = 0)
+				.step("S2").user(EntersText.class).system(entersText -> counter++)
+				.step("S3").user(EntersNumber.class).system(entersNumber -> {})
+				.step("S4").continuesAt("S2")
+			.flow("Alternative flow").insteadOf("S3").condition(() -> counter >= 2)
+				.step("S3a").user(EntersNumber.class).system(entersNumber -> {})
+				.step("S3b").continuesAt("S1")
+			.flow("Another alternative flow").anytime().condition(() -> counter >= 5)
+				.step("S5").user(EntersText.class).system(entersText -> {})
+		.build();
+
+	assertSameSteps(model, new EntersText(), new EntersNumber(), new EntersText(), new EntersNumber(),
+		new EntersText(), new EntersNumber(), new EntersText(), new EntersText());
+    }
+
+    @Test
+    public void selectsSameStepsAsRunnerForSubclassesAndExceptions() {
+	Model model = modelBuilder
+		.useCase("Use case")
+			.on(EntersText.class).system(entersText -> {
+			    throw new IllegalStateException();
+			})
+			.on(RuntimeException.class).system(exception -> {})
+			.condition(() -> counter > 0).on(Object.class).system(object -> {})
+		.build();
+
+	assertSameSteps(model, new EntersSpecialText(), new EntersText(), new EntersNumber());
+    }
+
+    @Test
+    public void selectsSameStepsAsRunnerInIncludedUseCase() {
+	Model model = modelBuilder
+		.useCase("Included use case")
+			.basicFlow()
+				.step("Included step").user(EntersText.class).system(entersText -> {})
+		.useCase("Use case")
+			.basicFlow()
+				.step("S1").includesUseCase("Included use case")
+				.step("S2").user(EntersNumber.class).system(entersNumber -> {})
+		.build();
+
+	assertSameSteps(model, new EntersText(), new EntersNumber(), new EntersText());
+    }
+
+    @Test
+    public void selectsSameStepsAsRunnerForAutonomousSystemReactions() {
+	Model model = modelBuilder
+		.useCase("Use case")
+			.basicFlow()
+				.step("S1").system(() -> counter++).reactWhile(() -> counter < 3)
+				.step("S2").user(EntersText.class).system(entersText -> {})
+		.build();
+
+	assertSameSteps(model, new EntersText());
+    }
+
+    @Test
+    public void selectsSameStepsAsRunnerInLargeModel() {
+	UseCasePart useCasePart = modelBuilder.useCase("Use case");
+	useCasePart.basicFlow()
+		.step("S1").user(EntersText.class).system(entersText -> counter++)
+		.step("S2").user(EntersNumber.class).system(entersNumber -> {})
+		.step("S3").continuesAt("S1");
+	for (int flowNumber = 0; flowNumber < 200; flowNumber++) {
+	    int reactingCounter = flowNumber;
+	    useCasePart.flow("Flow " + flowNumber).insteadOf("S2").condition(() -> counter == reactingCounter)
+		    .step("S2_" + flowNumber).user(EntersNumber.class).system(entersNumber -> {})
+		    .step("S3_" + flowNumber).continuesAt("S1");
+	}
+	Model model = useCasePart.build();
+
+	assertSameSteps(model, new EntersText(), new EntersNumber(), new EntersText(), new EntersSpecialNumber(),
+		new EntersText(), new EntersNumber(), new EntersNumber(), new EntersSpecialText(),
+		new EntersSpecialNumber());
+    }
+
+    @Test
+    public void reactsLikeIndexedEngineToRandomEvents() {
+	UseCasePart useCasePart = modelBuilder.useCase("Use case");
+	useCasePart.basicFlow()
+		.step("Enters text").user(EntersText.class).system(entersText -> counter++)
+		.step("Enters number").user(EntersNumber.class).system(entersNumber -> {})
+		.step("Continues").continuesAt("Enters text");
+	for (int flowNumber = 0; flowNumber < 100; flowNumber++) {
+	    int reactingCounter = flowNumber;
+	    useCasePart.flow("Flow " + flowNumber).insteadOf("Enters number")
+		    .condition(() -> counter % 100 == reactingCounter)
+		    .step("Enters number " + flowNumber).user(EntersNumber.class).system(entersNumber -> counter += 3)
+		    .step("Continues " + flowNumber).continuesAt("Enters text");
+	}
+	Model model = useCasePart
+		.on(EntersSpecialText.class).system(entersSpecialText -> counter += 7)
+		.build();
+
+	new DispatchEngineComparison(model, new EntersText(), new EntersSpecialText(), new EntersNumber(),
+		new EntersSpecialNumber())
+		.beforeEachRun(() -> counter = 0)
+		.compare(new IndexedDispatchEngine(), CompiledDispatchEngine.compile(model), 42, 100, 30);
+    }
+
+    @Test
+    public void onlySelectsStepsOfActorOrSystemActor() {
+	Actor customer = modelBuilder.actor("Customer");
+	Actor admin = modelBuilder.actor("Admin");
+	Model model = modelBuilder
+		.useCase("Use case")
+			.basicFlow().anytime()
+				.step("S1").as(customer).user(EntersText.class).system(entersText -> {})
+			.flow("Alternative flow").anytime()
+				.step("S2").as(admin).user(EntersText.class).system(entersText -> {})
+		.build();
+
+	ModelRunner modelRunner = compiledRunner(model).as(admin);
+	modelRunner.run(model).reactTo(new EntersText());
+
+	assertArrayEquals(new String[] { "S2" }, modelRunner.getRecordedStepNames());
+    }
+
+    @Test
+    public void throwsExceptionIfMoreThanOneStepCanReact() {
+	Model model = modelBuilder
+		.useCase("Use case")
+			.on(EntersText.class).system(entersText -> {})
+			.on(EntersText.class).system(entersText -> {})
+		.build();
+	ModelRunner modelRunner = compiledRunner(model).run(model);
+
+	try {
+	    modelRunner.reactTo(new EntersText());
+	    fail();
+	} catch (MoreThanOneStepCanReact e) {
+	    assertTrue(e.getMessage().contains("S1"));
+	    assertTrue(e.getMessage().contains("S2"));
+	}
+
+	modelRunner.startFirstMatchDispatch().reactTo(new EntersText());
+	assertEquals("S1", modelRunner.getLatestStep().get().getName());
+    }
+
+    private void assertSameSteps(Model model, Object... events) {
+	ModelRunner interpretedRunner = new ModelRunner().startRecording().run(model);
+	interpretedRunner.reactTo(events);
+	counter = 0;
+	ModelRunner compiledRunner = compiledRunner(model).run(model);
+	compiledRunner.reactTo(events);
+
+	assertArrayEquals(interpretedRunner.getRecordedStepNames(), compiledRunner.getRecordedStepNames());
+    }
+
+    private ModelRunner compiledRunner(Model model) {
+	ModelRunner modelRunner = new ModelRunner().startRecording()
+		.startDispatchEngine(CompiledDispatchEngine.compile(model));
+	return modelRunner;
+    }
+
+    private static class EntersText {
+    }
+
+    private static class EntersSpecialText extends EntersText {
+    }
+
+    private static class EntersNumber {
+    }
+
+    private static class EntersSpecialNumber extends EntersNumber {
+    }
+}
@@ -0,0 +1,112 @@
+package org.requirementsascode;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Two steps of a model that may both be able to react to the same event, as
+ * found by an {@link AmbiguityAnalyzer}. If they both can, the runner throws a
+ * {@link org.requirementsascode.exception.MoreThanOneStepCanReact}.
+ *
+ * @author b_muth
+ */
+public class Ambiguity {
+    private final Step firstStep;
+    private final Step secondStep;
+    private final Class<?> eventClass;
+    private final boolean isAmbiguousAtStart;
+    private final List<Step> latestSteps;
+    private final List<Condition> conditions;
+
+    Ambiguity(Step firstStep, Step secondStep, Class<?> eventClass, boolean isAmbiguousAtStart,
+	    List<Step> latestSteps, List<Condition> conditions) {
+	this.firstStep = firstStep;
+	this.secondStep = secondStep;
+	this.eventClass = eventClass;
+	this.isAmbiguousAtStart = isAmbiguousAtStart;
+	this.latestSteps = Collections.unmodifiableList(latestSteps);
+	this.conditions = Collections.unmodifiableList(conditions);
+    }
+
+    /**
+     * Returns the step that comes first in model order. In first match
+     * dispatch, this is the step the runner runs.
+     *
+     * @see ModelRunner#startFirstMatchDispatch()
+     * @return the first step
+     */
+    public Step getFirstStep() {
+	return firstStep;
+    }
+
+    /**
+     * Returns the step that comes second in model order.
+     *
+     * @return the second step
+     */
+    public Step getSecondStep() {
+	return secondStep;
+    }
+
+    /**
+     * Returns the class of the events both steps can react to: the event class
+     * of one of the steps, that is the same or a subclass of the event class of
+     * the other step.
+     *
+     * @return the event class, or null if the event classes are unrelated, and
+     *         only events of a class that extends or implements both can cause
+     *         the ambiguity
+     */
+    public Class<?> getEventClass() {
+	return eventClass;
+    }
+
+    /**
+     * Returns whether the runner is at the right position for both steps before
+     * it has run any step.
+     *
+     * @return true if the steps are ambiguous at the start, false otherwise
+     */
+    public boolean isAmbiguousAtStart() {
+	return isAmbiguousAtStart;
+    }
+
+    /**
+     * Returns the latest steps after which the runner is at the right position
+     * for both steps.
+     *
+     * @return the latest steps, in model order
+     */
+    public List<Step> getLatestSteps() {
+	return latestSteps;
+    }
+
+    /**
+     * Returns the conditions of the steps that the analyzer can't prove to be
+     * mutually exclusive. If they are, the steps are not ambiguous.
+     *
+     * @return the conditions, or an empty list if the steps have none
+     */
+    public List<Condition> getConditions() {
+	return conditions;
+    }
+
+    /**
+     * Returns whether both steps can react for sure, at each of the positions,
+     * because neither has a condition. Unless one of the steps is in a use case
+     * that isn't currently included, the runner will throw an exception.
+     *
+     * @return true if the ambiguity doesn't depend on conditions, false
+     *         otherwise
+     */
+    public boolean isCertain() {
+	return conditions.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+	return "Ambiguity [firstStep=" + firstStep + ", secondStep=" + secondStep + ", eventClass="
+		+ (eventClass != null ? eventClass.getName() : null) + ", isAmbiguousAtStart=" + isAmbiguousAtStart
+		+ ", latestSteps=" + latestSteps + ", conditions=" + conditions.size() + "]";
+    }
+}
@@ -0,0 +1,185 @@
+package org.requirementsascode;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Analyzes a model for steps that may both be able to react to the same event,
+ * without running the model.
+ *
+ * <p>
+ * Two steps are ambiguous if all of the following may be true at the same
+ * time: a) the runner is at the right position for both steps, after the same
+ * latest step b) both steps are steps of the actor the runner is run as, or of
+ * the system actor c) an event can be an instance of both steps' event classes
+ * d) the conditions of both steps are true.
+ *
+ * <p>
+ * Only d) depends on the state of the runner and the application. The analyzer
+ * checks a) to c) for every pair of steps, and every latest step. If an
+ * interrupting step reacts to the event class of an interruptable step, or a
+ * superclass of it, the interruptable step can't react when the interrupting
+ * step can. Apart from that, the analyzer doesn't know whether conditions are
+ * mutually exclusive, so it reports the conditions of each ambiguity. A model
+ * without ambiguities can safely be run with
+ * {@link ModelRunner#startFirstMatchDispatch()}.
+ *
+ * <p>
+ * The analysis takes time proportional to the square of the number of steps.
+ * It runs in parallel, on the common fork/join pool.
+ *
+ * @author b_muth
+ */
+public class AmbiguityAnalyzer {
+    private final Model model;
+
+    /**
+     * Creates an analyzer for the specified model.
+     *
+     * @param model
+     *            the model
+     */
+    public AmbiguityAnalyzer(Model model) {
+	this.model = Objects.requireNonNull(model);
+    }
+
+    /**
+     * Finds the ambiguous pairs of steps of the model.
+     *
+     * @return the ambiguities, ordered by their first step, then by their second
+     *         step, in model order. Empty if at most one step can react to any
+     *         event, whatever the conditions.
+     */
+    public List<Ambiguity> analyze() {
+	List<Step> steps = new ArrayList<>(model.getModifiableSteps());
+	BitSet[] positionsOfSteps = new BitSet[steps.size()];
+	IntStream.range(0, steps.size()).parallel()
+		.forEach(i -> positionsOfSteps[i] = positionsOf(steps.get(i), steps));
+
+	List<Ambiguity> ambiguities = IntStream.range(0, steps.size()).parallel()
+		.mapToObj(i -> ambiguitiesWithFollowingSteps(i, steps, positionsOfSteps))
+		.flatMap(List::stream)
+		.collect(Collectors.toList());
+	return ambiguities;
+    }
+
+    /**
+     * Returns the positions at which the runner is at the right position for
+     * the specified step. Position 0 is the start, before any step has been
+     * run. Position i + 1 is after the i-th step of the model has been run.
+     */
+    private static BitSet positionsOf(Step step, List<Step> steps) {
+	BitSet positions = new BitSet(steps.size() + 1);
+	if (step.getEventClass() != null) {
+	    positions.set(0, step.isRunnerAtRightPositionAfter(null));
+	    for (int i = 0; i < steps.size(); i++) {
+		positions.set(i + 1, step.isRunnerAtRightPositionAfter(steps.get(i)));
+	    }
+	}
+	return positions;
+    }
+
+    private List<Ambiguity> ambiguitiesWithFollowingSteps(int stepIndex, List<Step> steps,
+	    BitSet[] positionsOfSteps) {
+	Step step = steps.get(stepIndex);
+	BitSet positionsOfStep = positionsOfSteps[stepIndex];
+	if (positionsOfStep.isEmpty()) {
+	    return Collections.emptyList();
+	}
+
+	List<Ambiguity> ambiguities = new ArrayList<>();
+	for (int i = stepIndex + 1; i < steps.size(); i++) {
+	    Step followingStep = steps.get(i);
+	    if (!positionsOfStep.intersects(positionsOfSteps[i]) || !haveCommonActor(step, followingStep)
+		    || !canHaveCommonSubclass(step.getEventClass(), followingStep.getEventClass())
+		    || isInterruptedBy(step, followingStep) || isInterruptedBy(followingStep, step)) {
+		continue;
+	    }
+
+	    BitSet commonPositions = (BitSet) positionsOfStep.clone();
+	    commonPositions.and(positionsOfSteps[i]);
+	    ambiguities.add(ambiguityOf(step, followingStep, commonPositions, steps));
+	}
+	return ambiguities;
+    }
+
+    private boolean haveCommonActor(Step step, Step otherStep) {
+	Actor systemActor = model.getSystemActor();
+	for (Actor actor : step.getActors()) {
+	    for (Actor otherActor : otherStep.getActors()) {
+		if (actor.equals(otherActor) || actor.equals(systemActor) || otherActor.equals(systemActor)) {
+		    return true;
+		}
+	    }
+	}
+	return false;
+    }
+
+    private static boolean canHaveCommonSubclass(Class<?> eventClass, Class<?> otherEventClass) {
+	if (eventClass.isAssignableFrom(otherEventClass) || otherEventClass.isAssignableFrom(eventClass)) {
+	    return true;
+	}
+	if (eventClass.isInterface() && otherEventClass.isInterface()) {
+	    return true;
+	}
+	if (eventClass.isInterface()) {
+	    return !Modifier.isFinal(otherEventClass.getModifiers());
+	}
+	if (otherEventClass.isInterface()) {
+	    return !Modifier.isFinal(eventClass.getModifiers());
+	}
+	return false;
+    }
+
+    /**
+     * Checks whether the interruptable step can't react when the interrupting
+     * step can. The runner checks the interrupting steps for the event class of
+     * the interruptable step, and for the same latest step, before it lets the
+     * interruptable step react.
+     */
+    private static boolean isInterruptedBy(Step interruptableStep, Step interruptingStep) {
+	boolean isInterrupted = interruptableStep instanceof InterruptableFlowStep
+		&& interruptingStep instanceof InterruptingFlowStep
+		&& interruptingStep.getEventClass().isAssignableFrom(interruptableStep.getEventClass());
+	return isInterrupted;
+    }
+
+    private static Ambiguity ambiguityOf(Step step, Step followingStep, BitSet commonPositions, List<Step> steps) {
+	Class<?> eventClass = null;
+	if (step.getEventClass().isAssignableFrom(followingStep.getEventClass())) {
+	    eventClass = followingStep.getEventClass();
+	} else if (followingStep.getEventClass().isAssignableFrom(step.getEventClass())) {
+	    eventClass = step.getEventClass();
+	}
+
+	List<Step> latestSteps = new ArrayList<>();
+	for (int position = commonPositions.nextSetBit(1); position >= 0; position = commonPositions
+		.nextSetBit(position + 1)) {
+	    latestSteps.add(steps.get(position - 1));
+	}
+
+	List<Condition> conditions = new ArrayList<>();
+	addConditionsOf(step, conditions);
+	addConditionsOf(followingStep, conditions);
+
+	return new Ambiguity(step, followingStep, eventClass, commonPositions.get(0), latestSteps, conditions);
+    }
+
+    private static void addConditionsOf(Step step, List<Condition> conditions) {
+	if (!(step instanceof InterruptableFlowStep)) {
+	    step.getCondition().ifPresent(conditions::add);
+	}
+	if (step instanceof FlowStep) {
+	    Condition reactWhile = ((FlowStep) step).getReactWhile();
+	    if (reactWhile != null) {
+		conditions.add(reactWhile);
+	    }
+	}
+    }
+}
@@ -0,0 +1,158 @@
+package org.requirementsascode;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets a {@link ModelRunner} react to events asynchronously.
+ *
+ * <p>
+ * Any thread can call {@link #reactToAsync(Object)}. The event is put into the
+ * mailbox of the async runner, a lock-free queue. When there are events in the
+ * mailbox, the async runner submits a task to its executor that reacts to them,
+ * one after the other. At most one such task runs at a time, so the wrapped
+ * runner reacts to the events sequentially, in the order they have been put
+ * into the mailbox, as if a single thread called {@link ModelRunner#reactTo(Object)}.
+ *
+ * <p>
+ * Many async runners can share an executor, so thousands of runners can
+ * progress in parallel on a few threads. To keep the runners fair, a task
+ * reacts to at most {@value #MAX_EVENTS_PER_TASK} events, then submits a new
+ * task for the rest. If system reactions block on I/O, use an executor that
+ * creates a new thread per task. On Java 21 or later, that can be
+ * {@code Executors.newVirtualThreadPerTaskExecutor()}. The async runner doesn't
+ * use locks or synchronized blocks, so it doesn't pin a virtual thread to its
+ * carrier thread.
+ *
+ * <p>
+ * Don't call methods of the wrapped runner directly while the async runner is
+ * in use, apart from methods that other threads may call anyway, like
+ * {@link ModelRunner#getLatestRecordedSteps(int)}.
+ *
+ * @author b_muth
+ */
+public class AsyncModelRunner {
+    private static final int MAX_EVENTS_PER_TASK = 64;
+
+    private final ModelRunner modelRunner;
+    private final Executor executor;
+    private final Mailbox<Message> mailbox;
+    private final AtomicBoolean isScheduled;
+    private final Runnable reactToMessages;
+
+    /**
+     * Creates an async runner that wraps the specified runner and reacts to
+     * events on threads of the specified executor.
+     *
+     * @param modelRunner
+     *            the runner that reacts to the events
+     * @param executor
+     *            the executor
+     */
+    public AsyncModelRunner(ModelRunner modelRunner, Executor executor) {
+	this.modelRunner = Objects.requireNonNull(modelRunner);
+	this.executor = Objects.requireNonNull(executor);
+	this.mailbox = new Mailbox<>();
+	this.isScheduled = new AtomicBoolean(false);
+	this.reactToMessages = this::reactToMessages;
+    }
+
+    /**
+     * Returns the wrapped runner.
+     *
+     * @return the runner
+     */
+    public ModelRunner getModelRunner() {
+	return modelRunner;
+    }
+
+    /**
+     * Puts the specified event into the mailbox, and returns immediately. Later,
+     * the wrapped runner reacts to the event on a thread of the executor, see
+     * {@link ModelRunner#reactTo(Object)}.
+     *
+     * <p>
+     * The returned future completes with the latest step the runner has run
+     * after reacting to the event. If reacting to the event throws an exception,
+     * like {@link org.requirementsascode.exception.MoreThanOneStepCanReact}, the
+     * future completes exceptionally with it, and the runner goes on with the
+     * next event. Actions that depend on the future run on the executor's
+     * thread, before the runner reacts to the next event, unless you use the
+     * async methods of the future.
+     *
+     * @param event
+     *            the command or event object
+     * @return the future latest step
+     * @throws RejectedExecutionException
+     *             if the executor doesn't accept the task that reacts to the
+     *             event. The future of the event, and of any other event in the
+     *             mailbox, completes exceptionally then as well.
+     */
+    public CompletableFuture<Optional<Step>> reactToAsync(Object event) {
+	Objects.requireNonNull(event);
+
+	CompletableFuture<Optional<Step>> futureLatestStep = new CompletableFuture<>();
+	mailbox.offer(new Message(event, futureLatestStep));
+	scheduleIfNeeded();
+	return futureLatestStep;
+    }
+
+    private void scheduleIfNeeded() {
+	if (isScheduled.compareAndSet(false, true)) {
+	    try {
+		executor.execute(reactToMessages);
+	    } catch (RejectedExecutionException e) {
+		rejectMessages(e);
+		throw e;
+	    }
+	}
+    }
+
+    private void rejectMessages(RejectedExecutionException e) {
+	// Only the thread that has set the flag gets here, so it's the consumer now
+	Message message;
+	while ((message = mailbox.poll()) != null) {
+	    message.futureLatestStep.completeExceptionally(e);
+	}
+	isScheduled.set(false);
+    }
+
+    private void reactToMessages() {
+	Message message;
+	int events = 0;
+	while (events < MAX_EVENTS_PER_TASK && (message = mailbox.poll()) != null) {
+	    reactTo(message);
+	    events++;
+	}
+
+	isScheduled.set(false);
+	if (!mailbox.isEmpty()) {
+	    // An event has been put into the mailbox after the last poll, or the
+	    // task has reached its maximum number of events
+	    scheduleIfNeeded();
+	}
+    }
+
+    private void reactTo(Message message) {
+	try {
+	    Optional<Step> latestStep = modelRunner.reactTo(message.event);
+	    message.futureLatestStep.complete(latestStep);
+	} catch (RuntimeException | Error e) {
+	    message.futureLatestStep.completeExceptionally(e);
+	}
+    }
+
+    private static class Message {
+	private final Object event;
+	private final CompletableFuture<Optional<Step>> futureLatestStep;
+
+	Message(Object event, CompletableFuture<Optional<Step>> futureLatestStep) {
+	    this.event = event;
+	    this.futureLatestStep = futureLatestStep;
+	}
+    }
+}
@@ -0,0 +1,101 @@
+package org.requirementsascode;
+
+import java.util.Iterator;
+
+/**
+ * Statistics about a batch of events that a {@link ModelRunner} has reacted to,
+ * see {@link ModelRunner#reactToAll(Iterator)}.
+ *
+ * @author b_muth
+ */
+public class BatchStatistics {
+    private long events;
+    private long handledEvents;
+    private long stepsRun;
+    private long eventClassRuns;
+    private long elapsedNanos;
+
+    BatchStatistics() {
+    }
+
+    void eventHandled(boolean isHandled, int stepsRunForEvent) {
+	events++;
+	if (isHandled) {
+	    handledEvents++;
+	}
+	stepsRun += stepsRunForEvent;
+    }
+
+    void eventClassRunStarted() {
+	eventClassRuns++;
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+	this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the number of events in the batch.
+     *
+     * @return the number of events
+     */
+    public long getEvents() {
+	return events;
+    }
+
+    /**
+     * Returns the number of events in the batch that a step has reacted to.
+     *
+     * @return the number of handled events
+     */
+    public long getHandledEvents() {
+	return handledEvents;
+    }
+
+    /**
+     * Returns the number of events in the batch that no step has reacted to,
+     * including the events received while the runner wasn't running.
+     *
+     * @return the number of unhandled events
+     */
+    public long getUnhandledEvents() {
+	long unhandledEvents = events - handledEvents;
+	return unhandledEvents;
+    }
+
+    /**
+     * Returns the number of steps the runner has run for the events in the
+     * batch, including autonomous system reactions, and steps run for exceptions
+     * thrown by system reactions.
+     *
+     * @return the number of steps run
+     */
+    public long getStepsRun() {
+	return stepsRun;
+    }
+
+    /**
+     * Returns the number of runs of events of the same class in the batch. The
+     * runner looks up the candidate steps for an event class once per run.
+     *
+     * @return the number of runs
+     */
+    public long getEventClassRuns() {
+	return eventClassRuns;
+    }
+
+    /**
+     * Returns the time it took to react to the batch, in nanoseconds.
+     *
+     * @return the elapsed time
+     */
+    public long getElapsedNanos() {
+	return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+	return "BatchStatistics [events=" + events + ", handledEvents=" + handledEvents + ", stepsRun=" + stepsRun
+		+ ", eventClassRuns=" + eventClassRuns + ", elapsedNanos=" + elapsedNanos + "]";
+    }
+}
@@ -0,0 +1,64 @@
+package org.requirementsascode;
+
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+/**
+ * Selects the step that reacts to an event. A runner always dispatches with an
+ * engine: an {@link IndexedDispatchEngine} by default, or the engine that
+ * {@link ModelRunner#startDispatchEngine(DispatchEngine)} replaces it with.
+ *
+ * <p>
+ * An engine must select the same step as the runner would: the step of the
+ * actor the runner is run as or of the system actor, whose event class is the
+ * same or a superclass of the event's class, that the runner is at the right
+ * position for after its latest step, that is in the included use case if the
+ * runner is in one, and whose conditions are true. An interruptable step can
+ * only react if no interrupting step can react to its event class. The runner
+ * provides the state an engine needs with {@link ModelRunner#getRunActor()},
+ * {@link ModelRunner#getLatestStep()},
+ * {@link ModelRunner#getIncludedUseCase()} and
+ * {@link ModelRunner#isFirstMatchDispatch()}. The steps provide the rest, like
+ * {@link Step#isRunnerAtRightPositionAfter(Step)}, {@link Step#getCondition()}
+ * and {@link FlowStep#getReactWhile()}. See {@link LinearScanDispatchEngine}
+ * for an engine that only uses these methods.
+ *
+ * <p>
+ * The runner still runs the system reaction, records the step, handles
+ * exceptions and triggers autonomous system reactions. An engine is shared by
+ * all runners that are spawned from the runner it has been set for, so it must
+ * be thread-safe.
+ *
+ * @author b_muth
+ */
+@FunctionalInterface
+public interface DispatchEngine {
+    /**
+     * Selects the step that reacts to an event of the specified class, in the
+     * current state of the specified runner.
+     *
+     * @param modelRunner
+     *            the runner that is running and dispatches the event
+     * @param eventClass
+     *            the class of the event, or {@link ModelRunner} when the runner
+     *            looks for an autonomous system reaction
+     * @return the step, or null if no step can react
+     * @throws MoreThanOneStepCanReact
+     *             when more than one step can react, unless the runner
+     *             dispatches to the first match
+     */
+    Step selectStep(ModelRunner modelRunner, Class<?> eventClass);
+
+    /**
+     * Returns the engine that selects the steps that react to the events of a
+     * batch, see {@link ModelRunner#reactToAll(java.util.Iterator)}. The runner
+     * uses the returned engine in a single thread, for the events of a single
+     * batch, but not for the autonomous system reactions after them. So the
+     * returned engine may keep what it has looked up for an event, for the next
+     * event. By default, returns this engine.
+     *
+     * @return the engine for a batch
+     */
+    default DispatchEngine forBatch() {
+	return this;
+    }
+}
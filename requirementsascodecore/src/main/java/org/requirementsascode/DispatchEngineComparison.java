@@ -0,0 +1,173 @@
+package org.requirementsascode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.requirementsascode.exception.DispatchEnginesDiffer;
+
+/**
+ * Differential test harness for dispatch engines: replays random sequences of
+ * events against two runners, and checks that both run the same steps.
+ *
+ * <p>
+ * For each sequence, the comparison chooses events at random from the events
+ * it has been created with, lets a new reference runner react to them, then a
+ * new runner with the engine under test. After each event, it compares the
+ * steps each runner has run, including the steps of autonomous system
+ * reactions, and the exception a runner has thrown, for example
+ * {@link org.requirementsascode.exception.MoreThanOneStepCanReact}. The same
+ * seed produces the same sequences, so a difference can be reproduced.
+ *
+ * <p>
+ * For example, to check a new engine against the engine a runner uses by default:
+ *
+ * <pre>
+ * new DispatchEngineComparison(model, new EntersText(), new EntersNumber())
+ * 	.compare(new IndexedDispatchEngine(), newEngine, seed, 100, 20);
+ * </pre>
+ *
+ * <p>
+ * If the conditions or system reactions of the model depend on application
+ * state, reset that state before each run with
+ * {@link #beforeEachRun(Runnable)}. The comparison replaces the event handler
+ * of the runners, see {@link ModelRunner#handleWith(java.util.function.Consumer)}.
+ *
+ * @author b_muth
+ */
+public class DispatchEngineComparison {
+    private final Model model;
+    private final List<Object> events;
+    private Runnable beforeEachRun;
+
+    /**
+     * Creates a comparison for the specified model.
+     *
+     * @param model
+     *            the model the runners run
+     * @param events
+     *            the events to choose from at random
+     */
+    public DispatchEngineComparison(Model model, Object... events) {
+	this.model = Objects.requireNonNull(model);
+	this.events = new ArrayList<>();
+	Collections.addAll(this.events, events);
+	if (this.events.isEmpty()) {
+	    throw new IllegalArgumentException("At least one event must be specified");
+	}
+	this.beforeEachRun = () -> {
+	};
+    }
+
+    /**
+     * Specifies what to do before each runner runs the model, for example reset
+     * the application state that the conditions of the model depend on.
+     *
+     * @param beforeEachRun
+     *            the code to run before each run
+     * @return this comparison for method chaining
+     */
+    public DispatchEngineComparison beforeEachRun(Runnable beforeEachRun) {
+	this.beforeEachRun = Objects.requireNonNull(beforeEachRun);
+	return this;
+    }
+
+    /**
+     * Compares the specified engines, for the default user of the model.
+     *
+     * @param referenceEngine
+     *            the engine known to dispatch correctly, for example an
+     *            {@link IndexedDispatchEngine}
+     * @param engine
+     *            the engine under test
+     * @param seed
+     *            the seed of the random choice of events
+     * @param sequenceCount
+     *            the number of sequences
+     * @param sequenceLength
+     *            the number of events per sequence
+     * @throws DispatchEnginesDiffer
+     *             if the runners react differently to a sequence
+     */
+    public void compare(DispatchEngine referenceEngine, DispatchEngine engine, long seed, int sequenceCount,
+	    int sequenceLength) {
+	Objects.requireNonNull(referenceEngine);
+	Objects.requireNonNull(engine);
+	compare(() -> new ModelRunner().startDispatchEngine(referenceEngine),
+		() -> new ModelRunner().startDispatchEngine(engine), seed, sequenceCount, sequenceLength);
+    }
+
+    /**
+     * Compares runners that are configured differently, for example one that
+     * dispatches to the first match and one that doesn't.
+     *
+     * @param referenceRunners
+     *            creates a new reference runner for each sequence, that hasn't
+     *            been run yet
+     * @param runners
+     *            creates a new runner under test for each sequence, that hasn't
+     *            been run yet
+     * @param seed
+     *            the seed of the random choice of events
+     * @param sequenceCount
+     *            the number of sequences
+     * @param sequenceLength
+     *            the number of events per sequence
+     * @throws DispatchEnginesDiffer
+     *             if the runners react differently to a sequence
+     */
+    public void compare(Supplier<ModelRunner> referenceRunners, Supplier<ModelRunner> runners, long seed,
+	    int sequenceCount, int sequenceLength) {
+	Random random = new Random(seed);
+	for (int sequenceNumber = 0; sequenceNumber < sequenceCount; sequenceNumber++) {
+	    List<Object> sequence = new ArrayList<>(sequenceLength);
+	    for (int i = 0; i < sequenceLength; i++) {
+		sequence.add(events.get(random.nextInt(events.size())));
+	    }
+
+	    List<List<String>> referenceReactions = reactionsTo(sequence, referenceRunners.get());
+	    List<List<String>> reactions = reactionsTo(sequence, runners.get());
+	    for (int i = 0; i < sequenceLength; i++) {
+		if (!referenceReactions.get(i).equals(reactions.get(i))) {
+		    throw new DispatchEnginesDiffer(seed, sequenceNumber, sequence.subList(0, i + 1),
+			    referenceReactions.get(i), reactions.get(i));
+		}
+	    }
+	}
+    }
+
+    /**
+     * Lets the runner run the model, and react to each event of the sequence.
+     * Returns the reaction to each event: the steps run, and the class of the
+     * exception thrown, if any.
+     */
+    private List<List<String>> reactionsTo(List<Object> sequence, ModelRunner modelRunner) {
+	List<String> reaction = new ArrayList<>();
+	modelRunner.handleWith(stepToBeRun -> {
+	    Step step = stepToBeRun.getStep();
+	    reaction.add(step.getUseCase() + ": " + step);
+	    stepToBeRun.run();
+	});
+
+	beforeEachRun.run();
+	List<List<String>> reactions = new ArrayList<>(sequence.size());
+	try {
+	    modelRunner.run(model);
+	} catch (RuntimeException e) {
+	    reaction.add("threw " + e.getClass().getSimpleName());
+	}
+	for (Object event : sequence) {
+	    try {
+		modelRunner.reactTo(event);
+	    } catch (RuntimeException e) {
+		reaction.add("threw " + e.getClass().getSimpleName());
+	    }
+	    reactions.add(new ArrayList<>(reaction));
+	    reaction.clear();
+	}
+	return reactions;
+    }
+}
@@ -0,0 +1,371 @@
+package org.requirementsascode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.requirementsascode.exception.MissingUseCaseStepPart;
+
+/**
+ * Index of the steps of a model, by actor, event class and latest step run.
+ *
+ * <p>
+ * The index is built once per model. The {@link ModelRunner} uses it to find
+ * the candidate steps for an event, instead of looking at every step in every
+ * use case of the model. For each actor, the index contains the steps of that
+ * actor and of the system actor. For each event class an actor's runner has
+ * received, it caches the steps whose event class is the same class, a
+ * superclass or an interface of it.
+ *
+ * <p>
+ * Whether the runner is at the right flow position for a step only depends on
+ * the latest step the runner has run. So for each event class, the index also
+ * serves as a transition table: for each latest step, it caches the steps that
+ * are at the right position. The runner only needs to evaluate the conditions
+ * of these steps.
+ *
+ * <p>
+ * An interruptable step can only react if no interrupting step can react to its
+ * event class. The interrupting steps are grouped per event class in the same
+ * way, and numbered, so that the runner can evaluate each of them at most once
+ * per dispatch cycle.
+ *
+ * <p>
+ * The distinct conditions of the steps are numbered as well, so that a runner
+ * can evaluate each of them at most once per dispatch cycle, if asked to.
+ *
+ * @author b_muth
+ */
+class DispatchIndex {
+    private static final Step[] NO_STEPS = new Step[0];
+    private static final InterruptingFlowStep[] NO_INTERRUPTING_STEPS = new InterruptingFlowStep[0];
+
+    private Step[] steps;
+    private Map<Actor, ActorSteps> actorToStepsMap;
+    private Map<Step, Integer> interruptingStepToNumberMap;
+    private Map<Condition, Integer> conditionToNumberMap;
+
+    /**
+     * Creates an index of the specified steps.
+     *
+     * @param steps
+     *            the steps of the model, in model order
+     * @throws MissingUseCaseStepPart
+     *             if one of the steps has no actor part
+     */
+    DispatchIndex(Collection<Step> steps) {
+	this.steps = steps.toArray(NO_STEPS);
+	this.actorToStepsMap = new ConcurrentHashMap<>();
+	this.interruptingStepToNumberMap = numberInterruptingSteps();
+	this.conditionToNumberMap = numberConditions();
+	checkThatAllStepsHaveActors();
+    }
+
+    private Map<Step, Integer> numberInterruptingSteps() {
+	Map<Step, Integer> interruptingStepToNumber = new HashMap<>();
+	for (Step step : steps) {
+	    if (step instanceof InterruptingFlowStep) {
+		interruptingStepToNumber.put(step, interruptingStepToNumber.size());
+	    }
+	}
+	return interruptingStepToNumber;
+    }
+
+    private Map<Condition, Integer> numberConditions() {
+	Map<Condition, Integer> conditionToNumber = new IdentityHashMap<>();
+	for (Step step : steps) {
+	    numberCondition(step.getCondition().orElse(null), conditionToNumber);
+	    if (step instanceof FlowStep) {
+		numberCondition(((FlowStep) step).getReactWhile(), conditionToNumber);
+	    }
+	}
+	return conditionToNumber;
+    }
+
+    private void numberCondition(Condition condition, Map<Condition, Integer> conditionToNumber) {
+	if (condition != null && !conditionToNumber.containsKey(condition)) {
+	    conditionToNumber.put(condition, conditionToNumber.size());
+	}
+    }
+
+    private void checkThatAllStepsHaveActors() {
+	for (Step step : steps) {
+	    if (step.getActors() == null) {
+		throw new MissingUseCaseStepPart(step, "actor");
+	    }
+	}
+    }
+
+    /**
+     * Returns the number of interrupting steps in the model. Each interrupting
+     * step has a number between 0 (inclusive) and this count (exclusive).
+     *
+     * @return the interrupting step count
+     */
+    int getInterruptingStepCount() {
+	return interruptingStepToNumberMap.size();
+    }
+
+    /**
+     * Returns the number of distinct conditions of the steps in the model. Each
+     * condition has a number between 0 (inclusive) and this count (exclusive).
+     *
+     * @return the condition count
+     */
+    int getConditionCount() {
+	return conditionToNumberMap.size();
+    }
+
+    /**
+     * Returns the number of the specified condition.
+     *
+     * @param condition
+     *            the condition of a step in the model
+     * @return the number of the condition, or -1 if it isn't the condition of a
+     *         step in the model
+     */
+    int getConditionNumber(Condition condition) {
+	Integer conditionNumber = conditionToNumberMap.get(condition);
+	return conditionNumber != null ? conditionNumber : -1;
+    }
+
+    /**
+     * Returns the steps of the specified actor and the system actor for which a
+     * runner is at the right flow position after it has run the specified latest
+     * step, whatever their event class.
+     *
+     * @param actor
+     *            the actor the runner is run as
+     * @param latestStep
+     *            the latest step the runner has run, or null if no step has been
+     *            run
+     * @return the steps, in model order
+     */
+    Step[] getStepsAfter(Actor actor, Step latestStep) {
+	Step[] stepsAfter = getActorSteps(actor).getTransitions().getEnabledStepsAfter(latestStep).getSteps();
+	return stepsAfter;
+    }
+
+    /**
+     * Returns the steps of the specified actor and the system actor that have an
+     * event class that is the same or a superclass of the specified event class,
+     * and for which a runner is at the right flow position after it has run the
+     * specified latest step. Whether these steps can actually react depends on
+     * their conditions.
+     *
+     * @param eventClass
+     *            the class of the event
+     * @param actor
+     *            the actor the runner is run as
+     * @param latestStep
+     *            the latest step the runner has run, or null if no step has been
+     *            run
+     * @return the candidate steps, in model order
+     */
+    Step[] getStepsThatCanReactTo(Class<?> eventClass, Actor actor, Step latestStep) {
+	Step[] candidateSteps = getEnabledSteps(eventClass, actor, latestStep).getSteps();
+	return candidateSteps;
+    }
+
+    /**
+     * Same as {@link #getStepsThatCanReactTo(Class, Actor, Step)}, but returns
+     * the interrupting steps among the candidate steps as well.
+     *
+     * @param eventClass
+     *            the class of the event
+     * @param actor
+     *            the actor the runner is run as
+     * @param latestStep
+     *            the latest step the runner has run, or null if no step has been
+     *            run
+     * @return the candidate steps, and the interrupting ones among them
+     */
+    EnabledSteps getEnabledSteps(Class<?> eventClass, Actor actor, Step latestStep) {
+	EnabledSteps enabledSteps = getTransitionsFor(eventClass, actor).getEnabledStepsAfter(latestStep);
+	return enabledSteps;
+    }
+
+    /**
+     * Returns the candidate steps of the specified actor and the system actor
+     * for the specified event class, from which the candidate steps for each
+     * latest step can be looked up. A runner that receives several events of the
+     * same class in a row can look up the transitions once, and reuse them.
+     *
+     * @param eventClass
+     *            the class of the events
+     * @param actor
+     *            the actor the runner is run as
+     * @return the transitions
+     */
+    Transitions getTransitionsFor(Class<?> eventClass, Actor actor) {
+	Transitions transitions = getActorSteps(actor).getTransitionsFor(eventClass);
+	return transitions;
+    }
+
+    private ActorSteps getActorSteps(Actor actor) {
+	ActorSteps actorSteps = actorToStepsMap.get(actor);
+	if (actorSteps == null) {
+	    actorSteps = new ActorSteps(stepsOf(actor));
+	    actorToStepsMap.put(actor, actorSteps);
+	}
+	return actorSteps;
+    }
+
+    private Step[] stepsOf(Actor actor) {
+	List<Step> actorSteps = new ArrayList<>();
+	for (Step step : steps) {
+	    if (isStepOf(actor, step)) {
+		actorSteps.add(step);
+	    }
+	}
+	return actorSteps.toArray(NO_STEPS);
+    }
+
+    /**
+     * Checks whether the specified step is connected to the specified actor, or to
+     * the system actor.
+     *
+     * @param actor
+     *            the actor the runner is run as
+     * @param step
+     *            the step to check
+     * @return true if one of the step's actors matches, false otherwise
+     * @throws MissingUseCaseStepPart
+     *             if the step has no actor part
+     */
+    private static boolean isStepOf(Actor actor, Step step) {
+	Actor[] stepActors = step.getActors();
+	if (stepActors == null) {
+	    throw new MissingUseCaseStepPart(step, "actor");
+	}
+
+	Actor systemActor = actor.getModel().getSystemActor();
+	for (Actor stepActor : stepActors) {
+	    if (actor.equals(stepActor) || systemActor.equals(stepActor)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    private class ActorSteps {
+	private Step[] steps;
+	private volatile Transitions transitions;
+	private Map<Class<?>, Transitions> eventClassToTransitionsMap;
+
+	ActorSteps(Step[] steps) {
+	    this.steps = steps;
+	    this.eventClassToTransitionsMap = new ConcurrentHashMap<>();
+	}
+
+	Transitions getTransitions() {
+	    if (transitions == null) {
+		transitions = new Transitions(steps);
+	    }
+	    return transitions;
+	}
+
+	Transitions getTransitionsFor(Class<?> eventClass) {
+	    Transitions transitions = eventClassToTransitionsMap.get(eventClass);
+	    if (transitions == null) {
+		transitions = new Transitions(stepsWithSameOrSuperclassAs(eventClass));
+		eventClassToTransitionsMap.put(eventClass, transitions);
+	    }
+	    return transitions;
+	}
+
+	private Step[] stepsWithSameOrSuperclassAs(Class<?> eventClass) {
+	    List<Step> candidateSteps = new ArrayList<>();
+	    for (Step step : steps) {
+		Class<?> stepEventClass = step.getEventClass();
+		if (stepEventClass != null && stepEventClass.isAssignableFrom(eventClass)) {
+		    candidateSteps.add(step);
+		}
+	    }
+	    return candidateSteps.toArray(NO_STEPS);
+	}
+    }
+
+    /**
+     * The candidate steps for a single event class (or for all event classes),
+     * and per latest step run, the candidate steps for which the runner is at the
+     * right position.
+     */
+    class Transitions {
+	private Step[] steps;
+	private EnabledSteps enabledStepsAtStart;
+	private Map<Step, EnabledSteps> latestStepToEnabledStepsMap;
+
+	Transitions(Step[] steps) {
+	    this.steps = steps;
+	    this.enabledStepsAtStart = stepsAtRightPositionAfter(null);
+	    this.latestStepToEnabledStepsMap = new ConcurrentHashMap<>();
+	}
+
+	EnabledSteps getEnabledStepsAfter(Step latestStep) {
+	    if (latestStep == null) {
+		return enabledStepsAtStart;
+	    }
+
+	    EnabledSteps enabledSteps = latestStepToEnabledStepsMap.get(latestStep);
+	    if (enabledSteps == null) {
+		enabledSteps = stepsAtRightPositionAfter(latestStep);
+		latestStepToEnabledStepsMap.put(latestStep, enabledSteps);
+	    }
+	    return enabledSteps;
+	}
+
+	private EnabledSteps stepsAtRightPositionAfter(Step latestStep) {
+	    List<Step> enabledSteps = new ArrayList<>();
+	    for (Step step : steps) {
+		if (step.isRunnerAtRightPositionAfter(latestStep)) {
+		    enabledSteps.add(step);
+		}
+	    }
+	    Step[] enabledStepsArray = enabledSteps.size() == steps.length ? steps : enabledSteps.toArray(NO_STEPS);
+	    return new EnabledSteps(enabledStepsArray, interruptingStepToNumberMap);
+	}
+    }
+
+    /**
+     * The candidate steps a runner is at the right position for, and the
+     * interrupting steps among them, with their numbers.
+     */
+    static class EnabledSteps {
+	private Step[] steps;
+	private InterruptingFlowStep[] interruptingSteps;
+	private int[] interruptingStepNumbers;
+
+	private EnabledSteps(Step[] steps, Map<Step, Integer> interruptingStepToNumberMap) {
+	    this.steps = steps;
+
+	    List<InterruptingFlowStep> interruptingStepList = new ArrayList<>();
+	    for (Step step : steps) {
+		if (step instanceof InterruptingFlowStep) {
+		    interruptingStepList.add((InterruptingFlowStep) step);
+		}
+	    }
+	    this.interruptingSteps = interruptingStepList.toArray(NO_INTERRUPTING_STEPS);
+	    this.interruptingStepNumbers = new int[interruptingSteps.length];
+	    for (int i = 0; i < interruptingSteps.length; i++) {
+		interruptingStepNumbers[i] = interruptingStepToNumberMap.get(interruptingSteps[i]);
+	    }
+	}
+
+	Step[] getSteps() {
+	    return steps;
+	}
+
+	InterruptingFlowStep[] getInterruptingSteps() {
+	    return interruptingSteps;
+	}
+
+	int getInterruptingStepNumber(int index) {
+	    return interruptingStepNumbers[index];
+	}
+    }
+}
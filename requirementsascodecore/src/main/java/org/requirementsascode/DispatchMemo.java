@@ -0,0 +1,148 @@
+package org.requirementsascode;
+
+import java.util.Arrays;
+
+/**
+ * Results that a {@link ModelRunner} remembers during a single dispatch cycle,
+ * that is: while it looks for the steps that can react to an event. During a
+ * dispatch cycle, the state of the runner doesn't change, so the results can
+ * be reused.
+ *
+ * <p>
+ * The memo remembers whether each interrupting step can react, and optionally,
+ * the result of each condition. Interrupting steps and conditions are
+ * identified by the numbers the {@link DispatchIndex} has given them. Instead
+ * of clearing the results at the start of each cycle, the memo remembers the
+ * cycle in which each result was computed.
+ *
+ * @author b_muth
+ */
+class DispatchMemo {
+    private static final int[] NO_CYCLES = new int[0];
+    private static final boolean[] NO_RESULTS = new boolean[0];
+
+    private int cycle;
+    private boolean isInCycle;
+    private boolean isConditionEvaluatedInCycle;
+    private int conditionEvaluationsInCycle;
+    private int[] interruptCheckCycles;
+    private boolean[] interruptCheckResults;
+    private int[] conditionCycles;
+    private boolean[] conditionResults;
+    private long conditionEvaluations;
+    private long savedConditionEvaluations;
+
+    DispatchMemo() {
+	this.interruptCheckCycles = NO_CYCLES;
+	this.interruptCheckResults = NO_RESULTS;
+	this.conditionCycles = NO_CYCLES;
+	this.conditionResults = NO_RESULTS;
+    }
+
+    /**
+     * Starts a new dispatch cycle. All results of previous cycles become invalid.
+     *
+     * @param dispatchIndex
+     *            the index of the model the runner runs
+     */
+    void startCycle(DispatchIndex dispatchIndex) {
+	int interruptingStepCount = dispatchIndex.getInterruptingStepCount();
+	if (interruptCheckCycles.length < interruptingStepCount) {
+	    interruptCheckCycles = new int[interruptingStepCount];
+	    interruptCheckResults = new boolean[interruptingStepCount];
+	}
+	int conditionCount = dispatchIndex.getConditionCount();
+	if (conditionCycles.length < conditionCount) {
+	    conditionCycles = new int[conditionCount];
+	    conditionResults = new boolean[conditionCount];
+	}
+
+	if (++cycle <= 0) {
+	    Arrays.fill(interruptCheckCycles, 0);
+	    Arrays.fill(conditionCycles, 0);
+	    cycle = 1;
+	}
+	isInCycle = true;
+	isConditionEvaluatedInCycle = false;
+	conditionEvaluationsInCycle = 0;
+    }
+
+    void endCycle() {
+	isInCycle = false;
+    }
+
+    boolean isInCycle() {
+	return isInCycle;
+    }
+
+    /**
+     * Returns whether a condition has been evaluated in the current cycle, with
+     * or without memoizing its result. If not, the outcome of the cycle only
+     * depends on the model and the state of the runner.
+     *
+     * @return true if a condition has been evaluated, false otherwise
+     */
+    boolean isConditionEvaluatedInCycle() {
+	return isConditionEvaluatedInCycle;
+    }
+
+    void conditionEvaluatedInCycle() {
+	isConditionEvaluatedInCycle = true;
+    }
+
+    /**
+     * Counts a condition that has actually been evaluated in the current cycle,
+     * not memoized. The count stays available after the end of the cycle, until
+     * the next cycle starts.
+     */
+    void countConditionEvaluationInCycle() {
+	conditionEvaluationsInCycle++;
+    }
+
+    int getConditionEvaluationsInCycle() {
+	return conditionEvaluationsInCycle;
+    }
+
+    boolean hasInterruptCheckResult(int interruptingStepNumber) {
+	return interruptCheckCycles[interruptingStepNumber] == cycle;
+    }
+
+    boolean getInterruptCheckResult(int interruptingStepNumber) {
+	return interruptCheckResults[interruptingStepNumber];
+    }
+
+    void setInterruptCheckResult(int interruptingStepNumber, boolean canInterruptingStepReact) {
+	interruptCheckResults[interruptingStepNumber] = canInterruptingStepReact;
+	interruptCheckCycles[interruptingStepNumber] = cycle;
+    }
+
+    /**
+     * Evaluates the specified condition, unless it has already been evaluated in
+     * the current cycle. In that case, returns the remembered result.
+     *
+     * @param condition
+     *            the condition
+     * @param conditionNumber
+     *            the number of the condition in the dispatch index
+     * @return the result of the condition
+     */
+    boolean evaluate(Condition condition, int conditionNumber) {
+	if (conditionCycles[conditionNumber] == cycle) {
+	    savedConditionEvaluations++;
+	} else {
+	    conditionResults[conditionNumber] = condition.evaluate();
+	    conditionCycles[conditionNumber] = cycle;
+	    conditionEvaluations++;
+	    conditionEvaluationsInCycle++;
+	}
+	return conditionResults[conditionNumber];
+    }
+
+    long getConditionEvaluations() {
+	return conditionEvaluations;
+    }
+
+    long getSavedConditionEvaluations() {
+	return savedConditionEvaluations;
+    }
+}
@@ -1,10 +1,10 @@
 package org.requirementsascode;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.requirementsascode.flowposition.FlowPosition;
 
@@ -22,6 +22,8 @@ public class Flow extends ModelElement implements Serializable {
     private static final long serialVersionUID = -2448742413260609615L;
 
     private UseCase useCase;
+    private List<FlowStep> steps;
+    private FlowStep lastStep;
 
     /**
      * Creates a flow with the specified name that belongs to the specified
@@ -35,6 +37,7 @@ public class Flow extends ModelElement implements Serializable {
     Flow(String name, UseCase useCase) {
 	super(name, useCase.getModel());
 	this.useCase = useCase;
+	this.steps = new ArrayList<>();
     }
 
     /**
@@ -53,14 +56,21 @@ public class Flow extends ModelElement implements Serializable {
      * @return a collection of the steps
      */
     public List<FlowStep> getSteps() {
-	List<FlowStep> steps = getUseCase().getModifiableSteps().stream()
-		.filter(step -> step instanceof FlowStep)
-		.map(step -> (FlowStep)step)
-		.filter(step -> this.equals(step.getFlow()))
-		.collect(Collectors.toList());
 	return Collections.unmodifiableList(steps);
     }
 
+    /**
+     * Appends the specified step to the end of this flow. The step becomes the
+     * last step of the flow.
+     *
+     * @param step
+     *            the step to append
+     */
+    void appendStep(FlowStep step) {
+	steps.add(step);
+	lastStep = step;
+    }
+
     /**
      * Returns the first step of the flow
      *
@@ -68,10 +78,31 @@ public class Flow extends ModelElement implements Serializable {
      *         steps.
      */
     public Optional<FlowStep> getFirstStep() {
-	List<FlowStep> steps = getSteps();
 	return steps.size() > 0 ? Optional.of(steps.get(0)) : Optional.empty();
     }
 
+    /**
+     * Returns the last step of the flow
+     *
+     * @return the last step of the flow, or an empty optional if the flow has no
+     *         steps.
+     */
+    public Optional<FlowStep> getLastStep() {
+	return Optional.ofNullable(lastStep);
+    }
+
+    /**
+     * Checks whether the specified step is the last step of this flow.
+     *
+     * @param step
+     *            the step to check
+     * @return true if it is the last step, false otherwise
+     */
+    boolean isLastStep(Step step) {
+	boolean isLastStep = step != null && step == lastStep;
+	return isLastStep;
+    }
+
     /**
      * Convenience method that returns the position of the flow (as defined e.g. by
      * "InsteadOf").
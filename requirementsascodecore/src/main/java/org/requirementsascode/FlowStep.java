@@ -31,6 +31,7 @@ public abstract class FlowStep extends Step implements Serializable {
     }
 
     void setPreviousStepInFlow(FlowStep previousStepInFlow) {
+	getModel().checkIsNotBuilt();
 	this.previousStepInFlow = previousStepInFlow;
     }
     
@@ -40,8 +41,10 @@ public abstract class FlowStep extends Step implements Serializable {
 
     void setFlowPosition(FlowPosition flowPosition) {
 	Objects.requireNonNull(flowPosition);
+	getModel().checkIsNotBuilt();
 	
 	this.flowPosition = flowPosition;
+	getModel().invalidateDispatchIndex();
     }
     
     public void orAfter(FlowStep step) {
@@ -49,14 +52,20 @@ public abstract class FlowStep extends Step implements Serializable {
     }
     
     void setReactWhile(Condition reactWhileCondition) {
+	getModel().checkIsNotBuilt();
 	this.reactWhile = reactWhileCondition;
 	createLoop();
     }    
     private void createLoop() {
-	getFlowPosition().orAfter(this);
+	orAfter(this);
     }
 
     public Condition getReactWhile() {
 	return reactWhile;
     }
+
+    boolean isReactWhileTrue(ModelRunner modelRunner) {
+	boolean isReactWhileTrue = reactWhile == null || modelRunner.evaluate(reactWhile);
+	return isReactWhileTrue;
+    }
 }
@@ -1,7 +1,5 @@
 package org.requirementsascode;
 
-import java.util.function.Predicate;
-
 public class FlowlessStep extends Step {
     private static final long serialVersionUID = -5290327128546502292L;
 
@@ -10,13 +8,13 @@ public class FlowlessStep extends Step {
     }
 
     @Override
-    public Predicate<ModelRunner> getPredicate() {
-	Predicate<ModelRunner> predicate = toPredicate(getConditionOrElseTrue());
-	return predicate;
+    public boolean isRunnerAtRightPositionAfter(Step latestStep) {
+	return true;
     }
 
-    private Condition getConditionOrElseTrue() {
-	Condition condition = getCondition().orElse(() -> true);
-	return condition;
+    @Override
+    boolean hasTrueCondition(ModelRunner modelRunner) {
+	boolean hasTrueCondition = isConditionTrue(modelRunner);
+	return hasTrueCondition;
     }
 }
@@ -0,0 +1,156 @@
+package org.requirementsascode;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.requirementsascode.exception.InfiniteRepetition;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+/**
+ * Metrics that record the measurements of any number of runners in lock-free
+ * counters and {@link LatencyHistogram}s. Runners on different threads can
+ * share an instance.
+ *
+ * <p>
+ * The time it took to run steps is recorded per step, and per use case. The
+ * steps of an included use case are recorded for the included use case.
+ *
+ * @author b_muth
+ */
+public class HistogramRunnerMetrics implements RunnerMetrics {
+    private final LatencyHistogram stepSelectionHistogram;
+    private final LongAdder candidateSteps;
+    private final LongAdder conditionEvaluations;
+    private final LongAdder unhandledEvents;
+    private final LongAdder moreThanOneStepCanReactCount;
+    private final LongAdder infiniteRepetitionCount;
+    private final Map<Step, LatencyHistogram> stepHistograms;
+    private final Map<UseCase, LatencyHistogram> useCaseHistograms;
+
+    /**
+     * Creates metrics with empty counters and histograms.
+     */
+    public HistogramRunnerMetrics() {
+	this.stepSelectionHistogram = new LatencyHistogram();
+	this.candidateSteps = new LongAdder();
+	this.conditionEvaluations = new LongAdder();
+	this.unhandledEvents = new LongAdder();
+	this.moreThanOneStepCanReactCount = new LongAdder();
+	this.infiniteRepetitionCount = new LongAdder();
+	this.stepHistograms = new ConcurrentHashMap<>();
+	this.useCaseHistograms = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void stepSelected(Class<?> eventClass, Step step, int candidateStepCount, int conditionEvaluationCount,
+	    long nanos) {
+	stepSelectionHistogram.recordConcurrently(nanos);
+	candidateSteps.add(candidateStepCount);
+	conditionEvaluations.add(conditionEvaluationCount);
+    }
+
+    @Override
+    public void stepRun(Step step, long nanos) {
+	histogramOf(stepHistograms, step).recordConcurrently(nanos);
+	histogramOf(useCaseHistograms, step.getUseCase()).recordConcurrently(nanos);
+    }
+
+    private static <K> LatencyHistogram histogramOf(Map<K, LatencyHistogram> histograms, K key) {
+	// Look up first, as computeIfAbsent may lock even if the key is present
+	LatencyHistogram histogram = histograms.get(key);
+	if (histogram == null) {
+	    histogram = histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+	}
+	return histogram;
+    }
+
+    @Override
+    public void eventUnhandled(Object event) {
+	unhandledEvents.increment();
+    }
+
+    @Override
+    public void moreThanOneStepCanReact(MoreThanOneStepCanReact exception) {
+	moreThanOneStepCanReactCount.increment();
+    }
+
+    @Override
+    public void infiniteRepetition(InfiniteRepetition exception) {
+	infiniteRepetitionCount.increment();
+    }
+
+    /**
+     * Returns the histogram of the time it took to select steps.
+     *
+     * @return the histogram, whose count is the number of step selections
+     */
+    public LatencyHistogram getStepSelectionHistogram() {
+	return stepSelectionHistogram;
+    }
+
+    /**
+     * Returns the total number of candidate steps checked while selecting steps.
+     *
+     * @return the number of candidate steps
+     */
+    public long getCandidateSteps() {
+	return candidateSteps.sum();
+    }
+
+    /**
+     * Returns the total number of conditions evaluated while selecting steps.
+     *
+     * @return the number of condition evaluations
+     */
+    public long getConditionEvaluations() {
+	return conditionEvaluations.sum();
+    }
+
+    /**
+     * Returns the number of events no step has reacted to.
+     *
+     * @return the number of unhandled events
+     */
+    public long getUnhandledEvents() {
+	return unhandledEvents.sum();
+    }
+
+    /**
+     * Returns how often a runner has thrown a {@link MoreThanOneStepCanReact}.
+     *
+     * @return the number of exceptions
+     */
+    public long getMoreThanOneStepCanReactCount() {
+	return moreThanOneStepCanReactCount.sum();
+    }
+
+    /**
+     * Returns how often a runner has thrown an {@link InfiniteRepetition}.
+     *
+     * @return the number of exceptions
+     */
+    public long getInfiniteRepetitionCount() {
+	return infiniteRepetitionCount.sum();
+    }
+
+    /**
+     * Returns the histograms of the time it took to run each step.
+     *
+     * @return an unmodifiable view of the histograms, by step
+     */
+    public Map<Step, LatencyHistogram> getStepHistograms() {
+	return Collections.unmodifiableMap(stepHistograms);
+    }
+
+    /**
+     * Returns the histograms of the time it took to run the steps of each use
+     * case.
+     *
+     * @return an unmodifiable view of the histograms, by use case
+     */
+    public Map<UseCase, LatencyHistogram> getUseCaseHistograms() {
+	return Collections.unmodifiableMap(useCaseHistograms);
+    }
+}
@@ -0,0 +1,62 @@
+package org.requirementsascode;
+
+import org.requirementsascode.DispatchIndex.Transitions;
+
+/**
+ * The dispatch engine a runner uses by default: it looks up the candidate
+ * steps for an event in the dispatch index of the model, by actor, event class
+ * and latest step, and lets the runner select the step among them with
+ * {@link ModelRunner#getStepThatCanReact(Step[])}.
+ *
+ * <p>
+ * It is the reference that other engines are compared to, see
+ * {@link DispatchEngineComparison}. For the events of a batch, the engine looks
+ * up the transitions of consecutive events of the same class once, see
+ * {@link #forBatch()}.
+ *
+ * <p>
+ * The engine has no state, so a single instance can be shared by all runners.
+ *
+ * @author b_muth
+ */
+public class IndexedDispatchEngine implements DispatchEngine {
+    @Override
+    public Step selectStep(ModelRunner modelRunner, Class<?> eventClass) {
+	Step[] candidateSteps = modelRunner.getCandidateStepsIfRunning(eventClass);
+	Step step = modelRunner.getStepThatCanReact(candidateSteps);
+	return step;
+    }
+
+    /**
+     * Returns an engine that keeps the transitions it has looked up for the
+     * class of an event, the model and the actor of the runner, and reuses them
+     * as long as they stay the same.
+     */
+    @Override
+    public DispatchEngine forBatch() {
+	DispatchEngine batchEngine = new BatchDispatchEngine();
+	return batchEngine;
+    }
+
+    private static class BatchDispatchEngine implements DispatchEngine {
+	private Class<?> runEventClass;
+	private Model runModel;
+	private Actor runActor;
+	private Transitions transitions;
+
+	@Override
+	public Step selectStep(ModelRunner modelRunner, Class<?> eventClass) {
+	    Model model = modelRunner.getModel();
+	    Actor actor = modelRunner.getRunActor();
+	    if (eventClass != runEventClass || model != runModel || actor != runActor) {
+		runEventClass = eventClass;
+		runModel = model;
+		runActor = actor;
+		transitions = model.getDispatchIndex().getTransitionsFor(eventClass, actor);
+	    }
+	    Step[] candidateSteps = modelRunner.getCandidateStepsIfRunning(transitions);
+	    Step step = modelRunner.getStepThatCanReact(candidateSteps);
+	    return step;
+	}
+    }
+}
@@ -1,10 +1,6 @@
 package org.requirementsascode;
 
 import java.io.Serializable;
-import java.util.List;
-import java.util.Set;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
 
 import org.requirementsascode.flowposition.After;
 
@@ -28,38 +24,20 @@ public class InterruptableFlowStep extends FlowStep implements Serializable {
     }
 
     private void appendToLastStepOfFlow() {
-	List<FlowStep> flowSteps = getFlow().getSteps();
-	FlowStep lastFlowStep = flowSteps.isEmpty() ? null : flowSteps.get(flowSteps.size() - 1);
+	FlowStep lastFlowStep = getFlow().getLastStep().orElse(null);
 	setPreviousStepInFlow(lastFlowStep);
 	setFlowPosition(new After(lastFlowStep));
     }
 
     @Override
-    public Predicate<ModelRunner> getPredicate() {
-	Condition reactWhile = getReactWhile();
-
-	Predicate<ModelRunner> predicate = getFlowPosition().and(noStepInterrupts());
-	if (reactWhile != null) {
-	    predicate = predicate.and(toPredicate(reactWhile));
-	}
-
-	return predicate;
+    public boolean isRunnerAtRightPositionAfter(Step latestStep) {
+	boolean isRunnerAtRightPosition = getFlowPosition().isRunnerAtRightPositionAfter(latestStep);
+	return isRunnerAtRightPosition;
     }
 
-    private Predicate<ModelRunner> noStepInterrupts() {
-	return modelRunner -> {
-	    Class<?> theStepsEventClass = getEventClass();
-	    Model model = getModel();
-
-	    Stream<Step> interruptingStepsStream = model.getModifiableSteps().stream().filter(isInterruptingStep());
-	    Set<Step> interruptingStepsThatCanReact = modelRunner.getStepsInStreamThatCanReactTo(theStepsEventClass,
-		    interruptingStepsStream);
-
-	    return interruptingStepsThatCanReact.isEmpty();
-	};
-    }
-
-    private Predicate<Step> isInterruptingStep() {
-	return step -> InterruptingFlowStep.class.equals(step.getClass());
+    @Override
+    boolean hasTrueCondition(ModelRunner modelRunner) {
+	boolean hasTrueCondition = !modelRunner.canAnyStepInterrupt(this) && isReactWhileTrue(modelRunner);
+	return hasTrueCondition;
     }
 }
@@ -1,7 +1,5 @@
 package org.requirementsascode;
 
-import java.util.function.Predicate;
-
 public class InterruptingFlowStep extends FlowStep {
     private static final long serialVersionUID = 7204738737376844201L;
 
@@ -9,29 +7,22 @@ public class InterruptingFlowStep extends FlowStep {
 	super(stepName, useCase, useCaseFlow);
     }
 
-    public Predicate<ModelRunner> getPredicate() {
-	Predicate<ModelRunner> predicate;
-	Condition reactWhile = getReactWhile();
-
-	predicate = isFlowConditionTrueAndRunnerInDifferentFlow();
-	if (reactWhile != null) {
-	    predicate = predicate.and(toPredicate(reactWhile));
-	}
-
-	return predicate;
+    @Override
+    public boolean isRunnerAtRightPositionAfter(Step latestStep) {
+	boolean isRunnerAtRightPosition = isRunnerInDifferentFlowAfter(latestStep)
+		&& getFlowPosition().isRunnerAtRightPositionAfter(latestStep);
+	return isRunnerAtRightPosition;
     }
 
-    private Predicate<ModelRunner> isFlowConditionTrueAndRunnerInDifferentFlow() {
-	Predicate<ModelRunner> flowPosition = getFlowPosition();
-	Condition conditionOrElseTrue = getCondition().orElse(() -> true);
-
-	Predicate<ModelRunner> flowCondition = isRunnerInDifferentFlow().and(flowPosition).and(toPredicate(conditionOrElseTrue));
-	return flowCondition;
+    private boolean isRunnerInDifferentFlowAfter(Step latestStep) {
+	boolean isRunnerInDifferentFlow = !(latestStep instanceof FlowStep)
+		|| !((FlowStep) latestStep).getFlow().equals(getFlow());
+	return isRunnerInDifferentFlow;
     }
 
-    private Predicate<ModelRunner> isRunnerInDifferentFlow() {
-	Predicate<ModelRunner> isRunnerInDifferentFlow = runner -> runner.getLatestFlow()
-		.map(runnerFlow -> !runnerFlow.equals(getFlow())).orElse(true);
-	return isRunnerInDifferentFlow;
+    @Override
+    boolean hasTrueCondition(ModelRunner modelRunner) {
+	boolean hasTrueCondition = isConditionTrue(modelRunner) && isReactWhileTrue(modelRunner);
+	return hasTrueCondition;
     }
 }
@@ -0,0 +1,163 @@
+package org.requirementsascode;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, with a precision of about 12%.
+ *
+ * <p>
+ * Latencies below 16 nanoseconds have a bucket of their own. Above that, each
+ * power of two is split into 8 buckets of equal width. So the histogram has a
+ * fixed number of buckets, and recording a latency doesn't create any objects.
+ *
+ * <p>
+ * Either a single thread records the latencies, like a stage of a
+ * {@link RunnerPipeline}, or many threads record them concurrently, like the
+ * runners sharing a {@link HistogramRunnerMetrics}. Any other thread can read
+ * the histogram while it's recorded, and will see a recent, but not
+ * necessarily consistent state.
+ *
+ * @see RunnerPipeline#getLatencyHistogram(RunnerPipeline.Stage)
+ * @see HistogramRunnerMetrics
+ * @author b_muth
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_BUCKETS = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = EXACT_BUCKETS + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray bucketCounts;
+    private final AtomicLong count;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+
+    LatencyHistogram() {
+	this.bucketCounts = new AtomicLongArray(BUCKETS);
+	this.count = new AtomicLong();
+	this.totalNanos = new AtomicLong();
+	this.maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Records the specified latency. Must only be called by the recording
+     * thread.
+     */
+    void record(long nanos) {
+	if (nanos < 0) {
+	    nanos = 0;
+	}
+	int bucket = bucketOf(nanos);
+	bucketCounts.lazySet(bucket, bucketCounts.get(bucket) + 1);
+	totalNanos.lazySet(totalNanos.get() + nanos);
+	if (nanos > maxNanos.get()) {
+	    maxNanos.lazySet(nanos);
+	}
+	count.lazySet(count.get() + 1);
+    }
+
+    /**
+     * Records the specified latency. Can be called by many threads at once.
+     */
+    void recordConcurrently(long nanos) {
+	if (nanos < 0) {
+	    nanos = 0;
+	}
+	bucketCounts.incrementAndGet(bucketOf(nanos));
+	totalNanos.addAndGet(nanos);
+	maxNanos.accumulateAndGet(nanos, Math::max);
+	count.incrementAndGet();
+    }
+
+    private static int bucketOf(long nanos) {
+	int bucket;
+	if (nanos < EXACT_BUCKETS) {
+	    bucket = (int) nanos;
+	} else {
+	    int highestBit = 63 - Long.numberOfLeadingZeros(nanos);
+	    int shift = highestBit - SUB_BUCKET_BITS;
+	    int subBucket = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+	    bucket = EXACT_BUCKETS + (highestBit - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+	}
+	return bucket;
+    }
+
+    private static long highestValueOf(int bucket) {
+	long highestValue;
+	if (bucket < EXACT_BUCKETS) {
+	    highestValue = bucket;
+	} else {
+	    int highestBit = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+	    int subBucket = (bucket - EXACT_BUCKETS) % SUB_BUCKETS;
+	    int shift = highestBit - SUB_BUCKET_BITS;
+	    long lowestValue = (long) (SUB_BUCKETS + subBucket) << shift;
+	    highestValue = lowestValue + (1L << shift) - 1;
+	}
+	return highestValue;
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the count
+     */
+    public long getCount() {
+	return count.get();
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     *
+     * @return the maximum in nanoseconds, or 0 if no latency has been recorded
+     */
+    public long getMaxNanos() {
+	return maxNanos.get();
+    }
+
+    /**
+     * Returns the mean of the recorded latencies.
+     *
+     * @return the mean in nanoseconds, or 0 if no latency has been recorded
+     */
+    public double getMeanNanos() {
+	long currentCount = count.get();
+	double meanNanos = currentCount == 0 ? 0 : (double) totalNanos.get() / currentCount;
+	return meanNanos;
+    }
+
+    /**
+     * Returns the latency that the specified percentage of the recorded
+     * latencies are lower than or equal to. As the latencies are recorded in
+     * buckets, this is the highest latency of the bucket the percentile falls
+     * into.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the latency in nanoseconds, or 0 if no latency has been recorded
+     * @throws IllegalArgumentException
+     *             if the percentile is not between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+	if (percentile < 0 || percentile > 100) {
+	    throw new IllegalArgumentException("Percentile must be between 0 and 100, but is " + percentile);
+	}
+
+	long countAtPercentile = Math.max(1, (long) Math.ceil(count.get() * percentile / 100));
+	long countSoFar = 0;
+	for (int bucket = 0; bucket < BUCKETS; bucket++) {
+	    countSoFar += bucketCounts.get(bucket);
+	    if (countSoFar >= countAtPercentile) {
+		return Math.min(highestValueOf(bucket), maxNanos.get());
+	    }
+	}
+	return 0;
+    }
+
+    @Override
+    public String toString() {
+	return "LatencyHistogram [count=" + getCount() + ", meanNanos=" + (long) getMeanNanos() + ", p50Nanos="
+		+ getValueAtPercentile(50) + ", p99Nanos=" + getValueAtPercentile(99) + ", p999Nanos="
+		+ getValueAtPercentile(99.9) + ", maxNanos=" + getMaxNanos() + "]";
+    }
+}
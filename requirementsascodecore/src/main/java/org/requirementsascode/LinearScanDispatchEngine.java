@@ -0,0 +1,123 @@
+package org.requirementsascode;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+/**
+ * A dispatch engine that looks at every step of the model, in model order, for
+ * each event. It doesn't use the dispatch index of the model, and checks
+ * whether an interrupting step can interrupt an interruptable step by looking
+ * at every step of the model as well. It evaluates the conditions of the steps
+ * directly, not through the runner.
+ *
+ * <p>
+ * The engine takes time proportional to the number of steps of the model per
+ * event, or to its square for interruptable steps, and doesn't memoize
+ * conditions. It is the simplest implementation of the dispatch rules described
+ * in {@link DispatchEngine}, to compare faster engines to, see
+ * {@link DispatchEngineComparison}.
+ *
+ * <p>
+ * The engine has no state, so a single instance can be shared by all runners.
+ *
+ * @author b_muth
+ */
+public class LinearScanDispatchEngine implements DispatchEngine {
+    @Override
+    public Step selectStep(ModelRunner modelRunner, Class<?> eventClass) {
+	Step stepThatCanReact = null;
+	Set<Step> stepsThatCanReact = null;
+	for (Step step : modelRunner.getModel().getModifiableSteps()) {
+	    if (canStepReact(modelRunner, step, eventClass)) {
+		if (stepThatCanReact == null) {
+		    stepThatCanReact = step;
+		    if (modelRunner.isFirstMatchDispatch()) {
+			break;
+		    }
+		} else {
+		    if (stepsThatCanReact == null) {
+			stepsThatCanReact = new HashSet<>();
+			stepsThatCanReact.add(stepThatCanReact);
+		    }
+		    stepsThatCanReact.add(step);
+		}
+	    }
+	}
+
+	if (stepsThatCanReact != null) {
+	    throw new MoreThanOneStepCanReact(stepsThatCanReact);
+	}
+	return stepThatCanReact;
+    }
+
+    private boolean canStepReact(ModelRunner modelRunner, Step step, Class<?> eventClass) {
+	boolean canStepReact = isStepOfRunActorOrSystemActor(modelRunner, step)
+		&& isEventClassOfStep(step, eventClass)
+		&& step.isRunnerAtRightPositionAfter(modelRunner.getLatestStep().orElse(null))
+		&& isStepInIncludedUseCaseIfPresent(modelRunner, step)
+		&& hasTrueCondition(modelRunner, step);
+	return canStepReact;
+    }
+
+    private boolean isStepOfRunActorOrSystemActor(ModelRunner modelRunner, Step step) {
+	Actor runActor = modelRunner.getRunActor();
+	Actor systemActor = modelRunner.getModel().getSystemActor();
+	for (Actor stepActor : step.getActors()) {
+	    if (stepActor.equals(runActor) || stepActor.equals(systemActor)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    private boolean isEventClassOfStep(Step step, Class<?> eventClass) {
+	Class<?> stepEventClass = step.getEventClass();
+	boolean isEventClassOfStep = stepEventClass != null && stepEventClass.isAssignableFrom(eventClass);
+	return isEventClassOfStep;
+    }
+
+    private boolean isStepInIncludedUseCaseIfPresent(ModelRunner modelRunner, Step step) {
+	boolean result = modelRunner.getIncludedUseCase().map(step.getUseCase()::equals).orElse(true);
+	return result;
+    }
+
+    /**
+     * Checks the conditions of the step like the step types do: an interruptable
+     * step has no condition of its own, only a react while condition, and can't
+     * react if an interrupting step can react.
+     */
+    private boolean hasTrueCondition(ModelRunner modelRunner, Step step) {
+	boolean hasTrueCondition;
+	if (step instanceof InterruptableFlowStep) {
+	    hasTrueCondition = !canAnyStepInterrupt(modelRunner, step) && isReactWhileTrue((FlowStep) step);
+	} else if (step instanceof FlowStep) {
+	    hasTrueCondition = isConditionTrue(step) && isReactWhileTrue((FlowStep) step);
+	} else {
+	    hasTrueCondition = isConditionTrue(step);
+	}
+	return hasTrueCondition;
+    }
+
+    private boolean isConditionTrue(Step step) {
+	boolean isConditionTrue = step.getCondition().map(Condition::evaluate).orElse(true);
+	return isConditionTrue;
+    }
+
+    private boolean isReactWhileTrue(FlowStep step) {
+	Condition reactWhile = step.getReactWhile();
+	boolean isReactWhileTrue = reactWhile == null || reactWhile.evaluate();
+	return isReactWhileTrue;
+    }
+
+    private boolean canAnyStepInterrupt(ModelRunner modelRunner, Step interruptableStep) {
+	for (Step step : modelRunner.getModel().getModifiableSteps()) {
+	    if (step instanceof InterruptingFlowStep
+		    && canStepReact(modelRunner, step, interruptableStep.getEventClass())) {
+		return true;
+	    }
+	}
+	return false;
+    }
+}
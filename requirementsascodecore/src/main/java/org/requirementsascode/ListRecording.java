@@ -0,0 +1,47 @@
+package org.requirementsascode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recording of all steps run and all events reacted to, in lists that grow
+ * as long as the runner records.
+ *
+ * @author b_muth
+ */
+class ListRecording extends Recording {
+    private static final long serialVersionUID = -6040338921826839127L;
+
+    private List<Step> steps;
+    private List<Object> events;
+
+    ListRecording() {
+	this.steps = new ArrayList<>();
+	this.events = new ArrayList<>();
+    }
+
+    @Override
+    void record(Step step, Object event) {
+	steps.add(step);
+	if (event != null) {
+	    events.add(event);
+	}
+    }
+
+    @Override
+    Object[] getEvents() {
+	return events.toArray();
+    }
+
+    @Override
+    Step[] getLatestSteps(int maxSteps) {
+	int fromIndex = Math.max(0, steps.size() - maxSteps);
+	Step[] latestSteps = steps.subList(fromIndex, steps.size()).toArray(NO_STEPS);
+	return latestSteps;
+    }
+
+    @Override
+    Recording newEmptyRecording() {
+	return new ListRecording();
+    }
+}
@@ -0,0 +1,68 @@
+package org.requirementsascode;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An unbounded, lock-free queue for many producer threads and a single
+ * consumer thread, used as the mailbox of an {@link AsyncModelRunner}.
+ *
+ * <p>
+ * Producers append a node by swapping it into the tail, then linking the
+ * previous tail to it. The consumer follows the links from the head, which is
+ * a node whose item has already been taken. Between the swap and the link, the
+ * consumer may not see the new node yet, but {@link #isEmpty()} already returns
+ * false.
+ *
+ * @author b_muth
+ */
+class Mailbox<T> {
+    private final AtomicReference<Node<T>> tail;
+    private Node<T> head;
+
+    Mailbox() {
+	this.head = new Node<>(null);
+	this.tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Appends the specified item. Can be called by any thread.
+     */
+    void offer(T item) {
+	Node<T> node = new Node<>(item);
+	Node<T> previousTail = tail.getAndSet(node);
+	previousTail.next = node;
+    }
+
+    /**
+     * Removes and returns the first item, or returns null if there is no item
+     * the consumer can see yet. Must only be called by the consumer thread.
+     */
+    T poll() {
+	Node<T> next = head.next;
+	if (next == null) {
+	    return null;
+	}
+	T item = next.item;
+	next.item = null;
+	head = next;
+	return item;
+    }
+
+    /**
+     * Returns true if no producer has appended an item that the consumer hasn't
+     * taken yet. Must only be called by the consumer thread.
+     */
+    boolean isEmpty() {
+	boolean isEmpty = tail.get() == head;
+	return isEmpty;
+    }
+
+    private static class Node<T> {
+	private T item;
+	private volatile Node<T> next;
+
+	Node(T item) {
+	    this.item = item;
+	}
+    }
+}
@@ -12,6 +12,8 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.requirementsascode.exception.MissingUseCaseStepPart;
+import org.requirementsascode.exception.ModelAlreadyBuilt;
 import org.requirementsascode.exception.NoSuchElementInModel;
 
 /**
@@ -24,6 +26,9 @@ import org.requirementsascode.exception.NoSuchElementInModel;
  * actors it is associated with.
  * 
  * A model is used to configure a {@link ModelRunner}.
+ * 
+ * Once it has been built, a model can't be changed anymore. Any number of
+ * runners can then share it, on any number of threads, without locking.
  *
  * @author b_muth
  */
@@ -34,6 +39,8 @@ public class Model implements Serializable {
     private Map<String, UseCase> nameToUseCaseMap;
     private Actor userActor;
     private Actor systemActor;
+    private boolean isBuilt;
+    private transient volatile DispatchIndex dispatchIndex;
 
     Model() {
 	this.nameToActorMap = new LinkedHashMap<>();
@@ -76,12 +83,14 @@ public class Model implements Serializable {
     }
 
     Actor newActor(String actorName) {
+	checkIsNotBuilt();
 	Actor actor = new Actor(actorName, this);
 	saveModelElement(actor, nameToActorMap);
 	return actor;
     }
 
     UseCase newUseCase(String useCaseName) {
+	checkIsNotBuilt();
 	UseCase useCase = new UseCase(useCaseName, this);
 	saveModelElement(useCase, nameToUseCaseMap);
 	return useCase;
@@ -156,6 +165,74 @@ public class Model implements Serializable {
 		.flatMap(steps -> steps.stream()).collect(Collectors.toList());
     }
 
+    /**
+     * Returns whether this model has been built. A built model can't be changed
+     * anymore.
+     *
+     * @return true if the model has been built, false otherwise
+     */
+    public boolean isBuilt() {
+	return isBuilt;
+    }
+
+    /**
+     * Marks this model as built, and creates the index the {@link ModelRunner}
+     * uses to find the steps that can react to an event.
+     * 
+     * <p>
+     * The index is written to a volatile field, after all the other parts of the
+     * model. A runner reads the index before reading any other part of the model.
+     * So a runner on any thread sees the complete model, no matter how the model
+     * has been passed to the runner.
+     * 
+     * <p>
+     * If the index can't be created, the model isn't marked as built, and can
+     * still be changed.
+     *
+     * @throws MissingUseCaseStepPart
+     *             if a step has no actor part
+     */
+    void build() {
+	if (!isBuilt) {
+	    DispatchIndex index = new DispatchIndex(getModifiableSteps());
+	    isBuilt = true;
+	    dispatchIndex = index;
+	}
+    }
+
+    /**
+     * Throws an exception if this model has been built. Called before each change
+     * to the model or its elements.
+     *
+     * @throws ModelAlreadyBuilt
+     *             if the model has been built
+     */
+    void checkIsNotBuilt() {
+	if (isBuilt) {
+	    throw new ModelAlreadyBuilt();
+	}
+    }
+
+    /**
+     * Returns the index the {@link ModelRunner} uses to find the steps that can
+     * react to an event. The index is created when the model is built. For a
+     * deserialized model, it is created on first access.
+     *
+     * @return the dispatch index
+     */
+    DispatchIndex getDispatchIndex() {
+	DispatchIndex index = dispatchIndex;
+	if (index == null) {
+	    index = new DispatchIndex(getModifiableSteps());
+	    dispatchIndex = index;
+	}
+	return index;
+    }
+
+    void invalidateDispatchIndex() {
+	dispatchIndex = null;
+    }
+
     /**
      * Returns the actor representing the default user.
      *
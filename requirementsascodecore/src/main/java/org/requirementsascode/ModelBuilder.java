@@ -2,6 +2,7 @@ package org.requirementsascode;
 
 import org.requirementsascode.UseCasePart.FlowlessUserPart;
 import org.requirementsascode.UseCasePart.ConditionPart;
+import org.requirementsascode.exception.MissingUseCaseStepPart;
 
 /**
  * Class that builds a {@link Model}, in a fluent way.
@@ -73,11 +74,21 @@ public class ModelBuilder {
     }
 
     /**
-     * Returns the model built so far.
+     * Builds the model. After that, the model can't be changed anymore, and can
+     * be shared by runners on any number of threads.
      *
      * @return the model
+     * @throws MissingUseCaseStepPart
+     *             if a step has no actor part, for example because neither
+     *             user(...) nor system(...) has been specified for it. The model
+     *             isn't built then, and can still be changed.
      */
     public Model build() {
+	model.build();
+	return model;
+    }
+
+    Model getModel() {
 	return model;
     }
 }
@@ -1,20 +1,21 @@
 package org.requirementsascode;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.requirementsascode.DispatchIndex.EnabledSteps;
+import org.requirementsascode.DispatchIndex.Transitions;
 import org.requirementsascode.exception.InfiniteRepetition;
 import org.requirementsascode.exception.MissingUseCaseStepPart;
 import org.requirementsascode.exception.MoreThanOneStepCanReact;
@@ -26,36 +27,69 @@ import org.requirementsascode.exception.MoreThanOneStepCanReact;
  * <p>
  * The runner is configured by the model it owns. Each real user needs an instance of a runner, as the runner determines
  * the user journey.
+ * 
+ * <p>
+ * A runner is not thread-safe, but the model is: runners on different threads can share the same model.
  */
 public class ModelRunner implements Serializable {
     private static final long serialVersionUID = 1787451244764017381L;
 
+    /**
+     * The maximum number of steps a runner runs for a single event, by default.
+     * 
+     * @see #setMaxStepsPerEvent(int)
+     */
+    public static final int DEFAULT_MAX_STEPS_PER_EVENT = 10000;
+
+    private static final Step[] NO_STEPS = new Step[0];
+    private static final DispatchEngine INDEXED_DISPATCH_ENGINE = new IndexedDispatchEngine();
+    private static final int NO_CANDIDATE_STEPS_SELECTED_FROM = -1;
+    private static final Consumer<StepToBeRun> DIRECT_CALL_TO_RUN_METHOD = new DirectCallToRunMethodOfStepToBeRun();
+
     private Actor user;
-    private List<Actor> userAndSystem;
 
     private Model model;
-    private Step latestStep;
+    private RunnerState state;
     private boolean isRunning;
     private StepToBeRun stepToBeRun;
     private Consumer<StepToBeRun> eventHandler;
     private Consumer<Object> unhandledEventHandler;
-    private LinkedList<UseCase> includedUseCases;
-    private LinkedList<FlowStep> includeSteps;
-    private UseCase includedUseCase;
-    private FlowStep includeStep;
-    private List<String> recordedStepNames;
-    private List<Object> recordedEvents;
+    private Recording recording;
     private boolean isRecording;
+    private int maxStepsPerEvent;
+    private int stepsRunForEvent;
+    private int eventNestingDepth;
+    private boolean isMemoizingConditions;
+    private boolean isFirstMatchDispatch;
+    private transient DispatchMemo dispatchMemo;
+    private boolean isCachingReactToTypes;
+    private transient ReactToTypesCache reactToTypesCache;
+    private transient RunnerMetrics metrics;
+    private transient DispatchEngine dispatchEngine;
+    private transient int candidateStepsSelectedFrom;
 
     /**
      * Constructor for creating a runner with standard system reaction, that is: the
      * system reaction, as defined in the step, simply accepts an event.
+     * 
+     * <p>
+     * An idle runner is small. Everything that is not needed by every runner, like
+     * the lists for recording, is only created when it is needed.
      */
     public ModelRunner() {
-	this.stepToBeRun = new StepToBeRun();
-	this.recordedStepNames = new ArrayList<>();
-	this.recordedEvents = new ArrayList<>();
-	handleWith(new DirectCallToRunMethodOfStepToBeRun());
+	this(new RunnerState());
+    }
+
+    private ModelRunner(RunnerState state) {
+	this.state = state;
+	this.maxStepsPerEvent = DEFAULT_MAX_STEPS_PER_EVENT;
+	this.dispatchEngine = INDEXED_DISPATCH_ENGINE;
+	handleWith(DIRECT_CALL_TO_RUN_METHOD);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+	in.defaultReadObject();
+	this.dispatchEngine = INDEXED_DISPATCH_ENGINE;
     }
 
     private static class DirectCallToRunMethodOfStepToBeRun implements Consumer<StepToBeRun>, Serializable {
@@ -113,25 +147,13 @@ public class ModelRunner implements Serializable {
      */
     public ModelRunner run(Model model) {
 	this.model = model;
-	this.userAndSystem = userAndSystem(user != null ? user : model.getUserActor());
-	this.includedUseCases = new LinkedList<>();
-	this.includeSteps = new LinkedList<>();
-	this.includedUseCase = null;
-	this.includeStep = null;
+	this.state.clearIncludedUseCases();
 	this.isRunning = true;
 	
-	triggerAutonomousSystemReaction();
+	reactToEventAndTriggerAutonomousSystemReactions(this, dispatchEngine);
 	return this;
     }
 
-    private void triggerAutonomousSystemReaction() {
-	reactTo(this);
-    }
-
-    private List<Actor> userAndSystem(Actor userActor) {
-	return Arrays.asList(userActor, userActor.getModel().getSystemActor());
-    }
-
     /**
      * After you called this method, the runner will only react to steps that have
      * explicitly set the specified actor as one of its actors, or that are declared
@@ -149,10 +171,341 @@ public class ModelRunner implements Serializable {
 	Objects.requireNonNull(actor);
 
 	this.user = actor;
-	this.userAndSystem = userAndSystem(user);
 	return this;
     }
 
+    Actor getUser() {
+	return user;
+    }
+
+    Model getModel() {
+	return model;
+    }
+
+    RunnerState getState() {
+	return state;
+    }
+
+    /**
+     * Makes this runner run the specified model in the specified state, without
+     * triggering autonomous system reactions.
+     *
+     * @param model
+     *            the model
+     * @param user
+     *            the actor to run as, or null for the model's default user
+     * @param state
+     *            the state
+     * @param isRunning
+     *            whether the runner is running
+     */
+    void restore(Model model, Actor user, RunnerState state, boolean isRunning) {
+	this.model = model;
+	this.user = user;
+	this.state = state;
+	this.isRunning = isRunning;
+    }
+
+    /**
+     * Returns the actor the runner is run as: the actor specified with
+     * {@link #as(Actor)}, or the default user of the model the runner runs.
+     *
+     * @return the actor, or null if the runner has not been run and no actor has
+     *         been specified
+     */
+    public Actor getRunActor() {
+	if (user == null && model == null) {
+	    return null;
+	}
+	Actor runActor = user != null ? user : model.getUserActor();
+	return runActor;
+    }
+
+    /**
+     * Creates a new runner that is in the same state as this runner: it runs the
+     * same model as the same actor, has run the same latest step, and has the same
+     * event handlers. The new runner starts recording if this runner is recording,
+     * but doesn't copy the recorded step names and events. It measures with the
+     * same metrics as this runner.
+     * 
+     * <p>
+     * Unlike {@link #run(Model)}, this method doesn't trigger autonomous system
+     * reactions. So when many runners need to start in the same state, run a single
+     * runner as a prototype, and spawn the other runners from it.
+     * 
+     * <p>
+     * A spawned runner that doesn't record only consists of the runner and its
+     * compact state. The memo it uses to dispatch events is created when it
+     * reacts to its first event.
+     * 
+     * @return the new runner
+     */
+    public ModelRunner spawn() {
+	ModelRunner spawnedRunner = new ModelRunner(state.copy());
+	spawnedRunner.user = user;
+	spawnedRunner.model = model;
+	spawnedRunner.isRunning = isRunning;
+	spawnedRunner.eventHandler = eventHandler;
+	spawnedRunner.unhandledEventHandler = unhandledEventHandler;
+	spawnedRunner.maxStepsPerEvent = maxStepsPerEvent;
+	spawnedRunner.isMemoizingConditions = isMemoizingConditions;
+	spawnedRunner.isFirstMatchDispatch = isFirstMatchDispatch;
+	spawnedRunner.isCachingReactToTypes = isCachingReactToTypes;
+	spawnedRunner.metrics = metrics;
+	spawnedRunner.dispatchEngine = dispatchEngine;
+	if (isRecording) {
+	    spawnedRunner.recording = recording.newEmptyRecording();
+	    spawnedRunner.isRecording = true;
+	}
+	return spawnedRunner;
+    }
+
+    /**
+     * Sets the maximum number of steps the runner runs for a single event: the step
+     * that reacts to the event, and the autonomous system reactions that follow. If
+     * the runner would run more steps, it throws an {@link InfiniteRepetition}
+     * instead. The default is {@link #DEFAULT_MAX_STEPS_PER_EVENT}.
+     * 
+     * <p>
+     * The runner triggers autonomous system reactions in a loop, not recursively.
+     * So the maximum doesn't depend on the stack size of the thread the runner is
+     * running on.
+     *
+     * @param maxStepsPerEvent
+     *            the maximum number of steps, must be positive
+     * @return this runner, for method chaining
+     */
+    public ModelRunner setMaxStepsPerEvent(int maxStepsPerEvent) {
+	if (maxStepsPerEvent <= 0) {
+	    throw new IllegalArgumentException("maxStepsPerEvent must be positive, but is " + maxStepsPerEvent);
+	}
+	this.maxStepsPerEvent = maxStepsPerEvent;
+	return this;
+    }
+
+    /**
+     * Returns the maximum number of steps the runner runs for a single event.
+     *
+     * @see #setMaxStepsPerEvent(int)
+     * @return the maximum number of steps
+     */
+    public int getMaxStepsPerEvent() {
+	return maxStepsPerEvent;
+    }
+
+    /**
+     * After calling this method, the runner evaluates each distinct condition at
+     * most once while it looks for the steps that can react to an event, and
+     * reuses the result. Without memoizing, a condition shared by several steps,
+     * or the condition of an interrupting step, may be evaluated several times.
+     * 
+     * <p>
+     * Only memoize conditions that don't have side effects.
+     * 
+     * @see #getConditionEvaluations()
+     * @see #getSavedConditionEvaluations()
+     * @return this model runner for method chaining
+     */
+    public ModelRunner startMemoizingConditions() {
+	isMemoizingConditions = true;
+	return this;
+    }
+
+    /**
+     * After calling this method, the runner evaluates conditions each time it
+     * needs their result.
+     * 
+     * @return this model runner for method chaining
+     */
+    public ModelRunner stopMemoizingConditions() {
+	isMemoizingConditions = false;
+	return this;
+    }
+
+    /**
+     * After calling this method, the runner stops looking for the step that can
+     * react to an event as soon as it has found one, and runs it. It doesn't
+     * check whether another step could react as well, so it doesn't throw a
+     * {@link MoreThanOneStepCanReact}, and evaluates fewer conditions.
+     * 
+     * <p>
+     * Only dispatch to the first match for models that an
+     * {@link AmbiguityAnalyzer} has found no ambiguities in, or whose ambiguous
+     * steps have mutually exclusive conditions. Otherwise, the runner silently
+     * runs the step that comes first in model order.
+     * 
+     * @return this model runner for method chaining
+     */
+    public ModelRunner startFirstMatchDispatch() {
+	isFirstMatchDispatch = true;
+	return this;
+    }
+
+    /**
+     * After calling this method, the runner checks all candidate steps for an
+     * event, and throws an exception if more than one step can react.
+     * 
+     * @return this model runner for method chaining
+     */
+    public ModelRunner stopFirstMatchDispatch() {
+	isFirstMatchDispatch = false;
+	return this;
+    }
+
+    /**
+     * Returns whether the runner dispatches to the first step that can react.
+     * 
+     * @see #startFirstMatchDispatch()
+     * @return true if the runner dispatches to the first match, false otherwise
+     */
+    public boolean isFirstMatchDispatch() {
+	return isFirstMatchDispatch;
+    }
+
+    /**
+     * After calling this method, the specified engine selects the step that
+     * reacts to each event, and the step of each autonomous system reaction,
+     * instead of the {@link IndexedDispatchEngine} the runner dispatches with by
+     * default. The runner uses the dispatch index of the model for everything
+     * else, like {@link #canReactTo(Class)}. Runners spawned from this runner
+     * dispatch with the same engine.
+     * 
+     * <p>
+     * If the runner measures, it doesn't know which steps the specified engine
+     * has checked. It passes one candidate step to the metrics if a step reacts,
+     * none otherwise, and no condition evaluations.
+     * 
+     * @param dispatchEngine
+     *            the engine, that must have been created for the model the
+     *            runner runs
+     * @return this model runner for method chaining
+     */
+    public ModelRunner startDispatchEngine(DispatchEngine dispatchEngine) {
+	this.dispatchEngine = Objects.requireNonNull(dispatchEngine);
+	return this;
+    }
+
+    /**
+     * After calling this method, the runner selects steps with an
+     * {@link IndexedDispatchEngine} again.
+     * 
+     * @return this model runner for method chaining
+     */
+    public ModelRunner stopDispatchEngine() {
+	this.dispatchEngine = INDEXED_DISPATCH_ENGINE;
+	return this;
+    }
+
+    /**
+     * Returns the engine that selects the steps that react.
+     * 
+     * @see #startDispatchEngine(DispatchEngine)
+     * @return the engine, an {@link IndexedDispatchEngine} by default
+     */
+    public DispatchEngine getDispatchEngine() {
+	return dispatchEngine;
+    }
+
+    /**
+     * Returns how many times the runner has evaluated conditions of steps while
+     * memoizing conditions.
+     * 
+     * @see #startMemoizingConditions()
+     * @return the number of evaluations
+     */
+    public long getConditionEvaluations() {
+	long conditionEvaluations = dispatchMemo != null ? dispatchMemo.getConditionEvaluations() : 0;
+	return conditionEvaluations;
+    }
+
+    /**
+     * Returns how many evaluations of conditions the runner has saved by reusing
+     * the result of a condition evaluated before in the same dispatch cycle.
+     * 
+     * @see #startMemoizingConditions()
+     * @return the number of saved evaluations
+     */
+    public long getSavedConditionEvaluations() {
+	long savedConditionEvaluations = dispatchMemo != null ? dispatchMemo.getSavedConditionEvaluations() : 0;
+	return savedConditionEvaluations;
+    }
+
+    /**
+     * After calling this method, the runner passes measurements to the specified
+     * metrics while it reacts to events: how long it took to select each step,
+     * how many candidate steps it has checked and conditions it has evaluated,
+     * how long it took to run each step, which events were unhandled, and the
+     * exceptions it throws because of the model. Runners spawned from this
+     * runner measure with the same metrics.
+     * 
+     * <p>
+     * Without metrics, or with metrics that don't measure time, the runner
+     * doesn't read the clock.
+     * 
+     * @see HistogramRunnerMetrics
+     * @param metrics
+     *            the metrics
+     * @return this model runner for method chaining
+     */
+    public ModelRunner startMeasuring(RunnerMetrics metrics) {
+	this.metrics = Objects.requireNonNull(metrics);
+	return this;
+    }
+
+    /**
+     * After calling this method, the runner doesn't pass measurements to metrics
+     * anymore.
+     * 
+     * @return this model runner for method chaining
+     */
+    public ModelRunner stopMeasuring() {
+	this.metrics = null;
+	return this;
+    }
+
+    /**
+     * After calling this method, the runner reuses the classes of events it can
+     * react to, as returned by {@link #getReactToTypes()}, until it runs a step,
+     * until its included use case or its actor change, or until
+     * {@link #conditionsChanged()} is called. This makes {@link #canReactTo(Class)}
+     * a lookup in a set, for example when a user interface checks for each of its
+     * elements whether it's enabled.
+     * 
+     * <p>
+     * Without caching, the runner only reuses the classes of events if no
+     * condition needed to be evaluated to find them.
+     * 
+     * @return this model runner for method chaining
+     */
+    public ModelRunner startCachingReactToTypes() {
+	isCachingReactToTypes = true;
+	return this;
+    }
+
+    /**
+     * After calling this method, the runner evaluates conditions each time it
+     * needs to know which classes of events it can react to.
+     * 
+     * @return this model runner for method chaining
+     */
+    public ModelRunner stopCachingReactToTypes() {
+	isCachingReactToTypes = false;
+	return this;
+    }
+
+    /**
+     * Call this method when something that the conditions of the steps depend on
+     * has changed, outside of the system reactions run by this runner. The runner
+     * then discards the cached classes of events it can react to.
+     * 
+     * @see #startCachingReactToTypes()
+     */
+    public void conditionsChanged() {
+	if (reactToTypesCache != null) {
+	    reactToTypesCache.conditionsChanged();
+	}
+    }
+
     /**
      * Returns whether the runner is currently running.
      *
@@ -219,8 +572,9 @@ public class ModelRunner implements Serializable {
      * @throws MoreThanOneStepCanReact
      *             when more than one step can react
      * @throws InfiniteRepetition
-     *             when a step has an always true condition, or there is an infinite
-     *             loop.
+     *             when more steps than the maximum steps per event have been run,
+     *             likely because a step has an always true condition, or there is
+     *             an infinite loop.
      */
     public <T> Optional<Step> reactTo(T event) {
 	Objects.requireNonNull(event);
@@ -231,33 +585,226 @@ public class ModelRunner implements Serializable {
 	}
 
 	if (isRunning) {
-	    Class<? extends Object> currentEventClass = event.getClass();
+	    reactToEventAndTriggerAutonomousSystemReactions(event, dispatchEngine);
+	}
+	return getLatestStep();
+    }
 
-	    try {
-		Set<Step> stepsThatCanReact = getStepsThatCanReactTo(currentEventClass);
-		triggerSystemReactionForSteps(event, stepsThatCanReact);
-	    } catch (StackOverflowError err) {
-		throw new InfiniteRepetition(latestStep);
+    /**
+     * Reacts to each event of the specified batch in turn, like
+     * {@link #reactTo(Object)} does, and triggers autonomous system reactions
+     * after each event. Unlike {@link #reactTo(Object...)}, the events are not
+     * collected first, so the batch can be of any size. Collections in the batch
+     * are treated as events, not flattened.
+     *
+     * <p>
+     * The runner selects the steps for the events of the batch with the engine
+     * returned by {@link DispatchEngine#forBatch()}. With the
+     * {@link IndexedDispatchEngine}, for consecutive events of the same class,
+     * the runner looks up the candidate steps once. It doesn't create objects per
+     * event, apart from those created by the system reactions.
+     *
+     * @param events
+     *            the events to react to
+     * @return statistics about the batch
+     * @throws MoreThanOneStepCanReact
+     *             when more than one step can react to an event
+     * @throws InfiniteRepetition
+     *             when more steps than the maximum steps per event have been run
+     *             for an event
+     */
+    public BatchStatistics reactToAll(Iterator<?> events) {
+	Objects.requireNonNull(events);
+
+	long startNanos = System.nanoTime();
+	BatchStatistics statistics = new BatchStatistics();
+	Class<?> runEventClass = null;
+	Model runModel = null;
+	Actor runActor = null;
+	DispatchEngine engine = null;
+	DispatchEngine batchEngine = null;
+	while (events.hasNext()) {
+	    Object event = Objects.requireNonNull(events.next());
+	    Step step = null;
+	    int stepsRun = 0;
+	    if (isRunning) {
+		Class<?> eventClass = event.getClass();
+		Actor actor = getRunActor();
+		if (eventClass != runEventClass || model != runModel || actor != runActor) {
+		    runEventClass = eventClass;
+		    runModel = model;
+		    runActor = actor;
+		    statistics.eventClassRunStarted();
+		}
+		if (dispatchEngine != engine) {
+		    engine = dispatchEngine;
+		    batchEngine = engine.forBatch();
+		}
+		step = reactToEventAndTriggerAutonomousSystemReactions(event, batchEngine);
+		stepsRun = stepsRunForEvent;
 	    }
+	    statistics.eventHandled(step != null, stepsRun);
+	}
+	statistics.setElapsedNanos(System.nanoTime() - startNanos);
+	return statistics;
+    }
+
+    /**
+     * Same as {@link #reactToAll(Iterator)}, for a stream of events. The stream
+     * is consumed lazily, one event at a time.
+     *
+     * @param events
+     *            the events to react to
+     * @return statistics about the batch
+     */
+    public BatchStatistics reactToAll(Stream<?> events) {
+	Objects.requireNonNull(events);
+	BatchStatistics statistics = reactToAll(events.iterator());
+	return statistics;
+    }
+
+    /**
+     * Reacts to the specified event, and then triggers autonomous system reactions
+     * in a loop, until no more autonomous system reaction can react. The steps run
+     * for the event, including steps run for exceptions thrown by system
+     * reactions, count against the maximum steps per event.
+     *
+     * @param event
+     *            the event to react to
+     * @param engine
+     *            the engine that selects the step that reacts to the event
+     * @return the step that reacted to the event, or null if no step reacted
+     */
+    private <T> Step reactToEventAndTriggerAutonomousSystemReactions(T event, DispatchEngine engine) {
+	if (eventNestingDepth++ == 0) {
+	    stepsRunForEvent = 0;
+	}
+	try {
+	    Step step = reactToWithoutAutonomousSystemReactions(event, engine);
+	    if (step != null) {
+		triggerAutonomousSystemReactions();
+	    }
+	    return step;
+	} finally {
+	    eventNestingDepth--;
 	}
-	return getLatestStep();
     }
 
-    private <T> Optional<Step> triggerSystemReactionForSteps(T event, Collection<Step> steps) {
-	Step step = null;
+    private void triggerAutonomousSystemReactions() {
+	while (isRunning && reactToWithoutAutonomousSystemReactions(this, dispatchEngine) != null) {
+	}
+    }
 
-	if (steps.size() == 1) {
-	    step = steps.iterator().next();
+    private <T> Step reactToWithoutAutonomousSystemReactions(T event, DispatchEngine engine) {
+	Step step = metrics == null ? selectStep(event, engine) : selectStepAndMeasure(event, engine);
+	if (step != null) {
 	    triggerSystemReactionForStep(event, step);
-	} else if (steps.size() > 1) {
-	    throw new MoreThanOneStepCanReact(steps);
-	} else if (unhandledEventHandler != null && !isSystemEvent(event)) {
+	} else {
+	    handleUnhandledEvent(event);
+	}
+	return step;
+    }
+
+    private <T> Step selectStep(T event, DispatchEngine engine) {
+	Step step = isRunning ? engine.selectStep(this, event.getClass()) : null;
+	return step;
+    }
+
+    private <T> Step selectStepAndMeasure(T event, DispatchEngine engine) {
+	RunnerMetrics runnerMetrics = metrics;
+	runnerMetrics.stepSelecting(event.getClass());
+	boolean measuresTime = runnerMetrics.measuresTime();
+	long startNanos = measuresTime ? System.nanoTime() : 0;
+	candidateStepsSelectedFrom = NO_CANDIDATE_STEPS_SELECTED_FROM;
+	try {
+	    Step step = selectStep(event, engine);
+	    long nanos = measuresTime ? System.nanoTime() - startNanos : 0;
+	    int candidateStepCount = candidateStepsSelectedFrom;
+	    int conditionEvaluations = 0;
+	    if (candidateStepCount == NO_CANDIDATE_STEPS_SELECTED_FROM) {
+		candidateStepCount = step != null ? 1 : 0;
+	    } else if (candidateStepCount > 0 && dispatchMemo != null) {
+		conditionEvaluations = dispatchMemo.getConditionEvaluationsInCycle();
+	    }
+	    runnerMetrics.stepSelected(event.getClass(), step, candidateStepCount, conditionEvaluations, nanos);
+	    return step;
+	} catch (MoreThanOneStepCanReact e) {
+	    runnerMetrics.moreThanOneStepCanReact(e);
+	    throw e;
+	}
+    }
+
+    private <T> void handleUnhandledEvent(T event) {
+	if (isSystemEvent(event)) {
+	    return;
+	}
+	if (metrics != null) {
+	    metrics.eventUnhandled(event);
+	}
+	if (unhandledEventHandler != null) {
 	    unhandledEventHandler.accept(event);
 	} else if (event instanceof RuntimeException) {
 	    throw (RuntimeException) event;
 	}
+    }
 
-	return step != null ? Optional.of(step) : Optional.empty();
+    /**
+     * Returns the single one of the specified candidate steps that can react,
+     * without creating any objects in the common case that at most one step can
+     * react. In first match dispatch, returns the first one that can react.
+     * 
+     * <p>
+     * The {@link IndexedDispatchEngine} calls this method to select the step
+     * among the steps it has looked up. The runner checks the candidate steps in
+     * a dispatch cycle, so it memoizes conditions if it has been told to, and
+     * checks each interrupting step at most once. It passes the number of
+     * candidate steps and condition evaluations to the metrics. If there are no
+     * candidate steps, for example when checking for autonomous system reactions
+     * in a model without them, no dispatch cycle is started.
+     *
+     * @param candidateSteps
+     *            the steps of the runner's actor or the system actor, that can
+     *            react to the class of the event and that the runner is at the
+     *            right position for, in model order
+     * @return the step that can react, or null if no step can react
+     * @throws MoreThanOneStepCanReact
+     *             when more than one step can react, unless the runner
+     *             dispatches to the first match
+     */
+    Step getStepThatCanReact(Step[] candidateSteps) {
+	candidateStepsSelectedFrom = candidateSteps.length;
+	if (candidateSteps.length == 0) {
+	    return null;
+	}
+
+	startDispatchCycle();
+	try {
+	    Step stepThatCanReact = null;
+	    Set<Step> stepsThatCanReact = null;
+	    for (Step step : candidateSteps) {
+		if (canStepReact(step)) {
+		    if (stepThatCanReact == null) {
+			stepThatCanReact = step;
+			if (isFirstMatchDispatch) {
+			    break;
+			}
+		    } else {
+			if (stepsThatCanReact == null) {
+			    stepsThatCanReact = new HashSet<>();
+			    stepsThatCanReact.add(stepThatCanReact);
+			}
+			stepsThatCanReact.add(step);
+		    }
+		}
+	    }
+
+	    if (stepsThatCanReact != null) {
+		throw new MoreThanOneStepCanReact(stepsThatCanReact);
+	    }
+	    return stepThatCanReact;
+	} finally {
+	    endDispatchCycle();
+	}
     }
 
     private <T> boolean isSystemEvent(T event) {
@@ -268,50 +815,68 @@ public class ModelRunner implements Serializable {
 	if (step.getSystemReaction() == null) {
 	    throw new MissingUseCaseStepPart(step, "system");
 	}
+	if (++stepsRunForEvent > maxStepsPerEvent) {
+	    InfiniteRepetition infiniteRepetition = new InfiniteRepetition(step);
+	    if (metrics != null) {
+		metrics.infiniteRepetition(infiniteRepetition);
+	    }
+	    throw infiniteRepetition;
+	}
 
+	if (stepToBeRun == null) {
+	    stepToBeRun = new StepToBeRun();
+	}
 	stepToBeRun.setupWith(event, step);
 	recordStepNameAndEvent(step, event);
 
 	setLatestStep(step);
 
 	try {
-	    eventHandler.accept(stepToBeRun);
+	    if (metrics == null) {
+		eventHandler.accept(stepToBeRun);
+	    } else {
+		runAndMeasure(step);
+	    }
 	} catch (Exception e) {
 	    handleException(e);
+	} finally {
+	    // The step may have run before, so the latest step may not have changed
+	    conditionsChanged();
 	}
 
-	continueAfterIncludeStepWhenEndOfIncludedFlowIsReached();
-	triggerAutonomousSystemReaction();
+	if (metrics == null) {
+	    state.continueAfterIncludeStepWhenEndOfIncludedFlowIsReached();
+	} else {
+	    continueAfterIncludeStepAndMeasure();
+	}
 	return step;
     }
 
-    <T> void recordStepNameAndEvent(Step step, T event) {
-	if (isRecording) {
-	    recordedStepNames.add(step.getName());
-	    if (event != null) {
-		recordedEvents.add(event);
-	    }
+    private void continueAfterIncludeStepAndMeasure() {
+	UseCase includedUseCase = state.getIncludedUseCase();
+	FlowStep includeStep = state.getIncludeStep();
+	if (state.continueAfterIncludeStepWhenEndOfIncludedFlowIsReached()) {
+	    metrics.includedUseCaseEnded(includedUseCase, includeStep);
 	}
     }
 
-    private void continueAfterIncludeStepWhenEndOfIncludedFlowIsReached() {
-	if (includedUseCase != null && includeStep != null && isAtEndOfIncludedFlow()) {
-	    setLatestStep(includeStep);
-	    includedUseCase = getUseCaseIncludedBefore();
-	    includeStep = getIncludeStepBefore();
+    private void runAndMeasure(Step step) {
+	RunnerMetrics runnerMetrics = metrics;
+	runnerMetrics.stepRunning(step);
+	boolean measuresTime = runnerMetrics.measuresTime();
+	long startNanos = measuresTime ? System.nanoTime() : 0;
+	try {
+	    eventHandler.accept(stepToBeRun);
+	} finally {
+	    long nanos = measuresTime ? System.nanoTime() - startNanos : 0;
+	    runnerMetrics.stepRun(step, nanos);
 	}
     }
 
-    private UseCase getUseCaseIncludedBefore() {
-	includedUseCases.pop();
-	UseCase includedUseCase = includedUseCases.peek();
-	return includedUseCase;
-    }
-
-    private FlowStep getIncludeStepBefore() {
-	includeSteps.pop();
-	FlowStep includeStep = includeSteps.peek();
-	return includeStep;
+    <T> void recordStepNameAndEvent(Step step, T event) {
+	if (isRecording) {
+	    recording.record(step, event);
+	}
     }
 
     /**
@@ -329,8 +894,24 @@ public class ModelRunner implements Serializable {
      *         otherwise
      */
     public boolean canReactTo(Class<? extends Object> eventClass) {
-	boolean canReact = getReactToTypes().contains(eventClass);
-	return canReact;
+	Objects.requireNonNull(eventClass);
+
+	Set<Class<?>> reactToTypes = isCachingReactToTypes ? getReactToTypes() : getCachedReactToTypes();
+	if (reactToTypes != null) {
+	    return reactToTypes.contains(eventClass);
+	}
+
+	startDispatchCycle();
+	try {
+	    for (Step step : getCandidateStepsIfRunning(eventClass)) {
+		if (eventClass.equals(step.getEventClass()) && canStepReact(step)) {
+		    return true;
+		}
+	    }
+	    return false;
+	} finally {
+	    endDispatchCycle();
+	}
     }
 
     /**
@@ -338,13 +919,53 @@ public class ModelRunner implements Serializable {
      * <p>
      * See {@link #canReactTo(Class)} for a description of what "can react" means.
      * 
-     * @return the collection of classes of events
+     * <p>
+     * The runner evaluates the conditions of the steps for an event class only
+     * until one of the steps can react. It caches the returned set, see
+     * {@link #startCachingReactToTypes()}.
+     * 
+     * @return the unmodifiable collection of classes of events
      */
     public Set<Class<?>> getReactToTypes() {
-	Stream<Step> stepStream = getStepStreamIfRunningElseEmptyStream();
-	Set<Class<?>> eventsReactedTo = getStepsInStreamThatCanReactStream(stepStream).map(step -> step.getEventClass())
-		.collect(Collectors.toCollection(LinkedHashSet::new));
-	return eventsReactedTo;
+	if (!isRunning) {
+	    return Collections.emptySet();
+	}
+
+	Set<Class<?>> reactToTypes = getCachedReactToTypes();
+	if (reactToTypes == null) {
+	    startDispatchCycle();
+	    try {
+		Set<Class<?>> eventsReactedTo = new LinkedHashSet<>();
+		Step latestStep = state.getLatestStep();
+		for (Step step : model.getDispatchIndex().getStepsAfter(getRunActor(), latestStep)) {
+		    if (!eventsReactedTo.contains(step.getEventClass()) && canStepReact(step)) {
+			eventsReactedTo.add(step.getEventClass());
+		    }
+		}
+		reactToTypes = Collections.unmodifiableSet(eventsReactedTo);
+		cacheReactToTypes(reactToTypes, dispatchMemo.isConditionEvaluatedInCycle());
+	    } finally {
+		endDispatchCycle();
+	    }
+	}
+	return reactToTypes;
+    }
+
+    private Set<Class<?>> getCachedReactToTypes() {
+	Set<Class<?>> reactToTypes = null;
+	if (isRunning && reactToTypesCache != null) {
+	    reactToTypes = reactToTypesCache.get(model, getRunActor(), state.getLatestStep(),
+		    state.getIncludedUseCase(), isCachingReactToTypes);
+	}
+	return reactToTypes;
+    }
+
+    private void cacheReactToTypes(Set<Class<?>> reactToTypes, boolean dependsOnConditions) {
+	if (reactToTypesCache == null) {
+	    reactToTypesCache = new ReactToTypesCache();
+	}
+	reactToTypesCache.put(model, getRunActor(), state.getLatestStep(), state.getIncludedUseCase(), reactToTypes,
+		dependsOnConditions);
     }
 
     /**
@@ -357,53 +978,145 @@ public class ModelRunner implements Serializable {
     public Set<Step> getStepsThatCanReactTo(Class<? extends Object> eventClass) {
 	Objects.requireNonNull(eventClass);
 
-	Stream<Step> stepStream = getStepStreamIfRunningElseEmptyStream();
-	Set<Step> stepsThatCanReact = getStepsInStreamThatCanReactTo(eventClass, stepStream);
-	return stepsThatCanReact;
+	startDispatchCycle();
+	try {
+	    Set<Step> stepsThatCanReact = new HashSet<>();
+	    for (Step step : getCandidateStepsIfRunning(eventClass)) {
+		if (canStepReact(step)) {
+		    stepsThatCanReact.add(step);
+		}
+	    }
+	    return stepsThatCanReact;
+	} finally {
+	    endDispatchCycle();
+	}
     }
 
-    private Stream<Step> getStepStreamIfRunningElseEmptyStream() {
-	Stream<Step> stepStream = Stream.empty();
+    /**
+     * Looks up the candidate steps for the specified event class in the dispatch
+     * index of the model.
+     *
+     * @param eventClass
+     *            the event class
+     * @return the steps of the runner's actor or the system actor, that can react
+     *         to the event class and are at the right position, in model order.
+     *         Empty if the runner isn't running.
+     */
+    Step[] getCandidateStepsIfRunning(Class<?> eventClass) {
+	Step[] candidateSteps = NO_STEPS;
 	if (isRunning) {
-	    stepStream = model.getModifiableSteps().stream();
+	    candidateSteps = model.getDispatchIndex().getStepsThatCanReactTo(eventClass, getRunActor(),
+		    state.getLatestStep());
 	}
-	return stepStream;
+	return candidateSteps;
     }
-        
-    Set<Step> getStepsInStreamThatCanReactTo(Class<? extends Object> eventClass, Stream<Step> stepStream) {
-	Set<Step> steps = getStepsInStreamThatCanReactStream(stepStream)
-		.filter(step -> stepEventClassIsSameOrSuperclassAsEventClass(step, eventClass))
-		.collect(Collectors.toSet());
-	return steps;
+
+    /**
+     * Looks up the candidate steps for the latest step in the specified
+     * transitions, that have been looked up in the dispatch index of the model.
+     *
+     * @param transitions
+     *            the transitions for an event class and the runner's actor
+     * @return the candidate steps, in model order. Empty if the runner isn't
+     *         running.
+     */
+    Step[] getCandidateStepsIfRunning(Transitions transitions) {
+	Step[] candidateSteps = NO_STEPS;
+	if (isRunning) {
+	    candidateSteps = transitions.getEnabledStepsAfter(state.getLatestStep()).getSteps();
+	}
+	return candidateSteps;
     }
 
-    private Stream<Step> getStepsInStreamThatCanReactStream(Stream<Step> stepStream) {
-	return stepStream.filter(step -> stepActorIsRunActor(step))
-		.filter(step -> hasTruePredicate(step)).filter(step -> isStepInIncludedUseCaseIfPresent(step));
+    /**
+     * Starts a dispatch cycle. During a dispatch cycle, the state of the runner
+     * doesn't change, so the runner evaluates each interrupting step at most
+     * once, and shares the result between all interruptable steps.
+     */
+    private void startDispatchCycle() {
+	if (isRunning) {
+	    if (dispatchMemo == null) {
+		dispatchMemo = new DispatchMemo();
+	    }
+	    dispatchMemo.startCycle(model.getDispatchIndex());
+	}
     }
 
-    private boolean stepActorIsRunActor(Step step) {
-	Actor[] stepActors = step.getActors();
-	if (stepActors == null) {
-	    throw (new MissingUseCaseStepPart(step, "actor"));
+    private void endDispatchCycle() {
+	if (dispatchMemo != null) {
+	    dispatchMemo.endCycle();
 	}
-	boolean stepActorIsRunActor = Stream.of(stepActors).anyMatch(stepActor -> userAndSystem.contains(stepActor));
-	return stepActorIsRunActor;
     }
 
-    private boolean stepEventClassIsSameOrSuperclassAsEventClass(Step useCaseStep, Class<?> currentEventClass) {
-	Class<?> stepEventClass = useCaseStep.getEventClass();
-	return stepEventClass.isAssignableFrom(currentEventClass);
+    private boolean isInDispatchCycle() {
+	return dispatchMemo != null && dispatchMemo.isInCycle();
     }
 
-    private boolean hasTruePredicate(Step step) {
-	Predicate<ModelRunner> predicate = step.getPredicate();
-	boolean result = predicate.test(this);
-	return result;
+    /**
+     * Checks whether an interrupting step can react to the event class of the
+     * specified interruptable step. If so, the interruptable step can't react.
+     *
+     * @param interruptableStep
+     *            the interruptable step of the runner's model
+     * @return true if an interrupting step can react, false otherwise
+     */
+    boolean canAnyStepInterrupt(InterruptableFlowStep interruptableStep) {
+	EnabledSteps enabledSteps = model.getDispatchIndex().getEnabledSteps(interruptableStep.getEventClass(),
+		getRunActor(), state.getLatestStep());
+	InterruptingFlowStep[] interruptingSteps = enabledSteps.getInterruptingSteps();
+	for (int i = 0; i < interruptingSteps.length; i++) {
+	    int interruptingStepNumber = enabledSteps.getInterruptingStepNumber(i);
+	    if (canInterruptingStepReact(interruptingSteps[i], interruptingStepNumber)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    private boolean canInterruptingStepReact(InterruptingFlowStep interruptingStep, int interruptingStepNumber) {
+	if (!isInDispatchCycle()) {
+	    return canStepReact(interruptingStep);
+	}
+
+	if (!dispatchMemo.hasInterruptCheckResult(interruptingStepNumber)) {
+	    dispatchMemo.setInterruptCheckResult(interruptingStepNumber, canStepReact(interruptingStep));
+	}
+	return dispatchMemo.getInterruptCheckResult(interruptingStepNumber);
+    }
+
+    /**
+     * Evaluates the specified condition of a step. If the runner memoizes
+     * conditions, it evaluates each condition at most once per dispatch cycle.
+     *
+     * @param condition
+     *            the condition
+     * @return the result of the condition
+     */
+    boolean evaluate(Condition condition) {
+	if (!isInDispatchCycle()) {
+	    return condition.evaluate();
+	}
+
+	dispatchMemo.conditionEvaluatedInCycle();
+	if (isMemoizingConditions) {
+	    int conditionNumber = model.getDispatchIndex().getConditionNumber(condition);
+	    if (conditionNumber >= 0) {
+		return dispatchMemo.evaluate(condition, conditionNumber);
+	    }
+	}
+	dispatchMemo.countConditionEvaluationInCycle();
+	return condition.evaluate();
+    }
+
+    private boolean canStepReact(Step stepAtRightPosition) {
+	boolean canStepReact = isStepInIncludedUseCaseIfPresent(stepAtRightPosition)
+		&& stepAtRightPosition.hasTrueCondition(this);
+	return canStepReact;
     }
 
     private boolean isStepInIncludedUseCaseIfPresent(Step step) {
 	boolean result = true;
+	UseCase includedUseCase = state.getIncludedUseCase();
 	if (includedUseCase != null) {
 	    result = includedUseCase.equals(step.getUseCase());
 	}
@@ -430,7 +1143,21 @@ public class ModelRunner implements Serializable {
      * @return the latest step run
      */
     public Optional<Step> getLatestStep() {
-	return Optional.ofNullable(latestStep);
+	Step latestStep = state.getLatestStep();
+	Optional<Step> optionalLatestStep = latestStep != null ? latestStep.toOptional() : Optional.empty();
+	return optionalLatestStep;
+    }
+
+    /**
+     * Returns the use case the runner has included with the latest include step,
+     * and whose steps it is running.
+     *
+     * @return the included use case, or an empty optional if the runner isn't in
+     *         an included use case
+     */
+    public Optional<UseCase> getIncludedUseCase() {
+	Optional<UseCase> includedUseCase = Optional.ofNullable(state.getIncludedUseCase());
+	return includedUseCase;
     }
 
     /**
@@ -445,7 +1172,7 @@ public class ModelRunner implements Serializable {
      *            the latest step run
      */
     public void setLatestStep(Step latestStep) {
-	this.latestStep = latestStep;
+	state.setLatestStep(latestStep);
     }
 
     /**
@@ -466,8 +1193,55 @@ public class ModelRunner implements Serializable {
      * @return this model runner for method chaining
      */
     public ModelRunner startRecording() {
-	recordedStepNames.clear();
-	recordedEvents.clear();
+	recording = new ListRecording();
+	isRecording = true;
+	return this;
+    }
+
+    /**
+     * After calling this method, until recording is stopped, the names of the
+     * latest steps run are recorded, up to the specified capacity. When the
+     * capacity is reached, each recorded step replaces the oldest one. Events
+     * are not recorded, so {@link #getRecordedEvents()} returns an empty array.
+     * If step names/events have been recorded before calling this method, these
+     * are discarded.
+     * 
+     * <p>
+     * Unlike {@link #startRecording()}, the memory needed for recording doesn't
+     * grow, so recording can stay on in production.
+     * 
+     * @param capacity
+     *            the maximum number of steps to record
+     * @return this model runner for method chaining
+     * @throws IllegalArgumentException
+     *             if the capacity is negative
+     */
+    public ModelRunner startRecording(int capacity) {
+	startRecording(capacity, null);
+	return this;
+    }
+
+    /**
+     * Same as {@link #startRecording(int)}, but also passes each step run, and
+     * the event it has been run for, to the specified sink. Runners spawned
+     * from this runner use the same sink, so the sink needs to be thread-safe if
+     * they run on different threads. The sink isn't serialized with the runner,
+     * so a deserialized runner no longer passes steps on to it.
+     * 
+     * @param capacity
+     *            the maximum number of steps to record, or 0 to record only to
+     *            the sink
+     * @param sink
+     *            the sink
+     * @return this model runner for method chaining
+     * @throws IllegalArgumentException
+     *             if the capacity is negative
+     */
+    public ModelRunner startRecording(int capacity, RecordingSink sink) {
+	if (capacity < 0) {
+	    throw new IllegalArgumentException("Capacity must not be negative, but is " + capacity);
+	}
+	recording = new RingBufferRecording(capacity, sink);
 	isRecording = true;
 	return this;
     }
@@ -494,10 +1268,33 @@ public class ModelRunner implements Serializable {
      * @return the ordered names of steps run by this runner
      */
     public String[] getRecordedStepNames() {
-	String[] stepNames = recordedStepNames.stream().toArray(String[]::new);
+	String[] stepNames = recording != null ? recording.getStepNames() : new String[0];
 	return stepNames;
     }
 
+    /**
+     * Returns the latest recorded steps, up to the specified number of steps.
+     * 
+     * <p>
+     * If the runner records with a capacity, see {@link #startRecording(int)},
+     * any thread can call this method while the runner is reacting to events, to
+     * take a snapshot of the latest steps. Otherwise, only call this method on
+     * the thread the runner is used on.
+     * 
+     * @param maxSteps
+     *            the maximum number of steps to return
+     * @return the ordered latest steps run by this runner
+     * @throws IllegalArgumentException
+     *             if the maximum number of steps is negative
+     */
+    public Step[] getLatestRecordedSteps(int maxSteps) {
+	if (maxSteps < 0) {
+	    throw new IllegalArgumentException("Maximum number of steps must not be negative, but is " + maxSteps);
+	}
+	Step[] latestSteps = recording != null ? recording.getLatestSteps(maxSteps) : Recording.NO_STEPS;
+	return latestSteps;
+    }
+
     /**
      * Returns the recorded events that the runner reacted to so far.
      * <p>
@@ -509,30 +1306,14 @@ public class ModelRunner implements Serializable {
      * @return the ordered events that caused a system reaction
      */
     public Object[] getRecordedEvents() {
-	Object[] events = recordedEvents.toArray();
+	Object[] events = recording != null ? recording.getEvents() : new Object[0];
 	return events;
     }
 
     public void startIncludedUseCase(UseCase includedUseCase, FlowStep includeStep) {
-	this.includedUseCase = includedUseCase;
-	this.includeStep = includeStep;
-
-	includedUseCases.push(includedUseCase);
-	includeSteps.push(includeStep);
-    }
-
-    private boolean isAtEndOfIncludedFlow() {
-	Optional<FlowStep> lastStepOfRunningFlow = getLatestStep().map(ls -> getLastStepOf(((FlowStep)ls).getFlow()));
-	boolean result = getLatestStep()
-		.map(ls -> ls.getUseCase().equals(includedUseCase) && ls.equals(lastStepOfRunningFlow.get()))
-		.orElse(false);
-	return result;
-    }
-
-    private FlowStep getLastStepOf(Flow flow) {
-	List<FlowStep> stepsOfFlow = flow.getSteps();
-	int lastStepIndex = stepsOfFlow.size() - 1;
-	FlowStep lastStepOfFlow = stepsOfFlow.get(lastStepIndex);
-	return lastStepOfFlow;
+	state.startIncludedUseCase(includedUseCase, includeStep);
+	if (metrics != null) {
+	    metrics.includedUseCaseStarted(includedUseCase, includeStep);
+	}
     }
 }
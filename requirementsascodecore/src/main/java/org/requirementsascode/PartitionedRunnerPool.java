@@ -0,0 +1,318 @@
+package org.requirementsascode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A pool of runners, one runner per key, that react to events in parallel.
+ *
+ * <p>
+ * The pool extracts the key of each event, and routes the event to one of its
+ * shards, based on the hash code of the key. Each shard owns the runners for
+ * its keys, and creates them with the runner factory when it receives the
+ * first event for a key. A shard reacts to its events one after the other, so
+ * the runners and the map of runners of a shard are only accessed by one thread
+ * at a time, without locking. The events for a key are reacted to in the order
+ * they have been put into the pool by a thread.
+ *
+ * <p>
+ * Each shard has a lock-free mailbox. When there are events in it, the pool
+ * submits a task for the shard to the fork/join pool. Idle worker threads of
+ * the fork/join pool steal tasks from busy ones, so with more shards than
+ * worker threads, the load spreads evenly. To keep the shards fair, a task
+ * reacts to at most {@value #MAX_EVENTS_PER_TASK} events, then submits a new
+ * task for the rest, even if the events are part of a batch. A fork/join pool
+ * in async mode suits the tasks best, as they are never joined:
+ *
+ * <pre>
+ * new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true)
+ * </pre>
+ *
+ * <p>
+ * To hand off many events at once, use {@link #reactToAll(Iterable)}. It puts a
+ * single batch per shard into the mailboxes.
+ *
+ * @param <K>
+ *            the type of the keys
+ * @author b_muth
+ */
+public class PartitionedRunnerPool<K> {
+    private static final int MAX_EVENTS_PER_TASK = 64;
+
+    private final Function<Object, ? extends K> keyExtractor;
+    private final Function<? super K, ModelRunner> runnerFactory;
+    private final ForkJoinPool forkJoinPool;
+    private final List<Shard> shards;
+    private volatile BiConsumer<Object, RuntimeException> exceptionHandler;
+
+    /**
+     * Creates a pool.
+     *
+     * @param keyExtractor
+     *            extracts the key of an event, must not return null
+     * @param runnerFactory
+     *            creates the runner for a key, called the first time an event for
+     *            the key is received. The runner should already run a model.
+     * @param shardCount
+     *            the number of shards, preferably a few times the parallelism of
+     *            the fork/join pool
+     * @param forkJoinPool
+     *            the pool whose threads react to the events
+     * @throws IllegalArgumentException
+     *             if the shard count is less than 1
+     */
+    public PartitionedRunnerPool(Function<Object, ? extends K> keyExtractor,
+	    Function<? super K, ModelRunner> runnerFactory, int shardCount, ForkJoinPool forkJoinPool) {
+	if (shardCount < 1) {
+	    throw new IllegalArgumentException("Shard count must be at least 1, but is " + shardCount);
+	}
+	this.keyExtractor = Objects.requireNonNull(keyExtractor);
+	this.runnerFactory = Objects.requireNonNull(runnerFactory);
+	this.forkJoinPool = Objects.requireNonNull(forkJoinPool);
+	this.shards = new ArrayList<>(shardCount);
+	for (int i = 0; i < shardCount; i++) {
+	    shards.add(new Shard());
+	}
+	this.exceptionHandler = (event, e) -> {
+	    Thread thread = Thread.currentThread();
+	    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+	};
+    }
+
+    /**
+     * Defines the handler for exceptions thrown while a runner reacts to an
+     * event, for example by a system reaction. After the handler has been
+     * called, the shard goes on with the next event, so the handler must not
+     * throw an exception itself. By default, the exception is passed to the
+     * uncaught exception handler of the fork/join pool's thread.
+     *
+     * @param exceptionHandler
+     *            the handler, called with the event and the exception
+     */
+    public void handleExceptionsWith(BiConsumer<Object, RuntimeException> exceptionHandler) {
+	this.exceptionHandler = Objects.requireNonNull(exceptionHandler);
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+	return shards.size();
+    }
+
+    /**
+     * Routes the specified event to the runner for its key, and returns
+     * immediately. The runner reacts to the event later, on a thread of the
+     * fork/join pool.
+     *
+     * @param event
+     *            the command or event object
+     */
+    public void reactTo(Object event) {
+	Objects.requireNonNull(event);
+	shardOf(keyOf(event)).offer(event);
+    }
+
+    /**
+     * Routes each of the specified events to the runner for its key, and returns
+     * immediately. The events are grouped by shard first, and handed off to
+     * each shard as a single batch.
+     *
+     * @param events
+     *            the command or event objects
+     */
+    public void reactToAll(Iterable<?> events) {
+	Objects.requireNonNull(events);
+
+	List<List<Object>> eventsOfShards = new ArrayList<>(shards.size());
+	for (int i = 0; i < shards.size(); i++) {
+	    eventsOfShards.add(null);
+	}
+	for (Object event : events) {
+	    Objects.requireNonNull(event);
+	    int shardIndex = shardIndexOf(keyOf(event));
+	    List<Object> eventsOfShard = eventsOfShards.get(shardIndex);
+	    if (eventsOfShard == null) {
+		eventsOfShard = new ArrayList<>();
+		eventsOfShards.set(shardIndex, eventsOfShard);
+	    }
+	    eventsOfShard.add(event);
+	}
+	for (int i = 0; i < shards.size(); i++) {
+	    List<Object> eventsOfShard = eventsOfShards.get(i);
+	    if (eventsOfShard != null) {
+		shards.get(i).offer(new EventBatch(eventsOfShard.toArray()));
+	    }
+	}
+    }
+
+    /**
+     * Applies the specified function to the runner for the specified key, on the
+     * thread of its shard, after the runner has reacted to the events put into
+     * the pool before. Use this to safely read the state of a runner.
+     *
+     * @param <T>
+     *            the type of the result
+     * @param key
+     *            the key
+     * @param function
+     *            the function, called with the runner, or with null if the pool
+     *            hasn't received an event for the key yet
+     * @return the future result of the function
+     */
+    public <T> CompletableFuture<T> applyToRunner(K key, Function<ModelRunner, T> function) {
+	Objects.requireNonNull(key);
+	Objects.requireNonNull(function);
+
+	CompletableFuture<T> futureResult = new CompletableFuture<>();
+	shardOf(key).offer((ShardRequest) runners -> {
+	    try {
+		futureResult.complete(function.apply(runners.get(key)));
+	    } catch (RuntimeException e) {
+		futureResult.completeExceptionally(e);
+	    }
+	});
+	return futureResult;
+    }
+
+    /**
+     * Returns a future that completes when the runners have reacted to all
+     * events that have been put into the pool before. Events put into the pool
+     * concurrently may or may not have been reacted to by then.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> flush() {
+	CompletableFuture<?>[] flushedShards = new CompletableFuture<?>[shards.size()];
+	for (int i = 0; i < shards.size(); i++) {
+	    CompletableFuture<Void> flushedShard = new CompletableFuture<>();
+	    shards.get(i).offer((ShardRequest) runners -> flushedShard.complete(null));
+	    flushedShards[i] = flushedShard;
+	}
+	return CompletableFuture.allOf(flushedShards);
+    }
+
+    private K keyOf(Object event) {
+	K key = keyExtractor.apply(event);
+	if (key == null) {
+	    throw new IllegalArgumentException("Key extractor returned null for event: " + event);
+	}
+	return key;
+    }
+
+    private Shard shardOf(K key) {
+	return shards.get(shardIndexOf(key));
+    }
+
+    private int shardIndexOf(K key) {
+	int hash = key.hashCode();
+	// Spread the higher bits, like HashMap does, as keys may only differ there
+	int shardIndex = Math.floorMod(hash ^ (hash >>> 16), shards.size());
+	return shardIndex;
+    }
+
+    private class Shard implements Runnable {
+	private final Mailbox<Object> mailbox;
+	private final AtomicBoolean isScheduled;
+	private final Map<K, ModelRunner> runners;
+	private EventBatch batch;
+	private int batchIndex;
+
+	Shard() {
+	    this.mailbox = new Mailbox<>();
+	    this.isScheduled = new AtomicBoolean(false);
+	    this.runners = new HashMap<>();
+	}
+
+	void offer(Object message) {
+	    mailbox.offer(message);
+	    scheduleIfNeeded();
+	}
+
+	private void scheduleIfNeeded() {
+	    if (isScheduled.compareAndSet(false, true)) {
+		forkJoinPool.execute(this);
+	    }
+	}
+
+	@Override
+	public void run() {
+	    try {
+		int eventsLeft = continueBatch(MAX_EVENTS_PER_TASK);
+		Object message;
+		while (eventsLeft > 0 && (message = mailbox.poll()) != null) {
+		    eventsLeft = process(message, eventsLeft);
+		}
+	    } finally {
+		boolean isBatchLeft = batch != null;
+		isScheduled.set(false);
+		if (isBatchLeft || !mailbox.isEmpty()) {
+		    scheduleIfNeeded();
+		}
+	    }
+	}
+
+	private int process(Object message, int eventsLeft) {
+	    int eventsLeftAfterMessage = eventsLeft - 1;
+	    if (message instanceof EventBatch) {
+		batch = (EventBatch) message;
+		batchIndex = 0;
+		eventsLeftAfterMessage = continueBatch(eventsLeft);
+	    } else if (message instanceof ShardRequest) {
+		((ShardRequest) message).processIn(runners);
+	    } else {
+		reactTo(message);
+	    }
+	    return eventsLeftAfterMessage;
+	}
+
+	/**
+	 * Reacts to the events of the current batch, if any, until the batch ends
+	 * or the specified number of events has been reacted to. The rest of the
+	 * batch is left for the next task.
+	 */
+	private int continueBatch(int eventsLeft) {
+	    while (batch != null && eventsLeft > 0) {
+		Object event = batch.events[batchIndex++];
+		if (batchIndex == batch.events.length) {
+		    batch = null;
+		}
+		reactTo(event);
+		eventsLeft--;
+	    }
+	    return eventsLeft;
+	}
+
+	private void reactTo(Object event) {
+	    try {
+		K key = keyExtractor.apply(event);
+		ModelRunner runner = runners.computeIfAbsent(key, runnerFactory);
+		runner.reactTo(event);
+	    } catch (RuntimeException e) {
+		exceptionHandler.accept(event, e);
+	    }
+	}
+    }
+
+    private interface ShardRequest {
+	void processIn(Map<?, ModelRunner> runners);
+    }
+
+    private static class EventBatch {
+	private final Object[] events;
+
+	EventBatch(Object[] events) {
+	    this.events = events;
+	}
+    }
+}
@@ -0,0 +1,70 @@
+package org.requirementsascode;
+
+import java.util.Set;
+
+/**
+ * The classes of events a {@link ModelRunner} can react to, as computed for a
+ * certain model, actor, latest step and included use case.
+ *
+ * <p>
+ * As long as these don't change, the runner can reuse the classes, unless
+ * they depend on conditions. Conditions may depend on anything, so the runner
+ * only reuses classes that depend on conditions if the application has asked
+ * it to, and then tells it when the inputs of the conditions change.
+ *
+ * @author b_muth
+ */
+class ReactToTypesCache {
+    private Model model;
+    private Actor actor;
+    private Step latestStep;
+    private UseCase includedUseCase;
+    private Set<Class<?>> reactToTypes;
+    private boolean dependsOnConditions;
+
+    ReactToTypesCache() {
+    }
+
+    /**
+     * Returns the cached classes of events, if they have been computed for the
+     * specified model, actor, latest step and included use case.
+     *
+     * @param model
+     *            the model the runner runs
+     * @param actor
+     *            the actor the runner is run as
+     * @param latestStep
+     *            the latest step the runner has run, or null
+     * @param includedUseCase
+     *            the use case the runner currently includes, or null
+     * @param isCachingConditionResults
+     *            whether classes that depend on conditions may be returned
+     * @return the classes of events, or null if they need to be computed
+     */
+    Set<Class<?>> get(Model model, Actor actor, Step latestStep, UseCase includedUseCase,
+	    boolean isCachingConditionResults) {
+	boolean isValid = reactToTypes != null && this.model == model && this.actor == actor
+		&& this.latestStep == latestStep && this.includedUseCase == includedUseCase
+		&& (isCachingConditionResults || !dependsOnConditions);
+	return isValid ? reactToTypes : null;
+    }
+
+    void put(Model model, Actor actor, Step latestStep, UseCase includedUseCase, Set<Class<?>> reactToTypes,
+	    boolean dependsOnConditions) {
+	this.model = model;
+	this.actor = actor;
+	this.latestStep = latestStep;
+	this.includedUseCase = includedUseCase;
+	this.reactToTypes = reactToTypes;
+	this.dependsOnConditions = dependsOnConditions;
+    }
+
+    /**
+     * Discards the cached classes if they depend on conditions.
+     */
+    void conditionsChanged() {
+	if (dependsOnConditions) {
+	    reactToTypes = null;
+	}
+    }
+}
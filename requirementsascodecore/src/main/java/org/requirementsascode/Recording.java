@@ -0,0 +1,62 @@
+package org.requirementsascode;
+
+import java.io.Serializable;
+
+/**
+ * The steps a {@link ModelRunner} has run while it was recording, and
+ * possibly the events it has run them for.
+ *
+ * @author b_muth
+ */
+abstract class Recording implements Serializable {
+    private static final long serialVersionUID = 2841207617096314475L;
+
+    static final Step[] NO_STEPS = new Step[0];
+
+    /**
+     * Records that the runner has run the specified step for the specified event.
+     *
+     * @param step
+     *            the step
+     * @param event
+     *            the event, or null if there is none
+     */
+    abstract void record(Step step, Object event);
+
+    /**
+     * Returns the names of the recorded steps, in the order they have been run.
+     *
+     * @return the step names
+     */
+    String[] getStepNames() {
+	Step[] steps = getLatestSteps(Integer.MAX_VALUE);
+	String[] stepNames = new String[steps.length];
+	for (int i = 0; i < steps.length; i++) {
+	    stepNames[i] = steps[i].getName();
+	}
+	return stepNames;
+    }
+
+    /**
+     * Returns the recorded events, in the order the runner has reacted to them.
+     *
+     * @return the events
+     */
+    abstract Object[] getEvents();
+
+    /**
+     * Returns the latest recorded steps, in the order they have been run.
+     *
+     * @param maxSteps
+     *            the maximum number of steps to return
+     * @return the steps
+     */
+    abstract Step[] getLatestSteps(int maxSteps);
+
+    /**
+     * Creates an empty recording of the same kind, for a spawned runner.
+     *
+     * @return the new recording
+     */
+    abstract Recording newEmptyRecording();
+}
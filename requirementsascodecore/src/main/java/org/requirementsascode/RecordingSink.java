@@ -0,0 +1,23 @@
+package org.requirementsascode;
+
+/**
+ * Receives each step a {@link ModelRunner} runs, and the event it has run the
+ * step for, while the runner is recording. Use a sink to stream the
+ * recording, for example to a file, instead of keeping it in memory.
+ *
+ * @see ModelRunner#startRecording(int, RecordingSink)
+ * @author b_muth
+ */
+@FunctionalInterface
+public interface RecordingSink {
+    /**
+     * Called after the runner has chosen the specified step to react to the
+     * specified event, before the system reaction of the step is run.
+     *
+     * @param step
+     *            the step
+     * @param event
+     *            the event, or the runner itself for autonomous system reactions
+     */
+    void record(Step step, Object event);
+}
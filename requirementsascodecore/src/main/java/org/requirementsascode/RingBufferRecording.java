@@ -0,0 +1,87 @@
+package org.requirementsascode;
+
+/**
+ * A recording of the latest steps run, in a buffer of fixed capacity. When the
+ * buffer is full, each recorded step overwrites the oldest one. The events are
+ * not kept, so that the recording doesn't prevent them from being garbage
+ * collected. Optionally, each step and event is passed on to a sink as well.
+ * The sink isn't serialized with the recording, so a deserialized recording
+ * only keeps the latest steps.
+ *
+ * <p>
+ * The runner's thread records the steps, but any other thread can take a
+ * snapshot of the latest steps at the same time, without locking. Each slot
+ * of the buffer is written before the count of recorded steps is published.
+ * A snapshot reads the count, copies the slots, and then discards the slots
+ * that may have been overwritten in the meantime, according to the count it
+ * reads afterwards. The buffer has one slot more than the capacity, so the
+ * slot that is being written is never one of the latest steps, and a snapshot
+ * that isn't taken concurrently doesn't need to discard slots.
+ *
+ * @author b_muth
+ */
+class RingBufferRecording extends Recording {
+    private static final long serialVersionUID = 8329167011652640174L;
+    private static final Object[] NO_EVENTS = new Object[0];
+
+    private int capacity;
+    private Step[] steps;
+    private volatile long recordedStepCount;
+    private transient RecordingSink sink;
+
+    /**
+     * Creates a recording of the latest steps.
+     *
+     * @param capacity
+     *            the maximum number of steps kept, may be 0
+     * @param sink
+     *            the sink each step and event is passed on to, or null
+     */
+    RingBufferRecording(int capacity, RecordingSink sink) {
+	this.capacity = capacity;
+	this.steps = new Step[capacity > 0 ? capacity + 1 : 0];
+	this.sink = sink;
+    }
+
+    @Override
+    void record(Step step, Object event) {
+	if (capacity > 0) {
+	    long count = recordedStepCount;
+	    steps[(int) (count % steps.length)] = step;
+	    recordedStepCount = count + 1;
+	}
+	if (sink != null) {
+	    sink.record(step, event);
+	}
+    }
+
+    @Override
+    Object[] getEvents() {
+	return NO_EVENTS;
+    }
+
+    @Override
+    Step[] getLatestSteps(int maxSteps) {
+	long endCount = recordedStepCount;
+	long startCount = Math.max(0, endCount - Math.min(maxSteps, capacity));
+	Step[] copiedSteps = new Step[(int) (endCount - startCount)];
+	for (int i = 0; i < copiedSteps.length; i++) {
+	    copiedSteps[i] = steps[(int) ((startCount + i) % steps.length)];
+	}
+
+	long countAfterCopy = recordedStepCount;
+	long firstValidCount = Math.max(startCount, countAfterCopy - capacity);
+	if (firstValidCount == startCount) {
+	    return copiedSteps;
+	}
+	int discardedSteps = (int) Math.min(copiedSteps.length, firstValidCount - startCount);
+	Step[] latestSteps = new Step[copiedSteps.length - discardedSteps];
+	System.arraycopy(copiedSteps, discardedSteps, latestSteps, 0, latestSteps.length);
+	return latestSteps;
+    }
+
+    @Override
+    Recording newEmptyRecording() {
+	return new RingBufferRecording(capacity, sink);
+    }
+}
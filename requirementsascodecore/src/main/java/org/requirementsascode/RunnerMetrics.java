@@ -0,0 +1,150 @@
+package org.requirementsascode;
+
+import org.requirementsascode.exception.InfiniteRepetition;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+/**
+ * Receives measurements from the runners that measure with it, see
+ * {@link ModelRunner#startMeasuring(RunnerMetrics)}. All methods do nothing by
+ * default, so implement only those you are interested in.
+ *
+ * <p>
+ * The methods are called on the threads of the runners, while the runners
+ * react to events. If runners on different threads share the metrics, the
+ * methods must be thread-safe, and should be fast, for example by recording in
+ * lock-free counters and histograms like {@link HistogramRunnerMetrics} does.
+ *
+ * <p>
+ * A runner that doesn't measure doesn't call any metrics, and doesn't read the
+ * clock. Neither does a runner that measures with metrics that don't measure
+ * time, see {@link #measuresTime()}.
+ *
+ * @author b_muth
+ */
+public interface RunnerMetrics {
+    /**
+     * Returns whether the runner reads the clock to measure how long it takes
+     * to select and run steps. Metrics that measure the time themselves, from
+     * {@link #stepSelecting(Class)} to
+     * {@link #stepSelected(Class, Step, int, int, long)} and from
+     * {@link #stepRunning(Step)} to {@link #stepRun(Step, long)}, return false.
+     * The runner then passes 0 as the time.
+     *
+     * @return true by default
+     */
+    default boolean measuresTime() {
+	return true;
+    }
+
+    /**
+     * Called before the runner looks for the step that reacts to an event. The
+     * runner then calls {@link #stepSelected(Class, Step, int, int, long)} on the
+     * same thread, unless looking for the step throws an exception.
+     *
+     * @param eventClass
+     *            the class of the event
+     */
+    default void stepSelecting(Class<?> eventClass) {
+    }
+
+    /**
+     * Called after the runner has looked for the step that reacts to an event.
+     * The runner also looks for steps after each step it has run, to trigger
+     * autonomous system reactions. The event class is {@link ModelRunner} then.
+     *
+     * @param eventClass
+     *            the class of the event
+     * @param step
+     *            the step that reacts to the event, or null if no step reacts
+     * @param candidateSteps
+     *            the number of steps the runner has checked, because they can
+     *            react to events of the class
+     * @param conditionEvaluations
+     *            the number of conditions the runner has evaluated while checking
+     *            the steps
+     * @param nanos
+     *            the time it took to look for the step, or 0 if the metrics
+     *            don't measure time
+     */
+    default void stepSelected(Class<?> eventClass, Step step, int candidateSteps, int conditionEvaluations,
+	    long nanos) {
+    }
+
+    /**
+     * Called before the runner runs a step. The runner then calls
+     * {@link #stepRun(Step, long)} on the same thread, even if running the step
+     * throws an exception. As a system reaction can let a runner react to
+     * another event, the steps run on a thread can be nested.
+     *
+     * @param step
+     *            the step
+     */
+    default void stepRunning(Step step) {
+    }
+
+    /**
+     * Called after the runner has run a step, that is: after it has passed the
+     * step to its event handler, which by default runs the system reaction. The
+     * step of an included use case belongs to the included use case, see
+     * {@link Step#getUseCase()}.
+     *
+     * @param step
+     *            the step
+     * @param nanos
+     *            the time it took to run the step, or 0 if the metrics don't
+     *            measure time
+     */
+    default void stepRun(Step step, long nanos) {
+    }
+
+    /**
+     * Called after the runner has started to include the specified use case,
+     * when it has run the include step.
+     *
+     * @param includedUseCase
+     *            the included use case
+     * @param includeStep
+     *            the step that includes the use case
+     */
+    default void includedUseCaseStarted(UseCase includedUseCase, FlowStep includeStep) {
+    }
+
+    /**
+     * Called after the runner has run the last step of a flow of the specified
+     * included use case, and continues after the include step.
+     *
+     * @param includedUseCase
+     *            the included use case
+     * @param includeStep
+     *            the step that has included the use case
+     */
+    default void includedUseCaseEnded(UseCase includedUseCase, FlowStep includeStep) {
+    }
+
+    /**
+     * Called when no step has reacted to an event.
+     *
+     * @param event
+     *            the event
+     */
+    default void eventUnhandled(Object event) {
+    }
+
+    /**
+     * Called before the runner throws the specified exception.
+     *
+     * @param exception
+     *            the exception
+     */
+    default void moreThanOneStepCanReact(MoreThanOneStepCanReact exception) {
+    }
+
+    /**
+     * Called before the runner throws the specified exception.
+     *
+     * @param exception
+     *            the exception
+     */
+    default void infiniteRepetition(InfiniteRepetition exception) {
+    }
+}
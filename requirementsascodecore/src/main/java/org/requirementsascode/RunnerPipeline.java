@@ -0,0 +1,356 @@
+package org.requirementsascode;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.requirementsascode.systemreaction.AbstractContinues;
+import org.requirementsascode.systemreaction.IncludesUseCase;
+
+/**
+ * Lets a {@link ModelRunner} react to events in a pipeline of stages, each
+ * running on a thread of its own:
+ *
+ * <ol>
+ * <li>{@link Stage#INGEST}: converts each input to an event, for example by
+ * deserializing it</li>
+ * <li>{@link Stage#DISPATCH}: the runner selects the steps that react to the
+ * event, including autonomous system reactions</li>
+ * <li>{@link Stage#REACTION}: runs the system reactions of the steps</li>
+ * <li>{@link Stage#JOURNAL}: passes each step whose system reaction has run
+ * without an exception, and its event, to a recording sink, for example an
+ * {@link org.requirementsascode.journal.EventJournal}</li>
+ * </ol>
+ *
+ * <p>
+ * The stages are connected by two rings of preallocated slots: one for the
+ * inputs, and one for the steps to be run. A stage processes all slots that
+ * are available to it at once, as a batch, and the pipeline doesn't create any
+ * objects per event. So selecting steps isn't slowed down by system reactions
+ * that wait for I/O, as long as the rings have free slots.
+ *
+ * <p>
+ * As the runner selects the next steps before the system reactions of the
+ * previous steps have run, the pipeline is only suitable for models whose
+ * conditions don't depend on the effects of system reactions. The system
+ * reactions of steps that control the flow, like
+ * {@link StepPart#continuesAt(String)} or
+ * {@link StepPart#includesUseCase(String)}, change the state of the runner, so
+ * the dispatch stage runs them itself. Exceptions thrown by system reactions
+ * are not handled by the model, but passed to the handler defined with
+ * {@link #handleExceptionsWith(BiConsumer)}.
+ *
+ * <p>
+ * The pipeline measures how long each stage takes per event, see
+ * {@link #getLatencyHistogram(Stage)}.
+ *
+ * @param <I>
+ *            the type of the inputs
+ * @author b_muth
+ */
+public class RunnerPipeline<I> implements AutoCloseable {
+    /**
+     * The stages of a pipeline, in the order an event passes them.
+     */
+    public enum Stage {
+	INGEST, DISPATCH, REACTION, JOURNAL
+    }
+
+    private final ModelRunner modelRunner;
+    private final Function<? super I, ?> converter;
+    private final RecordingSink sink;
+    private final SlotRing<InputSlot<I>> inputRing;
+    private final SlotRing<ReactionSlot> reactionRing;
+    private final Map<Stage, LatencyHistogram> latencyHistograms;
+    private final Sequence ingestSequence;
+    private final Sequence dispatchSequence;
+    private final Sequence reactionSequence;
+    private final Sequence journalSequence;
+    private final List<Thread> threads;
+    private volatile BiConsumer<Object, RuntimeException> exceptionHandler;
+    private volatile boolean isRunning;
+    private boolean isClosed;
+
+    /**
+     * Creates a pipeline. From then on, the pipeline defines the event handler of
+     * the runner, and only the pipeline's dispatch stage may use the runner.
+     *
+     * @param modelRunner
+     *            the runner, that should already run a model
+     * @param converter
+     *            converts an input to the event the runner reacts to. If it
+     *            returns null, the runner doesn't react to the input.
+     * @param sink
+     *            receives the steps whose system reactions have run, or null if
+     *            they don't need to be journaled
+     * @param ringSize
+     *            the number of slots of each ring, a power of two
+     * @throws IllegalArgumentException
+     *             if the ring size is not a power of two
+     */
+    public RunnerPipeline(ModelRunner modelRunner, Function<? super I, ?> converter, RecordingSink sink,
+	    int ringSize) {
+	this.modelRunner = Objects.requireNonNull(modelRunner);
+	this.converter = Objects.requireNonNull(converter);
+	this.sink = sink;
+	this.inputRing = new SlotRing<>(ringSize, InputSlot::new);
+	this.reactionRing = new SlotRing<>(ringSize, ReactionSlot::new);
+	this.latencyHistograms = new EnumMap<>(Stage.class);
+	for (Stage stage : Stage.values()) {
+	    latencyHistograms.put(stage, new LatencyHistogram());
+	}
+	this.ingestSequence = new Sequence();
+	this.dispatchSequence = new Sequence();
+	this.reactionSequence = new Sequence();
+	this.journalSequence = new Sequence();
+	inputRing.gateOn(dispatchSequence);
+	reactionRing.gateOn(journalSequence);
+	this.threads = new ArrayList<>();
+	this.exceptionHandler = (object, e) -> {
+	    Thread thread = Thread.currentThread();
+	    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+	};
+	modelRunner.handleWith(this::handOverToReactionStage);
+    }
+
+    /**
+     * Defines the handler for exceptions thrown by the converter, by the runner
+     * while selecting steps, by system reactions, or by the sink. The pipeline
+     * goes on with the next event after the handler has been called, so the
+     * handler must not throw an exception itself. By default, the exception is
+     * passed to the uncaught exception handler of the stage's thread.
+     *
+     * @param exceptionHandler
+     *            the handler, called with the input or event, and the exception
+     */
+    public void handleExceptionsWith(BiConsumer<Object, RuntimeException> exceptionHandler) {
+	this.exceptionHandler = Objects.requireNonNull(exceptionHandler);
+    }
+
+    /**
+     * Starts a thread for each stage.
+     *
+     * @param threadFactory
+     *            creates the threads
+     * @return this pipeline
+     * @throws IllegalStateException
+     *             if the pipeline has already been started
+     */
+    public RunnerPipeline<I> start(ThreadFactory threadFactory) {
+	if (!threads.isEmpty()) {
+	    throw new IllegalStateException("Pipeline has already been started");
+	}
+	isRunning = true;
+	startStage(threadFactory, Stage.INGEST, inputRing, inputRing.getCursor(), ingestSequence, this::ingest);
+	startStage(threadFactory, Stage.DISPATCH, inputRing, ingestSequence, dispatchSequence, this::dispatch);
+	startStage(threadFactory, Stage.REACTION, reactionRing, reactionRing.getCursor(), reactionSequence,
+		this::react);
+	startStage(threadFactory, Stage.JOURNAL, reactionRing, reactionSequence, journalSequence, this::journal);
+	return this;
+    }
+
+    private <S> void startStage(ThreadFactory threadFactory, Stage stage, SlotRing<S> ring, Sequence upstreamSequence,
+	    Sequence stageSequence, Consumer<S> slotProcessor) {
+	StageLoop<S> stageLoop = new StageLoop<>(ring, upstreamSequence, stageSequence, slotProcessor,
+		latencyHistograms.get(stage));
+	Thread thread = threadFactory.newThread(stageLoop);
+	threads.add(thread);
+	thread.start();
+    }
+
+    /**
+     * Puts the specified input into the pipeline. Waits if the pipeline has no
+     * free slot for it. Must only be called by a single thread.
+     *
+     * @param input
+     *            the input
+     * @throws IllegalStateException
+     *             if the pipeline hasn't been started, or has been closed
+     */
+    public void publish(I input) {
+	Objects.requireNonNull(input);
+	if (!isRunning || isClosed) {
+	    throw new IllegalStateException("Pipeline isn't running");
+	}
+
+	long sequence = inputRing.claim();
+	inputRing.slotAt(sequence).input = input;
+	inputRing.publish(sequence);
+    }
+
+    /**
+     * Returns the histogram of the time the specified stage takes per input or
+     * step.
+     *
+     * @param stage
+     *            the stage
+     * @return the histogram
+     */
+    public LatencyHistogram getLatencyHistogram(Stage stage) {
+	return latencyHistograms.get(stage);
+    }
+
+    /**
+     * Waits until the pipeline has processed all inputs published so far, then
+     * stops the threads of the stages. Must be called by the thread that
+     * publishes the inputs.
+     */
+    @Override
+    public void close() {
+	if (isClosed) {
+	    return;
+	}
+	isClosed = true;
+	if (threads.isEmpty()) {
+	    return;
+	}
+
+	awaitSequence(dispatchSequence, inputRing.getCursor().get());
+	awaitSequence(journalSequence, reactionRing.getCursor().get());
+	isRunning = false;
+	for (Thread thread : threads) {
+	    try {
+		thread.join();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		return;
+	    }
+	}
+    }
+
+    private void awaitSequence(Sequence sequence, long value) {
+	int idleRounds = 0;
+	while (sequence.get() < value) {
+	    SlotRing.idle(idleRounds++);
+	}
+    }
+
+    private void ingest(InputSlot<I> slot) {
+	try {
+	    slot.event = converter.apply(slot.input);
+	} catch (RuntimeException e) {
+	    slot.event = null;
+	    exceptionHandler.accept(slot.input, e);
+	}
+    }
+
+    private void dispatch(InputSlot<I> slot) {
+	Object event = slot.event;
+	slot.input = null;
+	slot.event = null;
+	if (event != null) {
+	    try {
+		modelRunner.reactTo(event);
+	    } catch (RuntimeException e) {
+		exceptionHandler.accept(event, e);
+	    }
+	}
+    }
+
+    /**
+     * The event handler of the runner: instead of running the system reaction,
+     * it hands the step over to the reaction stage. The system reactions that
+     * control the flow change the state of the runner, so they are run right
+     * away.
+     */
+    private void handOverToReactionStage(StepToBeRun stepToBeRun) {
+	Object systemReaction = stepToBeRun.getSystemReaction();
+	boolean isFlowControl = systemReaction instanceof AbstractContinues || systemReaction instanceof IncludesUseCase;
+	if (isFlowControl) {
+	    stepToBeRun.run();
+	}
+
+	long sequence = reactionRing.claim();
+	ReactionSlot slot = reactionRing.slotAt(sequence);
+	slot.step = stepToBeRun.getStep();
+	slot.event = stepToBeRun.getEventObject();
+	slot.hasReacted = isFlowControl;
+	reactionRing.publish(sequence);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void react(ReactionSlot slot) {
+	if (slot.hasReacted) {
+	    return;
+	}
+	try {
+	    ((Consumer<Object>) slot.step.getSystemReaction()).accept(slot.event);
+	    slot.hasReacted = true;
+	} catch (RuntimeException e) {
+	    slot.hasReacted = false;
+	    exceptionHandler.accept(slot.event, e);
+	}
+    }
+
+    private void journal(ReactionSlot slot) {
+	try {
+	    if (slot.hasReacted && sink != null) {
+		sink.record(slot.step, slot.event);
+	    }
+	} catch (RuntimeException e) {
+	    exceptionHandler.accept(slot.event, e);
+	} finally {
+	    slot.step = null;
+	    slot.event = null;
+	}
+    }
+
+    private class StageLoop<S> implements Runnable {
+	private final SlotRing<S> ring;
+	private final Sequence upstreamSequence;
+	private final Sequence stageSequence;
+	private final Consumer<S> slotProcessor;
+	private final LatencyHistogram latencyHistogram;
+
+	StageLoop(SlotRing<S> ring, Sequence upstreamSequence, Sequence stageSequence, Consumer<S> slotProcessor,
+		LatencyHistogram latencyHistogram) {
+	    this.ring = ring;
+	    this.upstreamSequence = upstreamSequence;
+	    this.stageSequence = stageSequence;
+	    this.slotProcessor = slotProcessor;
+	    this.latencyHistogram = latencyHistogram;
+	}
+
+	@Override
+	public void run() {
+	    long nextSequence = stageSequence.get() + 1;
+	    int idleRounds = 0;
+	    while (true) {
+		long availableSequence = upstreamSequence.get();
+		if (availableSequence >= nextSequence) {
+		    long startNanos = System.nanoTime();
+		    for (long sequence = nextSequence; sequence <= availableSequence; sequence++) {
+			slotProcessor.accept(ring.slotAt(sequence));
+			long endNanos = System.nanoTime();
+			latencyHistogram.record(endNanos - startNanos);
+			startNanos = endNanos;
+		    }
+		    stageSequence.set(availableSequence);
+		    nextSequence = availableSequence + 1;
+		    idleRounds = 0;
+		} else if (!isRunning) {
+		    break;
+		} else {
+		    SlotRing.idle(idleRounds++);
+		}
+	    }
+	}
+    }
+
+    private static class InputSlot<I> {
+	private I input;
+	private Object event;
+    }
+
+    private static class ReactionSlot {
+	private Step step;
+	private Object event;
+	private boolean hasReacted;
+    }
+}
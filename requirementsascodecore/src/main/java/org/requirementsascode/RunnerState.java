@@ -0,0 +1,169 @@
+package org.requirementsascode;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+
+/**
+ * The state of a single session of a {@link ModelRunner}: the latest step it
+ * has run, and the use cases it currently includes.
+ *
+ * <p>
+ * The state is kept separate from the model. A built model doesn't change, so
+ * any number of runners can share it, each with its own state.
+ *
+ * <p>
+ * Most of the time, a runner doesn't include a use case. So the stacks of
+ * included use cases are only created when a use case is included, and the
+ * state of an idle runner is essentially a reference to the latest step.
+ *
+ * @author b_muth
+ */
+class RunnerState implements Serializable {
+    private static final long serialVersionUID = -3271559427213841390L;
+
+    private Step latestStep;
+    private ArrayDeque<UseCase> includedUseCases;
+    private ArrayDeque<FlowStep> includeSteps;
+    private UseCase includedUseCase;
+    private FlowStep includeStep;
+
+    RunnerState() {
+    }
+
+    /**
+     * Creates a copy of this state, that can be changed independently of it.
+     *
+     * @return the copy
+     */
+    RunnerState copy() {
+	RunnerState copy = new RunnerState();
+	copy.latestStep = latestStep;
+	copy.includedUseCase = includedUseCase;
+	copy.includeStep = includeStep;
+	if (includedUseCases != null) {
+	    copy.includedUseCases = new ArrayDeque<>(includedUseCases);
+	    copy.includeSteps = new ArrayDeque<>(includeSteps);
+	}
+	return copy;
+    }
+
+    Step getLatestStep() {
+	return latestStep;
+    }
+
+    void setLatestStep(Step latestStep) {
+	this.latestStep = latestStep;
+    }
+
+    /**
+     * Returns the use case that is currently included.
+     *
+     * @return the included use case, or null if no use case is included
+     */
+    UseCase getIncludedUseCase() {
+	return includedUseCase;
+    }
+
+    /**
+     * Returns the step that has included the use case that is currently
+     * included.
+     *
+     * @return the include step, or null if no use case is included
+     */
+    FlowStep getIncludeStep() {
+	return includeStep;
+    }
+
+    /**
+     * Returns the use cases that are currently included, from the first one
+     * included to the one included latest.
+     *
+     * @return the included use cases
+     */
+    UseCase[] getIncludedUseCases() {
+	UseCase[] useCases = new UseCase[0];
+	if (includedUseCases != null) {
+	    useCases = reverse(includedUseCases).toArray(useCases);
+	}
+	return useCases;
+    }
+
+    /**
+     * Returns the steps that have included the use cases returned by
+     * {@link #getIncludedUseCases()}, in the same order.
+     *
+     * @return the include steps
+     */
+    FlowStep[] getIncludeSteps() {
+	FlowStep[] steps = new FlowStep[0];
+	if (includeSteps != null) {
+	    steps = reverse(includeSteps).toArray(steps);
+	}
+	return steps;
+    }
+
+    private static <T> ArrayDeque<T> reverse(ArrayDeque<T> stack) {
+	ArrayDeque<T> reversedStack = new ArrayDeque<>(stack.size());
+	for (T element : stack) {
+	    reversedStack.push(element);
+	}
+	return reversedStack;
+    }
+
+    void startIncludedUseCase(UseCase includedUseCase, FlowStep includeStep) {
+	this.includedUseCase = includedUseCase;
+	this.includeStep = includeStep;
+
+	if (includedUseCases == null) {
+	    includedUseCases = new ArrayDeque<>();
+	    includeSteps = new ArrayDeque<>();
+	}
+	includedUseCases.push(includedUseCase);
+	includeSteps.push(includeStep);
+    }
+
+    /**
+     * If the latest step is the last step of a flow of the included use case,
+     * makes the include step the latest step, and continues with the use case
+     * included before, if any.
+     *
+     * @return true if the included use case has ended, false otherwise
+     */
+    boolean continueAfterIncludeStepWhenEndOfIncludedFlowIsReached() {
+	if (includedUseCase != null && includeStep != null && isAtEndOfIncludedFlow()) {
+	    setLatestStep(includeStep);
+	    includedUseCase = getUseCaseIncludedBefore();
+	    includeStep = getIncludeStepBefore();
+	    return true;
+	}
+	return false;
+    }
+
+    private boolean isAtEndOfIncludedFlow() {
+	boolean result = latestStep instanceof FlowStep && latestStep.getUseCase().equals(includedUseCase)
+		&& ((FlowStep) latestStep).getFlow().isLastStep(latestStep);
+	return result;
+    }
+
+    private UseCase getUseCaseIncludedBefore() {
+	includedUseCases.pop();
+	UseCase includedUseCase = includedUseCases.peek();
+	return includedUseCase;
+    }
+
+    private FlowStep getIncludeStepBefore() {
+	includeSteps.pop();
+	FlowStep includeStep = includeSteps.peek();
+	return includeStep;
+    }
+
+    /**
+     * Ends all included use cases, without changing the latest step.
+     */
+    void clearIncludedUseCases() {
+	includedUseCases = null;
+	includeSteps = null;
+	includedUseCase = null;
+	includeStep = null;
+    }
+}
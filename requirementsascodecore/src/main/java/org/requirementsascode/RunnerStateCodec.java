@@ -0,0 +1,281 @@
+package org.requirementsascode;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Encodes the state of a {@link ModelRunner} to a few bytes, and restores it
+ * against an already loaded model.
+ *
+ * <p>
+ * Serializing a runner with Java serialization includes the whole model, with
+ * its use cases, steps, conditions and system reactions. Instead, the codec
+ * only encodes what changes while the runner runs: whether it's running, the
+ * actor it runs as, the latest step it has run, and the use cases it currently
+ * includes. The model elements are encoded as their numbers in model order.
+ *
+ * <p>
+ * To detect that a state is restored against a different model than it has
+ * been encoded with, the state contains a fingerprint of the model. The
+ * fingerprint is computed from the names of the actors, use cases and steps,
+ * and the event classes of the steps. Changing a condition or a system
+ * reaction doesn't change the fingerprint, so states stay valid when only the
+ * lambdas of the model change.
+ *
+ * <p>
+ * A codec is immutable, so any number of threads can share it.
+ *
+ * @author b_muth
+ */
+public class RunnerStateCodec {
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte IS_RUNNING = 1;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Model model;
+    private final Actor[] actors;
+    private final UseCase[] useCases;
+    private final Step[] steps;
+    private final Map<ModelElement, Integer> elementToNumberMap;
+    private final long modelFingerprint;
+
+    /**
+     * Creates a codec for the states of runners that run the specified model.
+     *
+     * @param model
+     *            the model
+     */
+    public RunnerStateCodec(Model model) {
+	this.model = Objects.requireNonNull(model);
+	this.actors = model.getActors().toArray(new Actor[0]);
+	this.useCases = model.getUseCases().toArray(new UseCase[0]);
+	this.steps = model.getSteps().toArray(new Step[0]);
+	this.elementToNumberMap = new IdentityHashMap<>();
+	numberElements(actors);
+	numberElements(useCases);
+	numberElements(steps);
+	this.modelFingerprint = fingerprint();
+    }
+
+    private void numberElements(ModelElement[] elements) {
+	for (int i = 0; i < elements.length; i++) {
+	    elementToNumberMap.put(elements[i], i);
+	}
+    }
+
+    private long fingerprint() {
+	long hash = FNV_OFFSET_BASIS;
+	for (Actor actor : actors) {
+	    hash = hash(hash, actor.getName());
+	}
+	for (UseCase useCase : useCases) {
+	    hash = hash(hash, useCase.getName());
+	}
+	for (Step step : steps) {
+	    hash = hash(hash, step.getUseCase().getName());
+	    hash = hash(hash, step.getName());
+	    Class<?> eventClass = step.getEventClass();
+	    hash = hash(hash, eventClass != null ? eventClass.getName() : "");
+	}
+	return hash;
+    }
+
+    private static long hash(long hash, String string) {
+	for (byte b : string.getBytes(UTF_8)) {
+	    hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+	}
+	hash = (hash ^ 0xff) * FNV_PRIME;
+	return hash;
+    }
+
+    /**
+     * Returns the fingerprint of the model, see the class description.
+     *
+     * @return the fingerprint
+     */
+    public long getModelFingerprint() {
+	return modelFingerprint;
+    }
+
+    /**
+     * Encodes the state of the specified runner.
+     *
+     * @param modelRunner
+     *            the runner
+     * @return the encoded state
+     * @throws IllegalArgumentException
+     *             if the runner runs a different model than the codec's
+     */
+    public byte[] encode(ModelRunner modelRunner) {
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+	try (DataOutputStream out = new DataOutputStream(bytes)) {
+	    encode(modelRunner, out);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+	return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes the state of the specified runner to the specified output.
+     *
+     * @param modelRunner
+     *            the runner
+     * @param out
+     *            the output
+     * @throws IOException
+     *             if writing to the output fails
+     * @throws IllegalArgumentException
+     *             if the runner runs a different model than the codec's
+     */
+    public void encode(ModelRunner modelRunner, DataOutput out) throws IOException {
+	Model runnerModel = modelRunner.getModel();
+	if (runnerModel != null && runnerModel != model) {
+	    throw new IllegalArgumentException("Runner runs a different model than the codec's");
+	}
+
+	RunnerState state = modelRunner.getState();
+	out.writeByte(FORMAT_VERSION);
+	out.writeLong(modelFingerprint);
+	out.writeByte(modelRunner.isRunning() ? IS_RUNNING : 0);
+	writeNumber(out, modelRunner.getUser());
+	writeNumber(out, state.getLatestStep());
+
+	UseCase[] includedUseCases = state.getIncludedUseCases();
+	FlowStep[] includeSteps = state.getIncludeSteps();
+	writeVarInt(out, includedUseCases.length);
+	for (int i = 0; i < includedUseCases.length; i++) {
+	    writeNumber(out, includedUseCases[i]);
+	    writeNumber(out, includeSteps[i]);
+	}
+    }
+
+    /**
+     * Restores the specified encoded state into the specified runner. After
+     * that, the runner runs the codec's model in the encoded state. The event
+     * handlers and other settings of the runner are kept. Restoring a state
+     * doesn't trigger autonomous system reactions.
+     *
+     * @param encodedState
+     *            the encoded state
+     * @param modelRunner
+     *            the runner
+     * @throws IllegalArgumentException
+     *             if the state has been encoded with a different model, or is not
+     *             a valid state
+     */
+    public void restore(byte[] encodedState, ModelRunner modelRunner) {
+	try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodedState))) {
+	    restore(in, modelRunner);
+	} catch (IOException e) {
+	    throw new IllegalArgumentException("Encoded state is incomplete", e);
+	}
+    }
+
+    /**
+     * Restores the state read from the specified input into the specified
+     * runner. See {@link #restore(byte[], ModelRunner)}.
+     *
+     * @param in
+     *            the input
+     * @param modelRunner
+     *            the runner
+     * @throws IOException
+     *             if reading from the input fails
+     * @throws IllegalArgumentException
+     *             if the state has been encoded with a different model, or is not
+     *             a valid state
+     */
+    public void restore(DataInput in, ModelRunner modelRunner) throws IOException {
+	byte formatVersion = in.readByte();
+	if (formatVersion != FORMAT_VERSION) {
+	    throw new IllegalArgumentException("Unknown format version of encoded state: " + formatVersion);
+	}
+	long encodedModelFingerprint = in.readLong();
+	if (encodedModelFingerprint != modelFingerprint) {
+	    throw new IllegalArgumentException("State has been encoded with a different model");
+	}
+
+	boolean isRunning = in.readByte() == IS_RUNNING;
+	Actor user = readElement(in, actors);
+	RunnerState state = new RunnerState();
+	state.setLatestStep(readElement(in, steps));
+
+	int includeDepth = readVarInt(in);
+	List<UseCase> includedUseCases = new ArrayList<>(includeDepth);
+	List<FlowStep> includeSteps = new ArrayList<>(includeDepth);
+	for (int i = 0; i < includeDepth; i++) {
+	    includedUseCases.add(readElement(in, useCases));
+	    Step includeStep = readElement(in, steps);
+	    if (!(includeStep instanceof FlowStep)) {
+		throw new IllegalArgumentException("Include step is not a flow step: " + includeStep);
+	    }
+	    includeSteps.add((FlowStep) includeStep);
+	}
+	for (int i = 0; i < includeDepth; i++) {
+	    state.startIncludedUseCase(includedUseCases.get(i), includeSteps.get(i));
+	}
+
+	modelRunner.restore(model, user, state, isRunning);
+    }
+
+    private void writeNumber(DataOutput out, ModelElement element) throws IOException {
+	int number = -1;
+	if (element != null) {
+	    Integer elementNumber = elementToNumberMap.get(element);
+	    if (elementNumber == null) {
+		throw new IllegalArgumentException("Element is not in the codec's model: " + element);
+	    }
+	    number = elementNumber;
+	}
+	writeVarInt(out, number + 1);
+    }
+
+    private static <T extends ModelElement> T readElement(DataInput in, T[] elements) throws IOException {
+	int number = readVarInt(in) - 1;
+	if (number < -1 || number >= elements.length) {
+	    throw new IllegalArgumentException("Encoded state refers to element " + number + ", but there are only "
+		    + elements.length);
+	}
+	T element = number >= 0 ? elements[number] : null;
+	return element;
+    }
+
+    /**
+     * Writes a non-negative int in as few bytes as needed: 7 bits per byte,
+     * with the highest bit set if more bytes follow.
+     */
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+	while ((value & ~0x7f) != 0) {
+	    out.writeByte((value & 0x7f) | 0x80);
+	    value >>>= 7;
+	}
+	out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+	int value = 0;
+	for (int shift = 0; shift < 32; shift += 7) {
+	    byte b = in.readByte();
+	    value |= (b & 0x7f) << shift;
+	    if ((b & 0x80) == 0) {
+		return value;
+	    }
+	}
+	throw new IllegalArgumentException("Malformed number in encoded state");
+    }
+}
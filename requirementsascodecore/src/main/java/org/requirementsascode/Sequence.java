@@ -0,0 +1,38 @@
+package org.requirementsascode;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A sequence number that one thread advances and other threads read, as used
+ * by the stages of a {@link RunnerPipeline}.
+ *
+ * <p>
+ * The value sits in the middle of an array, so that the sequences of different
+ * stages don't share a cache line, and a thread advancing its sequence doesn't
+ * slow down threads reading other sequences.
+ *
+ * @author b_muth
+ */
+class Sequence {
+    private static final int PADDING = 15;
+    static final long INITIAL_VALUE = -1;
+
+    private final AtomicLongArray paddedValue;
+
+    Sequence() {
+	this.paddedValue = new AtomicLongArray(2 * PADDING + 1);
+	paddedValue.set(PADDING, INITIAL_VALUE);
+    }
+
+    long get() {
+	return paddedValue.get(PADDING);
+    }
+
+    /**
+     * Sets the value, after all previous writes of the thread have become
+     * visible to other threads.
+     */
+    void set(long value) {
+	paddedValue.lazySet(PADDING, value);
+    }
+}
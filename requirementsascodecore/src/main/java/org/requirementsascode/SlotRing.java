@@ -0,0 +1,98 @@
+package org.requirementsascode;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * A ring of preallocated slots that a single producer fills, and one or more
+ * stages of a {@link RunnerPipeline} process in turn.
+ *
+ * <p>
+ * The producer claims the slot with the next sequence number, fills it, and
+ * publishes the sequence number. Before the producer reuses a slot, it waits
+ * until the last stage has processed the slot, so a slot is never overwritten
+ * while a stage still processes it.
+ *
+ * @author b_muth
+ */
+class SlotRing<S> {
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    private static final long PARK_NANOS = 1000;
+
+    private final Object[] slots;
+    private final int mask;
+    private final Sequence cursor;
+    private Sequence lastStageSequence;
+    private long nextSequence;
+    private long cachedLastStageSequence;
+
+    SlotRing(int size, Supplier<S> slotFactory) {
+	if (size < 1 || Integer.bitCount(size) != 1) {
+	    throw new IllegalArgumentException("Ring size must be a power of two, but is " + size);
+	}
+	this.slots = new Object[size];
+	for (int i = 0; i < size; i++) {
+	    slots[i] = slotFactory.get();
+	}
+	this.mask = size - 1;
+	this.cursor = new Sequence();
+	this.nextSequence = Sequence.INITIAL_VALUE + 1;
+	this.cachedLastStageSequence = Sequence.INITIAL_VALUE;
+    }
+
+    /**
+     * Sets the sequence of the last stage, that the producer waits for before
+     * reusing a slot.
+     */
+    void gateOn(Sequence lastStageSequence) {
+	this.lastStageSequence = lastStageSequence;
+    }
+
+    Sequence getCursor() {
+	return cursor;
+    }
+
+    @SuppressWarnings("unchecked")
+    S slotAt(long sequence) {
+	return (S) slots[(int) sequence & mask];
+    }
+
+    /**
+     * Waits until the slot with the next sequence number is free, and returns
+     * the sequence number. Must only be called by the producer.
+     */
+    long claim() {
+	long wrapPoint = nextSequence - slots.length;
+	if (wrapPoint > cachedLastStageSequence) {
+	    int idleRounds = 0;
+	    while (wrapPoint > (cachedLastStageSequence = lastStageSequence.get())) {
+		idle(idleRounds++);
+	    }
+	}
+	return nextSequence++;
+    }
+
+    /**
+     * Makes the filled slot with the specified sequence number available to the
+     * first stage. Must only be called by the producer, in the order of the
+     * claimed sequence numbers.
+     */
+    void publish(long sequence) {
+	cursor.set(sequence);
+    }
+
+    /**
+     * Waits a little longer the more often it's called in a row: first by
+     * spinning, then by yielding, then by parking the thread.
+     */
+    static void idle(int idleRounds) {
+	if (idleRounds < SPINS) {
+	    return;
+	} else if (idleRounds < SPINS + YIELDS) {
+	    Thread.yield();
+	} else {
+	    LockSupport.parkNanos(PARK_NANOS);
+	}
+    }
+}
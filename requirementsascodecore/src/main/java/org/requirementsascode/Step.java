@@ -24,6 +24,8 @@ public abstract class Step extends ModelElement implements Serializable {
     private Class<?> eventClass;
     private Consumer<?> systemReaction;
     private Condition condition;
+    private transient Predicate<ModelRunner> predicate;
+    private transient Optional<Step> optionalStep;
 
     /**
      * Creates a step with the specified name that belongs to the specified
@@ -38,13 +40,63 @@ public abstract class Step extends ModelElement implements Serializable {
 	this.useCase = useCase;
     }
 
-    public abstract Predicate<ModelRunner> getPredicate();
+    /**
+     * Returns the predicate that needs to be true for this step to react: the
+     * runner is at the right position for the step, and the step's conditions
+     * are true.
+     *
+     * @return the predicate
+     */
+    public Predicate<ModelRunner> getPredicate() {
+	if (predicate == null) {
+	    Predicate<ModelRunner> isRunnerAtRightPosition = modelRunner -> isRunnerAtRightPositionAfter(
+		    modelRunner.getLatestStep().orElse(null));
+	    predicate = isRunnerAtRightPosition.and(this::hasTrueCondition);
+	}
+	return predicate;
+    }
+
+    /**
+     * Checks whether a runner is at the right position for this step, given the
+     * latest step the runner has run. As the result only depends on the latest
+     * step, the model and dispatch engines can precompute it.
+     *
+     * @param latestStep
+     *            the latest step run, or null if no step has been run
+     * @return true if the runner is at the right position, false otherwise
+     */
+    public abstract boolean isRunnerAtRightPositionAfter(Step latestStep);
+
+    /**
+     * Checks the part of this step's predicate that depends on the state of the
+     * runner or the application, not only on the latest step. It is evaluated
+     * each time the runner dispatches an event.
+     *
+     * @param modelRunner
+     *            the runner that dispatches the event
+     * @return true if the step's conditions are true, false otherwise
+     */
+    abstract boolean hasTrueCondition(ModelRunner modelRunner);
+
+    /**
+     * Returns an optional containing this step. The optional is created once, so
+     * that the runner doesn't need to create a new one for each event.
+     *
+     * @return the optional containing this step
+     */
+    Optional<Step> toOptional() {
+	if (optionalStep == null) {
+	    optionalStep = Optional.of(this);
+	}
+	return optionalStep;
+    }
 
     public UseCase getUseCase() {
 	return useCase;
     }
 
     void setCondition(Condition condition) {
+	getModel().checkIsNotBuilt();
 	this.condition = condition;
     }
 
@@ -52,12 +104,19 @@ public abstract class Step extends ModelElement implements Serializable {
 	return Optional.ofNullable(condition);
     }
 
+    boolean isConditionTrue(ModelRunner modelRunner) {
+	boolean isConditionTrue = condition == null || modelRunner.evaluate(condition);
+	return isConditionTrue;
+    }
+
     public Actor[] getActors() {
 	return actors;
     }
 
     void setActors(Actor[] actors) {
+	getModel().checkIsNotBuilt();
 	this.actors = actors;
+	getModel().invalidateDispatchIndex();
     }
 
     public Class<?> getEventClass() {
@@ -65,7 +124,9 @@ public abstract class Step extends ModelElement implements Serializable {
     }
 
     void setEventClass(Class<?> eventClass) {
+	getModel().checkIsNotBuilt();
 	this.eventClass = eventClass;
+	getModel().invalidateDispatchIndex();
     }
 
     public Consumer<?> getSystemReaction() {
@@ -73,10 +134,21 @@ public abstract class Step extends ModelElement implements Serializable {
     }
 
     void setSystemReaction(Consumer<?> systemReaction) {
+	getModel().checkIsNotBuilt();
 	this.systemReaction = systemReaction;
     }
-    
-    protected static Predicate<ModelRunner> toPredicate(Condition condition){
+
+    /**
+     * Converts the specified condition to a predicate that ignores the runner.
+     * 
+     * @param condition
+     *            the condition
+     * @return the predicate
+     * @deprecated Steps no longer build their predicate from conditions. Call
+     *             {@link Condition#evaluate()} directly instead.
+     */
+    @Deprecated
+    protected static Predicate<ModelRunner> toPredicate(Condition condition) {
 	return modelRunner -> condition.evaluate();
     }
 }
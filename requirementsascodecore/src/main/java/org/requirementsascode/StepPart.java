@@ -23,8 +23,8 @@ public class StepPart {
 	this.step = step;
 	this.flowPart = useCaseFlowPart;
 	this.modelBuilder = useCasePart.getModelBuilder();
-	this.userActor = modelBuilder.build().getUserActor();
-	this.systemActor = modelBuilder.build().getSystemActor();
+	this.userActor = modelBuilder.getModel().getUserActor();
+	this.systemActor = modelBuilder.getModel().getSystemActor();
     }
 
     /**
@@ -33,6 +33,14 @@ public class StepToBeRun implements Serializable {
 	this.step = useCaseStep;
     }
 
+    Step getStep() {
+	return step;
+    }
+
+    Object getEventObject() {
+	return event;
+    }
+
     /**
      * Returns the name of the step whose system reaction is performed when
      * {@link #run()} is called.
@@ -102,6 +102,7 @@ public class UseCase extends ModelElement implements Serializable {
      *             if a flow with the specified name already exists in the use case
      */
     Flow newFlow(String flowName) {
+	getModel().checkIsNotBuilt();
 	Flow flow = new Flow(flowName, this);
 	saveModelElement(flow, nameToFlowMap);
 	return flow;
@@ -124,11 +125,14 @@ public class UseCase extends ModelElement implements Serializable {
      */
     InterruptingFlowStep newInterruptingFlowStep(String stepName, Flow flow, FlowPosition flowPosition,
 	    Condition condition) {
+	getModel().checkIsNotBuilt();
 	InterruptingFlowStep step = new InterruptingFlowStep(stepName, this, flow);
 	step.setFlowPosition(flowPosition);
 	step.setCondition(condition);
 
 	saveModelElement(step, nameToStepMap);
+	flow.appendStep(step);
+	getModel().invalidateDispatchIndex();
 
 	return step;
     }
@@ -153,8 +157,11 @@ public class UseCase extends ModelElement implements Serializable {
      * @return the newly created step
      */
     InterruptableFlowStep newInterruptableFlowStep(String stepName, Flow flow) {
+	getModel().checkIsNotBuilt();
 	InterruptableFlowStep step = new InterruptableFlowStep(stepName, this, flow);
 	saveModelElement(step, nameToStepMap);
+	flow.appendStep(step);
+	getModel().invalidateDispatchIndex();
 
 	return step;
     }
@@ -167,8 +174,10 @@ public class UseCase extends ModelElement implements Serializable {
      * @return the newly created step
      */
     FlowlessStep newFlowlessStep(String stepName) {
+	getModel().checkIsNotBuilt();
 	FlowlessStep step = new FlowlessStep(stepName, this);
 	saveModelElement(step, nameToStepMap);
+	getModel().invalidateDispatchIndex();
 
 	return step;
     }
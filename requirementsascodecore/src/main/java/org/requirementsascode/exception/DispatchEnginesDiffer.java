@@ -0,0 +1,30 @@
+package org.requirementsascode.exception;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Exception that is thrown when two runners that dispatch with different
+ * engines react differently to the same sequence of events.
+ *
+ * @author b_muth
+ *
+ */
+public class DispatchEnginesDiffer extends RuntimeException implements Serializable{
+	private static final long serialVersionUID = -3271849513370146823L;
+
+	public DispatchEnginesDiffer(long seed, int sequenceNumber, List<?> events, List<String> referenceReaction,
+			List<String> reaction) {
+		super(exceptionMessage(seed, sequenceNumber, events, referenceReaction, reaction));
+	}
+
+	private static String exceptionMessage(long seed, int sequenceNumber, List<?> events,
+			List<String> referenceReaction, List<String> reaction) {
+		String eventClassNames = events.stream().map(event -> event.getClass().getSimpleName())
+				.collect(Collectors.joining(", ", "[", "]"));
+		return "Dispatch engines differ in sequence " + sequenceNumber + " of seed " + seed + ", after events "
+				+ eventClassNames + ": reference reacted with " + referenceReaction + ", but engine reacted with "
+				+ reaction;
+	}
+}
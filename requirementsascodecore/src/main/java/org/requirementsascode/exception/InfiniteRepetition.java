@@ -5,7 +5,8 @@ import java.io.Serializable;
 import org.requirementsascode.Step;
 
 /**
- * Exception that is thrown when internally, a StackOverflowException occurs.
+ * Exception that is thrown when the runner runs more steps for a single event
+ * than allowed by {@link org.requirementsascode.ModelRunner#setMaxStepsPerEvent(int)}.
  * The likely cause is that a condition is always true.
  * 
  * @author b_muth
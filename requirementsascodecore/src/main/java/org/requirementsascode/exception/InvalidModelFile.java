@@ -0,0 +1,27 @@
+package org.requirementsascode.exception;
+
+import java.io.Serializable;
+
+/**
+ * Exception that is thrown when a model file can't be loaded, because a line
+ * of it is invalid, or references a name that isn't registered or isn't in the
+ * model.
+ * 
+ * @author b_muth
+ *
+ */
+public class InvalidModelFile extends RuntimeException implements Serializable{
+	private static final long serialVersionUID = 4405738210564716533L;
+
+	public InvalidModelFile(int lineNumber, String line, String reason) {
+		super(exceptionMessage(lineNumber, line, reason));
+	}
+
+	public InvalidModelFile(int lineNumber, String line, RuntimeException cause) {
+		super(exceptionMessage(lineNumber, line, cause.getMessage()), cause);
+	}
+
+	private static String exceptionMessage(int lineNumber, String line, String reason) {
+		return "Invalid line " + lineNumber + " of model file: " + reason + ": " + line.trim();
+	}
+}
@@ -0,0 +1,22 @@
+package org.requirementsascode.exception;
+
+import java.io.Serializable;
+
+/**
+ * Exception that is thrown when somebody tries to change a model after it has
+ * been built.
+ * 
+ * @author b_muth
+ *
+ */
+public class ModelAlreadyBuilt extends RuntimeException implements Serializable{
+	private static final long serialVersionUID = -6043817233594101178L;
+
+	public ModelAlreadyBuilt() {		
+		super(exceptionMessage());
+	}
+
+	private static String exceptionMessage() {
+		return "Model has already been built, and can't be changed anymore";
+	}
+}
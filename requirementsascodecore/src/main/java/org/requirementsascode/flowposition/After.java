@@ -4,7 +4,6 @@ import java.io.Serializable;
 import java.util.Objects;
 
 import org.requirementsascode.FlowStep;
-import org.requirementsascode.ModelRunner;
 import org.requirementsascode.Step;
 
 /**
@@ -26,8 +25,7 @@ public class After extends FlowPosition implements Serializable {
     }
 
     @Override
-    public boolean isRunnerAtRightPositionFor(FlowStep step, ModelRunner modelRunner) {
-	Step latestStepRun = modelRunner.getLatestStep().orElse(null);
+    protected boolean isAtRightPositionFor(FlowStep step, Step latestStepRun) {
 	boolean stepWasRunLast = Objects.equals(step, latestStepRun);
 	return stepWasRunLast;
     }
@@ -3,7 +3,7 @@ package org.requirementsascode.flowposition;
 import java.io.Serializable;
 
 import org.requirementsascode.FlowStep;
-import org.requirementsascode.ModelRunner;
+import org.requirementsascode.Step;
 
 public class Anytime extends FlowPosition implements Serializable {
     private static final long serialVersionUID = 7724607380865304333L;
@@ -14,7 +14,7 @@ public class Anytime extends FlowPosition implements Serializable {
 
 
     @Override
-    protected boolean isRunnerAtRightPositionFor(FlowStep step, ModelRunner modelRunner) {
+    protected boolean isAtRightPositionFor(FlowStep step, Step latestStepRun) {
 	return true;
     }
 }
@@ -3,11 +3,13 @@ package org.requirementsascode.flowposition;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Predicate;
 
 import org.requirementsascode.FlowStep;
 import org.requirementsascode.Step;
 import org.requirementsascode.ModelRunner;
+import org.requirementsascode.exception.ModelAlreadyBuilt;
 
 public abstract class FlowPosition implements Predicate<ModelRunner>, Serializable {
     private static final long serialVersionUID = -8952890128132543927L;
@@ -15,7 +17,26 @@ public abstract class FlowPosition implements Predicate<ModelRunner>, Serializab
     private List<FlowStep> orAfterSteps;
     private FlowStep step;
 
-    protected abstract boolean isRunnerAtRightPositionFor(FlowStep step, ModelRunner modelRunner);
+    protected abstract boolean isAtRightPositionFor(FlowStep step, Step latestStepRun);
+
+    /**
+     * Tests whether the specified runner is at the right position for the step.
+     * 
+     * @param step
+     *            the step
+     * @param modelRunner
+     *            the runner
+     * @return true if the runner is at the right position, false otherwise
+     * @deprecated The position only depends on the latest step run. Implement
+     *             and call {@link #isAtRightPositionFor(FlowStep, Step)}
+     *             instead. This method delegates to it.
+     */
+    @Deprecated
+    protected boolean isRunnerAtRightPositionFor(FlowStep step, ModelRunner modelRunner) {
+	Step latestStepRun = modelRunner.getLatestStep().orElse(null);
+	boolean isRunnerAtRightPosition = isAtRightPositionFor(step, latestStepRun);
+	return isRunnerAtRightPosition;
+    }
 
     public FlowPosition(FlowStep step) {
 	this.step = step;
@@ -24,16 +45,43 @@ public abstract class FlowPosition implements Predicate<ModelRunner>, Serializab
 
     @Override
     public final boolean test(ModelRunner modelRunner) {
-	boolean isRunnerAtRightPositionForStepOrAfterAnyMergedStep = isRunnerAtRightPositionFor(step,
-		modelRunner) || orAfterSteps.stream().anyMatch(step -> new After(step).test(modelRunner));
+	Step latestStepRun = modelRunner.getLatestStep().orElse(null);
+	boolean isRunnerAtRightPosition = isRunnerAtRightPositionAfter(latestStepRun);
+	return isRunnerAtRightPosition;
+    }
+
+    /**
+     * Tests whether a runner is at the right position, given the specified latest
+     * step it has run. As the result only depends on the latest step, it can be
+     * computed before any runner runs the model.
+     * 
+     * @param latestStepRun
+     *            the latest step run, or null to mean: when no step has been run.
+     * @return true if the runner is at the right position, false otherwise
+     */
+    public final boolean isRunnerAtRightPositionAfter(Step latestStepRun) {
+	boolean isRunnerAtRightPositionForStepOrAfterAnyMergedStep = isAtRightPositionFor(step, latestStepRun)
+		|| isAnyMergedStep(latestStepRun);
 	return isRunnerAtRightPositionForStepOrAfterAnyMergedStep;
     }
 
+    private boolean isAnyMergedStep(Step latestStepRun) {
+	for (FlowStep orAfterStep : orAfterSteps) {
+	    if (Objects.equals(orAfterStep, latestStepRun)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
     public final Step getStep() {
 	return step;
     }
 
     public FlowPosition orAfter(FlowStep mergeStep) {
+	if (mergeStep.getModel().isBuilt()) {
+	    throw new ModelAlreadyBuilt();
+	}
 	orAfterSteps.add(mergeStep);
 	return this;
     }
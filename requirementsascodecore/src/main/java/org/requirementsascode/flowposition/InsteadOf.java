@@ -1,9 +1,10 @@
 package org.requirementsascode.flowposition;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 import org.requirementsascode.FlowStep;
-import org.requirementsascode.ModelRunner;
+import org.requirementsascode.Step;
 
 public class InsteadOf extends FlowPosition implements Serializable {
     private static final long serialVersionUID = -3958653686352185075L;
@@ -13,9 +14,9 @@ public class InsteadOf extends FlowPosition implements Serializable {
     }
 
     @Override
-    public boolean isRunnerAtRightPositionFor(FlowStep step, ModelRunner modelRunner) {
+    protected boolean isAtRightPositionFor(FlowStep step, Step latestStepRun) {
 	FlowStep previousStep = step.getPreviousStepInFlow().orElse(null);
-	After after = new After(previousStep);
-	return after.test(modelRunner);
+	boolean previousStepWasRunLast = Objects.equals(previousStep, latestStepRun);
+	return previousStepWasRunLast;
     }
 }
@@ -0,0 +1,41 @@
+package org.requirementsascode.journal;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes events to bytes when they are appended to an {@link EventJournal},
+ * and decodes them when the journal is scanned.
+ *
+ * <p>
+ * The journal writes the encoded events directly into the memory mapped file.
+ * So a codec that doesn't create objects while encoding doesn't create garbage
+ * either.
+ *
+ * @author b_muth
+ */
+public interface EventCodec {
+    /**
+     * Encodes the specified event into the buffer, starting at the buffer's
+     * position.
+     *
+     * @param event
+     *            the event
+     * @param buffer
+     *            the buffer to put the bytes into
+     * @throws BufferOverflowException
+     *             if the remaining bytes of the buffer are not enough. The journal
+     *             then continues in a new segment, and calls this method again.
+     */
+    void encode(Object event, ByteBuffer buffer);
+
+    /**
+     * Decodes an event from the buffer. The buffer's remaining bytes are exactly
+     * the bytes the event has been encoded to.
+     *
+     * @param buffer
+     *            the buffer to read the bytes from
+     * @return the event
+     */
+    Object decode(ByteBuffer buffer);
+}
@@ -0,0 +1,497 @@
+package org.requirementsascode.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.RecordingSink;
+import org.requirementsascode.Step;
+
+/**
+ * A durable, append-only journal of the events a {@link ModelRunner} has
+ * reacted to, and the steps it has run for them. To journal all events of a
+ * runner, pass the journal as sink to
+ * {@link ModelRunner#startRecording(int, RecordingSink)}.
+ *
+ * <p>
+ * The journal is stored in a directory, as a sequence of segment files of
+ * fixed size. Each segment file is memory mapped, and named after the
+ * sequence number of its first entry. When an entry doesn't fit into the
+ * current segment anymore, the journal continues in a new one. Each time the
+ * journal is opened, it starts a new segment as well. Existing segments are
+ * never changed.
+ *
+ * <p>
+ * Appending an entry only writes to memory. The operating system writes the
+ * memory to disk eventually, but the journal forces it to disk after a
+ * configurable number of appends (group commit), when a segment is full, and
+ * when {@link #commit()} or {@link #close()} is called. Entries that have been
+ * appended since the last commit may be lost if the machine crashes.
+ *
+ * <p>
+ * Within a segment, an entry refers to its step by a number. The first time a
+ * step is appended to a segment, the journal writes a definition of the step,
+ * with the names of its use case and itself. So each segment can be read on
+ * its own.
+ *
+ * <p>
+ * All methods of a journal are thread-safe, so runners spawned from each other
+ * can share a journal.
+ *
+ * @author b_muth
+ */
+public class EventJournal implements RecordingSink, Closeable {
+    /**
+     * The size of a segment file, by default.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The number of appends after which the journal forces them to disk, by
+     * default.
+     */
+    public static final int DEFAULT_APPENDS_PER_COMMIT = 65536;
+
+    static final String SEGMENT_FILE_SUFFIX = ".journal";
+    static final int SEGMENT_MAGIC_NUMBER = 0x524a4e31;
+    static final int SEGMENT_HEADER_SIZE = 4;
+    static final byte STEP_DEFINITION = 1;
+    static final byte ENTRY = 2;
+    static final byte NO_EVENT = 0;
+    static final byte EVENT = 1;
+
+    private Path directory;
+    private EventCodec codec;
+    private int segmentSize;
+    private int appendsPerCommit;
+
+    private Path segmentFile;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segmentBuffer;
+    private int entriesInSegment;
+    private Map<Step, Integer> stepToNumberMap;
+    private long nextSequenceNumber;
+    private int appendsSinceCommit;
+
+    private EventJournal(Path directory, EventCodec codec, int segmentSize, int appendsPerCommit) {
+	this.directory = directory;
+	this.codec = codec;
+	this.segmentSize = segmentSize;
+	this.appendsPerCommit = appendsPerCommit;
+	this.stepToNumberMap = new IdentityHashMap<>();
+    }
+
+    /**
+     * Opens the journal in the specified directory, with the default segment
+     * size and number of appends per commit. Creates the directory if it doesn't
+     * exist.
+     *
+     * @param directory
+     *            the directory of the journal
+     * @param codec
+     *            the codec for the events
+     * @return the open journal, positioned after its last entry
+     * @throws IOException
+     *             if the directory or a segment file can't be read or written
+     */
+    public static EventJournal open(Path directory, EventCodec codec) throws IOException {
+	EventJournal journal = open(directory, codec, DEFAULT_SEGMENT_SIZE, DEFAULT_APPENDS_PER_COMMIT);
+	return journal;
+    }
+
+    /**
+     * Opens the journal in the specified directory. Creates the directory if it
+     * doesn't exist.
+     *
+     * @param directory
+     *            the directory of the journal
+     * @param codec
+     *            the codec for the events
+     * @param segmentSize
+     *            the size of each segment file, in bytes
+     * @param appendsPerCommit
+     *            the number of appends after which the journal forces them to
+     *            disk
+     * @return the open journal, positioned after its last entry
+     * @throws IOException
+     *             if the directory or a segment file can't be read or written
+     * @throws IllegalArgumentException
+     *             if the segment size or the appends per commit are too small
+     */
+    public static EventJournal open(Path directory, EventCodec codec, int segmentSize, int appendsPerCommit)
+	    throws IOException {
+	Objects.requireNonNull(directory);
+	Objects.requireNonNull(codec);
+	if (segmentSize < 64) {
+	    throw new IllegalArgumentException("Segment size must be at least 64 bytes, but is " + segmentSize);
+	}
+	if (appendsPerCommit <= 0) {
+	    throw new IllegalArgumentException("Appends per commit must be positive, but is " + appendsPerCommit);
+	}
+
+	Files.createDirectories(directory);
+	EventJournal journal = new EventJournal(directory, codec, segmentSize, appendsPerCommit);
+	journal.nextSequenceNumber = journal.findNextSequenceNumber();
+	journal.startSegment();
+	return journal;
+    }
+
+    /**
+     * Reads all entries of the journal in the specified directory, in the order
+     * they have been appended, and passes them to the consumer.
+     *
+     * @param directory
+     *            the directory of the journal
+     * @param codec
+     *            the codec for the events
+     * @param entryConsumer
+     *            the consumer of the entries
+     * @throws IOException
+     *             if a segment file can't be read, or isn't a segment file
+     */
+    public static void scan(Path directory, EventCodec codec, Consumer<JournalEntry> entryConsumer)
+	    throws IOException {
+	Objects.requireNonNull(codec);
+	Objects.requireNonNull(entryConsumer);
+
+	for (Path segmentFile : segmentFiles(directory)) {
+	    scanSegment(segmentFile, codec, entryConsumer);
+	}
+    }
+
+    /**
+     * Appends the specified step and the event it has been run for to the
+     * journal.
+     *
+     * @param step
+     *            the step
+     * @param event
+     *            the event, or null (or the runner) for autonomous system
+     *            reactions
+     * @return the sequence number of the appended entry
+     * @throws IOException
+     *             if a new segment file can't be created, or the journal can't
+     *             be forced to disk
+     * @throws IllegalArgumentException
+     *             if the entry doesn't even fit into an empty segment
+     */
+    public synchronized long append(Step step, Object event) throws IOException {
+	Objects.requireNonNull(step);
+	checkIsOpen();
+
+	Object journaledEvent = event instanceof ModelRunner ? null : event;
+	long sequenceNumber = nextSequenceNumber;
+	if (!tryToAppend(step, journaledEvent, sequenceNumber)) {
+	    if (entriesInSegment == 0) {
+		throw new IllegalArgumentException(
+			"Entry doesn't fit into an empty segment of " + segmentSize + " bytes: " + event);
+	    }
+	    startSegment();
+	    if (!tryToAppend(step, journaledEvent, sequenceNumber)) {
+		throw new IllegalArgumentException(
+			"Entry doesn't fit into an empty segment of " + segmentSize + " bytes: " + event);
+	    }
+	}
+	nextSequenceNumber++;
+	entriesInSegment++;
+
+	if (++appendsSinceCommit >= appendsPerCommit) {
+	    commit();
+	}
+	return sequenceNumber;
+    }
+
+    /**
+     * Same as {@link #append(Step, Object)}, for recording a runner.
+     *
+     * @throws UncheckedIOException
+     *             if the entry can't be appended
+     */
+    @Override
+    public void record(Step step, Object event) {
+	try {
+	    append(step, event);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    /**
+     * Forces all entries appended so far to disk.
+     *
+     * @throws IOException
+     *             if the journal can't be forced to disk
+     */
+    public synchronized void commit() throws IOException {
+	checkIsOpen();
+	if (appendsSinceCommit > 0) {
+	    segmentBuffer.force();
+	    appendsSinceCommit = 0;
+	}
+    }
+
+    /**
+     * Returns the sequence number the next appended entry will get.
+     *
+     * @return the next sequence number
+     */
+    public synchronized long getNextSequenceNumber() {
+	return nextSequenceNumber;
+    }
+
+    /**
+     * Commits all entries appended so far, and closes the journal. If no entry
+     * has been appended to the current segment, its file is deleted. Closing a
+     * closed journal has no effect.
+     *
+     * @throws IOException
+     *             if the journal can't be forced to disk
+     */
+    @Override
+    public synchronized void close() throws IOException {
+	if (segmentChannel != null) {
+	    endSegment();
+	    if (entriesInSegment == 0) {
+		deleteEmptySegmentFile();
+	    }
+	}
+    }
+
+    /**
+     * Tries to append an entry to the current segment. If that fails, the bytes
+     * written for the entry are cleared, so that the segment still ends after
+     * the last complete record.
+     *
+     * @return true if the entry has been appended, false if it doesn't fit
+     */
+    private boolean tryToAppend(Step step, Object event, long sequenceNumber) {
+	int startPosition = segmentBuffer.position();
+	boolean isAppended = false;
+	try {
+	    Integer stepNumber = stepToNumberMap.get(step);
+	    if (stepNumber == null) {
+		stepNumber = stepToNumberMap.size();
+		putStepDefinition(stepNumber, step);
+		stepToNumberMap.put(step, stepNumber);
+		startPosition = segmentBuffer.position();
+	    }
+	    putEntry(sequenceNumber, stepNumber, event);
+	    isAppended = true;
+	} catch (BufferOverflowException e) {
+	    isAppended = false;
+	} finally {
+	    if (!isAppended) {
+		clearFrom(startPosition);
+	    }
+	}
+	return isAppended;
+    }
+
+    private void clearFrom(int startPosition) {
+	int endPosition = segmentBuffer.position();
+	for (int position = startPosition; position < endPosition; position++) {
+	    segmentBuffer.put(position, (byte) 0);
+	}
+	segmentBuffer.position(startPosition);
+    }
+
+    private void putStepDefinition(int stepNumber, Step step) {
+	int lengthPosition = startRecord(STEP_DEFINITION);
+	segmentBuffer.putInt(stepNumber);
+	putString(step.getUseCase().getName());
+	putString(step.getName());
+	endRecord(lengthPosition);
+    }
+
+    private void putEntry(long sequenceNumber, int stepNumber, Object event) {
+	int lengthPosition = startRecord(ENTRY);
+	segmentBuffer.putLong(sequenceNumber);
+	segmentBuffer.putInt(stepNumber);
+	if (event == null) {
+	    segmentBuffer.put(NO_EVENT);
+	} else {
+	    segmentBuffer.put(EVENT);
+	    codec.encode(event, segmentBuffer);
+	}
+	endRecord(lengthPosition);
+    }
+
+    private void putString(String string) {
+	byte[] bytes = string.getBytes(UTF_8);
+	segmentBuffer.putInt(bytes.length);
+	segmentBuffer.put(bytes);
+    }
+
+    /**
+     * Reserves the length of a record, and puts its type.
+     */
+    private int startRecord(byte recordType) {
+	int lengthPosition = segmentBuffer.position();
+	segmentBuffer.putInt(0);
+	segmentBuffer.put(recordType);
+	return lengthPosition;
+    }
+
+    /**
+     * Puts the length of the record last, so that a reader never sees a length
+     * for a record that hasn't been written completely. Leaves room for the zero
+     * length that marks the end of the segment.
+     */
+    private void endRecord(int lengthPosition) {
+	int recordLength = segmentBuffer.position() - lengthPosition - 4;
+	if (segmentBuffer.remaining() < 4) {
+	    throw new BufferOverflowException();
+	}
+	segmentBuffer.putInt(lengthPosition, recordLength);
+    }
+
+    private void startSegment() throws IOException {
+	if (segmentChannel != null) {
+	    endSegment();
+	}
+	segmentFile = directory.resolve(segmentFileName(nextSequenceNumber));
+	segmentChannel = FileChannel.open(segmentFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+		StandardOpenOption.WRITE);
+	segmentBuffer = segmentChannel.map(MapMode.READ_WRITE, 0, segmentSize);
+	segmentBuffer.putInt(SEGMENT_MAGIC_NUMBER);
+	entriesInSegment = 0;
+	stepToNumberMap.clear();
+    }
+
+    private void endSegment() throws IOException {
+	segmentBuffer.force();
+	appendsSinceCommit = 0;
+	segmentChannel.close();
+	segmentChannel = null;
+	segmentBuffer = null;
+    }
+
+    /**
+     * Deletes the file of the current segment. Some operating systems don't
+     * allow that while the file is still mapped. If the file can't be deleted,
+     * it's deleted the next time the journal is opened.
+     */
+    private void deleteEmptySegmentFile() {
+	try {
+	    Files.delete(segmentFile);
+	} catch (IOException e) {
+	    // Ignored on purpose: the journal has been committed and closed, and
+	    // opening it again deletes the empty segment at its end
+	}
+    }
+
+    private void checkIsOpen() {
+	if (segmentChannel == null) {
+	    throw new IllegalStateException("Journal has been closed: " + directory);
+	}
+    }
+
+    /**
+     * Finds the sequence number after the last entry in the journal. Deletes
+     * segments without entries at the end of the journal, so that the new
+     * segment can be named after the next sequence number.
+     */
+    private long findNextSequenceNumber() throws IOException {
+	List<Path> segmentFiles = segmentFiles(directory);
+	for (int i = segmentFiles.size() - 1; i >= 0; i--) {
+	    Path segmentFile = segmentFiles.get(i);
+	    long[] lastSequenceNumber = { -1 };
+	    scanSegment(segmentFile, null, entry -> lastSequenceNumber[0] = entry.getSequenceNumber());
+	    if (lastSequenceNumber[0] >= 0) {
+		return lastSequenceNumber[0] + 1;
+	    }
+	    Files.delete(segmentFile);
+	}
+	return 0;
+    }
+
+    static String segmentFileName(long firstSequenceNumber) {
+	return String.format("%020d", firstSequenceNumber) + SEGMENT_FILE_SUFFIX;
+    }
+
+    private static List<Path> segmentFiles(Path directory) throws IOException {
+	List<Path> segmentFiles = new ArrayList<>();
+	try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, "*" + SEGMENT_FILE_SUFFIX)) {
+	    for (Path segmentFile : directoryStream) {
+		segmentFiles.add(segmentFile);
+	    }
+	}
+	Collections.sort(segmentFiles);
+	return segmentFiles;
+    }
+
+    /**
+     * Reads the entries of a segment. If the codec is null, the events are not
+     * decoded.
+     */
+    private static void scanSegment(Path segmentFile, EventCodec codec, Consumer<JournalEntry> entryConsumer)
+	    throws IOException {
+	try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+	    ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+	    if (buffer.remaining() < SEGMENT_HEADER_SIZE || buffer.getInt() != SEGMENT_MAGIC_NUMBER) {
+		throw new IOException("Not a journal segment: " + segmentFile);
+	    }
+
+	    Map<Integer, String[]> numberToStepNamesMap = new HashMap<>();
+	    while (buffer.remaining() >= 4) {
+		int recordLength = buffer.getInt();
+		if (recordLength <= 0) {
+		    break;
+		}
+		if (recordLength > buffer.remaining()) {
+		    throw new IOException("Record exceeds the end of the segment: " + segmentFile);
+		}
+		ByteBuffer record = buffer.slice();
+		record.limit(recordLength);
+		buffer.position(buffer.position() + recordLength);
+
+		byte recordType = record.get();
+		if (recordType == STEP_DEFINITION) {
+		    int stepNumber = record.getInt();
+		    String useCaseName = getString(record);
+		    String stepName = getString(record);
+		    numberToStepNamesMap.put(stepNumber, new String[] { useCaseName, stepName });
+		} else if (recordType == ENTRY) {
+		    long sequenceNumber = record.getLong();
+		    String[] stepNames = numberToStepNamesMap.get(record.getInt());
+		    if (stepNames == null) {
+			throw new IOException("Entry " + sequenceNumber + " refers to undefined step: " + segmentFile);
+		    }
+		    Object event = null;
+		    if (record.get() == EVENT && codec != null) {
+			event = codec.decode(record.slice());
+		    }
+		    entryConsumer.accept(new JournalEntry(sequenceNumber, stepNames[0], stepNames[1], event));
+		} else {
+		    throw new IOException("Unknown record type " + recordType + ": " + segmentFile);
+		}
+	    }
+	}
+    }
+
+    private static String getString(ByteBuffer buffer) {
+	byte[] bytes = new byte[buffer.getInt()];
+	buffer.get(bytes);
+	return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package org.requirementsascode.journal;
+
+import java.util.Optional;
+
+import org.requirementsascode.Model;
+import org.requirementsascode.Step;
+import org.requirementsascode.UseCase;
+
+/**
+ * An entry read from an {@link EventJournal}: an event, and the step a runner
+ * has run for it.
+ *
+ * @author b_muth
+ */
+public class JournalEntry {
+    private long sequenceNumber;
+    private String useCaseName;
+    private String stepName;
+    private Object event;
+
+    JournalEntry(long sequenceNumber, String useCaseName, String stepName, Object event) {
+	this.sequenceNumber = sequenceNumber;
+	this.useCaseName = useCaseName;
+	this.stepName = stepName;
+	this.event = event;
+    }
+
+    /**
+     * Returns the number of the entry in the journal. The first entry of a
+     * journal has number 0, and each entry's number is one higher than the
+     * number of the entry before it.
+     *
+     * @return the sequence number
+     */
+    public long getSequenceNumber() {
+	return sequenceNumber;
+    }
+
+    public String getUseCaseName() {
+	return useCaseName;
+    }
+
+    public String getStepName() {
+	return stepName;
+    }
+
+    /**
+     * Returns the event the step has been run for.
+     *
+     * @return the event, or an empty optional for autonomous system reactions
+     */
+    public Optional<Object> getEvent() {
+	return Optional.ofNullable(event);
+    }
+
+    /**
+     * Finds the step of this entry in the specified model.
+     *
+     * @param model
+     *            the model the runner has run
+     * @return the step, or an empty optional if the model doesn't contain it
+     */
+    public Optional<Step> findStep(Model model) {
+	Optional<Step> step = Optional.empty();
+	if (model.hasUseCase(useCaseName)) {
+	    UseCase useCase = model.findUseCase(useCaseName);
+	    if (useCase.hasStep(stepName)) {
+		step = Optional.of(useCase.findStep(stepName));
+	    }
+	}
+	return step;
+    }
+
+    @Override
+    public String toString() {
+	return "JournalEntry [sequenceNumber=" + sequenceNumber + ", useCaseName=" + useCaseName + ", stepName="
+		+ stepName + ", event=" + event + "]";
+    }
+}
@@ -0,0 +1,43 @@
+package org.requirementsascode.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec that encodes events with Java serialization. It works for all
+ * serializable events, but is slow and creates objects for each event. For a
+ * high rate of events, implement an {@link EventCodec} for the event classes
+ * of the application instead.
+ *
+ * @author b_muth
+ */
+public class SerializingEventCodec implements EventCodec {
+    @Override
+    public void encode(Object event, ByteBuffer buffer) {
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+	    out.writeObject(event);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+	buffer.put(bytes.toByteArray());
+    }
+
+    @Override
+    public Object decode(ByteBuffer buffer) {
+	byte[] bytes = new byte[buffer.remaining()];
+	buffer.get(bytes);
+	try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+	    return in.readObject();
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	} catch (ClassNotFoundException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Journal package of requirementsascode, containing a durable, append-only
+ * journal of the events a {@link org.requirementsascode.ModelRunner} has
+ * reacted to, and the steps it has run for them.
+ *
+ * @author b_muth
+ */
+package org.requirementsascode.journal;
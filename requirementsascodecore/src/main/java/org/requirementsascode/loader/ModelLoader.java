@@ -0,0 +1,451 @@
+package org.requirementsascode.loader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.requirementsascode.Actor;
+import org.requirementsascode.Condition;
+import org.requirementsascode.FlowPart;
+import org.requirementsascode.FlowPositionPart;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelBuilder;
+import org.requirementsascode.StepAsPart;
+import org.requirementsascode.StepPart;
+import org.requirementsascode.StepSystemPart;
+import org.requirementsascode.UseCasePart;
+import org.requirementsascode.exception.InvalidModelFile;
+
+/**
+ * Builds a model from a declarative text file, in a single pass, in time
+ * proportional to the size of the file. The event classes, conditions and
+ * system reactions are referenced by name, and looked up in a
+ * {@link ModelRegistry}.
+ *
+ * <p>
+ * Each line of the file contains a single declaration, made of words
+ * separated by spaces. Names that contain spaces must be put in double
+ * quotes. A <code>#</code> starts a comment, and indentation is ignored. For
+ * example:
+ *
+ * <pre>
+ * usecase "Use case"
+ *   basicflow
+ *     step S1 user EntersText system displaysText
+ *     step S2 as Customer as Admin user EntersNumber system displaysNumber reactWhile hasNumbers
+ *     step S3 system savesNumbers
+ *     step S4 includes "Included use case"
+ *     step S5 continuesAt S2
+ *   flow "Alternative flow" insteadOf S2 condition isSunday
+ *     step S2a on Holiday system closesShop
+ *   on Exception system logsException
+ *   condition isMidnight system resetsCounters
+ * </pre>
+ *
+ * <p>
+ * The declarations are:
+ *
+ * <ul>
+ * <li><code>usecase Name</code>: creates a use case, or continues it if it
+ * already exists</li>
+ * <li><code>basicflow [anytime | after Step | insteadOf Step] [condition
+ * Condition]</code>: continues with the basic flow of the current use
+ * case</li>
+ * <li><code>flow Name [anytime | after Step | insteadOf Step] [condition
+ * Condition]</code>: creates a flow in the current use case</li>
+ * <li><code>step Name [as Actor]... (user | on) EventClass system Reaction
+ * [reactWhile Condition]</code>: creates a step in the current flow, that
+ * reacts to events of a user actor, or of the system actor with
+ * <code>on</code></li>
+ * <li><code>step Name [as Actor]... system Reaction [reactWhile
+ * Condition]</code>: creates a step with an autonomous system reaction</li>
+ * <li><code>step Name [as Actor]... (continuesAt | continuesAfter |
+ * continuesWithoutAlternativeAt) Step</code>: creates a step that continues
+ * at another step</li>
+ * <li><code>step Name includes UseCase</code>: creates a step that includes
+ * another use case</li>
+ * <li><code>[condition Condition] on EventClass system Reaction</code>: creates
+ * a step without a flow in the current use case</li>
+ * <li><code>condition Condition system Reaction</code>: creates a step
+ * without a flow, with an autonomous system reaction</li>
+ * </ul>
+ *
+ * <p>
+ * Steps and flows can only reference steps declared before, except for the
+ * steps that the runner continues at. Actors are created when they are first
+ * referenced.
+ *
+ * @author b_muth
+ */
+public class ModelLoader {
+    private static final String USE_CASE = "usecase";
+    private static final String BASIC_FLOW = "basicflow";
+    private static final String FLOW = "flow";
+    private static final String STEP = "step";
+    private static final String ANYTIME = "anytime";
+    private static final String AFTER = "after";
+    private static final String INSTEAD_OF = "insteadOf";
+    private static final String CONDITION = "condition";
+    private static final String AS = "as";
+    private static final String USER = "user";
+    private static final String ON = "on";
+    private static final String SYSTEM = "system";
+    private static final String REACT_WHILE = "reactWhile";
+    private static final String INCLUDES = "includes";
+    private static final String CONTINUES_AT = "continuesAt";
+    private static final String CONTINUES_AFTER = "continuesAfter";
+    private static final String CONTINUES_WITHOUT_ALTERNATIVE_AT = "continuesWithoutAlternativeAt";
+
+    private final ModelRegistry registry;
+
+    /**
+     * Creates a loader that looks up the names in the specified registry.
+     *
+     * @param registry
+     *            the registry
+     */
+    public ModelLoader(ModelRegistry registry) {
+	this.registry = Objects.requireNonNull(registry);
+    }
+
+    /**
+     * Reads the model file from the specified reader, and builds the model.
+     *
+     * @param reader
+     *            the reader of the model file, not closed by this method
+     * @return the built model
+     * @throws IOException
+     *             if the file can't be read
+     * @throws InvalidModelFile
+     *             if a line of the file is invalid
+     */
+    public Model load(Reader reader) throws IOException {
+	Objects.requireNonNull(reader);
+	BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader
+		: new BufferedReader(reader);
+
+	ModelFileBuilder modelFileBuilder = new ModelFileBuilder();
+	int lineNumber = 0;
+	String line;
+	while ((line = bufferedReader.readLine()) != null) {
+	    lineNumber++;
+	    Declaration declaration = new Declaration(lineNumber, line);
+	    if (declaration.hasMoreWords()) {
+		modelFileBuilder.add(declaration);
+	    }
+	}
+	Model model = modelFileBuilder.build();
+	return model;
+    }
+
+    /**
+     * Builds the model, declaration by declaration. Keeps the parts of the
+     * current use case and flow.
+     */
+    private class ModelFileBuilder {
+	private final ModelBuilder modelBuilder;
+	private UseCasePart useCasePart;
+	private FlowPart flowPart;
+	private FlowPositionPart flowPositionPart;
+	private Condition flowCondition;
+	private boolean hasFlowSteps;
+	private UseCasePart.FlowlessSystemPart<?> flowlessSystemPart;
+
+	ModelFileBuilder() {
+	    this.modelBuilder = Model.builder();
+	}
+
+	void add(Declaration declaration) {
+	    try {
+		String keyword = declaration.nextWord();
+		if (USE_CASE.equals(keyword)) {
+		    useCase(declaration);
+		} else if (BASIC_FLOW.equals(keyword)) {
+		    flow(currentUseCasePart(declaration).basicFlow(), declaration);
+		} else if (FLOW.equals(keyword)) {
+		    flow(currentUseCasePart(declaration).flow(declaration.nextWord()), declaration);
+		} else if (STEP.equals(keyword)) {
+		    step(declaration);
+		} else if (ON.equals(keyword) || CONDITION.equals(keyword)) {
+		    flowlessStep(keyword, declaration);
+		} else {
+		    throw declaration.invalid("Unknown keyword " + keyword);
+		}
+		declaration.expectEnd();
+	    } catch (InvalidModelFile e) {
+		throw e;
+	    } catch (RuntimeException e) {
+		throw declaration.invalid(e);
+	    }
+	}
+
+	Model build() {
+	    Model model = modelBuilder.build();
+	    return model;
+	}
+
+	private void useCase(Declaration declaration) {
+	    useCasePart = modelBuilder.useCase(declaration.nextWord());
+	    flowPart = null;
+	    flowlessSystemPart = null;
+	}
+
+	private void flow(FlowPart newFlowPart, Declaration declaration) {
+	    flowPart = newFlowPart;
+	    flowPositionPart = null;
+	    flowCondition = null;
+	    hasFlowSteps = false;
+
+	    if (declaration.nextWordIs(ANYTIME)) {
+		flowPositionPart = flowPart.anytime();
+	    } else if (declaration.nextWordIs(AFTER)) {
+		flowPositionPart = flowPart.after(declaration.nextWord());
+	    } else if (declaration.nextWordIs(INSTEAD_OF)) {
+		flowPositionPart = flowPart.insteadOf(declaration.nextWord());
+	    }
+	    if (declaration.nextWordIs(CONDITION)) {
+		flowCondition = declaration.nextCondition();
+	    }
+	}
+
+	private void step(Declaration declaration) {
+	    if (flowPart == null) {
+		throw declaration.invalid("Step outside of a flow");
+	    }
+	    StepPart stepPart = newStepPart(declaration.nextWord());
+
+	    List<Actor> actors = new ArrayList<>();
+	    while (declaration.nextWordIs(AS)) {
+		actors.add(modelBuilder.actor(declaration.nextWord()));
+	    }
+	    StepAsPart stepAsPart = actors.isEmpty() ? null : stepPart.as(actors.toArray(new Actor[0]));
+
+	    String keyword = declaration.nextWord();
+	    if (INCLUDES.equals(keyword) && stepAsPart == null) {
+		stepPart.includesUseCase(declaration.nextWord());
+	    } else if (CONTINUES_AT.equals(keyword)) {
+		String stepName = declaration.nextWord();
+		if (stepAsPart == null) {
+		    stepPart.continuesAt(stepName);
+		} else {
+		    stepAsPart.continuesAt(stepName);
+		}
+	    } else if (CONTINUES_AFTER.equals(keyword)) {
+		String stepName = declaration.nextWord();
+		if (stepAsPart == null) {
+		    stepPart.continuesAfter(stepName);
+		} else {
+		    stepAsPart.continuesAfter(stepName);
+		}
+	    } else if (CONTINUES_WITHOUT_ALTERNATIVE_AT.equals(keyword)) {
+		String stepName = declaration.nextWord();
+		if (stepAsPart == null) {
+		    stepPart.continuesWithoutAlternativeAt(stepName);
+		} else {
+		    stepAsPart.continuesWithoutAlternativeAt(stepName);
+		}
+	    } else if (SYSTEM.equals(keyword)) {
+		Runnable systemReaction = declaration.nextAutonomousSystemReaction();
+		StepSystemPart<?> systemPart = stepAsPart == null ? stepPart.system(systemReaction)
+			: stepAsPart.system(systemReaction);
+		reactWhileIfPresent(systemPart, declaration);
+	    } else if (USER.equals(keyword) || ON.equals(keyword)) {
+		Class<Object> eventClass = declaration.nextEventClass();
+		declaration.expectWord(SYSTEM);
+		StepSystemPart<?> systemPart;
+		if (ON.equals(keyword)) {
+		    systemPart = stepPart.on(eventClass).system(declaration.nextSystemReaction());
+		} else if (stepAsPart == null) {
+		    systemPart = stepPart.user(eventClass).system(declaration.nextSystemReaction());
+		} else {
+		    systemPart = stepAsPart.user(eventClass).system(declaration.nextSystemReaction());
+		}
+		reactWhileIfPresent(systemPart, declaration);
+	    } else {
+		throw declaration.invalid("Unexpected " + keyword);
+	    }
+	}
+
+	private StepPart newStepPart(String stepName) {
+	    StepPart stepPart;
+	    if (hasFlowSteps) {
+		stepPart = flowPart.step(stepName);
+	    } else if (flowPositionPart != null) {
+		stepPart = flowCondition != null ? flowPositionPart.condition(flowCondition).step(stepName)
+			: flowPositionPart.step(stepName);
+	    } else {
+		stepPart = flowCondition != null ? flowPart.condition(flowCondition).step(stepName)
+			: flowPart.step(stepName);
+	    }
+	    hasFlowSteps = true;
+	    return stepPart;
+	}
+
+	private void reactWhileIfPresent(StepSystemPart<?> systemPart, Declaration declaration) {
+	    if (declaration.nextWordIs(REACT_WHILE)) {
+		systemPart.reactWhile(declaration.nextCondition());
+	    }
+	}
+
+	private void flowlessStep(String keyword, Declaration declaration) {
+	    UseCasePart currentUseCasePart = currentUseCasePart(declaration);
+	    flowPart = null;
+	    if (ON.equals(keyword)) {
+		Class<Object> eventClass = declaration.nextEventClass();
+		declaration.expectWord(SYSTEM);
+		UseCasePart.FlowlessUserPart<Object> userPart = flowlessSystemPart == null
+			? currentUseCasePart.on(eventClass)
+			: flowlessSystemPart.on(eventClass);
+		flowlessSystemPart = userPart.system(declaration.nextSystemReaction());
+		return;
+	    }
+
+	    Condition condition = declaration.nextCondition();
+	    UseCasePart.ConditionPart conditionPart = flowlessSystemPart == null
+		    ? currentUseCasePart.condition(condition)
+		    : flowlessSystemPart.condition(condition);
+	    String nextKeyword = declaration.nextWord();
+	    if (ON.equals(nextKeyword)) {
+		Class<Object> eventClass = declaration.nextEventClass();
+		declaration.expectWord(SYSTEM);
+		flowlessSystemPart = conditionPart.on(eventClass).system(declaration.nextSystemReaction());
+	    } else if (SYSTEM.equals(nextKeyword)) {
+		flowlessSystemPart = conditionPart.system(declaration.nextAutonomousSystemReaction());
+	    } else {
+		throw declaration.invalid("Unexpected " + nextKeyword);
+	    }
+	}
+
+	private UseCasePart currentUseCasePart(Declaration declaration) {
+	    if (useCasePart == null) {
+		throw declaration.invalid("Declaration outside of a use case");
+	    }
+	    return useCasePart;
+	}
+    }
+
+    /**
+     * A line of the model file, split into words.
+     */
+    private class Declaration {
+	private final int lineNumber;
+	private final String line;
+	private final List<String> words;
+	private int wordIndex;
+
+	Declaration(int lineNumber, String line) {
+	    this.lineNumber = lineNumber;
+	    this.line = line;
+	    this.words = split(line);
+	}
+
+	private List<String> split(String line) {
+	    List<String> words = new ArrayList<>();
+	    int i = 0;
+	    while (i < line.length()) {
+		char c = line.charAt(i);
+		if (Character.isWhitespace(c)) {
+		    i++;
+		} else if (c == '#') {
+		    break;
+		} else if (c == '"') {
+		    int endQuote = line.indexOf('"', i + 1);
+		    if (endQuote < 0) {
+			throw invalid("Missing closing quote");
+		    }
+		    words.add(line.substring(i + 1, endQuote));
+		    i = endQuote + 1;
+		} else {
+		    int end = i;
+		    while (end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+			end++;
+		    }
+		    words.add(line.substring(i, end));
+		    i = end;
+		}
+	    }
+	    return words;
+	}
+
+	boolean hasMoreWords() {
+	    return wordIndex < words.size();
+	}
+
+	String nextWord() {
+	    if (!hasMoreWords()) {
+		throw invalid("Line ends unexpectedly");
+	    }
+	    return words.get(wordIndex++);
+	}
+
+	boolean nextWordIs(String keyword) {
+	    boolean isKeyword = hasMoreWords() && keyword.equals(words.get(wordIndex));
+	    if (isKeyword) {
+		wordIndex++;
+	    }
+	    return isKeyword;
+	}
+
+	void expectWord(String keyword) {
+	    if (!nextWordIs(keyword)) {
+		throw invalid("Expected " + keyword);
+	    }
+	}
+
+	void expectEnd() {
+	    if (hasMoreWords()) {
+		throw invalid("Unexpected " + words.get(wordIndex));
+	    }
+	}
+
+	@SuppressWarnings("unchecked")
+	Class<Object> nextEventClass() {
+	    String name = nextWord();
+	    Class<?> eventClass = registry.getEventClass(name);
+	    if (eventClass == null) {
+		throw invalid("Event class not registered: " + name);
+	    }
+	    return (Class<Object>) eventClass;
+	}
+
+	Condition nextCondition() {
+	    String name = nextWord();
+	    Condition condition = registry.getCondition(name);
+	    if (condition == null) {
+		throw invalid("Condition not registered: " + name);
+	    }
+	    return condition;
+	}
+
+	@SuppressWarnings("unchecked")
+	Consumer<Object> nextSystemReaction() {
+	    String name = nextWord();
+	    Consumer<?> systemReaction = registry.getSystemReaction(name);
+	    if (systemReaction == null) {
+		throw invalid("System reaction not registered: " + name);
+	    }
+	    return (Consumer<Object>) systemReaction;
+	}
+
+	Runnable nextAutonomousSystemReaction() {
+	    String name = nextWord();
+	    Runnable systemReaction = registry.getAutonomousSystemReaction(name);
+	    if (systemReaction == null) {
+		throw invalid("Autonomous system reaction not registered: " + name);
+	    }
+	    return systemReaction;
+	}
+
+	InvalidModelFile invalid(String reason) {
+	    return new InvalidModelFile(lineNumber, line, reason);
+	}
+
+	InvalidModelFile invalid(RuntimeException cause) {
+	    return new InvalidModelFile(lineNumber, line, cause);
+	}
+    }
+}
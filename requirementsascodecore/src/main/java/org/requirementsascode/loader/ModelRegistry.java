@@ -0,0 +1,128 @@
+package org.requirementsascode.loader;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.requirementsascode.Condition;
+
+/**
+ * The event classes, conditions and system reactions that a model file
+ * references by name, for a {@link ModelLoader}.
+ *
+ * <p>
+ * A registry isn't thread-safe while it's filled. After that, any number of
+ * loaders on different threads can share it.
+ *
+ * @author b_muth
+ */
+public class ModelRegistry {
+    private final Map<String, Class<?>> nameToEventClassMap;
+    private final Map<String, Condition> nameToConditionMap;
+    private final Map<String, Consumer<?>> nameToSystemReactionMap;
+    private final Map<String, Runnable> nameToAutonomousSystemReactionMap;
+
+    /**
+     * Creates an empty registry.
+     */
+    public ModelRegistry() {
+	this.nameToEventClassMap = new HashMap<>();
+	this.nameToConditionMap = new HashMap<>();
+	this.nameToSystemReactionMap = new HashMap<>();
+	this.nameToAutonomousSystemReactionMap = new HashMap<>();
+    }
+
+    /**
+     * Registers the specified event class by its simple name.
+     *
+     * @param eventClass
+     *            the class of events or commands
+     * @return this registry, for method chaining
+     */
+    public ModelRegistry eventClass(Class<?> eventClass) {
+	return eventClass(eventClass.getSimpleName(), eventClass);
+    }
+
+    /**
+     * Registers the specified event class by the specified name.
+     *
+     * @param name
+     *            the name used in model files
+     * @param eventClass
+     *            the class of events or commands
+     * @return this registry, for method chaining
+     */
+    public ModelRegistry eventClass(String name, Class<?> eventClass) {
+	nameToEventClassMap.put(Objects.requireNonNull(name), Objects.requireNonNull(eventClass));
+	return this;
+    }
+
+    /**
+     * Registers the specified condition by the specified name.
+     *
+     * @param name
+     *            the name used in model files
+     * @param condition
+     *            the condition
+     * @return this registry, for method chaining
+     */
+    public ModelRegistry condition(String name, Condition condition) {
+	nameToConditionMap.put(Objects.requireNonNull(name), Objects.requireNonNull(condition));
+	return this;
+    }
+
+    /**
+     * Registers the specified system reaction by the specified name. The system
+     * reaction must accept events of the classes of the steps it is bound to.
+     *
+     * @param name
+     *            the name used in model files
+     * @param systemReaction
+     *            the system reaction
+     * @return this registry, for method chaining
+     */
+    public ModelRegistry systemReaction(String name, Consumer<?> systemReaction) {
+	nameToSystemReactionMap.put(Objects.requireNonNull(name), Objects.requireNonNull(systemReaction));
+	return this;
+    }
+
+    /**
+     * Registers the specified system reaction, that doesn't need the event, by
+     * the specified name. It can be bound to steps with an event class, and to
+     * steps with an autonomous system reaction.
+     *
+     * @param name
+     *            the name used in model files
+     * @param systemReaction
+     *            the system reaction
+     * @return this registry, for method chaining
+     */
+    public ModelRegistry systemReaction(String name, Runnable systemReaction) {
+	nameToAutonomousSystemReactionMap.put(Objects.requireNonNull(name), Objects.requireNonNull(systemReaction));
+	return this;
+    }
+
+    Class<?> getEventClass(String name) {
+	return nameToEventClassMap.get(name);
+    }
+
+    Condition getCondition(String name) {
+	return nameToConditionMap.get(name);
+    }
+
+    Consumer<?> getSystemReaction(String name) {
+	Consumer<?> systemReaction = nameToSystemReactionMap.get(name);
+	if (systemReaction == null) {
+	    Runnable autonomousSystemReaction = nameToAutonomousSystemReactionMap.get(name);
+	    if (autonomousSystemReaction != null) {
+		systemReaction = event -> autonomousSystemReaction.run();
+	    }
+	}
+	return systemReaction;
+    }
+
+    Runnable getAutonomousSystemReaction(String name) {
+	return nameToAutonomousSystemReactionMap.get(name);
+    }
+}
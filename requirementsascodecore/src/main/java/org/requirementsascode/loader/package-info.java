@@ -0,0 +1,9 @@
+/**
+ * Loader package of requirementsascode, containing a loader that builds a
+ * {@link org.requirementsascode.Model} from a declarative text file, with the
+ * event classes, conditions and system reactions bound by name from a
+ * registry.
+ *
+ * @author b_muth
+ */
+package org.requirementsascode.loader;
@@ -3,10 +3,16 @@ package org.requirementsascode;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
+import org.requirementsascode.journal.EventJournalTest;
+import org.requirementsascode.loader.ModelLoaderTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ BuildModelTest.class, RunStopAndRestartTest.class, FlowTest.class, CanReactToTest.class, ReactToTypesTest.class, FlowlessTest.class,
 	ExceptionsThrownTest.class, ExceptionHandlingTest.class, NonStandardEventHandlingTest.class,
-	IncludesTest.class, RecordingTest.class })
+	IncludesTest.class, RecordingTest.class, AllocationTest.class,
+	ConcurrentRunnersTest.class, ConditionMemoizationTest.class, ReactToAllTest.class, RunnerStateCodecTest.class,
+	AsyncModelRunnerTest.class, PartitionedRunnerPoolTest.class, RunnerPipelineTest.class, LatencyHistogramTest.class,
+	RunnerMetricsTest.class, AmbiguityAnalyzerTest.class, DispatchEngineTest.class,
+	DispatchEngineComparisonTest.class, EventJournalTest.class, ModelLoaderTest.class })
 public class AllTests {
 }
@@ -0,0 +1,112 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AllocationTest extends AbstractTestCase {
+	private static final int WARMUP_CYCLES = 20000;
+	private static final int MEASURED_CYCLES = 10000;
+	private static final int SPAWNED_RUNNERS = 10000;
+	// A spawned runner that doesn't record takes 112 bytes with compressed object
+	// pointers: 80 bytes for the runner, and 32 bytes for its state.
+	private static final int MAX_BYTES_PER_SPAWNED_RUNNER = 200;
+
+	private com.sun.management.ThreadMXBean threadMXBean;
+	private int timesTextEntered;
+	private int timesNumberEntered;
+
+	@Before
+	public void setup() {
+		this.modelRunner = new ModelRunner();
+		this.modelBuilder = Model.builder();
+		this.customer = modelBuilder.actor(CUSTOMER);
+
+		java.lang.management.ThreadMXBean platformThreadMXBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(platformThreadMXBean instanceof com.sun.management.ThreadMXBean);
+		this.threadMXBean = (com.sun.management.ThreadMXBean) platformThreadMXBean;
+		assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	@Test
+	public void reactingToEventsInSteadyStateDoesntAllocateMemory() {
+		Model model = modelBuilder
+			.useCase(INCLUDED_USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(this::countsEnteredNumber)
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(this::countsEnteredText)
+					.step(SYSTEM_INCLUDES_USE_CASE).includesUseCase(INCLUDED_USE_CASE)
+					.step(CONTINUE).continuesAt(CUSTOMER_ENTERS_TEXT)
+				.flow(ALTERNATIVE_FLOW).insteadOf(CONTINUE).condition(() -> false)
+					.step(THIS_STEP_SHOULD_BE_SKIPPED).system(displaysConstantText())
+			.build();
+
+		EntersText entersText = entersText();
+		EntersNumber entersNumber = entersNumber();
+		modelRunner.run(model);
+
+		reactToEvents(WARMUP_CYCLES, entersText, entersNumber);
+
+		long bytesAllocatedBefore = currentThreadAllocatedBytes();
+		reactToEvents(MEASURED_CYCLES, entersText, entersNumber);
+		long bytesAllocated = currentThreadAllocatedBytes() - bytesAllocatedBefore;
+
+		assertEquals(WARMUP_CYCLES + MEASURED_CYCLES, timesTextEntered);
+		assertEquals(WARMUP_CYCLES + MEASURED_CYCLES, timesNumberEntered);
+		assertTrue("Allocated " + bytesAllocated + " bytes in " + MEASURED_CYCLES + " cycles",
+			bytesAllocated < MEASURED_CYCLES);
+	}
+
+	@Test
+	public void spawningRunnerAllocatesFewBytes() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(this::countsEnteredText)
+			.build();
+		modelRunner.run(model);
+
+		ModelRunner[] spawnedRunners = new ModelRunner[SPAWNED_RUNNERS];
+		spawnRunners(spawnedRunners);
+
+		long bytesAllocatedBefore = currentThreadAllocatedBytes();
+		spawnRunners(spawnedRunners);
+		long bytesPerRunner = (currentThreadAllocatedBytes() - bytesAllocatedBefore) / SPAWNED_RUNNERS;
+
+		assertTrue("Allocated " + bytesPerRunner + " bytes per runner", bytesPerRunner < MAX_BYTES_PER_SPAWNED_RUNNER);
+	}
+
+	private void spawnRunners(ModelRunner[] spawnedRunners) {
+		for (int i = 0; i < spawnedRunners.length; i++) {
+			spawnedRunners[i] = modelRunner.spawn();
+		}
+	}
+
+	private void reactToEvents(int cycles, EntersText entersText, EntersNumber entersNumber) {
+		for (int i = 0; i < cycles; i++) {
+			modelRunner.reactTo(entersText);
+			modelRunner.reactTo(entersNumber);
+		}
+	}
+
+	private long currentThreadAllocatedBytes() {
+		long allocatedBytes = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		return allocatedBytes;
+	}
+
+	private void countsEnteredText(EntersText entersText) {
+		timesTextEntered++;
+	}
+
+	private void countsEnteredNumber(EntersNumber entersNumber) {
+		timesNumberEntered++;
+	}
+}
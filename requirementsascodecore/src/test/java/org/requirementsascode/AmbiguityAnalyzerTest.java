@@ -0,0 +1,119 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AmbiguityAnalyzerTest extends AbstractTestCase {
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+    }
+
+    @Test
+    public void findsNoAmbiguityInBasicFlow() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+
+	assertTrue(new AmbiguityAnalyzer(model).analyze().isEmpty());
+    }
+
+    @Test
+    public void findsNoAmbiguityIfInterruptingStepReactsToSameEventClass() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+			.flow(ALTERNATIVE_FLOW).insteadOf(CUSTOMER_ENTERS_TEXT_AGAIN).condition(this::textIsAvailable)
+				.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	assertTrue(new AmbiguityAnalyzer(model).analyze().isEmpty());
+    }
+
+    @Test
+    public void findsNoAmbiguityBetweenStepsOfDifferentActors() {
+	Actor anotherActor = modelBuilder.actor("Another actor");
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow().anytime()
+				.step(CUSTOMER_ENTERS_TEXT).as(customer).user(EntersText.class).system(displaysEnteredText())
+			.flow(ALTERNATIVE_FLOW).anytime()
+				.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).as(anotherActor).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	assertTrue(new AmbiguityAnalyzer(model).analyze().isEmpty());
+    }
+
+    @Test
+    public void findsCertainAmbiguityOfStepsWithoutConditions() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow().anytime()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.flow(ALTERNATIVE_FLOW).anytime()
+				.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	List<Ambiguity> ambiguities = new AmbiguityAnalyzer(model).analyze();
+
+	assertEquals(1, ambiguities.size());
+	Ambiguity ambiguity = ambiguities.get(0);
+	assertEquals(CUSTOMER_ENTERS_TEXT, ambiguity.getFirstStep().getName());
+	assertEquals(CUSTOMER_ENTERS_ALTERNATIVE_TEXT, ambiguity.getSecondStep().getName());
+	assertEquals(EntersText.class, ambiguity.getEventClass());
+	assertTrue(ambiguity.isAmbiguousAtStart());
+	assertTrue(ambiguity.isCertain());
+    }
+
+    @Test
+    public void reportsConditionsOfAmbiguousSteps() {
+	Condition textIsAvailable = this::textIsAvailable;
+	Condition textIsNotAvailable = this::textIsNotAvailable;
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.condition(textIsAvailable).on(EntersText.class).system(displaysEnteredText())
+			.condition(textIsNotAvailable).on(Object.class).system(object -> {})
+			.on(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+
+	List<Ambiguity> ambiguities = new AmbiguityAnalyzer(model).analyze();
+
+	assertEquals(2, ambiguities.size());
+	Ambiguity ambiguity = ambiguities.get(0);
+	assertEquals(EntersText.class, ambiguity.getEventClass());
+	assertEquals(Arrays.asList(textIsAvailable, textIsNotAvailable), ambiguity.getConditions());
+	assertFalse(ambiguity.isCertain());
+	assertEquals(3, ambiguity.getLatestSteps().size());
+	Ambiguity otherAmbiguity = ambiguities.get(1);
+	assertEquals(EntersNumber.class, otherAmbiguity.getEventClass());
+	assertEquals(Arrays.asList(textIsNotAvailable), otherAmbiguity.getConditions());
+    }
+
+    @Test
+    public void runsFirstStepThatCanReactInFirstMatchDispatch() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.on(EntersText.class).system(displaysEnteredText())
+			.on(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	modelRunner.startFirstMatchDispatch().run(model);
+	modelRunner.reactTo(entersText());
+
+	assertEquals(1, modelRunner.getRecordedStepNames().length);
+	assertEquals(model.getSteps().iterator().next().getName(), modelRunner.getRecordedStepNames()[0]);
+    }
+}
@@ -0,0 +1,145 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+public class AsyncModelRunnerTest extends AbstractTestCase {
+    private static final int THREADS = 4;
+    private static final int PRODUCERS = 8;
+    private static final int EVENTS_PER_PRODUCER = 1000;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+	this.executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+	executor.shutdownNow();
+    }
+
+    @Test
+    public void completesFutureWithLatestStep() throws Exception {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText())
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+
+	AsyncModelRunner asyncModelRunner = new AsyncModelRunner(modelRunner.run(model), executor);
+	CompletableFuture<Optional<Step>> futureTextStep = asyncModelRunner.reactToAsync(entersText());
+	CompletableFuture<Optional<Step>> futureNumberStep = asyncModelRunner.reactToAsync(entersNumber());
+
+	assertEquals(SYSTEM_DISPLAYS_TEXT, stepName(futureTextStep));
+	assertEquals(CUSTOMER_ENTERS_NUMBER, stepName(futureNumberStep));
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, SYSTEM_DISPLAYS_TEXT, CUSTOMER_ENTERS_NUMBER);
+    }
+
+    @Test
+    public void reactsToEventsOfManyThreadsSequentially() throws Exception {
+	List<String> texts = new ArrayList<>();
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(entersText -> texts.add(entersText.value()))
+		.build();
+
+	AsyncModelRunner asyncModelRunner = new AsyncModelRunner(modelRunner.run(model), executor);
+	ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+	try {
+	    List<Future<CompletableFuture<Optional<Step>>>> lastFutures = new ArrayList<>();
+	    for (int producer = 0; producer < PRODUCERS; producer++) {
+		String prefix = producer + ":";
+		lastFutures.add(producers.submit(() -> {
+		    CompletableFuture<Optional<Step>> lastFuture = null;
+		    for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+			lastFuture = asyncModelRunner.reactToAsync(new EntersText(prefix + i));
+		    }
+		    return lastFuture;
+		}));
+	    }
+	    for (Future<CompletableFuture<Optional<Step>>> lastFuture : lastFutures) {
+		lastFuture.get().get(10, TimeUnit.SECONDS);
+	    }
+	} finally {
+	    producers.shutdownNow();
+	}
+
+	assertEquals(PRODUCERS * EVENTS_PER_PRODUCER, texts.size());
+	int[] nextNumberOfProducer = new int[PRODUCERS];
+	for (String text : texts) {
+	    String[] producerAndNumber = text.split(":");
+	    int producer = Integer.parseInt(producerAndNumber[0]);
+	    assertEquals(nextNumberOfProducer[producer]++, Integer.parseInt(producerAndNumber[1]));
+	}
+    }
+
+    @Test
+    public void manyRunnersShareExecutor() throws Exception {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+
+	List<AsyncModelRunner> asyncModelRunners = new ArrayList<>();
+	for (int i = 0; i < 1000; i++) {
+	    asyncModelRunners.add(new AsyncModelRunner(new ModelRunner().startRecording().run(model), executor));
+	}
+	List<CompletableFuture<Optional<Step>>> lastFutures = new ArrayList<>();
+	for (AsyncModelRunner asyncModelRunner : asyncModelRunners) {
+	    asyncModelRunner.reactToAsync(entersText());
+	    lastFutures.add(asyncModelRunner.reactToAsync(entersNumber()));
+	}
+
+	for (CompletableFuture<Optional<Step>> lastFuture : lastFutures) {
+	    assertEquals(CUSTOMER_ENTERS_NUMBER, stepName(lastFuture));
+	}
+	for (AsyncModelRunner asyncModelRunner : asyncModelRunners) {
+	    assertEquals(2, asyncModelRunner.getModelRunner().getRecordedStepNames().length);
+	}
+    }
+
+    @Test
+    public void completesFutureExceptionallyAndReactsToNextEvent() throws Exception {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(displaysEnteredText())
+		.on(EntersText.class).system(displaysEnteredText())
+		.on(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+
+	AsyncModelRunner asyncModelRunner = new AsyncModelRunner(modelRunner.run(model), executor);
+	CompletableFuture<Optional<Step>> futureTextStep = asyncModelRunner.reactToAsync(entersText());
+	CompletableFuture<Optional<Step>> futureNumberStep = asyncModelRunner.reactToAsync(entersNumber());
+
+	try {
+	    futureTextStep.get(10, TimeUnit.SECONDS);
+	} catch (ExecutionException e) {
+	    assertTrue(e.getCause() instanceof MoreThanOneStepCanReact);
+	}
+	assertTrue(futureTextStep.isCompletedExceptionally());
+	assertEquals("S3", stepName(futureNumberStep));
+    }
+
+    private String stepName(CompletableFuture<Optional<Step>> futureStep) throws Exception {
+	String stepName = futureStep.get(10, TimeUnit.SECONDS).map(Step::getName).orElse(null);
+	return stepName;
+    }
+}
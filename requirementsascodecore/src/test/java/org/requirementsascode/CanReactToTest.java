@@ -69,4 +69,23 @@ public class CanReactToTest extends AbstractTestCase {
 	Set<Step> stepsThatCanReact = modelRunner.getStepsThatCanReactTo(entersText().getClass());
 	assertEquals(2, stepsThatCanReact.size());
     }
+
+    @Test
+    public void onlyConditionsOfStepsForEventClassAreEvaluated() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow().anytime()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.flow(ALTERNATIVE_FLOW).anytime().condition(this::mustNotBeEvaluated)
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+
+	modelRunner.run(model);
+
+	boolean canReact = modelRunner.canReactTo(entersText().getClass());
+	assertTrue(canReact);
+    }
+
+    private boolean mustNotBeEvaluated() {
+	throw new AssertionError("Condition of step for other event class evaluated");
+    }
 }
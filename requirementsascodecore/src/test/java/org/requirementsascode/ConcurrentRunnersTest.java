@@ -0,0 +1,84 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentRunnersTest extends AbstractTestCase {
+    private static final int THREADS = 8;
+    private static final int RUNNERS = 64;
+    private static final int CYCLES = 500;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+	this.executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+	executor.shutdownNow();
+    }
+
+    @Test
+    public void runnersOnDifferentThreadsShareModel() throws Exception {
+	Model model = modelBuilder
+		.useCase(INCLUDED_USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(e -> {})
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(e -> {})
+				.step(SYSTEM_INCLUDES_USE_CASE).includesUseCase(INCLUDED_USE_CASE)
+				.step(CONTINUE).continuesAt(CUSTOMER_ENTERS_TEXT)
+			.flow(ALTERNATIVE_FLOW).insteadOf(CONTINUE).condition(() -> false)
+				.step(THIS_STEP_SHOULD_BE_SKIPPED).system(() -> {})
+		.build();
+
+	List<Future<String[]>> recordedStepNamesOfRunners = new ArrayList<>();
+	for (int i = 0; i < RUNNERS; i++) {
+	    recordedStepNamesOfRunners.add(executor.submit(runnerReactingToEvents(model)));
+	}
+
+	String[] expectedStepNames = expectedStepNames();
+	for (Future<String[]> recordedStepNames : recordedStepNamesOfRunners) {
+	    assertArrayEquals(expectedStepNames, recordedStepNames.get());
+	}
+    }
+
+    private Callable<String[]> runnerReactingToEvents(Model model) {
+	return () -> {
+	    ModelRunner runner = new ModelRunner().startRecording();
+	    runner.run(model);
+
+	    EntersText entersText = entersText();
+	    EntersNumber entersNumber = entersNumber();
+	    for (int cycle = 0; cycle < CYCLES; cycle++) {
+		runner.reactTo(entersText, entersNumber);
+	    }
+	    return runner.getRecordedStepNames();
+	};
+    }
+
+    private String[] expectedStepNames() {
+	List<String> expectedStepNames = new ArrayList<>();
+	for (int cycle = 0; cycle < CYCLES; cycle++) {
+	    expectedStepNames.add(CUSTOMER_ENTERS_TEXT);
+	    expectedStepNames.add(SYSTEM_INCLUDES_USE_CASE);
+	    expectedStepNames.add(CUSTOMER_ENTERS_NUMBER);
+	    expectedStepNames.add(CONTINUE);
+	}
+	return expectedStepNames.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,81 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConditionMemoizationTest extends AbstractTestCase {
+    private int conditionEvaluations;
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+	this.conditionEvaluations = 0;
+    }
+
+    @Test
+    public void evaluatesSharedConditionOncePerEvent() {
+	Model model = modelWithSharedCondition();
+
+	modelRunner.startMemoizingConditions().run(model);
+	modelRunner.reactTo(entersText(), entersText());
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT_AGAIN);
+	assertEquals(1, conditionEvaluations);
+	assertEquals(1, modelRunner.getConditionEvaluations());
+	assertEquals(3, modelRunner.getSavedConditionEvaluations());
+    }
+
+    @Test
+    public void evaluatesSharedConditionForEachStepWithoutMemoizing() {
+	Model model = modelWithSharedCondition();
+
+	modelRunner.run(model);
+	modelRunner.reactTo(entersText(), entersText());
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT_AGAIN);
+	assertEquals(4, conditionEvaluations);
+	assertEquals(0, modelRunner.getConditionEvaluations());
+	assertEquals(0, modelRunner.getSavedConditionEvaluations());
+    }
+
+    @Test
+    public void evaluatesConditionOfInterruptingStepOncePerEvent() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+			.flow(ALTERNATIVE_FLOW).after(CUSTOMER_ENTERS_TEXT).condition(this::isFalse)
+				.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	modelRunner.startMemoizingConditions().run(model);
+	modelRunner.reactTo(entersText(), entersText());
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT_AGAIN);
+	assertEquals(1, modelRunner.getConditionEvaluations());
+	assertEquals(1, modelRunner.getSavedConditionEvaluations());
+    }
+
+    private Model modelWithSharedCondition() {
+	Condition sharedCondition = this::isFalse;
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+			.flow(ALTERNATIVE_FLOW).insteadOf(CUSTOMER_ENTERS_TEXT_AGAIN).condition(sharedCondition)
+				.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.flow(ALTERNATIVE_FLOW_2).after(CUSTOMER_ENTERS_TEXT).condition(sharedCondition)
+				.step(THIS_STEP_SHOULD_BE_SKIPPED).user(EntersText.class).system(displaysEnteredText())
+		.build();
+	return model;
+    }
+
+    private boolean isFalse() {
+	conditionEvaluations++;
+	return false;
+    }
+}
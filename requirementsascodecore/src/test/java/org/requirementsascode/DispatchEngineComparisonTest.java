@@ -0,0 +1,99 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.DispatchEnginesDiffer;
+
+public class DispatchEngineComparisonTest extends AbstractTestCase {
+    private static final long SEED = 42;
+
+    private int counter;
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+    }
+
+    @Test
+    public void linearScanEngineReactsLikeIndexedEngine() {
+	new DispatchEngineComparison(modelWithFlowsAndIncludes(), entersText(), entersNumber(), new Object())
+		.beforeEachRun(() -> counter = 0)
+		.compare(new IndexedDispatchEngine(), new LinearScanDispatchEngine(), SEED, 200, 20);
+    }
+
+    @Test
+    public void linearScanEngineReactsLikeIndexedEngineWithFirstMatchDispatch() {
+	new DispatchEngineComparison(modelWithFlowsAndIncludes(), entersText(), entersNumber(), new Object())
+		.beforeEachRun(() -> counter = 0)
+		.compare(() -> new ModelRunner().startFirstMatchDispatch(),
+			() -> new ModelRunner().startFirstMatchDispatch()
+				.startDispatchEngine(new LinearScanDispatchEngine()),
+			SEED, 200, 20);
+    }
+
+    @Test
+    public void firstMatchDispatchReactsLikeRunnerForModelWithoutAmbiguities() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(entersText -> counter++)
+				.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+				.step(CONTINUE).continuesAt(CUSTOMER_ENTERS_TEXT)
+			.flow(ALTERNATIVE_FLOW).insteadOf(CUSTOMER_ENTERS_NUMBER).condition(() -> counter % 3 == 0)
+				.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CONTINUE_2).continuesAt(CUSTOMER_ENTERS_TEXT)
+		.build();
+	assertTrue(new AmbiguityAnalyzer(model).analyze().isEmpty());
+
+	new DispatchEngineComparison(model, entersText(), entersNumber())
+		.beforeEachRun(() -> counter = 0)
+		.compare(ModelRunner::new, () -> new ModelRunner().startFirstMatchDispatch(), SEED, 200, 20);
+    }
+
+    @Test
+    public void throwsExceptionIfEnginesDiffer() {
+	DispatchEngine engineThatIgnoresText = (runner, eventClass) -> EntersText.class.equals(eventClass) ? null
+		: new IndexedDispatchEngine().selectStep(runner, eventClass);
+
+	try {
+	    new DispatchEngineComparison(modelWithFlowsAndIncludes(), entersNumber(), entersText())
+		    .beforeEachRun(() -> counter = 0)
+		    .compare(new IndexedDispatchEngine(), engineThatIgnoresText, SEED, 10, 10);
+	    fail();
+	} catch (DispatchEnginesDiffer e) {
+	    assertTrue(e.getMessage().contains("of seed " + SEED));
+	    assertTrue(e.getMessage().contains(CUSTOMER_ENTERS_TEXT));
+	}
+    }
+
+    private Model modelWithFlowsAndIncludes() {
+	Model model = modelBuilder
+		.useCase(INCLUDED_USE_CASE)
+			.basicFlow().condition(() -> counter % 2 == 1)
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(entersText -> counter += 2)
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(entersText -> counter++)
+				.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+				.step(SYSTEM_INCLUDES_USE_CASE).includesUseCase(INCLUDED_USE_CASE)
+				.step(SYSTEM_DISPLAYS_TEXT).system(() -> counter++).reactWhile(() -> counter % 4 != 0)
+				.step(CONTINUE).continuesAt(CUSTOMER_ENTERS_TEXT)
+			.flow(ALTERNATIVE_FLOW).insteadOf(CUSTOMER_ENTERS_NUMBER).condition(() -> counter % 4 == 1)
+				.step(CUSTOMER_ENTERS_NUMBER_AGAIN).user(EntersNumber.class).system(entersNumber -> {
+				    if (counter > 4) {
+					throw new IllegalStateException();
+				    }
+				})
+				.step(CONTINUE_2).continuesAfter(CUSTOMER_ENTERS_NUMBER)
+			.flow(ALTERNATIVE_FLOW_2).anytime().condition(() -> counter > 10)
+				.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(entersText -> counter = 0)
+		.useCase(USE_CASE_2)
+			.condition(() -> counter == 5).on(EntersNumber.class).system(displaysEnteredNumber())
+			.on(IllegalStateException.class).system(exception -> counter++)
+		.build();
+	return model;
+    }
+}
@@ -0,0 +1,114 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DispatchEngineTest extends AbstractTestCase {
+    private List<Class<?>> dispatchedEventClasses;
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+	this.dispatchedEventClasses = new ArrayList<>();
+    }
+
+    @Test
+    public void runsStepsSelectedByEngine() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+		.build();
+	Step stepAgain = model.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT_AGAIN);
+
+	modelRunner.startDispatchEngine((runner, eventClass) -> {
+	    dispatchedEventClasses.add(eventClass);
+	    return EntersText.class.equals(eventClass) ? stepAgain : null;
+	}).run(model);
+	modelRunner.reactTo(entersText());
+	modelRunner.spawn().reactTo(entersText());
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT_AGAIN);
+	assertTrue(dispatchedEventClasses.contains(ModelRunner.class));
+	assertEquals(2, dispatchedEventClasses.stream().filter(EntersText.class::equals).count());
+
+	modelRunner.stopDispatchEngine().reactTo(entersText());
+	assertEquals(2, dispatchedEventClasses.stream().filter(EntersText.class::equals).count());
+    }
+
+    @Test
+    public void dispatchesWithIndexedEngineByDefault() {
+	assertTrue(modelRunner.getDispatchEngine() instanceof IndexedDispatchEngine);
+
+	modelRunner.startDispatchEngine(new LinearScanDispatchEngine());
+	assertTrue(modelRunner.spawn().getDispatchEngine() instanceof LinearScanDispatchEngine);
+	assertTrue(modelRunner.stopDispatchEngine().getDispatchEngine() instanceof IndexedDispatchEngine);
+    }
+
+    @Test
+    public void selectsStepsOfBatchWithEngineForBatch() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+		.build();
+	DispatchEngine indexedDispatchEngine = new IndexedDispatchEngine();
+	DispatchEngine batchEngine = (runner, eventClass) -> {
+	    dispatchedEventClasses.add(eventClass);
+	    return indexedDispatchEngine.forBatch().selectStep(runner, eventClass);
+	};
+	modelRunner.startDispatchEngine(new DispatchEngine() {
+	    @Override
+	    public Step selectStep(ModelRunner modelRunner, Class<?> eventClass) {
+		return indexedDispatchEngine.selectStep(modelRunner, eventClass);
+	    }
+
+	    @Override
+	    public DispatchEngine forBatch() {
+		return batchEngine;
+	    }
+	}).run(model);
+	modelRunner.reactToAll(Arrays.asList(entersText(), entersText()).iterator());
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT_AGAIN);
+	assertEquals(Arrays.asList(EntersText.class, EntersText.class), dispatchedEventClasses);
+    }
+
+    @Test
+    public void providesStateOfRunnerToEngine() {
+	Model model = modelBuilder
+		.useCase(INCLUDED_USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(SYSTEM_INCLUDES_USE_CASE).includesUseCase(INCLUDED_USE_CASE)
+		.build();
+	UseCase includedUseCase = model.findUseCase(INCLUDED_USE_CASE);
+	List<ModelRunner> dispatchingRunners = new ArrayList<>();
+
+	modelRunner.as(customer).run(model);
+	modelRunner.startFirstMatchDispatch().startDispatchEngine((runner, eventClass) -> {
+	    dispatchingRunners.add(runner);
+	    assertEquals(customer, runner.getRunActor());
+	    assertEquals(SYSTEM_INCLUDES_USE_CASE, runner.getLatestStep().get().getName());
+	    assertEquals(includedUseCase, runner.getIncludedUseCase().get());
+	    assertTrue(runner.isFirstMatchDispatch());
+	    return null;
+	});
+	modelRunner.reactTo(entersText());
+
+	assertEquals(1, dispatchingRunners.size());
+	assertFalse(modelRunner.stopFirstMatchDispatch().isFirstMatchDispatch());
+    }
+}
@@ -1,5 +1,10 @@
 package org.requirementsascode;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -7,10 +12,13 @@ import org.junit.rules.ExpectedException;
 import org.requirementsascode.exception.ElementAlreadyInModel;
 import org.requirementsascode.exception.InfiniteRepetition;
 import org.requirementsascode.exception.MissingUseCaseStepPart;
+import org.requirementsascode.exception.ModelAlreadyBuilt;
 import org.requirementsascode.exception.MoreThanOneStepCanReact;
 import org.requirementsascode.exception.NoSuchElementInModel;
 
 public class ExceptionsThrownTest extends AbstractTestCase {
+    private int timesDisplayed;
+
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
@@ -143,6 +151,21 @@ public class ExceptionsThrownTest extends AbstractTestCase {
 	modelRunner.run(model);
     }
 
+    @Test
+    public void doesNotBuildModelIfActorPartIsNotSpecified() {
+	modelBuilder.useCase(USE_CASE).basicFlow().step(CUSTOMER_ENTERS_TEXT);
+
+	try {
+	    modelBuilder.build();
+	    fail();
+	} catch (MissingUseCaseStepPart e) {
+	    assertFalse(modelBuilder.getModel().isBuilt());
+	}
+
+	modelBuilder.useCase(USE_CASE_2);
+	assertTrue(modelBuilder.getModel().hasUseCase(USE_CASE_2));
+    }
+
     @Test
     public void throwsExceptionIfSystemPartIsNotSpecified() {
 	thrown.expect(MissingUseCaseStepPart.class);
@@ -185,4 +208,59 @@ public class ExceptionsThrownTest extends AbstractTestCase {
 				.step(SYSTEM_DISPLAYS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
 		.build();
     }
+
+    @Test
+    public void throwsExceptionWhenStepIsAddedAfterModelIsBuilt() {
+	thrown.expect(ModelAlreadyBuilt.class);
+
+	UseCasePart useCasePart = modelBuilder.useCase(USE_CASE);
+	useCasePart.basicFlow().step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText());
+	useCasePart.build();
+
+	useCasePart.basicFlow().step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText());
+    }
+
+    @Test
+    public void throwsExceptionWhenFlowPositionIsChangedAfterModelIsBuilt() {
+	thrown.expect(ModelAlreadyBuilt.class);
+
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	FlowStep firstStep = (FlowStep) model.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT);
+	FlowStep secondStep = (FlowStep) model.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT_AGAIN);
+	firstStep.orAfter(secondStep);
+    }
+
+    @Test
+    public void throwsExceptionWhenMaxStepsPerEventIsExceeded() {
+	thrown.expect(InfiniteRepetition.class);
+	thrown.expectMessage(SYSTEM_DISPLAYS_TEXT);
+
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(SYSTEM_DISPLAYS_TEXT).system(() -> timesDisplayed++)
+					.reactWhile(() -> timesDisplayed < 20)
+		.build();
+
+	modelRunner.setMaxStepsPerEvent(10).run(model);
+    }
+
+    @Test
+    public void doesntThrowExceptionWhenMaxStepsPerEventIsReached() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(SYSTEM_DISPLAYS_TEXT).system(() -> timesDisplayed++)
+					.reactWhile(() -> timesDisplayed < 10)
+		.build();
+
+	modelRunner.setMaxStepsPerEvent(10).run(model);
+
+	assertEquals(10, timesDisplayed);
+    }
 }
@@ -930,4 +930,30 @@ public class FlowTest extends AbstractTestCase{
 		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_ALTERNATIVE_TEXT, CONTINUE,
 			CUSTOMER_ENTERS_TEXT_AGAIN, CUSTOMER_ENTERS_NUMBER);
 	}
+
+	@Test
+	public void runsLongAutonomousLoopOnThreadWithSmallStack() throws Exception {
+		timesDisplayed = 0;
+		
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_DISPLAYS_TEXT).system(() -> timesDisplayed++)
+						.reactWhile(() -> timesDisplayed < 5000)
+			.build();
+		
+		Throwable[] thrown = new Throwable[1];
+		Thread threadWithSmallStack = new Thread(null, () -> {
+			try {
+				new ModelRunner().run(model);
+			} catch (Throwable t) {
+				thrown[0] = t;
+			}
+		}, "Thread with small stack", 64 * 1024);
+		threadWithSmallStack.start();
+		threadWithSmallStack.join();
+		
+		assertEquals(null, thrown[0]);
+		assertEquals(5000, timesDisplayed);
+	}
 }
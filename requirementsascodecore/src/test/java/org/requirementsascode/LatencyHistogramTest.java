@@ -0,0 +1,62 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+    @Test
+    public void returnsExactValuesForSmallLatencies() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	for (long nanos = 1; nanos <= 10; nanos++) {
+	    histogram.record(nanos);
+	}
+
+	assertEquals(10, histogram.getCount());
+	assertEquals(5, histogram.getValueAtPercentile(50));
+	assertEquals(10, histogram.getValueAtPercentile(100));
+	assertEquals(5.5, histogram.getMeanNanos(), 0.001);
+	assertEquals(10, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void returnsValuesWithinPrecisionForLargeLatencies() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	for (long nanos = 1000; nanos <= 1000000; nanos += 1000) {
+	    histogram.record(nanos);
+	}
+
+	assertWithinPrecision(500000, histogram.getValueAtPercentile(50));
+	assertWithinPrecision(990000, histogram.getValueAtPercentile(99));
+	assertEquals(1000000, histogram.getValueAtPercentile(100));
+	assertEquals(1000000, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void returnsZeroIfNoLatencyHasBeenRecorded() {
+	LatencyHistogram histogram = new LatencyHistogram();
+
+	assertEquals(0, histogram.getCount());
+	assertEquals(0, histogram.getValueAtPercentile(99));
+	assertEquals(0, histogram.getMeanNanos(), 0);
+    }
+
+    @Test
+    public void recordsHighestLatency() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	histogram.record(Long.MAX_VALUE);
+
+	assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsExceptionIfPercentileIsAbove100() {
+	new LatencyHistogram().getValueAtPercentile(101);
+    }
+
+    private void assertWithinPrecision(long expectedNanos, long actualNanos) {
+	assertTrue("Expected about " + expectedNanos + ", but was " + actualNanos,
+		actualNanos >= expectedNanos && actualNanos <= expectedNanos * 1.125);
+    }
+}
@@ -0,0 +1,155 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartitionedRunnerPoolTest extends AbstractTestCase {
+    private static final int KEYS = 100;
+    private static final int EVENTS_PER_KEY = 100;
+
+    private ForkJoinPool forkJoinPool;
+    private Model model;
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+	this.forkJoinPool = new ForkJoinPool(4, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	this.model = modelBuilder.useCase(USE_CASE)
+		.on(KeyedEvent.class).system(keyedEvent -> {
+		    if (keyedEvent.number < 0) {
+			throw new IllegalStateException("Negative number");
+		    }
+		})
+		.build();
+    }
+
+    @After
+    public void tearDown() {
+	forkJoinPool.shutdownNow();
+    }
+
+    @Test
+    public void reactsToEventsOfEachKeyInOrder() throws Exception {
+	PartitionedRunnerPool<Integer> pool = new PartitionedRunnerPool<>(event -> ((KeyedEvent) event).key,
+		key -> new ModelRunner().startRecording().run(model), 16, forkJoinPool);
+
+	List<KeyedEvent> batch = new ArrayList<>();
+	for (int number = 0; number < EVENTS_PER_KEY; number++) {
+	    for (int key = 0; key < KEYS; key++) {
+		if (number % 2 == 0) {
+		    pool.reactTo(new KeyedEvent(key, number));
+		} else {
+		    batch.add(new KeyedEvent(key, number));
+		}
+	    }
+	    pool.reactToAll(batch);
+	    batch.clear();
+	}
+	pool.flush().get(10, TimeUnit.SECONDS);
+
+	for (int key = 0; key < KEYS; key++) {
+	    Object[] recordedEvents = pool.applyToRunner(key, ModelRunner::getRecordedEvents).get(10, TimeUnit.SECONDS);
+	    assertEquals(EVENTS_PER_KEY, recordedEvents.length);
+	    for (int number = 0; number < EVENTS_PER_KEY; number++) {
+		KeyedEvent recordedEvent = (KeyedEvent) recordedEvents[number];
+		assertEquals(key, recordedEvent.key);
+		assertEquals(number, recordedEvent.number);
+	    }
+	}
+    }
+
+    @Test
+    public void reactsToLargeBatchInTasksOfLimitedSize() throws Exception {
+	AtomicInteger eventsReactedTo = new AtomicInteger();
+	AtomicInteger maxEventsPerTask = new AtomicInteger();
+	ForkJoinPool countingForkJoinPool = new ForkJoinPool(1, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+		null, true) {
+	    @Override
+	    public void execute(Runnable task) {
+		super.execute(() -> {
+		    int eventsBeforeTask = eventsReactedTo.get();
+		    task.run();
+		    maxEventsPerTask.accumulateAndGet(eventsReactedTo.get() - eventsBeforeTask, Math::max);
+		});
+	    }
+	};
+
+	try {
+	    PartitionedRunnerPool<Integer> pool = new PartitionedRunnerPool<>(event -> ((KeyedEvent) event).key,
+		    key -> {
+			ModelRunner runner = new ModelRunner();
+			runner.handleWith(stepToBeRun -> {
+			    eventsReactedTo.incrementAndGet();
+			    stepToBeRun.run();
+			});
+			return runner.run(model);
+		    }, 1, countingForkJoinPool);
+
+	    List<KeyedEvent> batch = new ArrayList<>();
+	    for (int number = 0; number < EVENTS_PER_KEY * KEYS; number++) {
+		batch.add(new KeyedEvent(0, number));
+	    }
+	    pool.reactToAll(batch);
+	    pool.flush().get(10, TimeUnit.SECONDS);
+	    countingForkJoinPool.awaitQuiescence(10, TimeUnit.SECONDS);
+
+	    assertEquals(EVENTS_PER_KEY * KEYS, eventsReactedTo.get());
+	    assertTrue("Reacted to " + maxEventsPerTask.get() + " events in one task", maxEventsPerTask.get() <= 64);
+	} finally {
+	    countingForkJoinPool.shutdownNow();
+	}
+    }
+
+    @Test
+    public void passesExceptionToHandlerAndReactsToNextEvent() throws Exception {
+	PartitionedRunnerPool<Integer> pool = new PartitionedRunnerPool<>(event -> ((KeyedEvent) event).key,
+		key -> new ModelRunner().startRecording().run(model), 4, forkJoinPool);
+	ConcurrentLinkedQueue<Object> failedEvents = new ConcurrentLinkedQueue<>();
+	pool.handleExceptionsWith((event, e) -> failedEvents.add(event));
+
+	KeyedEvent failingEvent = new KeyedEvent(1, -1);
+	KeyedEvent nextEvent = new KeyedEvent(1, 1);
+	pool.reactTo(failingEvent);
+	pool.reactTo(nextEvent);
+
+	Object[] recordedEvents = pool.applyToRunner(1, ModelRunner::getRecordedEvents).get(10, TimeUnit.SECONDS);
+	assertArrayEquals(new Object[] { failingEvent, nextEvent }, recordedEvents);
+	assertArrayEquals(new Object[] { failingEvent }, failedEvents.toArray());
+    }
+
+    @Test
+    public void appliesFunctionToNullIfThereIsNoRunnerForKey() throws Exception {
+	PartitionedRunnerPool<Integer> pool = new PartitionedRunnerPool<>(event -> ((KeyedEvent) event).key,
+		key -> new ModelRunner().run(model), 4, forkJoinPool);
+
+	assertNull(pool.applyToRunner(42, runner -> runner).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsExceptionIfShardCountIsZero() {
+	new PartitionedRunnerPool<>(event -> event, key -> new ModelRunner(), 0, forkJoinPool);
+    }
+
+    private static class KeyedEvent {
+	private final int key;
+	private final int number;
+
+	KeyedEvent(int key, int number) {
+	    this.key = key;
+	    this.number = number;
+	}
+    }
+}
@@ -0,0 +1,75 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReactToAllTest extends AbstractTestCase {
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+    }
+
+    @Test
+    public void reactsToEventsOfIterator() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.step(CONTINUE).continuesAt(CUSTOMER_ENTERS_TEXT)
+		.build();
+
+	modelRunner.run(model);
+	BatchStatistics statistics = modelRunner
+		.reactToAll(Arrays.asList(entersText(), entersNumber(), entersNumber(), entersText()).iterator());
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_NUMBER, CONTINUE, CUSTOMER_ENTERS_TEXT);
+	assertEquals(4, statistics.getEvents());
+	assertEquals(3, statistics.getHandledEvents());
+	assertEquals(1, statistics.getUnhandledEvents());
+	assertEquals(4, statistics.getStepsRun());
+	assertEquals(3, statistics.getEventClassRuns());
+    }
+
+    @Test
+    public void reactsToEventsOfStream() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText())
+			.step(CONTINUE).continuesAt(CUSTOMER_ENTERS_TEXT)
+		.build();
+
+	modelRunner.run(model);
+	BatchStatistics statistics = modelRunner.reactToAll(Stream.generate(this::entersText).limit(3));
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, SYSTEM_DISPLAYS_TEXT, CONTINUE, CUSTOMER_ENTERS_TEXT,
+		SYSTEM_DISPLAYS_TEXT, CONTINUE, CUSTOMER_ENTERS_TEXT, SYSTEM_DISPLAYS_TEXT, CONTINUE);
+	assertEquals(3, statistics.getEvents());
+	assertEquals(3, statistics.getHandledEvents());
+	assertEquals(9, statistics.getStepsRun());
+	assertEquals(1, statistics.getEventClassRuns());
+    }
+
+    @Test
+    public void doesntReactToEventsAfterRunnerIsStopped() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(entersText -> modelRunner.stop())
+			.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	modelRunner.run(model);
+	BatchStatistics statistics = modelRunner.reactToAll(Stream.of(entersText(), entersText()));
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT);
+	assertEquals(2, statistics.getEvents());
+	assertEquals(1, statistics.getHandledEvents());
+	assertEquals(1, statistics.getUnhandledEvents());
+    }
+}
@@ -1,6 +1,8 @@
 package org.requirementsascode;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Set;
@@ -9,10 +11,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 public class ReactToTypesTest extends AbstractTestCase {
+    private boolean isTextEnabled;
+    private int conditionEvaluations;
 
     @Before
     public void setup() {
 	setupWithRecordingModelRunner();
+	this.isTextEnabled = false;
+	this.conditionEvaluations = 0;
     }
 
     @Test
@@ -126,4 +132,97 @@ public class ReactToTypesTest extends AbstractTestCase {
 	eventTypeReactedTo = reactToTypes.iterator().next();
 	assertEquals(EntersNumber.class, eventTypeReactedTo);
     }
+
+    @Test
+    public void eventTypesWithoutConditionsAreReused() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+
+	modelRunner.run(model);
+
+	Set<Class<?>> reactToTypes = modelRunner.getReactToTypes();
+	assertSame(reactToTypes, modelRunner.getReactToTypes());
+
+	modelRunner.reactTo(entersText());
+	assertFalse(modelRunner.getReactToTypes().contains(EntersText.class));
+	assertTrue(modelRunner.getReactToTypes().contains(EntersNumber.class));
+    }
+
+    @Test
+    public void eventTypesWithConditionsAreReevaluatedWithoutCaching() {
+	Model model = modelWithConditionalText();
+
+	modelRunner.run(model);
+	assertFalse(modelRunner.canReactTo(EntersText.class));
+	assertFalse(modelRunner.getReactToTypes().contains(EntersText.class));
+
+	isTextEnabled = true;
+	assertTrue(modelRunner.canReactTo(EntersText.class));
+	assertTrue(modelRunner.getReactToTypes().contains(EntersText.class));
+	assertEquals(4, conditionEvaluations);
+    }
+
+    @Test
+    public void eventTypesWithConditionsAreReusedUntilConditionsChange() {
+	Model model = modelWithConditionalText();
+
+	modelRunner.startCachingReactToTypes().run(model);
+	assertFalse(modelRunner.canReactTo(EntersText.class));
+	assertTrue(modelRunner.canReactTo(EntersNumber.class));
+
+	isTextEnabled = true;
+	assertFalse(modelRunner.canReactTo(EntersText.class));
+	assertEquals(1, conditionEvaluations);
+
+	modelRunner.conditionsChanged();
+	assertTrue(modelRunner.canReactTo(EntersText.class));
+	assertTrue(modelRunner.canReactTo(EntersNumber.class));
+	assertEquals(2, conditionEvaluations);
+    }
+
+    @Test
+    public void eventTypesWithConditionsAreReevaluatedAfterLatestStepChanges() {
+	Model model = modelWithConditionalText();
+
+	modelRunner.startCachingReactToTypes().run(model);
+	assertTrue(modelRunner.canReactTo(EntersNumber.class));
+
+	isTextEnabled = true;
+	modelRunner.reactTo(entersNumber());
+	assertTrue(modelRunner.canReactTo(EntersText.class));
+	assertEquals(2, conditionEvaluations);
+    }
+
+    @Test
+    public void eventTypesWithConditionsAreReevaluatedAfterSameStepRunsAgain() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.condition(() -> conditionEvaluations < 2).on(EntersText.class)
+			.system(entersText -> conditionEvaluations++)
+		.build();
+
+	modelRunner.startCachingReactToTypes().run(model);
+	modelRunner.reactTo(entersText());
+	assertTrue(modelRunner.canReactTo(EntersText.class));
+	modelRunner.reactTo(entersText());
+	assertFalse(modelRunner.canReactTo(EntersText.class));
+	assertEquals(0, modelRunner.getStepsThatCanReactTo(EntersText.class).size());
+    }
+
+    private Model modelWithConditionalText() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow().anytime()
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+		.flow(ALTERNATIVE_FLOW).anytime().condition(this::isTextEnabled)
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.build();
+	return model;
+    }
+
+    private boolean isTextEnabled() {
+	conditionEvaluations++;
+	return isTextEnabled;
+    }
 }
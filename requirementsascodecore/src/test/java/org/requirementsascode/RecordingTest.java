@@ -1,6 +1,18 @@
 package org.requirementsascode;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -128,4 +140,108 @@ public class RecordingTest extends AbstractTestCase{
 	assertEquals("S1", modelRunner.getRecordedStepNames()[0]);
 	assertEquals("S2", modelRunner.getRecordedStepNames()[1]);
     }
+
+    @Test
+    public void recordLatestStepsWithCapacity() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(displaysEnteredText())
+		.on(EntersNumber.class).system(displaysEnteredNumber())
+	.build();
+
+	modelRunner.run(model).startRecording(2);
+	modelRunner.reactTo(entersText(), entersNumber(), entersText());
+
+	assertArrayEquals(new String[] { "S2", "S1" }, modelRunner.getRecordedStepNames());
+	assertEquals(0, modelRunner.getRecordedEvents().length);
+
+	Step[] latestSteps = modelRunner.getLatestRecordedSteps(1);
+	assertEquals(1, latestSteps.length);
+	assertEquals("S1", latestSteps[0].getName());
+    }
+
+    @Test
+    public void recordToSink() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(displaysEnteredText())
+		.on(EntersNumber.class).system(displaysEnteredNumber())
+	.build();
+
+	List<String> sinkStepNames = new ArrayList<>();
+	List<Object> sinkEvents = new ArrayList<>();
+	EntersText entersText = entersText();
+	EntersNumber entersNumber = entersNumber();
+
+	modelRunner.run(model).startRecording(0, (step, event) -> {
+	    sinkStepNames.add(step.getName());
+	    sinkEvents.add(event);
+	});
+	modelRunner.reactTo(entersText, entersNumber);
+
+	assertArrayEquals(new String[] { "S1", "S2" }, sinkStepNames.toArray());
+	assertArrayEquals(new Object[] { entersText, entersNumber }, sinkEvents.toArray());
+	assertEquals(0, modelRunner.getRecordedStepNames().length);
+    }
+
+    @Test
+    public void serializeRunnerThatRecordsToSink() throws Exception {
+	ModelRunner runner = new ModelRunner().startRecording(10, (step, event) -> {
+	});
+
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+	    out.writeObject(runner);
+	}
+	try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+	    ModelRunner deserializedRunner = (ModelRunner) in.readObject();
+	    assertEquals(0, deserializedRunner.getRecordedStepNames().length);
+	}
+    }
+
+    @Test
+    public void takeSnapshotsOfLatestStepsWhileRunnerReacts() throws Exception {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.step(CONTINUE).continuesAt(CUSTOMER_ENTERS_TEXT)
+	.build();
+
+	modelRunner.run(model).startRecording(16);
+	AtomicBoolean isReacting = new AtomicBoolean(true);
+	AtomicInteger inconsistentSnapshots = new AtomicInteger();
+	Thread snapshotThread = new Thread(() -> {
+	    while (isReacting.get()) {
+		if (!isConsistent(modelRunner.getLatestRecordedSteps(8))) {
+		    inconsistentSnapshots.incrementAndGet();
+		}
+	    }
+	});
+	snapshotThread.start();
+
+	EntersText entersText = entersText();
+	EntersNumber entersNumber = entersNumber();
+	for (int i = 0; i < 100000; i++) {
+	    modelRunner.reactTo(entersText, entersNumber);
+	}
+	isReacting.set(false);
+	snapshotThread.join();
+
+	assertEquals(0, inconsistentSnapshots.get());
+	assertTrue(isConsistent(modelRunner.getLatestRecordedSteps(8)));
+	assertEquals(8, modelRunner.getLatestRecordedSteps(8).length);
+    }
+
+    private boolean isConsistent(Step[] snapshot) {
+	if (snapshot.length > 8) {
+	    return false;
+	}
+	List<String> stepCycle = Arrays.asList(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_NUMBER, CONTINUE);
+	for (int i = 1; i < snapshot.length; i++) {
+	    int previousStepIndex = stepCycle.indexOf(snapshot[i - 1].getName());
+	    if (!stepCycle.get((previousStepIndex + 1) % stepCycle.size()).equals(snapshot[i].getName())) {
+		return false;
+	    }
+	}
+	return true;
+    }
 }
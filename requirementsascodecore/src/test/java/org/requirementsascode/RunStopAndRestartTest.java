@@ -1,5 +1,7 @@
 package org.requirementsascode;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -56,4 +58,38 @@ public class RunStopAndRestartTest extends AbstractTestCase {
 	modelRunner.restart();
 	assertTrue(modelRunner.isRunning());
     }
+
+    @Test
+    public void spawnedRunnerDoesntTriggerAutonomousSystemReactions() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText())
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.build();
+	modelRunner.run(model);
+
+	ModelRunner spawnedRunner = modelRunner.spawn();
+
+	assertTrue(spawnedRunner.isRunning());
+	assertEquals(SYSTEM_DISPLAYS_TEXT, spawnedRunner.getLatestStep().get().getName());
+	assertEquals(0, spawnedRunner.getRecordedStepNames().length);
+    }
+
+    @Test
+    public void spawnedRunnerReactsIndependentlyOfPrototype() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+		.build();
+	modelRunner.run(model);
+	ModelRunner spawnedRunner = modelRunner.spawn();
+
+	spawnedRunner.reactTo(entersText(), entersText());
+	modelRunner.reactTo(entersText());
+
+	assertArrayEquals(new String[] { CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT_AGAIN },
+		spawnedRunner.getRecordedStepNames());
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT);
+    }
 }
@@ -0,0 +1,200 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.InfiniteRepetition;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+public class RunnerMetricsTest extends AbstractTestCase {
+    private HistogramRunnerMetrics metrics;
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+	this.metrics = new HistogramRunnerMetrics();
+    }
+
+    @Test
+    public void measuresStepsPerStepAndUseCase() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	modelRunner.run(model).startMeasuring(metrics);
+	modelRunner.reactTo(entersText(), entersText());
+
+	UseCase useCase = model.findUseCase(USE_CASE);
+	assertEquals(1, metrics.getStepHistograms().get(useCase.findStep(CUSTOMER_ENTERS_TEXT)).getCount());
+	assertEquals(1, metrics.getStepHistograms().get(useCase.findStep(CUSTOMER_ENTERS_TEXT_AGAIN)).getCount());
+	assertEquals(2, metrics.getUseCaseHistograms().get(useCase).getCount());
+	assertTrue(metrics.getStepSelectionHistogram().getCount() >= 2);
+	assertTrue(metrics.getCandidateSteps() >= 2);
+	assertEquals(0, metrics.getUnhandledEvents());
+    }
+
+    @Test
+    public void countsConditionEvaluationsWhileSelectingSteps() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.flow(ALTERNATIVE_FLOW).insteadOf(CUSTOMER_ENTERS_TEXT).condition(this::textIsAvailable)
+				.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	modelRunner.run(model).startMeasuring(metrics);
+	modelRunner.reactTo(entersText());
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT);
+	assertEquals(2, metrics.getConditionEvaluations());
+    }
+
+    @Test
+    public void countsUnhandledEvents() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	modelRunner.run(model).startMeasuring(metrics);
+	modelRunner.reactTo(entersNumber(), entersText(), entersText());
+
+	assertEquals(2, metrics.getUnhandledEvents());
+    }
+
+    @Test
+    public void countsExceptionsCausedByModel() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.on(EntersText.class).system(displaysEnteredText())
+			.on(EntersText.class).system(displaysEnteredText())
+			.condition(() -> true).system(() -> {})
+		.build();
+
+	modelRunner.startMeasuring(metrics);
+	try {
+	    modelRunner.run(model);
+	    fail();
+	} catch (InfiniteRepetition e) {
+	}
+	try {
+	    modelRunner.reactTo(entersText());
+	    fail();
+	} catch (MoreThanOneStepCanReact e) {
+	}
+
+	assertEquals(1, metrics.getInfiniteRepetitionCount());
+	assertEquals(1, metrics.getMoreThanOneStepCanReactCount());
+    }
+
+    @Test
+    public void reportsStartAndEndOfIncludedUseCase() {
+	Model model = modelBuilder
+		.useCase(INCLUDED_USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(SYSTEM_INCLUDES_USE_CASE).includesUseCase(INCLUDED_USE_CASE)
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	List<String> reports = new ArrayList<>();
+	modelRunner.startMeasuring(new RunnerMetrics() {
+	    @Override
+	    public void includedUseCaseStarted(UseCase includedUseCase, FlowStep includeStep) {
+		reports.add("Started " + includedUseCase.getName() + " at " + includeStep.getName());
+	    }
+
+	    @Override
+	    public void includedUseCaseEnded(UseCase includedUseCase, FlowStep includeStep) {
+		reports.add("Ended " + includedUseCase.getName() + " at " + includeStep.getName());
+	    }
+	});
+	modelRunner.run(model).reactTo(entersNumber(), entersText());
+
+	assertRecordedStepNames(SYSTEM_INCLUDES_USE_CASE, CUSTOMER_ENTERS_NUMBER, CUSTOMER_ENTERS_TEXT);
+	assertEquals(Arrays.asList("Started " + INCLUDED_USE_CASE + " at " + SYSTEM_INCLUDES_USE_CASE,
+		"Ended " + INCLUDED_USE_CASE + " at " + SYSTEM_INCLUDES_USE_CASE), reports);
+    }
+
+    @Test
+    public void reportsBeginningOfNestedStepsWithoutTime() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.on(EntersText.class).system(entersText -> modelRunner.reactTo(entersNumber()))
+			.on(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+
+	List<String> reports = new ArrayList<>();
+	List<Long> reportedNanos = new ArrayList<>();
+	modelRunner.startMeasuring(new RunnerMetrics() {
+	    @Override
+	    public boolean measuresTime() {
+		return false;
+	    }
+
+	    @Override
+	    public void stepSelecting(Class<?> eventClass) {
+		if (!ModelRunner.class.equals(eventClass)) {
+		    reports.add("Selecting " + eventClass.getSimpleName());
+		}
+	    }
+
+	    @Override
+	    public void stepSelected(Class<?> eventClass, Step step, int candidateSteps, int conditionEvaluations,
+		    long nanos) {
+		if (!ModelRunner.class.equals(eventClass)) {
+		    reports.add("Selected " + step.getName());
+		}
+		reportedNanos.add(nanos);
+	    }
+
+	    @Override
+	    public void stepRunning(Step step) {
+		reports.add("Running " + step.getName());
+	    }
+
+	    @Override
+	    public void stepRun(Step step, long nanos) {
+		reports.add("Run " + step.getName());
+		reportedNanos.add(nanos);
+	    }
+	});
+	modelRunner.run(model).reactTo(entersText());
+
+	assertEquals(Arrays.asList("Selecting EntersText", "Selected S1", "Running S1", "Selecting EntersNumber",
+		"Selected S2", "Running S2", "Run S2", "Run S1"), reports);
+	for (long nanos : reportedNanos) {
+	    assertEquals(0, nanos);
+	}
+    }
+
+    @Test
+    public void spawnedRunnerMeasuresWithSameMetrics() {
+	Model model = modelBuilder
+		.useCase(USE_CASE)
+			.on(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	modelRunner.run(model).startMeasuring(metrics);
+	ModelRunner spawnedRunner = modelRunner.spawn();
+	modelRunner.stopMeasuring();
+	modelRunner.reactTo(entersText());
+	spawnedRunner.reactTo(entersText());
+
+	assertEquals(1, metrics.getUseCaseHistograms().get(model.findUseCase(USE_CASE)).getCount());
+    }
+}
@@ -0,0 +1,105 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.RunnerPipeline.Stage;
+
+public class RunnerPipelineTest extends AbstractTestCase {
+    private static final int INPUTS = 10000;
+
+    private List<String> journaledStepNames;
+    private List<String> reactedTexts;
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+	this.journaledStepNames = new ArrayList<>();
+	this.reactedTexts = new ArrayList<>();
+    }
+
+    @Test
+    public void runsSystemReactionsAndJournalsStepsInOrder() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(entersText -> reactedTexts.add(entersText.value()))
+			.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText())
+			.step(CONTINUE).continuesAt(CUSTOMER_ENTERS_TEXT)
+		.build();
+
+	RunnerPipeline<String> pipeline = newPipeline(model);
+	try (RunnerPipeline<String> publishingPipeline = pipeline) {
+	    for (int i = 0; i < INPUTS; i++) {
+		publishingPipeline.publish("Text " + i);
+	    }
+	}
+
+	assertEquals(INPUTS, reactedTexts.size());
+	for (int i = 0; i < INPUTS; i++) {
+	    assertEquals("Text " + i, reactedTexts.get(i));
+	}
+	assertEquals(3 * INPUTS, journaledStepNames.size());
+	for (int i = 0; i < 3 * INPUTS; i += 3) {
+	    assertEquals(CUSTOMER_ENTERS_TEXT, journaledStepNames.get(i));
+	    assertEquals(SYSTEM_DISPLAYS_TEXT, journaledStepNames.get(i + 1));
+	    assertEquals(CONTINUE, journaledStepNames.get(i + 2));
+	}
+
+	assertEquals(INPUTS, pipeline.getLatencyHistogram(Stage.INGEST).getCount());
+	assertEquals(INPUTS, pipeline.getLatencyHistogram(Stage.DISPATCH).getCount());
+	assertEquals(3 * INPUTS, pipeline.getLatencyHistogram(Stage.REACTION).getCount());
+	assertEquals(3 * INPUTS, pipeline.getLatencyHistogram(Stage.JOURNAL).getCount());
+    }
+
+    @Test
+    public void passesExceptionsToHandlerAndDoesntJournalFailedSteps() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(entersText -> {
+		    if (entersText.value().equals("Fails")) {
+			throw new IllegalStateException();
+		    }
+		})
+		.build();
+
+	ConcurrentLinkedQueue<Object> failedObjects = new ConcurrentLinkedQueue<>();
+	try (RunnerPipeline<String> pipeline = newPipeline(model)) {
+	    pipeline.handleExceptionsWith((object, e) -> failedObjects.add(object));
+	    pipeline.publish("Text");
+	    pipeline.publish("");
+	    pipeline.publish("Fails");
+	}
+
+	assertEquals(1, journaledStepNames.size());
+	assertEquals(2, failedObjects.size());
+	assertEquals("", failedObjects.poll());
+	assertEquals("Fails", ((EntersText) failedObjects.poll()).value());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsExceptionIfRingSizeIsNotPowerOfTwo() {
+	new RunnerPipeline<String>(modelRunner, EntersText::new, null, 1000);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void throwsExceptionIfInputIsPublishedBeforeStart() {
+	new RunnerPipeline<String>(modelRunner, EntersText::new, null, 1024).publish("Text");
+    }
+
+    private RunnerPipeline<String> newPipeline(Model model) {
+	RunnerPipeline<String> pipeline = new RunnerPipeline<String>(modelRunner.run(model), this::convert,
+		(step, event) -> journaledStepNames.add(step.getName()), 64);
+	return pipeline.start(Thread::new);
+    }
+
+    private EntersText convert(String text) {
+	if (text.isEmpty()) {
+	    throw new IllegalArgumentException("Empty text");
+	}
+	return new EntersText(text);
+    }
+}
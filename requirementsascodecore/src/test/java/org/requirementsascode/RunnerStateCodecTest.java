@@ -0,0 +1,120 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RunnerStateCodecTest extends AbstractTestCase {
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+    }
+
+    @Test
+    public void restoresLatestStep() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+	RunnerStateCodec codec = new RunnerStateCodec(model);
+
+	modelRunner.run(model);
+	modelRunner.reactTo(entersText());
+	byte[] encodedState = codec.encode(modelRunner);
+
+	ModelRunner restoredRunner = new ModelRunner().startRecording();
+	codec.restore(encodedState, restoredRunner);
+	assertTrue(restoredRunner.isRunning());
+	assertEquals(CUSTOMER_ENTERS_TEXT, restoredRunner.getLatestStep().get().getName());
+
+	restoredRunner.reactTo(entersNumber());
+	assertEquals(CUSTOMER_ENTERS_NUMBER, restoredRunner.getLatestStep().get().getName());
+	assertTrue(encodedState.length < 16);
+    }
+
+    @Test
+    public void restoresIncludedUseCases() {
+	Model model = modelBuilder
+		.useCase(INCLUDED_USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+				.step(CUSTOMER_ENTERS_NUMBER_AGAIN).user(EntersNumber.class).system(displaysEnteredNumber())
+		.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(SYSTEM_INCLUDES_USE_CASE).includesUseCase(INCLUDED_USE_CASE)
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+		.build();
+	RunnerStateCodec codec = new RunnerStateCodec(model);
+
+	modelRunner.run(model);
+	modelRunner.reactTo(entersText(), entersNumber());
+	byte[] encodedState = codec.encode(modelRunner);
+
+	ModelRunner restoredRunner = new ModelRunner().startRecording();
+	codec.restore(encodedState, restoredRunner);
+	restoredRunner.reactTo(entersText(), entersNumber(), entersText());
+
+	assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, restoredRunner.getLatestStep().get().getName());
+	String[] recordedStepNames = restoredRunner.getRecordedStepNames();
+	assertEquals(2, recordedStepNames.length);
+	assertEquals(CUSTOMER_ENTERS_NUMBER_AGAIN, recordedStepNames[0]);
+	assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, recordedStepNames[1]);
+    }
+
+    @Test
+    public void restoresActorAndStoppedRunner() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(displaysEnteredText())
+		.build();
+	RunnerStateCodec codec = new RunnerStateCodec(model);
+
+	modelRunner.as(customer).run(model);
+	modelRunner.stop();
+	byte[] encodedState = codec.encode(modelRunner);
+
+	ModelRunner restoredRunner = new ModelRunner();
+	codec.restore(encodedState, restoredRunner);
+	assertFalse(restoredRunner.isRunning());
+	assertEquals(customer, restoredRunner.getUser());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesntRestoreStateOfDifferentModel() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(displaysEnteredText())
+		.build();
+	Model differentModel = Model.builder().useCase(USE_CASE)
+		.on(EntersNumber.class).system(displaysEnteredNumber())
+		.build();
+
+	modelRunner.run(model);
+	byte[] encodedState = new RunnerStateCodec(model).encode(modelRunner);
+	new RunnerStateCodec(differentModel).restore(encodedState, new ModelRunner());
+    }
+
+    @Test
+    public void restoresStateWhenOnlyLambdasOfModelChange() {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(displaysEnteredText())
+		.build();
+	ModelBuilder otherModelBuilder = Model.builder();
+	otherModelBuilder.actor(CUSTOMER);
+	Model modelWithOtherLambdas = otherModelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(entersText -> {})
+		.build();
+
+	modelRunner.run(model);
+	modelRunner.reactTo(entersText());
+	byte[] encodedState = new RunnerStateCodec(model).encode(modelRunner);
+
+	ModelRunner restoredRunner = new ModelRunner();
+	new RunnerStateCodec(modelWithOtherLambdas).restore(encodedState, restoredRunner);
+	assertEquals(modelWithOtherLambdas.findUseCase(USE_CASE).findStep("S1"), restoredRunner.getLatestStep().get());
+    }
+}
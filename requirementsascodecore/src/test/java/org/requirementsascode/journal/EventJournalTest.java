@@ -0,0 +1,154 @@
+package org.requirementsascode.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.requirementsascode.AbstractTestCase;
+import org.requirementsascode.Model;
+
+public class EventJournalTest extends AbstractTestCase {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+    private EventCodec codec;
+
+    @Before
+    public void setup() throws IOException {
+	setupWithRecordingModelRunner();
+	this.directory = temporaryFolder.newFolder().toPath();
+	this.codec = new TextCodec();
+    }
+
+    @Test
+    public void journalsEventsOfRunner() throws IOException {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.basicFlow()
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText())
+			.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	try (EventJournal journal = EventJournal.open(directory, codec)) {
+	    modelRunner.startRecording(0, journal).run(model);
+	    modelRunner.reactTo(new EntersText("Hello"), new EntersText("World"));
+	}
+
+	List<JournalEntry> entries = scan();
+	assertEquals(3, entries.size());
+	assertEntry(entries.get(0), 0, CUSTOMER_ENTERS_TEXT, "Hello");
+	assertEntry(entries.get(1), 1, SYSTEM_DISPLAYS_TEXT, null);
+	assertEntry(entries.get(2), 2, CUSTOMER_ENTERS_TEXT_AGAIN, "World");
+
+	assertEquals(USE_CASE, entries.get(0).getUseCaseName());
+	assertEquals(CUSTOMER_ENTERS_TEXT, entries.get(0).findStep(model).get().getName());
+    }
+
+    @Test
+    public void continuesJournalAfterReopening() throws IOException {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	try (EventJournal journal = EventJournal.open(directory, codec)) {
+	    modelRunner.startRecording(0, journal).run(model);
+	    modelRunner.reactTo(new EntersText("First"));
+	}
+	try (EventJournal journal = EventJournal.open(directory, codec)) {
+	    assertEquals(1, journal.getNextSequenceNumber());
+	    modelRunner.startRecording(0, journal);
+	    modelRunner.reactTo(new EntersText("Second"));
+	}
+	try (EventJournal journal = EventJournal.open(directory, codec)) {
+	    assertEquals(2, journal.getNextSequenceNumber());
+	}
+
+	List<JournalEntry> entries = scan();
+	assertEquals(2, entries.size());
+	assertEntry(entries.get(0), 0, "S1", "First");
+	assertEntry(entries.get(1), 1, "S1", "Second");
+	assertEquals(2, segmentFileCount());
+    }
+
+    @Test
+    public void continuesInNewSegmentWhenSegmentIsFull() throws IOException {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	try (EventJournal journal = EventJournal.open(directory, codec, 128, 3)) {
+	    modelRunner.startRecording(0, journal).run(model);
+	    for (int i = 0; i < 100; i++) {
+		modelRunner.reactTo(new EntersText("Text " + i));
+	    }
+	}
+
+	List<JournalEntry> entries = scan();
+	assertEquals(100, entries.size());
+	for (int i = 0; i < 100; i++) {
+	    assertEntry(entries.get(i), i, "S1", "Text " + i);
+	}
+	assertTrue(segmentFileCount() > 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsExceptionIfEntryDoesntFitIntoSegment() throws IOException {
+	Model model = modelBuilder.useCase(USE_CASE)
+		.on(EntersText.class).system(displaysEnteredText())
+		.build();
+
+	try (EventJournal journal = EventJournal.open(directory, codec, 64, 1)) {
+	    journal.append(model.findUseCase(USE_CASE).findStep("S1"), new EntersText(new String(new char[100])));
+	}
+    }
+
+    private void assertEntry(JournalEntry entry, long sequenceNumber, String stepName, String text) {
+	assertEquals(sequenceNumber, entry.getSequenceNumber());
+	assertEquals(stepName, entry.getStepName());
+	if (text == null) {
+	    assertFalse(entry.getEvent().isPresent());
+	} else {
+	    assertEquals(text, entry.getEvent().map(event -> ((EntersText) event).value()).get());
+	}
+    }
+
+    private List<JournalEntry> scan() throws IOException {
+	List<JournalEntry> entries = new ArrayList<>();
+	EventJournal.scan(directory, codec, entries::add);
+	return entries;
+    }
+
+    private long segmentFileCount() throws IOException {
+	try (Stream<Path> files = Files.list(directory)) {
+	    return files.count();
+	}
+    }
+
+    private class TextCodec implements EventCodec {
+	@Override
+	public void encode(Object event, ByteBuffer buffer) {
+	    buffer.put(((EntersText) event).value().getBytes(UTF_8));
+	}
+
+	@Override
+	public Object decode(ByteBuffer buffer) {
+	    byte[] bytes = new byte[buffer.remaining()];
+	    buffer.get(bytes);
+	    return new EntersText(new String(bytes, UTF_8));
+	}
+    }
+}
@@ -0,0 +1,117 @@
+package org.requirementsascode.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.AbstractTestCase;
+import org.requirementsascode.Model;
+import org.requirementsascode.exception.InvalidModelFile;
+
+public class ModelLoaderTest extends AbstractTestCase {
+    private ModelRegistry registry;
+
+    @Before
+    public void setup() {
+	setupWithRecordingModelRunner();
+	this.registry = new ModelRegistry()
+		.eventClass(EntersText.class)
+		.eventClass(EntersNumber.class)
+		.condition("textIsAvailable", this::textIsAvailable)
+		.systemReaction("displaysEnteredText", displaysEnteredText())
+		.systemReaction("displaysEnteredNumber", displaysEnteredNumber())
+		.systemReaction("displaysConstantText", displaysConstantText());
+    }
+
+    @Test
+    public void loadsBasicFlow() throws IOException {
+	Model model = load(
+		"usecase \"" + USE_CASE + "\"",
+		"  basicflow",
+		"    step \"" + CUSTOMER_ENTERS_TEXT + "\" as " + CUSTOMER + " user EntersText system displaysEnteredText",
+		"    step \"" + SYSTEM_DISPLAYS_TEXT + "\" system displaysConstantText",
+		"    # A comment",
+		"",
+		"    step \"" + CUSTOMER_ENTERS_NUMBER + "\" as " + CUSTOMER + " user EntersNumber system displaysEnteredNumber");
+
+	modelRunner.as(model.findActor(CUSTOMER)).run(model);
+	modelRunner.reactTo(entersText(), entersNumber());
+
+	assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, SYSTEM_DISPLAYS_TEXT, CUSTOMER_ENTERS_NUMBER);
+    }
+
+    @Test
+    public void loadsAlternativeFlowWithCondition() throws IOException {
+	Model model = load(
+		"usecase \"" + USE_CASE + "\"",
+		"  basicflow",
+		"    step \"" + SYSTEM_DISPLAYS_TEXT + "\" system displaysConstantText",
+		"    step \"" + CUSTOMER_ENTERS_TEXT + "\" user EntersText system displaysEnteredText",
+		"  flow \"" + ALTERNATIVE_FLOW + "\" insteadOf \"" + CUSTOMER_ENTERS_TEXT + "\" condition textIsAvailable",
+		"    step \"" + CUSTOMER_ENTERS_NUMBER + "\" user EntersNumber system displaysEnteredNumber",
+		"    step \"" + CONTINUE + "\" continuesAt \"" + SYSTEM_DISPLAYS_TEXT + "\"");
+
+	modelRunner.run(model);
+	modelRunner.reactTo(entersNumber());
+
+	assertRecordedStepNames(SYSTEM_DISPLAYS_TEXT, CUSTOMER_ENTERS_NUMBER, CONTINUE, SYSTEM_DISPLAYS_TEXT);
+    }
+
+    @Test
+    public void loadsIncludedUseCaseAndFlowlessSteps() throws IOException {
+	Model model = load(
+		"usecase \"" + INCLUDED_USE_CASE + "\"",
+		"  basicflow",
+		"    step \"" + CUSTOMER_ENTERS_TEXT + "\" user EntersText system displaysEnteredText",
+		"usecase \"" + USE_CASE + "\"",
+		"  basicflow",
+		"    step \"" + SYSTEM_INCLUDES_USE_CASE + "\" includes \"" + INCLUDED_USE_CASE + "\"",
+		"    step \"" + SYSTEM_DISPLAYS_TEXT + "\" system displaysConstantText",
+		"  condition textIsAvailable on EntersText system displaysEnteredText",
+		"  on EntersNumber system displaysEnteredNumber");
+
+	modelRunner.run(model);
+	modelRunner.reactTo(entersText(), entersText(), entersNumber());
+
+	assertEquals(4, model.findUseCase(USE_CASE).getSteps().size());
+	assertRecordedStepNames(SYSTEM_INCLUDES_USE_CASE, CUSTOMER_ENTERS_TEXT, SYSTEM_DISPLAYS_TEXT, "S1", "S2");
+    }
+
+    @Test
+    public void throwsExceptionWithLineNumberForUnregisteredName() throws IOException {
+	try {
+	    load(
+		    "usecase \"" + USE_CASE + "\"",
+		    "  basicflow",
+		    "    step S1 user EntersDate system displaysEnteredText");
+	    fail();
+	} catch (InvalidModelFile e) {
+	    assertTrue(e.getMessage().startsWith("Invalid line 3 of model file: Event class not registered: EntersDate"));
+	}
+    }
+
+    @Test
+    public void throwsExceptionWithLineNumberForInvalidModel() throws IOException {
+	try {
+	    load(
+		    "usecase \"" + USE_CASE + "\"",
+		    "  basicflow",
+		    "    step S1 user EntersText system displaysEnteredText",
+		    "    step S1 user EntersText system displaysEnteredText");
+	    fail();
+	} catch (InvalidModelFile e) {
+	    assertTrue(e.getMessage().startsWith("Invalid line 4 of model file"));
+	}
+    }
+
+    private Model load(String... lines) throws IOException {
+	String modelFile = String.join("\n", lines);
+	Model model = new ModelLoader(registry).load(new StringReader(modelFile));
+	return model;
+    }
+}
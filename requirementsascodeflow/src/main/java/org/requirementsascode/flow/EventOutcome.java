@@ -0,0 +1,57 @@
+package org.requirementsascode.flow;
+
+import java.util.Optional;
+
+import org.requirementsascode.Step;
+
+/**
+ * The outcome of a runner reacting to an event, as published by a
+ * {@link ModelRunnerProcessor}.
+ *
+ * @author b_muth
+ */
+public class EventOutcome {
+    private final Object event;
+    private final boolean isHandled;
+    private final Step latestStep;
+
+    EventOutcome(Object event, boolean isHandled, Step latestStep) {
+	this.event = event;
+	this.isHandled = isHandled;
+	this.latestStep = latestStep;
+    }
+
+    /**
+     * Returns the event the runner has reacted to.
+     *
+     * @return the event
+     */
+    public Object getEvent() {
+	return event;
+    }
+
+    /**
+     * Returns true if a step has reacted to the event, false if the runner
+     * hasn't handled it, or wasn't running.
+     *
+     * @return whether the event has been handled
+     */
+    public boolean isHandled() {
+	return isHandled;
+    }
+
+    /**
+     * Returns the latest step the runner has run after reacting to the event,
+     * including autonomous system reactions.
+     *
+     * @return the latest step, or an empty optional if no step has been run yet
+     */
+    public Optional<Step> getLatestStep() {
+	return Optional.ofNullable(latestStep);
+    }
+
+    @Override
+    public String toString() {
+	return "EventOutcome [event=" + event + ", isHandled=" + isHandled + ", latestStep=" + latestStep + "]";
+    }
+}
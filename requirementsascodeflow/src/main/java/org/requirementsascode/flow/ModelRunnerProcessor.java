@@ -0,0 +1,258 @@
+package org.requirementsascode.flow;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.Step;
+
+/**
+ * Turns a {@link ModelRunner} into a {@link Flow.Processor}: the runner reacts
+ * to each event it receives from upstream, and the processor publishes the
+ * outcome downstream.
+ *
+ * <p>
+ * The processor requests events from upstream in batches. It buffers at most
+ * one batch of outcomes that downstream hasn't requested yet. Only when
+ * downstream has taken at least half a batch, the processor requests more
+ * events. So a slow subscriber throttles upstream, instead of the buffer
+ * growing without limit. The runner reacts to an event in
+ * {@link #onNext(Object)}, on the thread of the publisher. So a slow system
+ * reaction throttles upstream as well.
+ *
+ * <p>
+ * The processor finds out whether the runner has handled an event with the
+ * handler for unhandled events, so it replaces that handler with its own, see
+ * {@link ModelRunner#handleUnhandledWith(java.util.function.Consumer)}.
+ *
+ * <p>
+ * The processor has a single subscriber. If reacting to an event throws an
+ * exception, the processor cancels its subscription to upstream, and passes
+ * the exception to its subscriber after the outcomes buffered so far.
+ *
+ * @author b_muth
+ */
+public class ModelRunnerProcessor implements Flow.Processor<Object, EventOutcome> {
+    private static final Flow.Subscription CANCELLED = new Flow.Subscription() {
+	@Override
+	public void request(long n) {
+	}
+
+	@Override
+	public void cancel() {
+	}
+    };
+
+    private final ModelRunner modelRunner;
+    private final int batchSize;
+    private final Queue<EventOutcome> outcomes;
+    private final AtomicInteger bufferedOutcomes;
+    private final AtomicLong requestedEvents;
+    private final AtomicLong demand;
+    private final AtomicInteger drainRequests;
+    private final AtomicReference<Flow.Subscription> upstream;
+    private final AtomicReference<Flow.Subscriber<? super EventOutcome>> downstream;
+    private volatile boolean isUpstreamDone;
+    private volatile Throwable error;
+    private volatile boolean isCancelled;
+    private boolean isTerminated;
+    private boolean isEventUnhandled;
+
+    /**
+     * Creates a processor for the specified runner.
+     *
+     * @param modelRunner
+     *            the runner that reacts to the events
+     * @param batchSize
+     *            the maximum number of events requested from upstream at once
+     * @throws IllegalArgumentException
+     *             if the batch size is less than 1
+     */
+    public ModelRunnerProcessor(ModelRunner modelRunner, int batchSize) {
+	if (batchSize < 1) {
+	    throw new IllegalArgumentException("Batch size must be at least 1, but is " + batchSize);
+	}
+	this.modelRunner = Objects.requireNonNull(modelRunner);
+	this.batchSize = batchSize;
+	this.outcomes = new ConcurrentLinkedQueue<>();
+	this.bufferedOutcomes = new AtomicInteger();
+	this.requestedEvents = new AtomicLong();
+	this.demand = new AtomicLong();
+	this.drainRequests = new AtomicInteger();
+	this.upstream = new AtomicReference<>();
+	this.downstream = new AtomicReference<>();
+	modelRunner.handleUnhandledWith(event -> isEventUnhandled = true);
+    }
+
+    /**
+     * Returns the maximum number of events the processor requests from upstream
+     * at once.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+	return batchSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super EventOutcome> subscriber) {
+	Objects.requireNonNull(subscriber);
+	if (downstream.compareAndSet(null, subscriber)) {
+	    subscriber.onSubscribe(new OutcomeSubscription());
+	    drain();
+	} else {
+	    subscriber.onSubscribe(CANCELLED);
+	    subscriber.onError(new IllegalStateException("Processor already has a subscriber"));
+	}
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+	Objects.requireNonNull(subscription);
+	if (isCancelled || !upstream.compareAndSet(null, subscription)) {
+	    subscription.cancel();
+	} else {
+	    drain();
+	}
+    }
+
+    @Override
+    public void onNext(Object event) {
+	Objects.requireNonNull(event);
+	if (isUpstreamDone) {
+	    return;
+	}
+
+	try {
+	    EventOutcome outcome = reactTo(event);
+	    bufferedOutcomes.incrementAndGet();
+	    outcomes.offer(outcome);
+	} catch (RuntimeException e) {
+	    fail(e);
+	} finally {
+	    requestedEvents.decrementAndGet();
+	}
+	drain();
+    }
+
+    private EventOutcome reactTo(Object event) {
+	boolean wasRunning = modelRunner.isRunning();
+	isEventUnhandled = false;
+	Optional<Step> latestStep = modelRunner.reactTo(event);
+	EventOutcome outcome = new EventOutcome(event, wasRunning && !isEventUnhandled, latestStep.orElse(null));
+	return outcome;
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+	Objects.requireNonNull(throwable);
+	if (!isUpstreamDone) {
+	    error = throwable;
+	    isUpstreamDone = true;
+	    drain();
+	}
+    }
+
+    @Override
+    public void onComplete() {
+	if (!isUpstreamDone) {
+	    isUpstreamDone = true;
+	    drain();
+	}
+    }
+
+    private void fail(Throwable throwable) {
+	Flow.Subscription subscription = upstream.getAndSet(CANCELLED);
+	if (subscription != null) {
+	    subscription.cancel();
+	}
+	onError(throwable);
+    }
+
+    /**
+     * Publishes buffered outcomes as far as downstream demands them, and
+     * requests more events from upstream if there is room for them. Any thread
+     * may call this method, but only one thread at a time runs the loop. The
+     * others leave it to that thread to loop again.
+     */
+    private void drain() {
+	if (drainRequests.getAndIncrement() != 0) {
+	    return;
+	}
+
+	int missedRequests = 1;
+	do {
+	    Flow.Subscriber<? super EventOutcome> subscriber = downstream.get();
+	    if (isCancelled) {
+		outcomes.clear();
+	    } else if (subscriber != null && !isTerminated) {
+		publishOutcomes(subscriber);
+		requestEvents();
+	    }
+	    missedRequests = drainRequests.addAndGet(-missedRequests);
+	} while (missedRequests != 0);
+    }
+
+    private void publishOutcomes(Flow.Subscriber<? super EventOutcome> subscriber) {
+	while (demand.get() > 0) {
+	    EventOutcome outcome = outcomes.poll();
+	    if (outcome == null) {
+		break;
+	    }
+	    bufferedOutcomes.decrementAndGet();
+	    if (demand.get() != Long.MAX_VALUE) {
+		demand.decrementAndGet();
+	    }
+	    subscriber.onNext(outcome);
+	}
+
+	if (isUpstreamDone && outcomes.isEmpty()) {
+	    isTerminated = true;
+	    if (error != null) {
+		subscriber.onError(error);
+	    } else {
+		subscriber.onComplete();
+	    }
+	}
+    }
+
+    private void requestEvents() {
+	Flow.Subscription subscription = upstream.get();
+	if (subscription == null || isUpstreamDone) {
+	    return;
+	}
+	long room = batchSize - bufferedOutcomes.get() - requestedEvents.get();
+	if (room >= (batchSize + 1) / 2) {
+	    requestedEvents.addAndGet(room);
+	    subscription.request(room);
+	}
+    }
+
+    private class OutcomeSubscription implements Flow.Subscription {
+	@Override
+	public void request(long n) {
+	    if (n <= 0) {
+		fail(new IllegalArgumentException("Subscriber must request a positive number of outcomes, but requested " + n));
+		return;
+	    }
+	    demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+	    drain();
+	}
+
+	@Override
+	public void cancel() {
+	    isCancelled = true;
+	    Flow.Subscription subscription = upstream.getAndSet(CANCELLED);
+	    if (subscription != null) {
+		subscription.cancel();
+	    }
+	    drain();
+	}
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Flow package of requirementsascode, containing an adapter that lets a
+ * {@link org.requirementsascode.ModelRunner} take part in a
+ * {@link java.util.concurrent.Flow} pipeline, with backpressure.
+ *
+ * @author b_muth
+ */
+package org.requirementsascode.flow;
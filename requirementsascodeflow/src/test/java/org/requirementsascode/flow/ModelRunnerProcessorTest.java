@@ -0,0 +1,194 @@
+package org.requirementsascode.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+
+public class ModelRunnerProcessorTest {
+    private ModelRunner modelRunner;
+    private TestSubscriber subscriber;
+    private TestSubscription upstream;
+
+    @Before
+    public void setup() {
+	this.modelRunner = new ModelRunner();
+	this.subscriber = new TestSubscriber();
+	this.upstream = new TestSubscription();
+    }
+
+    @Test
+    public void publishesHandledAndUnhandledOutcomes() throws InterruptedException {
+	Model model = Model.builder().useCase("Use case")
+		.on(EntersText.class).system(entersText -> {})
+		.build();
+
+	ModelRunnerProcessor processor = new ModelRunnerProcessor(modelRunner.run(model), 16);
+	processor.subscribe(subscriber);
+	subscriber.request(Long.MAX_VALUE);
+	try (SubmissionPublisher<Object> publisher = new SubmissionPublisher<>()) {
+	    publisher.subscribe(processor);
+	    publisher.submit(new EntersText());
+	    publisher.submit(new EntersNumber());
+	}
+
+	assertTrue(subscriber.awaitTermination());
+	assertEquals(2, subscriber.outcomes.size());
+	assertTrue(subscriber.outcomes.get(0).isHandled());
+	assertEquals("S1", subscriber.outcomes.get(0).getLatestStep().get().getName());
+	assertFalse(subscriber.outcomes.get(1).isHandled());
+	assertTrue(subscriber.outcomes.get(1).getEvent() instanceof EntersNumber);
+	assertTrue(subscriber.isCompleted);
+    }
+
+    @Test
+    public void requestsEventsOnlyIfSubscriberTakesOutcomes() {
+	Model model = Model.builder().useCase("Use case")
+		.on(EntersText.class).system(entersText -> {})
+		.build();
+
+	ModelRunnerProcessor processor = new ModelRunnerProcessor(modelRunner.run(model), 4);
+	processor.subscribe(subscriber);
+	processor.onSubscribe(upstream);
+	assertEquals(4, upstream.requestedEvents);
+
+	for (int i = 0; i < 4; i++) {
+	    processor.onNext(new EntersText());
+	}
+	assertEquals(4, upstream.requestedEvents);
+	assertEquals(0, subscriber.outcomes.size());
+
+	subscriber.request(1);
+	assertEquals(1, subscriber.outcomes.size());
+	assertEquals(4, upstream.requestedEvents);
+
+	subscriber.request(1);
+	assertEquals(2, subscriber.outcomes.size());
+	assertEquals(6, upstream.requestedEvents);
+    }
+
+    @Test
+    public void cancelsUpstreamAndPassesExceptionToSubscriber() throws InterruptedException {
+	Model model = Model.builder().useCase("Use case")
+		.on(EntersText.class).system(entersText -> {})
+		.on(EntersText.class).system(entersText -> {})
+		.build();
+
+	ModelRunnerProcessor processor = new ModelRunnerProcessor(modelRunner.run(model), 4);
+	processor.subscribe(subscriber);
+	processor.onSubscribe(upstream);
+	processor.onNext(new EntersText());
+
+	assertTrue(subscriber.awaitTermination());
+	assertTrue(subscriber.error instanceof MoreThanOneStepCanReact);
+	assertTrue(upstream.isCancelled);
+    }
+
+    @Test
+    public void cancelsUpstreamIfSubscriberCancels() {
+	ModelRunnerProcessor processor = new ModelRunnerProcessor(modelRunner, 4);
+	processor.subscribe(subscriber);
+	processor.onSubscribe(upstream);
+
+	subscriber.subscription.cancel();
+	assertTrue(upstream.isCancelled);
+    }
+
+    @Test
+    public void reactsToManyEventsWithSlowSubscriber() throws InterruptedException {
+	Model model = Model.builder().useCase("Use case")
+		.on(EntersText.class).system(entersText -> {})
+		.build();
+
+	ModelRunnerProcessor processor = new ModelRunnerProcessor(modelRunner.run(model), 8);
+	TestSubscriber slowSubscriber = new TestSubscriber() {
+	    @Override
+	    public void onNext(EventOutcome outcome) {
+		super.onNext(outcome);
+		request(1);
+	    }
+	};
+	processor.subscribe(slowSubscriber);
+	slowSubscriber.request(1);
+	try (SubmissionPublisher<Object> publisher = new SubmissionPublisher<>()) {
+	    publisher.subscribe(processor);
+	    for (int i = 0; i < 10000; i++) {
+		publisher.submit(new EntersText());
+	    }
+	}
+
+	assertTrue(slowSubscriber.awaitTermination());
+	assertEquals(10000, slowSubscriber.outcomes.size());
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<EventOutcome> {
+	private final List<EventOutcome> outcomes = new ArrayList<>();
+	private final CountDownLatch termination = new CountDownLatch(1);
+	private Flow.Subscription subscription;
+	private volatile boolean isCompleted;
+	private volatile Throwable error;
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+	    this.subscription = subscription;
+	}
+
+	void request(long n) {
+	    subscription.request(n);
+	}
+
+	@Override
+	public void onNext(EventOutcome outcome) {
+	    outcomes.add(outcome);
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+	    error = throwable;
+	    termination.countDown();
+	}
+
+	@Override
+	public void onComplete() {
+	    isCompleted = true;
+	    termination.countDown();
+	}
+
+	boolean awaitTermination() throws InterruptedException {
+	    return termination.await(10, TimeUnit.SECONDS);
+	}
+    }
+
+    private static class TestSubscription implements Flow.Subscription {
+	private long requestedEvents;
+	private boolean isCancelled;
+
+	@Override
+	public void request(long n) {
+	    requestedEvents += n;
+	}
+
+	@Override
+	public void cancel() {
+	    isCancelled = true;
+	}
+    }
+
+    private static class EntersText {
+    }
+
+    private static class EntersNumber {
+    }
+}
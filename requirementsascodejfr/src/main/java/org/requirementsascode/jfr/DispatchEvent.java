@@ -0,0 +1,42 @@
+package org.requirementsascode.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted after a runner has looked for the step that reacts to an event. Its
+ * duration is the time it took.
+ *
+ * @author b_muth
+ */
+@Name(DispatchEvent.NAME)
+@Label("Dispatch")
+@Category(JfrRunnerMetrics.CATEGORY)
+@Description("A runner has looked for the step that reacts to an event")
+@Enabled(false)
+@StackTrace(false)
+final class DispatchEvent extends Event {
+    static final String NAME = "org.requirementsascode.Dispatch";
+
+    @Label("Event Class")
+    Class<?> eventClass;
+
+    @Label("Step")
+    @Description("The step that reacts to the event, or null if no step reacts")
+    String step;
+
+    @Label("Use Case")
+    String useCase;
+
+    @Label("Candidate Steps")
+    @Description("The number of steps checked, because they can react to events of the class")
+    int candidateSteps;
+
+    @Label("Condition Evaluations")
+    int conditionEvaluations;
+}
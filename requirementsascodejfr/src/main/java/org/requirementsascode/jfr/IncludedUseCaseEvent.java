@@ -0,0 +1,40 @@
+package org.requirementsascode.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when a runner enters an included use case, and when it exits it.
+ *
+ * @author b_muth
+ */
+@Name(IncludedUseCaseEvent.NAME)
+@Label("Included Use Case")
+@Category(JfrRunnerMetrics.CATEGORY)
+@Description("A runner has entered or exited an included use case")
+@Enabled(false)
+@StackTrace(false)
+final class IncludedUseCaseEvent extends Event {
+    static final String NAME = "org.requirementsascode.IncludedUseCase";
+    static final String ENTER = "enter";
+    static final String EXIT = "exit";
+
+    @Label("Action")
+    @Description("Either enter or exit")
+    String action;
+
+    @Label("Included Use Case")
+    String includedUseCase;
+
+    @Label("Include Step")
+    String includeStep;
+
+    @Label("Use Case")
+    @Description("The use case of the include step")
+    String useCase;
+}
@@ -0,0 +1,177 @@
+package org.requirementsascode.jfr;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.requirementsascode.FlowStep;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.RunnerMetrics;
+import org.requirementsascode.Step;
+import org.requirementsascode.UseCase;
+
+import jdk.jfr.EventType;
+
+/**
+ * Metrics that emit Java Flight Recorder events for the runners that measure
+ * with them:
+ *
+ * <ul>
+ * <li>{@value DispatchEvent#NAME}: the runner has looked for the step that
+ * reacts to an event, with the event class, the number of candidate steps and
+ * the step it has found</li>
+ * <li>{@value SystemReactionEvent#NAME}: the runner has run the system
+ * reaction of a step, with the names of the step, its use case and flow</li>
+ * <li>{@value IncludedUseCaseEvent#NAME}: the runner has entered or exited an
+ * included use case</li>
+ * <li>{@value UnhandledEvent#NAME}: no step has reacted to an event</li>
+ * </ul>
+ *
+ * <p>
+ * The event types are disabled by default. Enable them in the settings of the
+ * recording, for example:
+ *
+ * <pre>
+ * recording.enable("org.requirementsascode.SystemReaction");
+ * </pre>
+ *
+ * <p>
+ * A dispatch or system reaction event begins before the runner looks for the
+ * step or runs it, and is committed afterwards. So the duration of the event is
+ * the time it took, and the recording shows the garbage collections and lock
+ * contention during that time. While an event type is disabled, its events
+ * aren't created, and the clock isn't read.
+ *
+ * <p>
+ * Runners on different threads can share an instance. It keeps the events that
+ * have begun per thread.
+ *
+ * <p>
+ * The runner looks for autonomous system reactions after each step it has run.
+ * If the model has none, no dispatch event is emitted for the check.
+ *
+ * @see ModelRunner#startMeasuring(RunnerMetrics)
+ * @author b_muth
+ */
+public class JfrRunnerMetrics implements RunnerMetrics {
+    static final String CATEGORY = "Requirements as Code";
+
+    private static final EventType DISPATCH_EVENT_TYPE = EventType.getEventType(DispatchEvent.class);
+    private static final EventType SYSTEM_REACTION_EVENT_TYPE = EventType.getEventType(SystemReactionEvent.class);
+    private static final SystemReactionEvent NOT_BEGUN = new SystemReactionEvent();
+
+    private final ThreadLocal<DispatchEvent> dispatchEvents;
+    private final ThreadLocal<Deque<SystemReactionEvent>> systemReactionEvents;
+
+    /**
+     * Creates metrics that emit events while the event types are enabled.
+     */
+    public JfrRunnerMetrics() {
+	this.dispatchEvents = new ThreadLocal<>();
+	this.systemReactionEvents = ThreadLocal.withInitial(ArrayDeque::new);
+    }
+
+    /**
+     * Returns false, as the events measure the time themselves.
+     *
+     * @return false
+     */
+    @Override
+    public boolean measuresTime() {
+	return false;
+    }
+
+    /**
+     * Begins a dispatch event. Looking for a step doesn't let the runner react to
+     * other events, so a thread has at most one dispatch event that has begun.
+     * If looking for the step throws an exception, the next dispatch event
+     * replaces it.
+     */
+    @Override
+    public void stepSelecting(Class<?> eventClass) {
+	if (DISPATCH_EVENT_TYPE.isEnabled()) {
+	    DispatchEvent event = new DispatchEvent();
+	    event.begin();
+	    dispatchEvents.set(event);
+	}
+    }
+
+    @Override
+    public void stepSelected(Class<?> eventClass, Step step, int candidateSteps, int conditionEvaluations,
+	    long nanos) {
+	DispatchEvent event = dispatchEvents.get();
+	if (event == null) {
+	    return;
+	}
+	dispatchEvents.set(null);
+	if (candidateSteps == 0 && ModelRunner.class.equals(eventClass)) {
+	    return;
+	}
+	if (event.shouldCommit()) {
+	    event.eventClass = eventClass;
+	    if (step != null) {
+		event.step = step.getName();
+		event.useCase = step.getUseCase().getName();
+	    }
+	    event.candidateSteps = candidateSteps;
+	    event.conditionEvaluations = conditionEvaluations;
+	    event.commit();
+	}
+    }
+
+    /**
+     * Begins a system reaction event. The system reaction can let the runner
+     * react to other events, so the events that have begun are kept on a stack.
+     */
+    @Override
+    public void stepRunning(Step step) {
+	SystemReactionEvent event = NOT_BEGUN;
+	if (SYSTEM_REACTION_EVENT_TYPE.isEnabled()) {
+	    event = new SystemReactionEvent();
+	    event.begin();
+	}
+	systemReactionEvents.get().push(event);
+    }
+
+    @Override
+    public void stepRun(Step step, long nanos) {
+	SystemReactionEvent event = systemReactionEvents.get().pop();
+	if (event != NOT_BEGUN && event.shouldCommit()) {
+	    event.step = step.getName();
+	    event.useCase = step.getUseCase().getName();
+	    if (step instanceof FlowStep) {
+		event.flow = ((FlowStep) step).getFlow().getName();
+	    }
+	    event.commit();
+	}
+    }
+
+    @Override
+    public void includedUseCaseStarted(UseCase includedUseCase, FlowStep includeStep) {
+	commitIncludedUseCaseEvent(IncludedUseCaseEvent.ENTER, includedUseCase, includeStep);
+    }
+
+    @Override
+    public void includedUseCaseEnded(UseCase includedUseCase, FlowStep includeStep) {
+	commitIncludedUseCaseEvent(IncludedUseCaseEvent.EXIT, includedUseCase, includeStep);
+    }
+
+    private void commitIncludedUseCaseEvent(String action, UseCase includedUseCase, FlowStep includeStep) {
+	IncludedUseCaseEvent event = new IncludedUseCaseEvent();
+	if (event.shouldCommit()) {
+	    event.action = action;
+	    event.includedUseCase = includedUseCase.getName();
+	    event.includeStep = includeStep.getName();
+	    event.useCase = includeStep.getUseCase().getName();
+	    event.commit();
+	}
+    }
+
+    @Override
+    public void eventUnhandled(Object unhandledEvent) {
+	UnhandledEvent event = new UnhandledEvent();
+	if (event.shouldCommit()) {
+	    event.eventClass = unhandledEvent.getClass();
+	    event.commit();
+	}
+    }
+}
@@ -0,0 +1,35 @@
+package org.requirementsascode.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted after a runner has run the system reaction of a step. Its duration is
+ * the time it took.
+ *
+ * @author b_muth
+ */
+@Name(SystemReactionEvent.NAME)
+@Label("System Reaction")
+@Category(JfrRunnerMetrics.CATEGORY)
+@Description("A runner has run the system reaction of a step")
+@Enabled(false)
+@StackTrace(false)
+final class SystemReactionEvent extends Event {
+    static final String NAME = "org.requirementsascode.SystemReaction";
+
+    @Label("Step")
+    String step;
+
+    @Label("Use Case")
+    String useCase;
+
+    @Label("Flow")
+    @Description("The flow of the step, or null if the step doesn't belong to a flow")
+    String flow;
+}
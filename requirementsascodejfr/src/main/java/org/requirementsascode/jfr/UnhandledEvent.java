@@ -0,0 +1,27 @@
+package org.requirementsascode.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when no step of a runner has reacted to an event.
+ *
+ * @author b_muth
+ */
+@Name(UnhandledEvent.NAME)
+@Label("Unhandled Event")
+@Category(JfrRunnerMetrics.CATEGORY)
+@Description("No step of a runner has reacted to an event")
+@Enabled(false)
+@StackTrace(false)
+final class UnhandledEvent extends Event {
+    static final String NAME = "org.requirementsascode.UnhandledEvent";
+
+    @Label("Event Class")
+    Class<?> eventClass;
+}
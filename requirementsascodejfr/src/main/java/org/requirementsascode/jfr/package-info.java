@@ -0,0 +1,7 @@
+/**
+ * JFR package of requirementsascode, containing metrics that make a
+ * {@link org.requirementsascode.ModelRunner} emit Java Flight Recorder events.
+ *
+ * @author b_muth
+ */
+package org.requirementsascode.jfr;
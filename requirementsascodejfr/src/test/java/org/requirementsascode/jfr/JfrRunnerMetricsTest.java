@@ -0,0 +1,190 @@
+package org.requirementsascode.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class JfrRunnerMetricsTest {
+    private static final long SLEEP_MILLIS = 20;
+
+    private ModelRunner modelRunner;
+    private Recording recording;
+    private Path recordingFile;
+
+    @Before
+    public void setup() throws IOException {
+	this.modelRunner = new ModelRunner().startMeasuring(new JfrRunnerMetrics());
+	this.recording = new Recording();
+	this.recordingFile = Files.createTempFile("requirementsascode", ".jfr");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+	recording.close();
+	Files.deleteIfExists(recordingFile);
+    }
+
+    @Test
+    public void emitsDispatchAndSystemReactionEvents() throws IOException {
+	Model model = Model.builder()
+		.useCase("Use case")
+			.basicFlow()
+				.step("S1").user(EntersText.class).system(entersText -> {})
+		.build();
+
+	recording.enable(DispatchEvent.NAME);
+	recording.enable(SystemReactionEvent.NAME);
+	recording.start();
+	modelRunner.run(model).reactTo(new EntersText());
+	List<RecordedEvent> events = stopAndReadEvents();
+
+	RecordedEvent dispatch = single(events, DispatchEvent.NAME);
+	assertEquals(EntersText.class.getName(), dispatch.getClass("eventClass").getName());
+	assertEquals("S1", dispatch.getString("step"));
+	assertEquals("Use case", dispatch.getString("useCase"));
+	assertEquals(1, dispatch.getInt("candidateSteps"));
+	assertTrue(!dispatch.getDuration().isNegative());
+
+	RecordedEvent systemReaction = single(events, SystemReactionEvent.NAME);
+	assertEquals("S1", systemReaction.getString("step"));
+	assertEquals("Use case", systemReaction.getString("useCase"));
+	assertEquals("Basic flow", systemReaction.getString("flow"));
+    }
+
+    @Test
+    public void beginsEventsBeforeDispatchAndSystemReaction() throws IOException {
+	Model model = Model.builder()
+		.useCase("Use case")
+			.basicFlow()
+				.step("S1").user(EntersText.class).system(this::sleeps)
+		.build();
+
+	recording.enable(DispatchEvent.NAME);
+	recording.enable(SystemReactionEvent.NAME);
+	recording.start();
+	modelRunner.run(model).reactTo(new EntersText());
+	List<RecordedEvent> events = stopAndReadEvents();
+
+	RecordedEvent dispatch = single(events, DispatchEvent.NAME);
+	RecordedEvent systemReaction = single(events, SystemReactionEvent.NAME);
+	assertTrue(systemReaction.getDuration().toMillis() >= SLEEP_MILLIS);
+	assertTrue(!dispatch.getEndTime().isAfter(systemReaction.getStartTime()));
+    }
+
+    @Test
+    public void emitsIncludedUseCaseEvents() throws IOException {
+	Model model = Model.builder()
+		.useCase("Included use case")
+			.basicFlow()
+				.step("Included step").user(EntersText.class).system(entersText -> {})
+		.useCase("Use case")
+			.basicFlow()
+				.step("Include step").includesUseCase("Included use case")
+		.build();
+
+	recording.enable(IncludedUseCaseEvent.NAME);
+	recording.start();
+	modelRunner.run(model).reactTo(new EntersText());
+	List<RecordedEvent> events = stopAndReadEvents();
+
+	assertEquals(2, events.size());
+	assertEquals(IncludedUseCaseEvent.ENTER, events.get(0).getString("action"));
+	assertEquals(IncludedUseCaseEvent.EXIT, events.get(1).getString("action"));
+	for (RecordedEvent event : events) {
+	    assertEquals("Included use case", event.getString("includedUseCase"));
+	    assertEquals("Include step", event.getString("includeStep"));
+	    assertEquals("Use case", event.getString("useCase"));
+	}
+    }
+
+    @Test
+    public void emitsUnhandledEvent() throws IOException {
+	Model model = Model.builder()
+		.useCase("Use case")
+			.on(EntersText.class).system(entersText -> {})
+		.build();
+
+	recording.enable(UnhandledEvent.NAME);
+	recording.start();
+	modelRunner.run(model).reactTo(new EntersText(), Integer.valueOf(1));
+	List<RecordedEvent> events = stopAndReadEvents();
+
+	RecordedEvent unhandledEvent = single(events, UnhandledEvent.NAME);
+	assertEquals(Integer.class.getName(), unhandledEvent.getClass("eventClass").getName());
+    }
+
+    @Test
+    public void emitsNoEventsByDefault() throws IOException {
+	Model model = Model.builder()
+		.useCase("Use case")
+			.on(EntersText.class).system(entersText -> {})
+		.build();
+
+	recording.start();
+	modelRunner.run(model).reactTo(new EntersText(), Integer.valueOf(1));
+	List<RecordedEvent> events = stopAndReadEvents();
+
+	assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void emitsDispatchEventWithoutStepIfNoStepReacts() throws IOException {
+	Model model = Model.builder()
+		.useCase("Use case")
+			.condition(() -> false).on(EntersText.class).system(entersText -> {})
+		.build();
+
+	recording.enable(DispatchEvent.NAME);
+	recording.start();
+	modelRunner.run(model).reactTo(new EntersText());
+	List<RecordedEvent> events = stopAndReadEvents();
+
+	RecordedEvent dispatch = single(events, DispatchEvent.NAME);
+	assertNull(dispatch.getString("step"));
+	assertEquals(1, dispatch.getInt("conditionEvaluations"));
+    }
+
+    private void sleeps(EntersText entersText) {
+	try {
+	    Thread.sleep(SLEEP_MILLIS);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    private List<RecordedEvent> stopAndReadEvents() throws IOException {
+	recording.stop();
+	recording.dump(recordingFile);
+	List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile).stream()
+		.filter(event -> event.getEventType().getName().startsWith("org.requirementsascode."))
+		.collect(Collectors.toList());
+	return events;
+    }
+
+    private RecordedEvent single(List<RecordedEvent> events, String eventName) {
+	List<RecordedEvent> eventsWithName = events.stream()
+		.filter(event -> event.getEventType().getName().equals(eventName))
+		.collect(Collectors.toList());
+	assertEquals(1, eventsWithName.size());
+	return eventsWithName.get(0);
+    }
+
+    private static class EntersText {
+    }
+}